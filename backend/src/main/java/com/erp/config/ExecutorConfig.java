@@ -0,0 +1,61 @@
+package com.erp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    // Keep parallelism below the Hikari pool size: every worker holds a connection for its chunk transaction.
+    @Bean(name = "payrollExecutor")
+    public ThreadPoolTaskExecutor payrollExecutor(
+            @Value("${payroll.calculation.parallelism:3}") int parallelism,
+            @Value("${payroll.calculation.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("payroll-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    // Background stage of clock-in/out (notifications, project enrichment). When the queue is full the request
+    // thread runs the task itself, so a burst slows punches down rather than dropping side effects.
+    @Bean(name = "attendanceExecutor")
+    public ThreadPoolTaskExecutor attendanceExecutor(
+            @Value("${attendance.clock.async-threads:2}") int threads,
+            @Value("${attendance.clock.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("attendance-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    // Chunks of the year-end and monthly leave accrual jobs; same connection budget as payroll
+    @Bean(name = "leaveAccrualExecutor")
+    public ThreadPoolTaskExecutor leaveAccrualExecutor(
+            @Value("${leave.accrual.parallelism:2}") int parallelism,
+            @Value("${leave.accrual.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("leave-accrual-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+}
@@ -39,6 +39,9 @@ public class ApiController {
     @Autowired
     private GoodsReceiptService goodsReceiptService;
     
+    @Autowired
+    private FieldProjectionService fieldProjectionService;
+    
     @Autowired
     private GoodsIssueService goodsIssueService;
     
@@ -188,6 +191,15 @@ public class ApiController {
         return ResponseEntity.ok(itemService.findAll());
     }
     
+    @GetMapping(value = "/inventory/items", params = "fields")
+    public ResponseEntity<?> getItemFields(@RequestParam String fields) {
+        try {
+            return ResponseEntity.ok(fieldProjectionService.select(Item.class, fields, null, null, "root.id ASC"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping("/inventory/items/active")
     public ResponseEntity<List<Item>> getActiveItems() {
         return ResponseEntity.ok(itemService.findAllActive());
@@ -4,21 +4,39 @@ import com.erp.model.AttendanceRecord;
 import com.erp.model.AttendanceRule;
 import com.erp.model.ProjectTimeEntry;
 import com.erp.model.Employee;
+import com.erp.repository.AttendanceDailyRollupRepository;
 import com.erp.repository.AttendanceRecordRepository;
 import com.erp.repository.AttendanceRuleRepository;
 import com.erp.repository.ProjectTimeEntryRepository;
 import com.erp.repository.ProjectMemberRepository;
 import com.erp.repository.EmployeeRepository;
-import com.erp.repository.UserRepository;
 import com.erp.model.ProjectMember;
 import com.erp.model.User;
+import com.erp.service.AttendanceAnomalyScheduler;
+import com.erp.service.AttendanceClockException;
+import com.erp.service.AttendanceClockService;
+import com.erp.service.AttendanceImportService;
+import com.erp.service.AttendancePunchService;
+import com.erp.service.AttendanceRollupService;
+import com.erp.service.BranchEmployeeIndex;
+import com.erp.service.BulkApprovalService;
+import com.erp.service.GeofenceIndex;
 import com.erp.service.UserNotificationService;
 import com.erp.security.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -34,9 +52,17 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 public class AttendanceController {
 
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1900, 1, 1);
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final DateTimeFormatter CLOCK_TIME = DateTimeFormatter.ofPattern("HH:mm");
+
     @Autowired
     private AttendanceRecordRepository attendanceRecordRepository;
 
+    @Autowired
+    private AttendanceDailyRollupRepository attendanceDailyRollupRepository;
+
     @Autowired
     private AttendanceRuleRepository attendanceRuleRepository;
 
@@ -45,9 +71,30 @@ public class AttendanceController {
 
     @Autowired
     private EmployeeRepository employeeRepository;
-    
+
     @Autowired
-    private UserRepository userRepository;
+    private BranchEmployeeIndex branchEmployeeIndex;
+
+    @Autowired
+    private AttendanceClockService attendanceClockService;
+
+    @Autowired
+    private AttendanceImportService attendanceImportService;
+
+    @Autowired
+    private AttendanceRollupService attendanceRollupService;
+
+    @Autowired
+    private BulkApprovalService bulkApprovalService;
+
+    @Autowired
+    private AttendancePunchService attendancePunchService;
+
+    @Autowired
+    private GeofenceIndex geofenceIndex;
+
+    @Autowired
+    private AttendanceAnomalyScheduler attendanceAnomalyScheduler;
     
     @Autowired
     private UserNotificationService userNotificationService;
@@ -76,6 +123,17 @@ public class AttendanceController {
         return false;
     }
 
+    private boolean isAdmin(HttpServletRequest request) {
+        if (isSuperAdmin(request)) {
+            return true;
+        }
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return "ADMIN".equals(jwtUtil.extractRole(authHeader.substring(7)));
+        }
+        return false;
+    }
+
     private void setProjectFromEmployee(AttendanceRecord record, Employee employee) {
         try {
             if (employee.getProject() != null) {
@@ -102,10 +160,14 @@ public class AttendanceController {
         return employeeRepository.findByActiveTrue();
     }
     
+    // The branch to filter by in SQL, or null for every branch
+    private Long getBranchFilter(HttpServletRequest request) {
+        return isSuperAdmin(request) ? null : extractBranchId(request);
+    }
+
     private Set<Long> getEmployeeIdsForBranch(HttpServletRequest request) {
-        return getEmployeesForBranch(request).stream()
-                .map(Employee::getId)
-                .collect(Collectors.toSet());
+        Long branchId = getBranchFilter(request);
+        return branchId != null ? branchEmployeeIndex.forBranch(branchId) : branchEmployeeIndex.allActive();
     }
 
     private void populateProjectForRecords(List<AttendanceRecord> records) {
@@ -116,15 +178,82 @@ public class AttendanceController {
         }
     }
 
+    // Same fields and clock format as an AttendanceRecord in the other listing endpoints
+    private Map<String, Object> toResponse(AttendanceRecordRepository.AttendanceRow row) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("id", row.getId());
+        item.put("employeeId", row.getEmployeeId());
+        item.put("employeeCode", row.getEmployeeCode());
+        item.put("firstName", row.getFirstName());
+        item.put("lastName", row.getLastName());
+        item.put("attendanceDate", row.getAttendanceDate());
+        item.put("clockIn", row.getClockIn() != null ? row.getClockIn().format(CLOCK_TIME) : null);
+        item.put("clockOut", row.getClockOut() != null ? row.getClockOut().format(CLOCK_TIME) : null);
+        item.put("status", row.getStatus());
+        item.put("approvalStatus", row.getApprovalStatus());
+        item.put("captureMethod", row.getCaptureMethod());
+        item.put("regularHours", row.getRegularHours());
+        item.put("overtimeHours", row.getOvertimeHours());
+        item.put("lateArrival", row.getLateArrival());
+        item.put("lateMinutes", row.getLateMinutes());
+        item.put("earlyDeparture", row.getEarlyDeparture());
+        item.put("earlyMinutes", row.getEarlyMinutes());
+        item.put("remarks", row.getRemarks());
+        item.put("projectCode", row.getProjectCode());
+        item.put("projectName", row.getProjectName());
+        return item;
+    }
+
     @GetMapping
     public ResponseEntity<List<AttendanceRecord>> getAllRecords(HttpServletRequest request) {
-        Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
-        List<AttendanceRecord> records = attendanceRecordRepository.findAll().stream()
-                .filter(r -> r.getEmployee() != null && branchEmployeeIds.contains(r.getEmployee().getId()))
-                .collect(Collectors.toList());
+        List<AttendanceRecord> records = attendanceRecordRepository.findForBranchBetween(getBranchFilter(request), EARLIEST_DATE, LATEST_DATE);
         populateProjectForRecords(records);
         return ResponseEntity.ok(records);
     }
+
+    // Keyset-paginated listing, newest first. Pass the returned nextCursor to fetch the following page; super
+    // admins may narrow to one branch with branchId.
+    @GetMapping("/page")
+    public ResponseEntity<?> getPage(
+            HttpServletRequest request,
+            @RequestParam(required = false) Long branchId,
+            @RequestParam(required = false) Long employeeId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        Long branchFilter = isSuperAdmin(request) ? branchId : extractBranchId(request);
+        LocalDate cursorDate = LATEST_DATE;
+        Long cursorId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = cursor.split(":");
+            try {
+                cursorDate = LocalDate.parse(parts[0]);
+                cursorId = Long.valueOf(parts[1]);
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor: " + cursor));
+            }
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        List<AttendanceRecordRepository.AttendanceRow> rows = attendanceRecordRepository.findPageAfter(
+            branchFilter, employeeId, status,
+            startDate != null ? LocalDate.parse(startDate) : EARLIEST_DATE,
+            endDate != null ? LocalDate.parse(endDate) : LATEST_DATE,
+            cursorDate, cursorId, PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<AttendanceRecordRepository.AttendanceRow> items = hasMore ? rows.subList(0, pageSize) : rows;
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items.stream().map(this::toResponse).collect(Collectors.toList()));
+        response.put("size", items.size());
+        if (hasMore) {
+            AttendanceRecordRepository.AttendanceRow last = items.get(items.size() - 1);
+            response.put("nextCursor", last.getAttendanceDate() + ":" + last.getId());
+        }
+        return ResponseEntity.ok(response);
+    }
     
     @GetMapping("/employees-for-clock")
     public ResponseEntity<List<Employee>> getEmployeesForClock(HttpServletRequest request) {
@@ -138,10 +267,7 @@ public class AttendanceController {
             @RequestParam String endDate) {
         LocalDate start = LocalDate.parse(startDate);
         LocalDate end = LocalDate.parse(endDate);
-        Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
-        List<AttendanceRecord> records = attendanceRecordRepository.findByAttendanceDateBetween(start, end).stream()
-                .filter(r -> r.getEmployee() != null && branchEmployeeIds.contains(r.getEmployee().getId()))
-                .collect(Collectors.toList());
+        List<AttendanceRecord> records = attendanceRecordRepository.findForBranchBetween(getBranchFilter(request), start, end);
         populateProjectForRecords(records);
         return ResponseEntity.ok(records);
     }
@@ -160,10 +286,7 @@ public class AttendanceController {
     @GetMapping("/date/{date}")
     public ResponseEntity<List<AttendanceRecord>> getByDate(HttpServletRequest request, @PathVariable String date) {
         LocalDate localDate = LocalDate.parse(date);
-        Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
-        List<AttendanceRecord> records = attendanceRecordRepository.findByAttendanceDate(localDate).stream()
-                .filter(r -> r.getEmployee() != null && branchEmployeeIds.contains(r.getEmployee().getId()))
-                .collect(Collectors.toList());
+        List<AttendanceRecord> records = attendanceRecordRepository.findForBranchBetween(getBranchFilter(request), localDate, localDate);
         populateProjectForRecords(records);
         return ResponseEntity.ok(records);
     }
@@ -210,62 +333,15 @@ public class AttendanceController {
         String clientTime = (String) request.get("clientTime");
         String clientDate = (String) request.get("clientDate");
 
-        Employee employee = employeeRepository.findById(employeeId).orElse(null);
-        if (employee == null) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Employee not found"));
-        }
-
         LocalDate today = clientDate != null ? LocalDate.parse(clientDate) : LocalDate.now();
-        Optional<AttendanceRecord> existing = attendanceRecordRepository.findByEmployeeIdAndAttendanceDate(employeeId, today);
-        if (existing.isPresent() && existing.get().getClockIn() != null && existing.get().getClockOut() == null) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Already clocked in for " + today + ". Please clock out first."));
-        }
-        if (existing.isPresent() && existing.get().getClockIn() != null && existing.get().getClockOut() != null) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Attendance already completed for " + today + ". Use 'Add Entry' for corrections."));
-        }
-
-        AttendanceRecord record = existing.orElse(new AttendanceRecord());
-        record.setEmployee(employee);
-        record.setAttendanceDate(today);
         LocalTime clockInTime = clientTime != null ? LocalTime.parse(clientTime) : LocalTime.now();
-        record.setClockIn(clockInTime);
-        record.setCaptureMethod(captureMethod);
-        record.setLocationType(captureMethod);
-        record.setStatus("PRESENT");
-        record.setApprovalStatus("APPROVED");
-        
-        setProjectFromEmployee(record, employee);
-
-        AttendanceRule rule = attendanceRuleRepository.findByIsDefaultTrue().orElse(null);
-        if (rule != null && rule.getStandardStartTime() != null && rule.getGraceMinutesIn() != null) {
-            LocalTime graceTime = rule.getStandardStartTime().plusMinutes(rule.getGraceMinutesIn());
-            if (record.getClockIn().isAfter(graceTime)) {
-                record.setLateArrival(true);
-                record.setLateMinutes((int) ChronoUnit.MINUTES.between(graceTime, record.getClockIn()));
-            } else {
-                record.setLateArrival(false);
-                record.setLateMinutes(0);
-            }
-        }
-
-        AttendanceRecord saved = attendanceRecordRepository.save(record);
-        
+        Double latitude = request.get("latitude") != null ? Double.valueOf(request.get("latitude").toString()) : null;
+        Double longitude = request.get("longitude") != null ? Double.valueOf(request.get("longitude").toString()) : null;
         try {
-            String empCode = employee.getEmployeeCode();
-            if (empCode != null) {
-                userRepository.findByUsername(empCode).ifPresent(user -> {
-                    userNotificationService.createNotification(user.getUsername(), 
-                        "Clock-In Recorded",
-                        "You clocked in at " + clockInTime.format(DateTimeFormatter.ofPattern("hh:mm a")) + " on " + today + ".",
-                        "ATTENDANCE", "Attendance", saved.getId());
-                });
-            }
-            userNotificationService.notifyAdmins("Employee Clocked In",
-                employee.getFirstName() + " " + employee.getLastName() + " clocked in at " + clockInTime.format(DateTimeFormatter.ofPattern("hh:mm a")),
-                "ATTENDANCE", "Attendance", saved.getId());
-        } catch (Exception e) {}
-        
-        return ResponseEntity.ok(saved);
+            return ResponseEntity.ok(attendanceClockService.clockIn(employeeId, captureMethod, today, clockInTime, latitude, longitude));
+        } catch (AttendanceClockException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PostMapping("/clock-out")
@@ -279,70 +355,27 @@ public class AttendanceController {
         String clientDate = (String) request.get("clientDate");
 
         LocalDate today = clientDate != null ? LocalDate.parse(clientDate) : LocalDate.now();
-        Optional<AttendanceRecord> existing = attendanceRecordRepository.findByEmployeeIdAndAttendanceDate(employeeId, today);
-        if (existing.isEmpty()) {
-            return ResponseEntity.badRequest().body(Map.of("error", "No clock-in record found for today"));
-        }
-
-        AttendanceRecord record = existing.get();
-        if (record.getClockOut() != null) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Already clocked out today"));
-        }
-
         LocalTime clockOutTime = clientTime != null ? LocalTime.parse(clientTime) : LocalTime.now();
-        record.setClockOut(clockOutTime);
-
-        if (record.getClockIn() != null) {
-            long minutesWorked = ChronoUnit.MINUTES.between(record.getClockIn(), record.getClockOut());
-            BigDecimal hoursWorked = BigDecimal.valueOf(minutesWorked / 60.0);
-
-            AttendanceRule rule = attendanceRuleRepository.findByIsDefaultTrue().orElse(null);
-            BigDecimal regularHours = rule != null && rule.getRegularHoursPerDay() != null
-                ? rule.getRegularHoursPerDay()
-                : BigDecimal.valueOf(8);
-
-            if (rule != null && rule.getAutoDeductBreak() != null && rule.getAutoDeductBreak() && rule.getBreakDurationMinutes() != null) {
-                BigDecimal breakHours = rule.getBreakDurationMinutes().divide(BigDecimal.valueOf(60), 2, java.math.RoundingMode.HALF_UP);
-                hoursWorked = hoursWorked.subtract(breakHours);
-                record.setBreakDuration(rule.getBreakDurationMinutes());
-            }
-
-            if (hoursWorked.compareTo(regularHours) > 0) {
-                record.setRegularHours(regularHours);
-                record.setOvertimeHours(hoursWorked.subtract(regularHours));
-            } else {
-                record.setRegularHours(hoursWorked);
-                record.setOvertimeHours(BigDecimal.ZERO);
-            }
-
-            if (rule != null && rule.getStandardEndTime() != null && rule.getGraceMinutesOut() != null) {
-                LocalTime earlyTime = rule.getStandardEndTime().minusMinutes(rule.getGraceMinutesOut());
-                if (record.getClockOut().isBefore(earlyTime)) {
-                    record.setEarlyDeparture(true);
-                    record.setEarlyMinutes((int) ChronoUnit.MINUTES.between(record.getClockOut(), earlyTime));
-                }
-            }
+        try {
+            return ResponseEntity.ok(attendanceClockService.clockOut(employeeId, today, clockOutTime));
+        } catch (AttendanceClockException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
+    }
 
-        record.setApprovalStatus("PENDING");
+    // Lets a mobile client tell the user before clocking in whether they are inside their work site's geofence
+    @GetMapping("/geofence/check")
+    public ResponseEntity<?> checkGeofence(HttpServletRequest httpRequest, @RequestParam Long employeeId,
+                                           @RequestParam Double latitude, @RequestParam Double longitude) {
+        if (!getEmployeeIdsForBranch(httpRequest).contains(employeeId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(geofenceIndex.check(employeeId, latitude, longitude));
+    }
 
-        AttendanceRecord savedOut = attendanceRecordRepository.save(record);
-        
-        try {
-            Employee employee = record.getEmployee();
-            if (employee != null && employee.getEmployeeCode() != null) {
-                userRepository.findByUsername(employee.getEmployeeCode()).ifPresent(user -> {
-                    long mins = record.getClockIn() != null ? ChronoUnit.MINUTES.between(record.getClockIn(), clockOutTime) : 0;
-                    String hours = String.format("%.1f", mins / 60.0);
-                    userNotificationService.createNotification(user.getUsername(),
-                        "Clock-Out Recorded",
-                        "You clocked out at " + clockOutTime.format(DateTimeFormatter.ofPattern("hh:mm a")) + ". Total hours: " + hours,
-                        "ATTENDANCE", "Attendance", savedOut.getId());
-                });
-            }
-        } catch (Exception e) {}
-        
-        return ResponseEntity.ok(savedOut);
+    @GetMapping("/clock-stats")
+    public ResponseEntity<Map<String, Object>> getClockStats() {
+        return ResponseEntity.ok(attendanceClockService.getLatencyStats());
     }
 
     @PostMapping("/manual-entry")
@@ -411,7 +444,7 @@ public class AttendanceController {
             long minutesWorked = ChronoUnit.MINUTES.between(clockIn, clockOut);
             BigDecimal hoursWorked = BigDecimal.valueOf(minutesWorked / 60.0);
             
-            AttendanceRule rule = attendanceRuleRepository.findByIsDefaultTrue().orElse(null);
+            AttendanceRule rule = attendanceClockService.defaultRule().orElse(null);
             BigDecimal regularHoursLimit = rule != null && rule.getRegularHoursPerDay() != null
                 ? rule.getRegularHoursPerDay()
                 : BigDecimal.valueOf(8);
@@ -431,68 +464,55 @@ public class AttendanceController {
             }
         }
 
-        return ResponseEntity.ok(attendanceRecordRepository.save(record));
+        return ResponseEntity.ok(attendanceRollupService.save(record));
     }
 
+    // Streams the request body (a JSON array, or CSV when sent as text/csv) instead of binding it to a list
     @PostMapping("/bulk-upload")
-    public ResponseEntity<?> bulkUpload(@RequestBody List<Map<String, Object>> records) {
-        List<AttendanceRecord> savedRecords = new ArrayList<>();
-        List<String> errors = new ArrayList<>();
-
-        for (Map<String, Object> data : records) {
-            try {
-                Long employeeId = Long.valueOf(data.get("employeeId").toString());
-                Employee employee = employeeRepository.findById(employeeId).orElse(null);
-                if (employee == null) {
-                    errors.add("Employee not found: " + employeeId);
-                    continue;
-                }
-
-                LocalDate attendanceDate = LocalDate.parse(data.get("date").toString());
-                
-                // Check for existing entry to prevent duplicates - update instead
-                Optional<AttendanceRecord> existing = attendanceRecordRepository.findByEmployeeIdAndAttendanceDate(employeeId, attendanceDate);
-                AttendanceRecord record;
-                if (existing.isPresent()) {
-                    record = existing.get();
-                } else {
-                    record = new AttendanceRecord();
-                    record.setEmployee(employee);
-                    record.setAttendanceDate(attendanceDate);
-                }
-                
-                record.setStatus((String) data.getOrDefault("status", "PRESENT"));
-                record.setCaptureMethod("EXCEL_UPLOAD");
-                record.setApprovalStatus("APPROVED");
-
-                if (data.containsKey("clockIn") && data.get("clockIn") != null) {
-                    record.setClockIn(LocalTime.parse(data.get("clockIn").toString()));
-                }
-                if (data.containsKey("clockOut") && data.get("clockOut") != null) {
-                    record.setClockOut(LocalTime.parse(data.get("clockOut").toString()));
-                }
-                if (data.containsKey("regularHours") && data.get("regularHours") != null) {
-                    record.setRegularHours(new BigDecimal(data.get("regularHours").toString()));
-                }
-                if (data.containsKey("overtimeHours") && data.get("overtimeHours") != null) {
-                    record.setOvertimeHours(new BigDecimal(data.get("overtimeHours").toString()));
-                }
-                if (data.containsKey("remarks")) {
-                    record.setRemarks((String) data.get("remarks"));
-                }
-
-                savedRecords.add(attendanceRecordRepository.save(record));
-            } catch (Exception e) {
-                errors.add("Error processing record: " + e.getMessage());
+    public ResponseEntity<?> bulkUpload(HttpServletRequest httpRequest) {
+        try {
+            String contentType = httpRequest.getContentType();
+            if (contentType != null && contentType.toLowerCase().startsWith("text/csv")) {
+                return ResponseEntity.ok(attendanceImportService.importCsv(httpRequest.getReader()));
             }
+            return ResponseEntity.ok(attendanceImportService.importJson(httpRequest.getInputStream()));
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Could not read attendance import: " + e.getMessage()));
         }
+    }
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("saved", savedRecords.size());
-        response.put("errors", errors);
-        response.put("records", savedRecords);
+    @PostMapping("/bulk-upload/file")
+    public ResponseEntity<?> bulkUploadFile(@RequestParam("file") MultipartFile file) {
+        String name = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+        try (InputStream in = file.getInputStream()) {
+            if (name.endsWith(".json")) {
+                return ResponseEntity.ok(attendanceImportService.importJson(in));
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            return ResponseEntity.ok(attendanceImportService.importCsv(reader));
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Could not read attendance import: " + e.getMessage()));
+        }
+    }
 
-        return ResponseEntity.ok(response);
+    // Punch sync from an attendance terminal: {deviceId, punches: [{punchId, employeeId or employeeCode, punchedAt, type}]}.
+    // Safe to retry; punches the device already sent come back as duplicates.
+    @PostMapping("/terminal/punches")
+    public ResponseEntity<?> ingestTerminalPunches(@RequestBody Map<String, Object> request) {
+        String deviceId = request.get("deviceId") != null ? request.get("deviceId").toString().trim() : "";
+        if (deviceId.isEmpty() || deviceId.length() > 100) {
+            return ResponseEntity.badRequest().body(Map.of("error", "A deviceId of at most 100 characters is required"));
+        }
+        if (!(request.get("punches") instanceof List)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No punches provided"));
+        }
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> punches = (List<Map<String, Object>>) request.get("punches");
+        if (punches.size() > attendancePunchService.getMaxBatchSize()) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                "At most " + attendancePunchService.getMaxBatchSize() + " punches can be sent in one sync"));
+        }
+        return ResponseEntity.ok(attendancePunchService.ingest(deviceId, punches));
     }
 
     @PostMapping("/direct-entry")
@@ -523,7 +543,7 @@ public class AttendanceController {
                 existingRecord.setRegularHours(BigDecimal.valueOf(4));
             }
 
-            return ResponseEntity.ok(attendanceRecordRepository.save(existingRecord));
+            return ResponseEntity.ok(attendanceRollupService.save(existingRecord));
         }
 
         AttendanceRecord record = new AttendanceRecord();
@@ -539,7 +559,7 @@ public class AttendanceController {
             record.setRegularHours(BigDecimal.valueOf(4));
         }
 
-        return ResponseEntity.ok(attendanceRecordRepository.save(record));
+        return ResponseEntity.ok(attendanceRollupService.save(record));
     }
 
     @PutMapping("/{id}")
@@ -568,7 +588,7 @@ public class AttendanceController {
                     long minutesWorked = ChronoUnit.MINUTES.between(existing.getClockIn(), existing.getClockOut());
                     BigDecimal hoursWorked = BigDecimal.valueOf(minutesWorked / 60.0);
                     
-                    AttendanceRule rule = attendanceRuleRepository.findByIsDefaultTrue().orElse(null);
+                    AttendanceRule rule = attendanceClockService.defaultRule().orElse(null);
                     BigDecimal regularHoursLimit = rule != null && rule.getRegularHoursPerDay() != null
                         ? rule.getRegularHoursPerDay()
                         : BigDecimal.valueOf(8);
@@ -589,7 +609,7 @@ public class AttendanceController {
                 }
                 
                 existing.setCaptureMethod("EDITED");
-                return ResponseEntity.ok(attendanceRecordRepository.save(existing));
+                return ResponseEntity.ok(attendanceRollupService.save(existing));
             })
             .orElse(ResponseEntity.notFound().build());
     }
@@ -604,7 +624,7 @@ public class AttendanceController {
                     Long approverId = Long.valueOf(request.get("approverId").toString());
                     employeeRepository.findById(approverId).ifPresent(record::setApprovedBy);
                 }
-                AttendanceRecord saved = attendanceRecordRepository.save(record);
+                AttendanceRecord saved = attendanceRollupService.save(record);
                 try {
                     if (saved.getEmployee() != null) {
                         userNotificationService.notifyEmployee(saved.getEmployee(),
@@ -619,7 +639,7 @@ public class AttendanceController {
     }
 
     @PutMapping("/bulk-approve")
-    public ResponseEntity<?> bulkApprove(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> bulkApprove(HttpServletRequest httpRequest, @RequestBody Map<String, Object> request) {
         @SuppressWarnings("unchecked")
         List<Number> ids = (List<Number>) request.get("ids");
         if (ids == null || ids.isEmpty()) {
@@ -632,45 +652,8 @@ public class AttendanceController {
         }
         Employee approver = approverId != null ? employeeRepository.findById(approverId).orElse(null) : null;
 
-        List<AttendanceRecord> approved = new ArrayList<>();
-        List<String> errors = new ArrayList<>();
-        List<String> skipped = new ArrayList<>();
-
-        for (Number idNum : ids) {
-            Long id = idNum.longValue();
-            Optional<AttendanceRecord> optRecord = attendanceRecordRepository.findById(id);
-            
-            if (optRecord.isEmpty()) {
-                errors.add("Record not found: " + id);
-                continue;
-            }
-            
-            AttendanceRecord record = optRecord.get();
-            
-            if ("APPROVED".equals(record.getApprovalStatus())) {
-                skipped.add("Already approved: " + id);
-                continue;
-            }
-            
-            if ("REJECTED".equals(record.getApprovalStatus())) {
-                skipped.add("Already rejected, cannot approve: " + id);
-                continue;
-            }
-            
-            record.setApprovalStatus("APPROVED");
-            record.setApprovedAt(LocalDateTime.now());
-            if (approver != null) {
-                record.setApprovedBy(approver);
-            }
-            approved.add(attendanceRecordRepository.save(record));
-        }
-
-        Map<String, Object> response = new HashMap<>();
-        response.put("approved", approved.size());
-        response.put("skipped", skipped.size());
-        response.put("errors", errors);
-        response.put("skippedDetails", skipped);
-        return ResponseEntity.ok(response);
+        List<Long> recordIds = ids.stream().map(Number::longValue).collect(Collectors.toList());
+        return ResponseEntity.ok(bulkApprovalService.approveAttendance(recordIds, getBranchFilter(httpRequest), approver));
     }
 
     @PutMapping("/{id}/reject")
@@ -682,18 +665,19 @@ public class AttendanceController {
                 if (request.containsKey("remarks")) {
                     record.setRemarks((String) request.get("remarks"));
                 }
-                return ResponseEntity.ok(attendanceRecordRepository.save(record));
+                return ResponseEntity.ok(attendanceRollupService.save(record));
             })
             .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
-        if (attendanceRecordRepository.existsById(id)) {
-            attendanceRecordRepository.deleteById(id);
-            return ResponseEntity.ok().build();
-        }
-        return ResponseEntity.notFound().build();
+        return attendanceRecordRepository.findById(id)
+            .map(record -> {
+                attendanceRollupService.delete(record);
+                return ResponseEntity.ok().<Void>build();
+            })
+            .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/rules")
@@ -716,7 +700,9 @@ public class AttendanceController {
                 attendanceRuleRepository.save(existing);
             });
         }
-        return ResponseEntity.ok(attendanceRuleRepository.save(rule));
+        AttendanceRule saved = attendanceRuleRepository.save(rule);
+        attendanceClockService.invalidateRules();
+        return ResponseEntity.ok(saved);
     }
 
     @PutMapping("/rules/{id}")
@@ -730,7 +716,9 @@ public class AttendanceController {
                         attendanceRuleRepository.save(other);
                     });
                 }
-                return ResponseEntity.ok(attendanceRuleRepository.save(rule));
+                AttendanceRule saved = attendanceRuleRepository.save(rule);
+                attendanceClockService.invalidateRules();
+                return ResponseEntity.ok(saved);
             })
             .orElse(ResponseEntity.notFound().build());
     }
@@ -739,6 +727,7 @@ public class AttendanceController {
     public ResponseEntity<Void> deleteRule(@PathVariable Long id) {
         if (attendanceRuleRepository.existsById(id)) {
             attendanceRuleRepository.deleteById(id);
+            attendanceClockService.invalidateRules();
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
@@ -825,24 +814,50 @@ public class AttendanceController {
     public ResponseEntity<Map<String, Object>> getTodaySummary(HttpServletRequest request) {
         LocalDate today = LocalDate.now();
         Map<String, Object> summary = new HashMap<>();
-        
-        Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
-        List<AttendanceRecord> todayRecords = attendanceRecordRepository.findByAttendanceDate(today).stream()
-                .filter(r -> r.getEmployee() != null && branchEmployeeIds.contains(r.getEmployee().getId()))
-                .collect(Collectors.toList());
 
-        long present = todayRecords.stream().filter(r -> "PRESENT".equals(r.getStatus())).count();
-        long absent = todayRecords.stream().filter(r -> "ABSENT".equals(r.getStatus())).count();
-        long onLeave = todayRecords.stream().filter(r -> "ON_LEAVE".equals(r.getStatus())).count();
-        long lateArrivals = todayRecords.stream().filter(r -> Boolean.TRUE.equals(r.getLateArrival())).count();
+        AttendanceDailyRollupRepository.RollupTotals totals = attendanceDailyRollupRepository.sumBetween(getBranchFilter(request), today, today);
 
         summary.put("date", today.toString());
-        summary.put("present", present);
-        summary.put("absent", absent);
-        summary.put("onLeave", onLeave);
-        summary.put("lateArrivals", lateArrivals);
-        summary.put("totalEmployees", branchEmployeeIds.size());
+        summary.put("present", totals.getPresent());
+        summary.put("absent", totals.getAbsent());
+        summary.put("onLeave", totals.getOnLeave());
+        summary.put("lateArrivals", totals.getLate());
+        summary.put("totalEmployees", getEmployeeIdsForBranch(request).size());
 
         return ResponseEntity.ok(summary);
     }
+
+    // Records the anomaly sweep flagged for the day (yesterday by default)
+    @GetMapping("/anomalies")
+    public ResponseEntity<List<AttendanceRecord>> getAnomalies(HttpServletRequest request, @RequestParam(required = false) String date) {
+        LocalDate day = date != null ? LocalDate.parse(date) : LocalDate.now().minusDays(1);
+        return ResponseEntity.ok(attendanceRecordRepository.findFlaggedForBranch(getBranchFilter(request), day));
+    }
+
+    // Runs the nightly anomaly sweep for one day now
+    @PostMapping("/anomalies/sweep")
+    public ResponseEntity<?> sweepAnomalies(HttpServletRequest request, @RequestParam(required = false) String date) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied. Admin privileges required."));
+        }
+        LocalDate day = date != null ? LocalDate.parse(date) : LocalDate.now().minusDays(1);
+        return ResponseEntity.ok(attendanceAnomalyScheduler.sweep(day));
+    }
+
+    // Recounts the daily rollups from the attendance records, for all days unless a range is given
+    @PostMapping("/summary/rebuild")
+    public ResponseEntity<?> rebuildSummaries(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate) {
+        LocalDate start = startDate != null ? LocalDate.parse(startDate) : attendanceRecordRepository.findEarliestAttendanceDate();
+        LocalDate end = endDate != null ? LocalDate.parse(endDate) : attendanceRecordRepository.findLatestAttendanceDate();
+        if (start == null || end == null) {
+            return ResponseEntity.ok(Map.of("rows", 0));
+        }
+        if (end.isBefore(start)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "endDate must not be before startDate"));
+        }
+        int rows = attendanceRollupService.rebuild(start, end);
+        return ResponseEntity.ok(Map.of("startDate", start.toString(), "endDate", end.toString(), "rows", rows));
+    }
 }
@@ -182,6 +182,11 @@ public class BranchController {
         branch.setSecondaryColor((String) branchData.getOrDefault("secondaryColor", "#14919b"));
         branch.setLogoPath((String) branchData.get("logoPath"));
         branch.setActive(branchData.get("active") == null || Boolean.TRUE.equals(branchData.get("active")));
+        branch.setGeofenceEnabled(Boolean.TRUE.equals(branchData.get("geofenceEnabled")));
+        branch.setLatitude(branchData.get("latitude") != null ? Double.valueOf(branchData.get("latitude").toString()) : null);
+        branch.setLongitude(branchData.get("longitude") != null ? Double.valueOf(branchData.get("longitude").toString()) : null);
+        branch.setGeofenceRadiusMeters(branchData.get("geofenceRadiusMeters") != null
+            ? Integer.valueOf(branchData.get("geofenceRadiusMeters").toString()) : null);
         branch.setCreatedAt(LocalDateTime.now());
         branch.setUpdatedAt(LocalDateTime.now());
         
@@ -291,6 +296,10 @@ public class BranchController {
                 existing.setCurrency(branch.getCurrency());
                 existing.setDateFormat(branch.getDateFormat());
                 existing.setTimezone(branch.getTimezone());
+                existing.setGeofenceEnabled(branch.getGeofenceEnabled());
+                existing.setLatitude(branch.getLatitude());
+                existing.setLongitude(branch.getLongitude());
+                existing.setGeofenceRadiusMeters(branch.getGeofenceRadiusMeters());
                 if (isSuperAdmin(request)) {
                     existing.setActive(branch.getActive());
                     existing.setPrimaryColor(branch.getPrimaryColor());
@@ -126,6 +126,8 @@ public class BranchSettingsController {
         if (settingsUpdate.getAutoGenerateEmployeeId() != null) existing.setAutoGenerateEmployeeId(settingsUpdate.getAutoGenerateEmployeeId());
         if (settingsUpdate.getEmployeeIdPrefix() != null) existing.setEmployeeIdPrefix(settingsUpdate.getEmployeeIdPrefix());
         if (settingsUpdate.getEmployeeIdNextNumber() != null) existing.setEmployeeIdNextNumber(settingsUpdate.getEmployeeIdNextNumber());
+        if (settingsUpdate.getWeekendDays() != null) existing.setWeekendDays(settingsUpdate.getWeekendDays());
+        if (settingsUpdate.getWorkweekStartDay() != null) existing.setWorkweekStartDay(settingsUpdate.getWorkweekStartDay());
         existing.setUpdatedAt(LocalDateTime.now());
         
         BranchSettings saved = branchSettingsRepository.save(existing);
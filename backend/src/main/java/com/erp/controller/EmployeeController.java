@@ -3,6 +3,8 @@ package com.erp.controller;
 import com.erp.model.*;
 import com.erp.repository.*;
 import com.erp.security.JwtUtil;
+import com.erp.service.AttendanceRollupService;
+import com.erp.service.FieldProjectionService;
 import com.erp.service.UserNotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -56,6 +58,9 @@ public class EmployeeController {
     
     @Autowired
     private ProjectMemberRepository projectMemberRepository;
+
+    @Autowired
+    private FieldProjectionService fieldProjectionService;
     
     @Autowired
     private JwtUtil jwtUtil;
@@ -128,6 +133,20 @@ public class EmployeeController {
         return employees;
     }
     
+    // ?fields=id,firstName,department.name selects only those columns instead of whole employees with their
+    // associations; project comes from the employee row only, without the project membership fallback
+    @GetMapping(params = "fields")
+    public ResponseEntity<?> getAllFields(@RequestParam String fields, HttpServletRequest request) {
+        Long branchId = isSuperAdmin(request) ? null : extractBranchId(request);
+        try {
+            return ResponseEntity.ok(fieldProjectionService.select(Employee.class, fields,
+                branchId != null ? "root.branch.id = :branchId" : null,
+                branchId != null ? java.util.Map.of("branchId", branchId) : null, "root.id ASC"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/active")
     public List<Employee> getActiveEmployees(HttpServletRequest request) {
         List<Employee> employees;
@@ -365,6 +384,9 @@ public class EmployeeController {
     @Autowired
     private jakarta.persistence.EntityManager entityManager;
 
+    @Autowired
+    private AttendanceRollupService attendanceRollupService;
+
     @DeleteMapping("/{id}")
     @org.springframework.transaction.annotation.Transactional
     public ResponseEntity<?> delete(@PathVariable Long id, HttpServletRequest request) {
@@ -375,6 +397,7 @@ public class EmployeeController {
                 .map(employee -> {
                     try {
                         entityManager.createNativeQuery("DELETE FROM employee_bank_details WHERE employee_id = :id").setParameter("id", id).executeUpdate();
+                        entityManager.createNativeQuery("DELETE FROM payroll_retro_adjustments WHERE employee_id = :id").setParameter("id", id).executeUpdate();
                         entityManager.createNativeQuery("DELETE FROM employee_salaries WHERE employee_id = :id").setParameter("id", id).executeUpdate();
                         entityManager.createNativeQuery("DELETE FROM employee_education WHERE employee_id = :id").setParameter("id", id).executeUpdate();
                         entityManager.createNativeQuery("DELETE FROM employee_experience WHERE employee_id = :id").setParameter("id", id).executeUpdate();
@@ -382,9 +405,13 @@ public class EmployeeController {
                         entityManager.createNativeQuery("DELETE FROM employee_benefits WHERE employee_id = :id").setParameter("id", id).executeUpdate();
                         entityManager.createNativeQuery("DELETE FROM employee_documents WHERE employee_id = :id").setParameter("id", id).executeUpdate();
                         entityManager.createNativeQuery("DELETE FROM leave_requests WHERE employee_id = :id").setParameter("id", id).executeUpdate();
+                        entityManager.createNativeQuery("DELETE FROM leave_transactions WHERE employee_id = :id").setParameter("id", id).executeUpdate();
                         entityManager.createNativeQuery("DELETE FROM leave_balances WHERE employee_id = :id").setParameter("id", id).executeUpdate();
+                        entityManager.createNativeQuery("DELETE FROM attendance_punches WHERE employee_id = :id").setParameter("id", id).executeUpdate();
+                        attendanceRollupService.employeeRecordsDeleting(id);
                         entityManager.createNativeQuery("DELETE FROM attendance_records WHERE employee_id = :id").setParameter("id", id).executeUpdate();
                         entityManager.createNativeQuery("DELETE FROM payroll_records WHERE employee_id = :id").setParameter("id", id).executeUpdate();
+                        entityManager.createNativeQuery("DELETE FROM payroll_ytd_accumulators WHERE employee_id = :id").setParameter("id", id).executeUpdate();
                         entityManager.createNativeQuery("DELETE FROM project_time_entries WHERE employee_id = :id").setParameter("id", id).executeUpdate();
                         entityManager.createNativeQuery("DELETE FROM project_timesheets WHERE employee_id = :id").setParameter("id", id).executeUpdate();
                         entityManager.createNativeQuery("DELETE FROM timesheets WHERE employee_id = :id").setParameter("id", id).executeUpdate();
@@ -5,8 +5,17 @@ import com.erp.repository.*;
 import com.erp.security.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
 
+import com.erp.service.BranchEmployeeIndex;
+import com.erp.service.BulkApprovalService;
+import com.erp.service.LeaveAccrualService;
+import com.erp.service.LeaveCalendarIndex;
+import com.erp.service.LeaveCalendarIndex.LeaveSpan;
+import com.erp.service.LeaveLedgerService;
+import com.erp.service.WorkingDayCalendar;
 import com.erp.service.UserNotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,6 +31,8 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 public class LeaveController {
 
+    private static final int MAX_CALENDAR_DAYS = 366;
+
     @Autowired
     private LeaveTypeRepository leaveTypeRepository;
 
@@ -36,6 +47,24 @@ public class LeaveController {
 
     @Autowired
     private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private BranchEmployeeIndex branchEmployeeIndex;
+
+    @Autowired
+    private BulkApprovalService bulkApprovalService;
+
+    @Autowired
+    private LeaveLedgerService leaveLedgerService;
+
+    @Autowired
+    private LeaveAccrualService leaveAccrualService;
+
+    @Autowired
+    private LeaveCalendarIndex leaveCalendarIndex;
+
+    @Autowired
+    private WorkingDayCalendar workingDayCalendar;
     
     @Autowired
     private JwtUtil jwtUtil;
@@ -69,22 +98,21 @@ public class LeaveController {
         }
         return false;
     }
-    
-    private List<Employee> getEmployeesForBranch(HttpServletRequest request) {
+
+    private boolean isAdmin(HttpServletRequest request) {
         if (isSuperAdmin(request)) {
-            return employeeRepository.findByActiveTrue();
+            return true;
         }
-        Long branchId = extractBranchId(request);
-        if (branchId != null) {
-            return employeeRepository.findByBranchIdAndActiveTrue(branchId);
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return "ADMIN".equals(jwtUtil.extractRole(authHeader.substring(7)));
         }
-        return employeeRepository.findByActiveTrue();
+        return false;
     }
     
     private Set<Long> getEmployeeIdsForBranch(HttpServletRequest request) {
-        return getEmployeesForBranch(request).stream()
-                .map(Employee::getId)
-                .collect(Collectors.toSet());
+        Long branchId = isSuperAdmin(request) ? null : extractBranchId(request);
+        return branchId != null ? branchEmployeeIndex.forBranch(branchId) : branchEmployeeIndex.allActive();
     }
 
     @GetMapping("/types")
@@ -221,9 +249,15 @@ public class LeaveController {
             
             totalDays = totalHours.divide(BigDecimal.valueOf(8), 2, java.math.RoundingMode.HALF_UP);
         } else {
-            long daysBetween = ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()) + 1;
-            long holidays = holidayRepository.countHolidaysBetweenDates(request.getStartDate(), request.getEndDate());
-            totalDays = BigDecimal.valueOf(daysBetween - holidays);
+            if (Boolean.TRUE.equals(leaveType.getCountNonWorkingDays())) {
+                totalDays = BigDecimal.valueOf(ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()) + 1);
+            } else {
+                Long branchId = employee.getBranch() != null ? employee.getBranch().getId() : null;
+                totalDays = BigDecimal.valueOf(workingDayCalendar.workingDaysBetween(branchId, request.getStartDate(), request.getEndDate()));
+            }
+            if (totalDays.signum() <= 0) {
+                return ResponseEntity.badRequest().body(Map.of("error", "The selected dates contain no working days"));
+            }
             if ("HALF_DAY_AM".equals(request.getDayType()) || "HALF_DAY_PM".equals(request.getDayType())) {
                 totalDays = totalDays.subtract(BigDecimal.valueOf(0.5));
             }
@@ -234,25 +268,30 @@ public class LeaveController {
             request.setEmergencyContact((String) requestData.get("emergencyContact"));
         }
 
-        int currentYear = LocalDate.now().getYear();
-        Optional<LeaveBalance> balanceOpt = leaveBalanceRepository.findByEmployeeIdAndLeaveTypeIdAndYear(employeeId, leaveTypeId, currentYear);
-        if (balanceOpt.isPresent()) {
-            LeaveBalance balance = balanceOpt.get();
-            if (balance.getAvailableBalance().compareTo(totalDays) < 0) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Insufficient leave balance", "available", balance.getAvailableBalance(), "requested", totalDays));
-            }
-            balance.setPending(balance.getPending().add(totalDays));
-            leaveBalanceRepository.save(balance);
+        Long departmentId = employee.getDepartment() != null ? employee.getDepartment().getId() : null;
+        List<LeaveSpan> conflicts = leaveCalendarIndex.conflicts(employeeId, departmentId, request.getStartDate(),
+            request.getEndDate(), request.getDayType(), isHourlyLeave);
+        if (!conflicts.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Leave request overlaps an existing leave request", "conflicts", conflicts));
         }
 
-        LeaveRequest saved = leaveRequestRepository.save(request);
+        LeaveRequest saved = leaveLedgerService.submit(request);
+        if (saved == null) {
+            BigDecimal available = leaveBalanceRepository.findByEmployeeIdAndLeaveTypeIdAndYear(employeeId, leaveTypeId,
+                    request.getStartDate().getYear())
+                .map(LeaveBalance::getAvailableBalance).orElse(BigDecimal.ZERO);
+            return ResponseEntity.badRequest().body(Map.of("error", "Insufficient leave balance", "available", available, "requested", totalDays));
+        }
 
         // Send notification to manager/HR about new leave request
         String employeeName = employee.getFirstName() + " " + employee.getLastName();
         String leaveTypeName = leaveType.getName();
+        long teammatesOut = leaveCalendarIndex.outOn(departmentId, request.getStartDate(), request.getEndDate()).stream()
+            .map(LeaveSpan::getEmployeeId).filter(id -> !id.equals(employeeId)).distinct().count();
         userNotificationService.notifyAdmins(
             "New Leave Request",
-            employeeName + " has submitted a " + leaveTypeName + " leave request for " + totalDays + " day(s)",
+            employeeName + " has submitted a " + leaveTypeName + " leave request for " + totalDays + " day(s)"
+                + (teammatesOut > 0 ? "; " + teammatesOut + " teammate(s) in the department are also away on these dates" : ""),
             "LEAVE_REQUEST",
             "LEAVE_REQUEST",
             saved.getId()
@@ -261,6 +300,22 @@ public class LeaveController {
         return ResponseEntity.ok(saved);
     }
 
+    @PutMapping("/requests/bulk-approve")
+    public ResponseEntity<?> bulkApproveRequests(HttpServletRequest httpRequest, @RequestBody Map<String, Object> data) {
+        List<?> ids = (List<?>) data.get("ids");
+        if (ids == null || ids.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No IDs provided"));
+        }
+        Employee approver = null;
+        if (data.containsKey("approverId")) {
+            approver = employeeRepository.findById(Long.valueOf(data.get("approverId").toString())).orElse(null);
+        }
+        List<Long> requestIds = ids.stream().map(id -> Long.valueOf(id.toString())).collect(Collectors.toList());
+        Long branchId = isSuperAdmin(httpRequest) ? null : extractBranchId(httpRequest);
+        return ResponseEntity.ok(bulkApprovalService.approveLeaveRequests(requestIds, branchId, approver,
+            (String) data.get("approverRemarks")));
+    }
+
     @PutMapping("/requests/{id}/approve")
     public ResponseEntity<?> approveRequest(HttpServletRequest httpRequest, @PathVariable Long id, @RequestBody Map<String, Object> data) {
         Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(httpRequest);
@@ -277,30 +332,7 @@ public class LeaveController {
                     employeeRepository.findById(approverId).ifPresent(request::setApprovedBy);
                 }
 
-                int currentYear = request.getStartDate().getYear();
-                Optional<LeaveBalance> balanceOpt = leaveBalanceRepository.findByEmployeeIdAndLeaveTypeIdAndYear(
-                    request.getEmployee().getId(), request.getLeaveType().getId(), currentYear);
-                LeaveBalance balance;
-                if (balanceOpt.isPresent()) {
-                    balance = balanceOpt.get();
-                    balance.setPending(balance.getPending().subtract(request.getTotalDays()));
-                } else {
-                    balance = new LeaveBalance();
-                    balance.setEmployee(request.getEmployee());
-                    balance.setLeaveType(request.getLeaveType());
-                    balance.setYear(currentYear);
-                    balance.setOpeningBalance(request.getLeaveType().getAnnualEntitlement() != null ? 
-                        request.getLeaveType().getAnnualEntitlement() : BigDecimal.ZERO);
-                    balance.setCredited(BigDecimal.ZERO);
-                    balance.setPending(BigDecimal.ZERO);
-                    balance.setLapsed(BigDecimal.ZERO);
-                    balance.setCarryForward(BigDecimal.ZERO);
-                    balance.setEncashed(BigDecimal.ZERO);
-                }
-                balance.setUsed((balance.getUsed() != null ? balance.getUsed() : BigDecimal.ZERO).add(request.getTotalDays()));
-                leaveBalanceRepository.save(balance);
-
-                LeaveRequest saved = leaveRequestRepository.save(request);
+                LeaveRequest saved = leaveLedgerService.approve(request);
                 
                 // Notify employee that their leave was approved
                 if (request.getEmployee() != null && request.getEmployee().getEmail() != null) {
@@ -335,16 +367,7 @@ public class LeaveController {
                     employeeRepository.findById(approverId).ifPresent(request::setApprovedBy);
                 }
 
-                int currentYear = request.getStartDate().getYear();
-                Optional<LeaveBalance> balanceOpt = leaveBalanceRepository.findByEmployeeIdAndLeaveTypeIdAndYear(
-                    request.getEmployee().getId(), request.getLeaveType().getId(), currentYear);
-                if (balanceOpt.isPresent()) {
-                    LeaveBalance balance = balanceOpt.get();
-                    balance.setPending(balance.getPending().subtract(request.getTotalDays()));
-                    leaveBalanceRepository.save(balance);
-                }
-
-                LeaveRequest saved = leaveRequestRepository.save(request);
+                LeaveRequest saved = leaveLedgerService.release(request, "Rejected");
                 
                 // Notify employee that their leave was rejected
                 if (request.getEmployee() != null && request.getEmployee().getEmail() != null) {
@@ -375,16 +398,7 @@ public class LeaveController {
 
                 request.setStatus("CANCELLED");
 
-                int currentYear = request.getStartDate().getYear();
-                Optional<LeaveBalance> balanceOpt = leaveBalanceRepository.findByEmployeeIdAndLeaveTypeIdAndYear(
-                    request.getEmployee().getId(), request.getLeaveType().getId(), currentYear);
-                if (balanceOpt.isPresent()) {
-                    LeaveBalance balance = balanceOpt.get();
-                    balance.setPending(balance.getPending().subtract(request.getTotalDays()));
-                    leaveBalanceRepository.save(balance);
-                }
-
-                return ResponseEntity.ok(leaveRequestRepository.save(request));
+                return ResponseEntity.ok(leaveLedgerService.release(request, "Cancelled"));
             })
             .orElse(ResponseEntity.notFound().build());
     }
@@ -434,16 +448,7 @@ public class LeaveController {
                     employeeRepository.findById(approverId).ifPresent(request::setManagerApprovedBy);
                 }
 
-                int currentYear = request.getStartDate().getYear();
-                Optional<LeaveBalance> balanceOpt = leaveBalanceRepository.findByEmployeeIdAndLeaveTypeIdAndYear(
-                    request.getEmployee().getId(), request.getLeaveType().getId(), currentYear);
-                if (balanceOpt.isPresent()) {
-                    LeaveBalance balance = balanceOpt.get();
-                    balance.setPending(balance.getPending().subtract(request.getTotalDays()));
-                    leaveBalanceRepository.save(balance);
-                }
-
-                return ResponseEntity.ok(leaveRequestRepository.save(request));
+                return ResponseEntity.ok(leaveLedgerService.release(request, "Rejected by manager"));
             })
             .orElse(ResponseEntity.notFound().build());
     }
@@ -471,30 +476,7 @@ public class LeaveController {
                     });
                 }
 
-                int currentYear = request.getStartDate().getYear();
-                Optional<LeaveBalance> balanceOpt = leaveBalanceRepository.findByEmployeeIdAndLeaveTypeIdAndYear(
-                    request.getEmployee().getId(), request.getLeaveType().getId(), currentYear);
-                LeaveBalance balance;
-                if (balanceOpt.isPresent()) {
-                    balance = balanceOpt.get();
-                    balance.setPending(balance.getPending().subtract(request.getTotalDays()));
-                } else {
-                    balance = new LeaveBalance();
-                    balance.setEmployee(request.getEmployee());
-                    balance.setLeaveType(request.getLeaveType());
-                    balance.setYear(currentYear);
-                    balance.setOpeningBalance(request.getLeaveType().getAnnualEntitlement() != null ? 
-                        request.getLeaveType().getAnnualEntitlement() : BigDecimal.ZERO);
-                    balance.setCredited(BigDecimal.ZERO);
-                    balance.setPending(BigDecimal.ZERO);
-                    balance.setLapsed(BigDecimal.ZERO);
-                    balance.setCarryForward(BigDecimal.ZERO);
-                    balance.setEncashed(BigDecimal.ZERO);
-                }
-                balance.setUsed((balance.getUsed() != null ? balance.getUsed() : BigDecimal.ZERO).add(request.getTotalDays()));
-                leaveBalanceRepository.save(balance);
-
-                return ResponseEntity.ok(leaveRequestRepository.save(request));
+                return ResponseEntity.ok(leaveLedgerService.approve(request));
             })
             .orElse(ResponseEntity.notFound().build());
     }
@@ -518,16 +500,7 @@ public class LeaveController {
                     employeeRepository.findById(approverId).ifPresent(request::setHrApprovedBy);
                 }
 
-                int currentYear = request.getStartDate().getYear();
-                Optional<LeaveBalance> balanceOpt = leaveBalanceRepository.findByEmployeeIdAndLeaveTypeIdAndYear(
-                    request.getEmployee().getId(), request.getLeaveType().getId(), currentYear);
-                if (balanceOpt.isPresent()) {
-                    LeaveBalance balance = balanceOpt.get();
-                    balance.setPending(balance.getPending().subtract(request.getTotalDays()));
-                    leaveBalanceRepository.save(balance);
-                }
-
-                return ResponseEntity.ok(leaveRequestRepository.save(request));
+                return ResponseEntity.ok(leaveLedgerService.release(request, "Rejected by HR"));
             })
             .orElse(ResponseEntity.notFound().build());
     }
@@ -576,18 +549,16 @@ public class LeaveController {
         List<LeaveBalance> balances = new ArrayList<>();
 
         for (LeaveType leaveType : leaveTypes) {
-            Optional<LeaveBalance> existing = leaveBalanceRepository.findByEmployeeIdAndLeaveTypeIdAndYear(employeeId, leaveType.getId(), currentYear);
-            if (existing.isEmpty()) {
-                LeaveBalance balance = new LeaveBalance();
-                balance.setEmployee(employee);
-                balance.setLeaveType(leaveType);
-                balance.setYear(currentYear);
-                balance.setCredited(leaveType.getAnnualEntitlement() != null ? leaveType.getAnnualEntitlement() : BigDecimal.ZERO);
-                
+            if (!leaveBalanceRepository.existsByEmployeeIdAndLeaveTypeIdAndYear(employeeId, leaveType.getId(), currentYear)) {
+                BigDecimal entitlement = leaveType.getAnnualEntitlement() != null ? leaveType.getAnnualEntitlement() : BigDecimal.ZERO;
+                BigDecimal carryForward = BigDecimal.ZERO;
+                boolean fromPreviousYear = false;
+
                 // Handle carry-forward from previous year
                 if (Boolean.TRUE.equals(leaveType.getCarryForwardAllowed())) {
                     Optional<LeaveBalance> prevYearBalance = leaveBalanceRepository.findByEmployeeIdAndLeaveTypeIdAndYear(employeeId, leaveType.getId(), previousYear);
                     if (prevYearBalance.isPresent()) {
+                        fromPreviousYear = true;
                         LeaveBalance prev = prevYearBalance.get();
                         // Calculate carry-forward without subtracting pending (pending should not reduce carry-forward)
                         BigDecimal opening = prev.getOpeningBalance() != null ? prev.getOpeningBalance() : BigDecimal.ZERO;
@@ -605,12 +576,18 @@ public class LeaveController {
                             if (leaveType.getMaxCarryForward() != null && leaveType.getMaxCarryForward().compareTo(BigDecimal.ZERO) > 0) {
                                 carryForwardAmount = carryForwardAmount.min(leaveType.getMaxCarryForward());
                             }
-                            balance.setCarryForward(carryForwardAmount);
+                            carryForward = carryForwardAmount;
                         }
                     }
                 }
-                
-                balances.add(leaveBalanceRepository.save(balance));
+
+                boolean opened = fromPreviousYear
+                    ? leaveLedgerService.openCarriedForward(employeeId, leaveType.getId(), currentYear, entitlement, carryForward, "Initialized")
+                    : leaveLedgerService.open(employeeId, leaveType.getId(), currentYear, BigDecimal.ZERO, entitlement, carryForward, "Initialized");
+                if (opened) {
+                    leaveBalanceRepository.findByEmployeeIdAndLeaveTypeIdAndYear(employeeId, leaveType.getId(), currentYear)
+                        .ifPresent(balances::add);
+                }
             }
         }
 
@@ -618,18 +595,160 @@ public class LeaveController {
     }
 
     @PutMapping("/balances/{id}")
-    public ResponseEntity<LeaveBalance> updateBalance(@PathVariable Long id, @RequestBody LeaveBalance balance) {
+    public ResponseEntity<LeaveBalance> updateBalance(HttpServletRequest request, @PathVariable Long id, @RequestBody LeaveBalance balance) {
+        return leaveLedgerService.adjust(id, balance, extractEmployeeId(request), "Manual adjustment")
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/balances/{id}/transactions")
+    public ResponseEntity<List<LeaveTransaction>> getBalanceTransactions(HttpServletRequest request, @PathVariable Long id) {
+        Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
         return leaveBalanceRepository.findById(id)
-            .map(existing -> {
-                balance.setId(id);
-                balance.setEmployee(existing.getEmployee());
-                balance.setLeaveType(existing.getLeaveType());
-                balance.setYear(existing.getYear());
-                return ResponseEntity.ok(leaveBalanceRepository.save(balance));
-            })
+            .filter(b -> branchEmployeeIds.contains(b.getEmployee().getId()))
+            .map(b -> ResponseEntity.ok(leaveLedgerService.history(b)))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/balances/{id}/rebuild")
+    public ResponseEntity<?> rebuildBalance(HttpServletRequest request, @PathVariable Long id) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied. Admin privileges required."));
+        }
+        Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
+        return leaveBalanceRepository.findById(id)
+            .filter(b -> branchEmployeeIds.contains(b.getEmployee().getId()))
+            .flatMap(b -> leaveLedgerService.rebuild(b.getId()))
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Year-end rollover and monthly accrual run in the background over all employees; the returned run is polled
+    // for progress and can be resumed if chunks failed
+    @PostMapping("/accrual/year-end")
+    public ResponseEntity<?> startYearEndAccrual(HttpServletRequest request, @RequestParam Integer year) {
+        if (!isSuperAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied. Super admin privileges required."));
+        }
+        return ResponseEntity.ok(leaveAccrualService.startYearEnd(year, extractEmployeeId(request)));
+    }
+
+    @PostMapping("/accrual/monthly")
+    public ResponseEntity<?> startMonthlyAccrual(HttpServletRequest request, @RequestParam Integer year, @RequestParam Integer month) {
+        if (!isSuperAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied. Super admin privileges required."));
+        }
+        if (month < 1 || month > 12) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Month must be between 1 and 12"));
+        }
+        return ResponseEntity.ok(leaveAccrualService.startMonthly(year, month, extractEmployeeId(request)));
+    }
+
+    @GetMapping("/accrual/runs")
+    public ResponseEntity<List<LeaveAccrualRun>> getAccrualRuns() {
+        return ResponseEntity.ok(leaveAccrualService.getRecentRuns());
+    }
+
+    @GetMapping("/accrual/runs/{id}")
+    public ResponseEntity<?> getAccrualRun(@PathVariable Long id) {
+        return leaveAccrualService.getRun(id)
+            .<ResponseEntity<?>>map(run -> ResponseEntity.ok(Map.of("run", run, "chunks", leaveAccrualService.getChunks(id))))
             .orElse(ResponseEntity.notFound().build());
     }
 
+    @PostMapping("/accrual/runs/{id}/resume")
+    public ResponseEntity<?> resumeAccrualRun(HttpServletRequest request, @PathVariable Long id) {
+        if (!isSuperAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied. Super admin privileges required."));
+        }
+        if (leaveAccrualService.getRun(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(leaveAccrualService.resume(id));
+    }
+
+    // Who in the department is out on each day of the range, from pending and approved leave
+    @GetMapping("/calendar/team")
+    public ResponseEntity<?> getTeamAvailability(HttpServletRequest request,
+            @RequestParam(required = false) Long departmentId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "End date must not be before start date"));
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_CALENDAR_DAYS) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Date range cannot exceed " + MAX_CALENDAR_DAYS + " days"));
+        }
+        Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
+        List<LeaveSpan> out = leaveCalendarIndex.outOn(departmentId, startDate, endDate).stream()
+            .filter(span -> branchEmployeeIds.contains(span.getEmployeeId()))
+            .collect(Collectors.toList());
+        long headcount = departmentId != null
+            ? employeeRepository.findActiveIdsByDepartment(departmentId).stream().filter(branchEmployeeIds::contains).count()
+            : 0;
+
+        // Employees out per day: each span adds its employee to the days it covers within the range
+        int dayCount = (int) ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        List<Set<Long>> outByDay = new ArrayList<>(dayCount);
+        for (int i = 0; i < dayCount; i++) {
+            outByDay.add(new HashSet<>());
+        }
+        for (LeaveSpan span : out) {
+            LocalDate from = span.getStartDate().isBefore(startDate) ? startDate : span.getStartDate();
+            LocalDate to = span.getEndDate().isAfter(endDate) ? endDate : span.getEndDate();
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                outByDay.get((int) ChronoUnit.DAYS.between(startDate, day)).add(span.getEmployeeId());
+            }
+        }
+        List<Map<String, Object>> days = new ArrayList<>(dayCount);
+        for (int i = 0; i < dayCount; i++) {
+            Map<String, Object> day = new HashMap<>();
+            day.put("date", startDate.plusDays(i));
+            day.put("outCount", outByDay.get(i).size());
+            day.put("employeeIds", outByDay.get(i));
+            if (departmentId != null) {
+                day.put("available", Math.max(0, headcount - outByDay.get(i).size()));
+            }
+            days.add(day);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("departmentId", departmentId);
+        response.put("startDate", startDate);
+        response.put("endDate", endDate);
+        response.put("headcount", headcount);
+        response.put("leave", out);
+        response.put("days", days);
+        return ResponseEntity.ok(response);
+    }
+
+    // Checks a planned leave against the employee's own leave and lists teammates already out
+    @GetMapping("/calendar/conflicts")
+    public ResponseEntity<?> getLeaveConflicts(HttpServletRequest request,
+            @RequestParam Long employeeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "FULL_DAY") String dayType,
+            @RequestParam(defaultValue = "false") boolean hourly) {
+        Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
+        if (!branchEmployeeIds.contains(employeeId)) {
+            return ResponseEntity.notFound().build();
+        }
+        Employee employee = employeeRepository.findById(employeeId).orElse(null);
+        if (employee == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Long departmentId = employee.getDepartment() != null ? employee.getDepartment().getId() : null;
+        List<LeaveSpan> teammates = leaveCalendarIndex.outOn(departmentId, startDate, endDate).stream()
+            .filter(span -> !span.getEmployeeId().equals(employeeId) && branchEmployeeIds.contains(span.getEmployeeId()))
+            .collect(Collectors.toList());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("conflicts", leaveCalendarIndex.conflicts(employeeId, departmentId, startDate, endDate, dayType, hourly));
+        response.put("teammatesOut", teammates);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/holidays")
     public ResponseEntity<List<Holiday>> getAllHolidays() {
         return ResponseEntity.ok(holidayRepository.findAll());
@@ -694,6 +813,23 @@ public class LeaveController {
         return ResponseEntity.ok(calendar);
     }
 
+    @GetMapping("/calendar/working-days")
+    public ResponseEntity<?> getWorkingDays(@RequestParam(required = false) Long branchId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "End date must not be before start date"));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("branchId", branchId);
+        response.put("startDate", startDate);
+        response.put("endDate", endDate);
+        response.put("calendarDays", ChronoUnit.DAYS.between(startDate, endDate) + 1);
+        response.put("workingDays", workingDayCalendar.workingDaysBetween(branchId, startDate, endDate));
+        response.put("holidays", workingDayCalendar.holidaysBetween(branchId, startDate, endDate));
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/summary/employee/{employeeId}")
     public ResponseEntity<Map<String, Object>> getEmployeeLeaveSummary(@PathVariable Long employeeId) {
         int currentYear = LocalDate.now().getYear();
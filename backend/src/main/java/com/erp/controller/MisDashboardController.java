@@ -4,6 +4,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.erp.repository.AttendanceDailyRollupRepository;
+import com.erp.repository.AttendanceDailyRollupRepository.DailyTotals;
+import com.erp.repository.AttendanceDailyRollupRepository.DepartmentTotals;
+import com.erp.repository.AttendanceDailyRollupRepository.RollupTotals;
 import com.erp.repository.EmployeeRepository;
 import com.erp.repository.DepartmentRepository;
 import com.erp.repository.PayrollRecordRepository;
@@ -47,6 +51,9 @@ public class MisDashboardController {
     @Autowired
     private UserNotificationRepository userNotificationRepository;
 
+    @Autowired
+    private AttendanceDailyRollupRepository attendanceDailyRollupRepository;
+
     @GetMapping("/hr")
     public ResponseEntity<Map<String, Object>> getHRStats() {
         try {
@@ -485,20 +492,26 @@ public class MisDashboardController {
     public ResponseEntity<Map<String, Object>> getAttendanceStats() {
         Map<String, Object> stats = new HashMap<>();
         
-        stats.put("presentToday", 138);
-        stats.put("absentToday", 6);
-        stats.put("onLeaveToday", 12);
-        stats.put("lateArrivals", 8);
-        stats.put("avgAttendanceRate", 94.2);
-        stats.put("totalOvertimeHours", 485);
-        
-        List<Map<String, Object>> attendanceTrend = Arrays.asList(
-            Map.of("date", "Mon", "present", 142, "absent", 4, "leave", 10),
-            Map.of("date", "Tue", "present", 140, "absent", 6, "leave", 10),
-            Map.of("date", "Wed", "present", 145, "absent", 3, "leave", 8),
-            Map.of("date", "Thu", "present", 138, "absent", 6, "leave", 12),
-            Map.of("date", "Fri", "present", 135, "absent", 8, "leave", 13)
-        );
+        LocalDate today = LocalDate.now();
+        LocalDate monthStart = today.withDayOfMonth(1);
+
+        RollupTotals todayTotals = attendanceDailyRollupRepository.sumBetween(null, today, today);
+        RollupTotals monthTotals = attendanceDailyRollupRepository.sumBetween(null, monthStart, today);
+        stats.put("presentToday", todayTotals.getPresent());
+        stats.put("absentToday", todayTotals.getAbsent());
+        stats.put("onLeaveToday", todayTotals.getOnLeave());
+        stats.put("lateArrivals", todayTotals.getLate());
+        stats.put("avgAttendanceRate", attendanceRate(monthTotals));
+        stats.put("totalOvertimeHours", monthTotals.getOvertimeHours());
+
+        List<Map<String, Object>> attendanceTrend = new ArrayList<>();
+        for (DailyTotals day : attendanceDailyRollupRepository.sumByDateBetween(null, today.minusDays(6), today)) {
+            attendanceTrend.add(Map.of(
+                "date", day.getRollupDate().format(DateTimeFormatter.ofPattern("EEE")),
+                "present", day.getPresent(),
+                "absent", day.getAbsent(),
+                "leave", day.getOnLeave()));
+        }
         stats.put("attendanceTrend", attendanceTrend);
         
         List<Map<String, Object>> leaveTypes = Arrays.asList(
@@ -510,29 +523,35 @@ public class MisDashboardController {
         );
         stats.put("leaveTypeDistribution", leaveTypes);
         
-        List<Map<String, Object>> deptAttendance = Arrays.asList(
-            Map.of("department", "Engineering", "rate", 96.5),
-            Map.of("department", "Sales", "rate", 92.3),
-            Map.of("department", "Marketing", "rate", 94.8),
-            Map.of("department", "HR", "rate", 98.2),
-            Map.of("department", "Finance", "rate", 95.4),
-            Map.of("department", "Operations", "rate", 91.7)
-        );
+        Map<Long, String> departmentNames = new HashMap<>();
+        departmentRepository.findAll().forEach(d -> departmentNames.put(d.getId(), d.getName()));
+        List<DepartmentTotals> byDepartment = attendanceDailyRollupRepository.sumByDepartmentBetween(null, monthStart, today);
+
+        List<Map<String, Object>> deptAttendance = new ArrayList<>();
+        List<Map<String, Object>> otSummary = new ArrayList<>();
+        for (DepartmentTotals department : byDepartment) {
+            String name = departmentNames.getOrDefault(department.getDepartmentId(), "Unassigned");
+            deptAttendance.add(Map.of("department", name, "rate", attendanceRate(department)));
+            otSummary.add(Map.of("department", name, "hours", department.getOvertimeHours()));
+        }
+        deptAttendance.sort(Comparator.comparing(m -> (String) m.get("department")));
+        otSummary.sort(Comparator.comparing((Map<String, Object> m) -> (BigDecimal) m.get("hours")).reversed());
         stats.put("departmentAttendance", deptAttendance);
-        
-        List<Map<String, Object>> otSummary = Arrays.asList(
-            Map.of("department", "Engineering", "hours", 180),
-            Map.of("department", "Operations", "hours", 120),
-            Map.of("department", "Sales", "hours", 85),
-            Map.of("department", "Finance", "hours", 55),
-            Map.of("department", "Marketing", "hours", 30),
-            Map.of("department", "HR", "hours", 15)
-        );
         stats.put("overtimeSummary", otSummary);
         
         return ResponseEntity.ok(stats);
     }
 
+    // Present and half days as a percentage of the days recorded
+    private static BigDecimal attendanceRate(RollupTotals totals) {
+        if (totals.getRecords() == null || totals.getRecords() == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(totals.getPresent() + totals.getHalfDay())
+            .multiply(BigDecimal.valueOf(100))
+            .divide(BigDecimal.valueOf(totals.getRecords()), 1, java.math.RoundingMode.HALF_UP);
+    }
+
     @GetMapping("/performance")
     public ResponseEntity<Map<String, Object>> getPerformanceStats() {
         Map<String, Object> stats = new HashMap<>();
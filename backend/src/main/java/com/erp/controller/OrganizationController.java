@@ -163,6 +163,10 @@ public class OrganizationController {
                 existing.setEmail(location.getEmail());
                 existing.setLocationType(location.getLocationType());
                 existing.setActive(location.getActive());
+                existing.setGeofenceEnabled(location.getGeofenceEnabled());
+                existing.setLatitude(location.getLatitude());
+                existing.setLongitude(location.getLongitude());
+                existing.setGeofenceRadiusMeters(location.getGeofenceRadiusMeters());
                 return ResponseEntity.ok(locationRepository.save(existing));
             })
             .orElse(ResponseEntity.notFound().build());
@@ -2,17 +2,34 @@ package com.erp.controller;
 
 import com.erp.model.*;
 import com.erp.repository.*;
+import com.erp.service.AttendanceRollupService;
+import com.erp.service.BulkApprovalService;
+import com.erp.service.FLSAOvertimeService;
+import com.erp.service.FieldProjectionService;
+import com.erp.service.PayrollBankFileService;
+import com.erp.service.PayrollCalculationException;
 import com.erp.service.PayrollCalculationService;
+import com.erp.service.PayrollGlPostingService;
+import com.erp.service.PayrollVarianceService;
+import com.erp.service.PayrollYtdService;
+import com.erp.service.RetroPayService;
 import com.erp.service.UserNotificationService;
 import com.erp.security.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -44,12 +61,39 @@ public class PayrollController {
     @Autowired
     private PayrollCalculationService payrollCalculationService;
 
+    @Autowired
+    private PayrollYtdService payrollYtdService;
+
+    @Autowired
+    private FLSAOvertimeService flsaOvertimeService;
+
+    @Autowired
+    private PayrollBankFileService payrollBankFileService;
+
+    @Autowired
+    private RetroPayService retroPayService;
+
+    @Autowired
+    private FieldProjectionService fieldProjectionService;
+
+    @Autowired
+    private PayrollVarianceService payrollVarianceService;
+
+    @Autowired
+    private PayrollGlPostingService payrollGlPostingService;
+
     @Autowired
     private ProjectTimesheetRepository projectTimesheetRepository;
 
     @Autowired
     private AttendanceRecordRepository attendanceRecordRepository;
 
+    @Autowired
+    private AttendanceRollupService attendanceRollupService;
+
+    @Autowired
+    private BulkApprovalService bulkApprovalService;
+
     @Autowired
     private PayFrequencyRepository payFrequencyRepository;
     
@@ -68,6 +112,15 @@ public class PayrollController {
         return null;
     }
     
+    private String extractUsername(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            return jwtUtil.extractUsername(token);
+        }
+        return null;
+    }
+    
     private boolean isSuperAdmin(HttpServletRequest request) {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
@@ -77,6 +130,17 @@ public class PayrollController {
         return false;
     }
     
+    private boolean isAdmin(HttpServletRequest request) {
+        if (isSuperAdmin(request)) {
+            return true;
+        }
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return "ADMIN".equals(jwtUtil.extractRole(authHeader.substring(7)));
+        }
+        return false;
+    }
+    
     private List<Employee> getEmployeesForBranch(HttpServletRequest request) {
         if (isSuperAdmin(request)) {
             return employeeRepository.findByActiveTrue();
@@ -164,6 +228,22 @@ public class PayrollController {
         return ResponseEntity.ok(Map.of("generated", generated.size(), "timesheets", generated));
     }
 
+    @PutMapping("/timesheets/bulk-approve")
+    public ResponseEntity<?> bulkApproveTimesheets(HttpServletRequest request, @RequestBody Map<String, Object> data) {
+        List<?> ids = (List<?>) data.get("ids");
+        if (ids == null || ids.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No IDs provided"));
+        }
+        Employee approver = null;
+        if (data.containsKey("approverId")) {
+            approver = employeeRepository.findById(Long.valueOf(data.get("approverId").toString())).orElse(null);
+        }
+        List<Long> timesheetIds = ids.stream().map(id -> Long.valueOf(id.toString())).collect(Collectors.toList());
+        Long branchId = isSuperAdmin(request) ? null : extractBranchId(request);
+        return ResponseEntity.ok(bulkApprovalService.approveTimesheets(timesheetIds, branchId, approver,
+            (String) data.get("approverRemarks")));
+    }
+
     @PutMapping("/timesheets/{id}/approve")
     public ResponseEntity<Timesheet> approveTimesheet(HttpServletRequest request, @PathVariable Long id, @RequestBody Map<String, Object> data) {
         Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
@@ -238,6 +318,24 @@ public class PayrollController {
         return ResponseEntity.ok(records);
     }
 
+    // Same scope as above: records of the run's active employees in the caller's branch
+    @GetMapping(value = "/runs/{id}/records", params = "fields")
+    public ResponseEntity<?> getPayrollRecordFieldsByRun(HttpServletRequest request, @PathVariable Long id, @RequestParam String fields) {
+        Long branchId = isSuperAdmin(request) ? null : extractBranchId(request);
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("runId", id);
+        String filter = "root.payrollRun.id = :runId AND root.employee.active = true";
+        if (branchId != null) {
+            filter += " AND root.employee.branch.id = :branchId";
+            parameters.put("branchId", branchId);
+        }
+        try {
+            return ResponseEntity.ok(fieldProjectionService.select(PayrollRecord.class, fields, filter, parameters, "root.id ASC"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/runs")
     public ResponseEntity<PayrollRun> createPayrollRun(@RequestBody Map<String, Object> data) {
         PayrollRun run = new PayrollRun();
@@ -274,8 +372,11 @@ public class PayrollController {
         return payrollRunRepository.findById(id)
             .map(run -> {
                 try {
-                    logger.info("Starting payroll calculation for run {}", id);
-                    PayrollRun calculatedRun = payrollCalculationService.calculatePayroll(run);
+                    boolean fullRecalculation = body != null && Boolean.parseBoolean(String.valueOf(body.get("fullRecalculation")));
+                    logger.info("Starting payroll calculation for run {} (full recalculation: {})", id, fullRecalculation);
+                    // Back-dated salary revisions are priced first so their arrears land in this run
+                    retroPayService.calculatePending();
+                    PayrollRun calculatedRun = payrollCalculationService.calculatePayroll(run, fullRecalculation);
                     logger.info("Payroll calculation completed for run {}, status: {}", id, calculatedRun.getStatus());
                     
                     Map<String, Object> response = new HashMap<>();
@@ -310,6 +411,51 @@ public class PayrollController {
             .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/runs/{id}/chunks")
+    public ResponseEntity<List<PayrollRunChunk>> getPayrollRunChunks(@PathVariable Long id) {
+        if (!payrollRunRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(payrollCalculationService.getChunks(id));
+    }
+
+    @PostMapping("/runs/{id}/chunks/retry")
+    public ResponseEntity<?> retryFailedPayrollChunks(@PathVariable Long id) {
+        if (!payrollRunRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            PayrollRun run = payrollCalculationService.retryFailedChunks(id);
+            return ResponseEntity.ok(Map.of(
+                "payrollRun", run,
+                "chunks", payrollCalculationService.getChunks(id)
+            ));
+        } catch (Exception e) {
+            logger.error("Error retrying payroll chunks for run {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage() != null ? e.getMessage() : "Retry failed"));
+        }
+    }
+
+    @GetMapping("/retro-adjustments")
+    public ResponseEntity<List<PayrollRetroAdjustment>> getRetroAdjustments(HttpServletRequest request,
+                                                                            @RequestParam(required = false) String status) {
+        Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
+        List<PayrollRetroAdjustment> adjustments = status != null ? retroPayService.findByStatus(status) : retroPayService.findAll();
+        return ResponseEntity.ok(adjustments.stream()
+            .filter(a -> a.getEmployee() != null && branchEmployeeIds.contains(a.getEmployee().getId()))
+            .collect(Collectors.toList()));
+    }
+
+    @PostMapping("/retro-adjustments/calculate")
+    public ResponseEntity<?> calculateRetroAdjustments() {
+        try {
+            return ResponseEntity.ok(retroPayService.calculatePending());
+        } catch (Exception e) {
+            logger.error("Error calculating retro pay: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage() != null ? e.getMessage() : "Retro pay calculation failed"));
+        }
+    }
+
     @PostMapping("/runs/{id}/process")
     public ResponseEntity<?> processPayroll(@PathVariable Long id, @RequestBody Map<String, Object> data) {
         return payrollRunRepository.findById(id)
@@ -375,8 +521,6 @@ public class PayrollController {
                 if (allProcessed) {
                     run.setStatus("PROCESSED");
                     run.setProcessedAt(LocalDateTime.now());
-                    run.setIsPostedToAccounts(true);
-                    run.setPostedAt(LocalDateTime.now());
                 } else {
                     long processedRecordCount = allRecords.stream().filter(r -> "PROCESSED".equals(r.getStatus())).count();
                     if (processedRecordCount > 0) {
@@ -391,6 +535,15 @@ public class PayrollController {
                 
                 payrollRunRepository.save(run);
                 
+                if (allProcessed) {
+                    try {
+                        payrollGlPostingService.postRun(run, run.getProcessedBy() != null
+                            ? run.getProcessedBy().getFirstName() + " " + run.getProcessedBy().getLastName() : "Payroll");
+                    } catch (Exception e) {
+                        logger.warn("Payroll run {} processed but not posted to the general ledger: {}", run.getPayrollRunNumber(), e.getMessage());
+                    }
+                }
+                
                 try {
                     userNotificationService.notifyAdminsAndHR(
                         "Payroll Processed",
@@ -431,20 +584,138 @@ public class PayrollController {
     }
 
     @PutMapping("/runs/{id}/approve")
-    public ResponseEntity<PayrollRun> approvePayrollRun(@PathVariable Long id, @RequestBody Map<String, Object> data) {
+    public ResponseEntity<?> approvePayrollRun(@PathVariable Long id, @RequestBody Map<String, Object> data) {
+        if (!payrollRunRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        Employee approver = data.get("approverId") != null
+            ? employeeRepository.findById(Long.valueOf(data.get("approverId").toString())).orElse(null)
+            : null;
+        try {
+            return ResponseEntity.ok(payrollYtdService.approveRun(id, approver));
+        } catch (PayrollCalculationException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/runs/{id}/void")
+    public ResponseEntity<?> voidPayrollRun(HttpServletRequest request, @PathVariable Long id,
+                                            @RequestBody(required = false) Map<String, Object> data) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied. Admin privileges required."));
+        }
+        if (!payrollRunRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            String remarks = data != null && data.get("remarks") != null ? data.get("remarks").toString() : null;
+            String voidedBy = extractUsername(request);
+            return ResponseEntity.ok(payrollYtdService.voidRun(id, remarks, voidedBy != null ? voidedBy : "Payroll"));
+        } catch (Exception e) {
+            logger.error("Error voiding payroll run {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage() != null ? e.getMessage() : "Void failed"));
+        }
+    }
+
+    // The file carries every paid employee's account and routing numbers, so only super admins can export it,
+    // and each export is logged
+    @GetMapping("/runs/{id}/bank-file")
+    public ResponseEntity<?> downloadBankFile(HttpServletRequest request, @PathVariable Long id) {
+        if (!isSuperAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied. Super admin privileges required."));
+        }
         return payrollRunRepository.findById(id)
             .map(run -> {
-                run.setStatus("APPROVED");
-                run.setApprovedAt(LocalDateTime.now());
-                if (data.containsKey("approverId")) {
-                    Long approverId = Long.valueOf(data.get("approverId").toString());
-                    employeeRepository.findById(approverId).ifPresent(run::setApprovedBy);
+                if (!payrollBankFileService.canExport(run)) {
+                    return ResponseEntity.badRequest().body(Map.of("error", "Bank file is only available for processed payroll runs"));
                 }
-                return ResponseEntity.ok(payrollRunRepository.save(run));
+                List<String> missing = payrollBankFileService.missingSettings();
+                if (!missing.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "Bank file settings are not configured: " + String.join(", ", missing)));
+                }
+                logger.info("Bank file for payroll run {} exported by {}", run.getPayrollRunNumber(), extractUsername(request));
+                StreamingResponseBody body = out -> payrollBankFileService.writeBankFile(run, out);
+                return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"ACH-" + run.getPayrollRunNumber() + ".txt\"")
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(body);
             })
             .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/runs/{id}/gl-posting")
+    public ResponseEntity<?> getPayrollRunGlPosting(@PathVariable Long id) {
+        return payrollRunRepository.findById(id)
+            .map(run -> {
+                try {
+                    Optional<JournalEntry> posted = payrollGlPostingService.findPosting(id);
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("posted", posted.isPresent());
+                    response.put("journalEntry", posted.isPresent() ? posted.get() : payrollGlPostingService.previewRunPosting(run));
+                    return ResponseEntity.ok(response);
+                } catch (Exception e) {
+                    return ResponseEntity.badRequest().body(Map.of("error", e.getMessage() != null ? e.getMessage() : "GL preview failed"));
+                }
+            })
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/runs/{id}/gl-posting")
+    public ResponseEntity<?> postPayrollRunToGl(@PathVariable Long id, @RequestBody(required = false) Map<String, Object> data) {
+        return payrollRunRepository.findById(id)
+            .map(run -> {
+                if (run.getYtdAppliedAt() == null && !"PROCESSED".equals(run.getStatus())) {
+                    return ResponseEntity.badRequest().body(Map.of("error", "Only approved or processed payroll runs can be posted"));
+                }
+                try {
+                    String postedBy = data != null && data.get("postedBy") != null ? data.get("postedBy").toString() : "Payroll";
+                    return ResponseEntity.ok(payrollGlPostingService.postRun(run, postedBy));
+                } catch (Exception e) {
+                    logger.error("Error posting payroll run {} to the general ledger: {}", id, e.getMessage(), e);
+                    return ResponseEntity.badRequest().body(Map.of("error", e.getMessage() != null ? e.getMessage() : "GL posting failed"));
+                }
+            })
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/runs/{id}/variance")
+    public ResponseEntity<?> getPayrollRunVariance(HttpServletRequest request, @PathVariable Long id,
+                                                   @RequestParam(required = false) Long baselineRunId,
+                                                   @RequestParam(required = false) BigDecimal threshold) {
+        Optional<PayrollRun> run = payrollRunRepository.findById(id);
+        if (run.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<PayrollRun> baseline = baselineRunId != null ? payrollRunRepository.findById(baselineRunId) : payrollVarianceService.findBaselineRun(run.get());
+        if (baseline.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No baseline payroll run to compare with"));
+        }
+        return ResponseEntity.ok(payrollVarianceService.compare(run.get(), baseline.get(), threshold, getEmployeeIdsForBranch(request)));
+    }
+
+    @GetMapping("/runs/{id}/variance/csv")
+    public ResponseEntity<?> exportPayrollRunVariance(HttpServletRequest request, @PathVariable Long id,
+                                                      @RequestParam(required = false) Long baselineRunId,
+                                                      @RequestParam(required = false) BigDecimal threshold) {
+        Optional<PayrollRun> run = payrollRunRepository.findById(id);
+        if (run.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<PayrollRun> baseline = baselineRunId != null ? payrollRunRepository.findById(baselineRunId) : payrollVarianceService.findBaselineRun(run.get());
+        if (baseline.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No baseline payroll run to compare with"));
+        }
+        Set<Long> employeeIds = getEmployeeIdsForBranch(request);
+        StreamingResponseBody body = out -> payrollVarianceService.writeCsv(run.get(), baseline.get(), threshold, employeeIds,
+            new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"variance-" + run.get().getPayrollRunNumber()
+                + "-vs-" + baseline.get().getPayrollRunNumber() + ".csv\"")
+            .contentType(MediaType.parseMediaType("text/csv"))
+            .body(body);
+    }
+
     @GetMapping("/records/employee/{employeeId}")
     public ResponseEntity<List<PayrollRecord>> getPayrollRecordsByEmployee(HttpServletRequest request, @PathVariable Long employeeId) {
         Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
@@ -460,7 +731,20 @@ public class PayrollController {
         if (!branchEmployeeIds.contains(employeeId)) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(payrollRecordRepository.findProcessedPayrollRecordsByEmployee(employeeId));
+        return ResponseEntity.ok(payrollYtdService.withYtd(employeeId, payrollRecordRepository.findProcessedPayrollRecordsByEmployee(employeeId)));
+    }
+
+    @GetMapping("/records/employee/{employeeId}/ytd")
+    public ResponseEntity<?> getYearToDate(HttpServletRequest request, @PathVariable Long employeeId,
+                                           @RequestParam(required = false) Integer year) {
+        Set<Long> branchEmployeeIds = getEmployeeIdsForBranch(request);
+        if (!branchEmployeeIds.contains(employeeId)) {
+            return ResponseEntity.notFound().build();
+        }
+        int taxYear = year != null ? year : LocalDate.now().getYear();
+        return payrollYtdService.findForEmployee(employeeId, taxYear)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElse(ResponseEntity.ok(Map.of("employeeId", employeeId, "taxYear", taxYear, "payrollCount", 0)));
     }
 
     @GetMapping("/benefits/employee/{employeeId}")
@@ -679,7 +963,7 @@ public class PayrollController {
                         record.setRegularHours(dailyRegular);
                         record.setOvertimeHours(dailyOT);
                         record.setBreakDuration(LUNCH_BREAK);
-                        attendanceRecordRepository.save(record);
+                        attendanceRollupService.save(record);
                         
                         totalRegular = totalRegular.add(dailyRegular);
                         totalOT = totalOT.add(dailyOT);
@@ -757,6 +1041,33 @@ public class PayrollController {
         return ResponseEntity.ok(attendanceRecordRepository.findApprovedAttendanceBetweenDates(start, end));
     }
 
+    @GetMapping("/attendance/overtime")
+    public ResponseEntity<?> getPeriodOvertime(
+            HttpServletRequest request,
+            @RequestParam String startDate, 
+            @RequestParam String endDate) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        if (end.isBefore(start)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "End date must not be before start date"));
+        }
+        
+        Map<Long, FLSAOvertimeService.WeeklyOvertimeResult> overtime = 
+            flsaOvertimeService.aggregatePeriodOvertime(getEmployeesForBranch(request), start, end);
+        
+        List<Map<String, Object>> result = new ArrayList<>();
+        overtime.forEach((employeeId, hours) -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("employeeId", employeeId);
+            row.put("totalHours", hours.getTotalHoursWorked());
+            row.put("regularHours", hours.getRegularHours());
+            row.put("overtimeHours", hours.getOvertimeHours());
+            row.put("doubleTimeHours", hours.getDoubleTimeHours());
+            result.add(row);
+        });
+        return ResponseEntity.ok(result);
+    }
+
     @GetMapping("/attendance/summary")
     public ResponseEntity<?> getAttendanceSummary(
             @RequestParam String startDate, 
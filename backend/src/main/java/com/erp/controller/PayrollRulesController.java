@@ -2,12 +2,15 @@ package com.erp.controller;
 
 import com.erp.model.*;
 import com.erp.repository.*;
+import com.erp.service.CompiledTaxTables;
+import com.erp.service.TaxRuleTableService;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/payroll/rules")
@@ -29,6 +32,9 @@ public class PayrollRulesController {
     @Autowired
     private StatutoryRuleRepository statutoryRuleRepository;
 
+    @Autowired
+    private TaxRuleTableService taxRuleTableService;
+
     @GetMapping("/salary-heads")
     public ResponseEntity<List<SalaryHead>> getAllSalaryHeads() {
         return ResponseEntity.ok(salaryHeadRepository.findByIsActiveTrueOrderByDisplayOrderAsc());
@@ -95,7 +101,9 @@ public class PayrollRulesController {
 
     @PostMapping("/pay-frequencies")
     public ResponseEntity<PayFrequency> createPayFrequency(@RequestBody PayFrequency payFrequency) {
-        return ResponseEntity.ok(payFrequencyRepository.save(payFrequency));
+        PayFrequency saved = payFrequencyRepository.save(payFrequency);
+        taxRuleTableService.publish();
+        return ResponseEntity.ok(saved);
     }
 
     @PutMapping("/pay-frequencies/{id}")
@@ -104,7 +112,9 @@ public class PayrollRulesController {
             .map(existing -> {
                 payFrequency.setId(id);
                 payFrequency.setCreatedAt(existing.getCreatedAt());
-                return ResponseEntity.ok(payFrequencyRepository.save(payFrequency));
+                PayFrequency saved = payFrequencyRepository.save(payFrequency);
+                taxRuleTableService.publish();
+                return ResponseEntity.ok(saved);
             })
             .orElse(ResponseEntity.notFound().build());
     }
@@ -113,6 +123,7 @@ public class PayrollRulesController {
     public ResponseEntity<Void> deletePayFrequency(@PathVariable Long id) {
         if (payFrequencyRepository.existsById(id)) {
             payFrequencyRepository.deleteById(id);
+            taxRuleTableService.publish();
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
@@ -184,7 +195,9 @@ public class PayrollRulesController {
 
     @PostMapping("/tax-rules")
     public ResponseEntity<TaxRule> createTaxRule(@RequestBody TaxRule taxRule) {
-        return ResponseEntity.ok(taxRuleRepository.save(taxRule));
+        TaxRule saved = taxRuleRepository.save(taxRule);
+        taxRuleTableService.publish();
+        return ResponseEntity.ok(saved);
     }
 
     @PutMapping("/tax-rules/{id}")
@@ -193,7 +206,9 @@ public class PayrollRulesController {
             .map(existing -> {
                 taxRule.setId(id);
                 taxRule.setCreatedAt(existing.getCreatedAt());
-                return ResponseEntity.ok(taxRuleRepository.save(taxRule));
+                TaxRule saved = taxRuleRepository.save(taxRule);
+                taxRuleTableService.publish();
+                return ResponseEntity.ok(saved);
             })
             .orElse(ResponseEntity.notFound().build());
     }
@@ -202,6 +217,7 @@ public class PayrollRulesController {
     public ResponseEntity<Void> deleteTaxRule(@PathVariable Long id) {
         if (taxRuleRepository.existsById(id)) {
             taxRuleRepository.deleteById(id);
+            taxRuleTableService.publish();
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
@@ -226,7 +242,9 @@ public class PayrollRulesController {
 
     @PostMapping("/statutory-rules")
     public ResponseEntity<StatutoryRule> createStatutoryRule(@RequestBody StatutoryRule statutoryRule) {
-        return ResponseEntity.ok(statutoryRuleRepository.save(statutoryRule));
+        StatutoryRule saved = statutoryRuleRepository.save(statutoryRule);
+        taxRuleTableService.publish();
+        return ResponseEntity.ok(saved);
     }
 
     @PutMapping("/statutory-rules/{id}")
@@ -235,7 +253,9 @@ public class PayrollRulesController {
             .map(existing -> {
                 statutoryRule.setId(id);
                 statutoryRule.setCreatedAt(existing.getCreatedAt());
-                return ResponseEntity.ok(statutoryRuleRepository.save(statutoryRule));
+                StatutoryRule saved = statutoryRuleRepository.save(statutoryRule);
+                taxRuleTableService.publish();
+                return ResponseEntity.ok(saved);
             })
             .orElse(ResponseEntity.notFound().build());
     }
@@ -244,8 +264,27 @@ public class PayrollRulesController {
     public ResponseEntity<Void> deleteStatutoryRule(@PathVariable Long id) {
         if (statutoryRuleRepository.existsById(id)) {
             statutoryRuleRepository.deleteById(id);
+            taxRuleTableService.publish();
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
     }
+
+    @GetMapping("/tax-tables")
+    public ResponseEntity<Map<String, Object>> getTaxTables() {
+        return ResponseEntity.ok(describe(taxRuleTableService.current()));
+    }
+
+    @PostMapping("/tax-tables/publish")
+    public ResponseEntity<Map<String, Object>> publishTaxTables() {
+        return ResponseEntity.ok(describe(taxRuleTableService.publish()));
+    }
+
+    private Map<String, Object> describe(CompiledTaxTables tables) {
+        return Map.of(
+            "version", tables.getVersion(),
+            "compiledAt", tables.getCompiledAt(),
+            "ruleCount", tables.getRuleCount()
+        );
+    }
 }
@@ -1,6 +1,7 @@
 package com.erp.controller;
 
 import com.erp.model.*;
+import com.erp.service.FieldProjectionService;
 import com.erp.service.RecruitmentService;
 import com.erp.service.UserNotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +27,9 @@ public class RecruitmentController {
     @Autowired
     private UserNotificationService userNotificationService;
 
+    @Autowired
+    private FieldProjectionService fieldProjectionService;
+
     @GetMapping("/dashboard")
     public ResponseEntity<Map<String, Object>> getDashboard() {
         return ResponseEntity.ok(recruitmentService.getRecruitmentDashboard());
@@ -152,6 +156,15 @@ public class RecruitmentController {
         return ResponseEntity.ok(recruitmentService.findAllCandidates());
     }
 
+    @GetMapping(value = "/candidates", params = "fields")
+    public ResponseEntity<?> getCandidateFields(@RequestParam String fields) {
+        try {
+            return ResponseEntity.ok(fieldProjectionService.select(Candidate.class, fields, null, null, "root.id ASC"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/candidates/{id}")
     public ResponseEntity<Candidate> getCandidate(@PathVariable Long id) {
         return recruitmentService.findCandidateById(id)
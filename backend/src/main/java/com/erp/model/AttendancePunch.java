@@ -0,0 +1,65 @@
+package com.erp.model;
+
+import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// A raw punch sent by an attendance terminal. The terminal's own punch id is unique per device, so a batch
+// that is retried after a network failure is recognised and not applied twice.
+@Entity
+@Table(name = "attendance_punches",
+       uniqueConstraints = @UniqueConstraint(name = "uk_attendance_punches_device_punch", columnNames = {"device_id", "device_punch_id"}),
+       indexes = @Index(name = "idx_attendance_punches_employee_date", columnList = "employee_id, punch_date"))
+public class AttendancePunch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "device_id", nullable = false, length = 100)
+    private String deviceId;
+
+    @Column(name = "device_punch_id", nullable = false, length = 100)
+    private String devicePunchId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "employee_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "reportingManager"})
+    private Employee employee;
+
+    @Column(name = "punch_date", nullable = false)
+    private LocalDate punchDate;
+
+    @Column(nullable = false)
+    private LocalDateTime punchedAt;
+
+    @Column(length = 10)
+    private String punchType; // IN, OUT, or null when the terminal does not say
+
+    private LocalDateTime receivedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getDeviceId() { return deviceId; }
+    public void setDeviceId(String deviceId) { this.deviceId = deviceId; }
+
+    public String getDevicePunchId() { return devicePunchId; }
+    public void setDevicePunchId(String devicePunchId) { this.devicePunchId = devicePunchId; }
+
+    public Employee getEmployee() { return employee; }
+    public void setEmployee(Employee employee) { this.employee = employee; }
+
+    public LocalDate getPunchDate() { return punchDate; }
+    public void setPunchDate(LocalDate punchDate) { this.punchDate = punchDate; }
+
+    public LocalDateTime getPunchedAt() { return punchedAt; }
+    public void setPunchedAt(LocalDateTime punchedAt) { this.punchedAt = punchedAt; }
+
+    public String getPunchType() { return punchType; }
+    public void setPunchType(String punchType) { this.punchType = punchType; }
+
+    public LocalDateTime getReceivedAt() { return receivedAt; }
+    public void setReceivedAt(LocalDateTime receivedAt) { this.receivedAt = receivedAt; }
+}
@@ -2,6 +2,7 @@ package com.erp.model;
 
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -10,7 +11,8 @@ import java.math.BigDecimal;
 
 @Entity
 @Table(name = "attendance_records", 
-       uniqueConstraints = @UniqueConstraint(columnNames = {"employee_id", "attendance_date"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"employee_id", "attendance_date"}),
+       indexes = @Index(name = "idx_attendance_records_date_id", columnList = "attendance_date, id"))
 public class AttendanceRecord {
 
     @Id
@@ -62,15 +64,42 @@ public class AttendanceRecord {
     @Column(length = 20)
     private String locationType;
 
+    private Double clockInLatitude;
+    private Double clockInLongitude;
+
+    @Column(length = 20)
+    private String geofenceStatus; // INSIDE, OUTSIDE, NO_FENCE, NO_LOCATION; null when not checked
+
+    @Column(length = 100)
+    private String anomalyFlags; // comma-separated, set by the nightly sweep: MISSING_CLOCK_OUT, DOUBLE_PUNCH, LATE_UNAPPROVED
+
     @Column(length = 50)
     private String projectCode;
     
     @Column(length = 100)
     private String projectName;
 
+    // The employee's branch and department when the record was first written (0 for none); the daily rollup
+    // counts the record there even after the employee transfers
+    @Column(name = "branch_id")
+    private Long branchId;
+
+    @Column(name = "department_id")
+    private Long departmentId;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // What the record counted for in the daily rollup as loaded, so an edit can be taken back out
+    @Transient
+    @JsonIgnore
+    private RollupState loadedRollupState;
+
+    @PostLoad
+    protected void onLoad() {
+        loadedRollupState = currentRollupState();
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -148,9 +177,71 @@ public class AttendanceRecord {
     public String getLocationType() { return locationType; }
     public void setLocationType(String locationType) { this.locationType = locationType; }
 
+    public Double getClockInLatitude() { return clockInLatitude; }
+    public void setClockInLatitude(Double clockInLatitude) { this.clockInLatitude = clockInLatitude; }
+
+    public Double getClockInLongitude() { return clockInLongitude; }
+    public void setClockInLongitude(Double clockInLongitude) { this.clockInLongitude = clockInLongitude; }
+
+    public String getGeofenceStatus() { return geofenceStatus; }
+    public void setGeofenceStatus(String geofenceStatus) { this.geofenceStatus = geofenceStatus; }
+
+    public String getAnomalyFlags() { return anomalyFlags; }
+    public void setAnomalyFlags(String anomalyFlags) { this.anomalyFlags = anomalyFlags; }
+
     public String getProjectCode() { return projectCode; }
     public void setProjectCode(String projectCode) { this.projectCode = projectCode; }
 
     public String getProjectName() { return projectName; }
     public void setProjectName(String projectName) { this.projectName = projectName; }
+
+    public Long getBranchId() { return branchId; }
+    public void setBranchId(Long branchId) { this.branchId = branchId; }
+
+    public Long getDepartmentId() { return departmentId; }
+    public void setDepartmentId(Long departmentId) { this.departmentId = departmentId; }
+
+    public RollupState getLoadedRollupState() { return loadedRollupState; }
+    public void setLoadedRollupState(RollupState loadedRollupState) { this.loadedRollupState = loadedRollupState; }
+
+    public RollupState currentRollupState() {
+        return new RollupState(attendanceDate, branchId, departmentId, status, approvalStatus, lateArrival, earlyDeparture,
+            regularHours, overtimeHours);
+    }
+
+    // The fields the daily attendance rollup counts
+    public static class RollupState {
+        private final LocalDate attendanceDate;
+        private final Long branchId;
+        private final Long departmentId;
+        private final String status;
+        private final String approvalStatus;
+        private final Boolean lateArrival;
+        private final Boolean earlyDeparture;
+        private final BigDecimal regularHours;
+        private final BigDecimal overtimeHours;
+
+        public RollupState(LocalDate attendanceDate, Long branchId, Long departmentId, String status, String approvalStatus,
+                           Boolean lateArrival, Boolean earlyDeparture, BigDecimal regularHours, BigDecimal overtimeHours) {
+            this.attendanceDate = attendanceDate;
+            this.branchId = branchId;
+            this.departmentId = departmentId;
+            this.status = status;
+            this.approvalStatus = approvalStatus;
+            this.lateArrival = lateArrival;
+            this.earlyDeparture = earlyDeparture;
+            this.regularHours = regularHours;
+            this.overtimeHours = overtimeHours;
+        }
+
+        public LocalDate getAttendanceDate() { return attendanceDate; }
+        public Long getBranchId() { return branchId != null ? branchId : 0L; }
+        public Long getDepartmentId() { return departmentId != null ? departmentId : 0L; }
+        public String getStatus() { return status; }
+        public String getApprovalStatus() { return approvalStatus; }
+        public Boolean getLateArrival() { return lateArrival; }
+        public Boolean getEarlyDeparture() { return earlyDeparture; }
+        public BigDecimal getRegularHours() { return regularHours; }
+        public BigDecimal getOvertimeHours() { return overtimeHours; }
+    }
 }
@@ -1,10 +1,12 @@
 package com.erp.model;
 
 import jakarta.persistence.*;
+import com.erp.model.listener.EntityChangePublisher;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "branches")
+@EntityListeners(EntityChangePublisher.class)
 public class Branch {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -39,6 +41,13 @@ public class Branch {
     private String timezone;
     
     private Boolean active = true;
+
+    // Circular geofence for location-based clock-in
+    private Boolean geofenceEnabled;
+    private Double latitude;
+    private Double longitude;
+    private Integer geofenceRadiusMeters;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     
@@ -94,4 +103,12 @@ public class Branch {
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public Boolean getGeofenceEnabled() { return geofenceEnabled; }
+    public void setGeofenceEnabled(Boolean geofenceEnabled) { this.geofenceEnabled = geofenceEnabled; }
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+    public Integer getGeofenceRadiusMeters() { return geofenceRadiusMeters; }
+    public void setGeofenceRadiusMeters(Integer geofenceRadiusMeters) { this.geofenceRadiusMeters = geofenceRadiusMeters; }
 }
@@ -1,11 +1,13 @@
 package com.erp.model;
 
 import jakarta.persistence.*;
+import com.erp.model.listener.EntityChangePublisher;
 import java.time.LocalDateTime;
 import java.math.BigDecimal;
 
 @Entity
 @Table(name = "branch_settings")
+@EntityListeners(EntityChangePublisher.class)
 public class BranchSettings {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -64,6 +66,11 @@ public class BranchSettings {
     private Boolean autoGenerateEmployeeId = true;
     private String employeeIdPrefix = "EMP";
     private Long employeeIdNextNumber = 1L;
+
+    @Column(length = 100)
+    private String weekendDays = "SATURDAY,SUNDAY"; // comma-separated DayOfWeek names
+    @Column(length = 10)
+    private String workweekStartDay = "SUNDAY"; // first day of the overtime workweek
     
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -148,6 +155,12 @@ public class BranchSettings {
     public void setAutoGenerateEmployeeId(Boolean autoGenerateEmployeeId) { this.autoGenerateEmployeeId = autoGenerateEmployeeId; }
     public String getEmployeeIdPrefix() { return employeeIdPrefix; }
     public void setEmployeeIdPrefix(String employeeIdPrefix) { this.employeeIdPrefix = employeeIdPrefix; }
+
+    public String getWeekendDays() { return weekendDays; }
+    public void setWeekendDays(String weekendDays) { this.weekendDays = weekendDays; }
+
+    public String getWorkweekStartDay() { return workweekStartDay; }
+    public void setWorkweekStartDay(String workweekStartDay) { this.workweekStartDay = workweekStartDay; }
     public Long getEmployeeIdNextNumber() { return employeeIdNextNumber; }
     public void setEmployeeIdNextNumber(Long employeeIdNextNumber) { this.employeeIdNextNumber = employeeIdNextNumber; }
     public LocalDateTime getCreatedAt() { return createdAt; }
@@ -1,12 +1,14 @@
 package com.erp.model;
 
 import jakarta.persistence.*;
+import com.erp.model.listener.EntityChangePublisher;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "employees")
+@EntityListeners(EntityChangePublisher.class)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Employee {
     @Id
@@ -1,11 +1,14 @@
 package com.erp.model;
 
 import jakarta.persistence.*;
+import com.erp.model.listener.EntityChangePublisher;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "holidays")
+@EntityListeners(EntityChangePublisher.class)
 public class Holiday {
 
     @Id
@@ -41,6 +44,12 @@ public class Holiday {
     @Column(length = 100)
     private String applicableDepartments;
 
+    // Branch the holiday is observed in; null for every branch
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "branch_id")
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "employees"})
+    private Branch branch;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -94,6 +103,9 @@ public class Holiday {
     public String getApplicableDepartments() { return applicableDepartments; }
     public void setApplicableDepartments(String applicableDepartments) { this.applicableDepartments = applicableDepartments; }
 
+    public Branch getBranch() { return branch; }
+    public void setBranch(Branch branch) { this.branch = branch; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
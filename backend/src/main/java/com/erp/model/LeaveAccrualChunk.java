@@ -0,0 +1,84 @@
+package com.erp.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "leave_accrual_chunks",
+       indexes = @Index(name = "idx_leave_accrual_chunks_run", columnList = "accrual_run_id, chunk_index"))
+public class LeaveAccrualChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "accrual_run_id", nullable = false)
+    @JsonIgnore
+    private LeaveAccrualRun accrualRun;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    @JsonIgnore
+    private String employeeIds; // comma-separated, the unit of work re-read on resume
+
+    private Integer employeeCount;
+
+    @Column(nullable = false, length = 20)
+    private String status; // PENDING, COMPLETED, FAILED
+
+    private Integer attempts;
+
+    private Integer balancesWritten;
+
+    @Column(length = 1000)
+    private String errorMessage;
+
+    private LocalDateTime completedAt;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (status == null) status = "PENDING";
+        if (attempts == null) attempts = 0;
+        if (balancesWritten == null) balancesWritten = 0;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LeaveAccrualRun getAccrualRun() { return accrualRun; }
+    public void setAccrualRun(LeaveAccrualRun accrualRun) { this.accrualRun = accrualRun; }
+
+    public Integer getChunkIndex() { return chunkIndex; }
+    public void setChunkIndex(Integer chunkIndex) { this.chunkIndex = chunkIndex; }
+
+    public String getEmployeeIds() { return employeeIds; }
+    public void setEmployeeIds(String employeeIds) { this.employeeIds = employeeIds; }
+
+    public Integer getEmployeeCount() { return employeeCount; }
+    public void setEmployeeCount(Integer employeeCount) { this.employeeCount = employeeCount; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public Integer getBalancesWritten() { return balancesWritten; }
+    public void setBalancesWritten(Integer balancesWritten) { this.balancesWritten = balancesWritten; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,124 @@
+package com.erp.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// One year-end rollover or monthly accrual over all active employees. The period key is unique, so starting the
+// same period twice resumes the existing run instead of crediting balances a second time.
+@Entity
+@Table(name = "leave_accrual_runs",
+       uniqueConstraints = @UniqueConstraint(name = "uk_leave_accrual_runs_period", columnNames = {"run_type", "year", "month"}))
+public class LeaveAccrualRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_type", nullable = false, length = 20)
+    private String runType; // YEAR_END, MONTHLY
+
+    @Column(nullable = false)
+    private Integer year;
+
+    @Column(nullable = false)
+    private Integer month; // 0 for YEAR_END
+
+    @Column(nullable = false, length = 30)
+    private String status; // RUNNING, COMPLETED, COMPLETED_WITH_ERRORS
+
+    private Integer totalChunks;
+    private Integer completedChunks;
+    private Integer failedChunks;
+
+    private Integer employeeCount;
+    private Integer processedEmployees;
+    private Integer balancesWritten;
+
+    @Column(length = 1000)
+    private String errorMessage;
+
+    private Long createdBy;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (status == null) status = "RUNNING";
+        if (month == null) month = 0;
+        if (totalChunks == null) totalChunks = 0;
+        if (completedChunks == null) completedChunks = 0;
+        if (failedChunks == null) failedChunks = 0;
+        if (employeeCount == null) employeeCount = 0;
+        if (processedEmployees == null) processedEmployees = 0;
+        if (balancesWritten == null) balancesWritten = 0;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public int getProgressPercent() {
+        if (totalChunks == null || totalChunks == 0) {
+            return "RUNNING".equals(status) ? 0 : 100;
+        }
+        return (int) (100L * (completedChunks != null ? completedChunks : 0) / totalChunks);
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getRunType() { return runType; }
+    public void setRunType(String runType) { this.runType = runType; }
+
+    public Integer getYear() { return year; }
+    public void setYear(Integer year) { this.year = year; }
+
+    public Integer getMonth() { return month; }
+    public void setMonth(Integer month) { this.month = month; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Integer getTotalChunks() { return totalChunks; }
+    public void setTotalChunks(Integer totalChunks) { this.totalChunks = totalChunks; }
+
+    public Integer getCompletedChunks() { return completedChunks; }
+    public void setCompletedChunks(Integer completedChunks) { this.completedChunks = completedChunks; }
+
+    public Integer getFailedChunks() { return failedChunks; }
+    public void setFailedChunks(Integer failedChunks) { this.failedChunks = failedChunks; }
+
+    public Integer getEmployeeCount() { return employeeCount; }
+    public void setEmployeeCount(Integer employeeCount) { this.employeeCount = employeeCount; }
+
+    public Integer getProcessedEmployees() { return processedEmployees; }
+    public void setProcessedEmployees(Integer processedEmployees) { this.processedEmployees = processedEmployees; }
+
+    public Integer getBalancesWritten() { return balancesWritten; }
+    public void setBalancesWritten(Integer balancesWritten) { this.balancesWritten = balancesWritten; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public Long getCreatedBy() { return createdBy; }
+    public void setCreatedBy(Long createdBy) { this.createdBy = createdBy; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
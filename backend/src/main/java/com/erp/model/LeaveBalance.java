@@ -5,7 +5,10 @@ import java.time.LocalDateTime;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "leave_balances")
+@Table(name = "leave_balances",
+       uniqueConstraints = @UniqueConstraint(name = "uk_leave_balances_employee_type_year", columnNames = {"employee_id", "leave_type_id", "year"}))
+// Current totals for one employee, leave type and year. Every change is posted through LeaveLedgerService, which
+// appends a LeaveTransaction and adds its deltas here in the same transaction, so reads never re-sum the ledger.
 public class LeaveBalance {
 
     @Id
@@ -33,6 +36,8 @@ public class LeaveBalance {
 
     private LocalDateTime lastAccrualDate;
 
+    private LocalDateTime rolledOverAt; // set once the year-end job has carried this balance forward or lapsed it
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -106,6 +111,9 @@ public class LeaveBalance {
     public LocalDateTime getLastAccrualDate() { return lastAccrualDate; }
     public void setLastAccrualDate(LocalDateTime lastAccrualDate) { this.lastAccrualDate = lastAccrualDate; }
 
+    public LocalDateTime getRolledOverAt() { return rolledOverAt; }
+    public void setRolledOverAt(LocalDateTime rolledOverAt) { this.rolledOverAt = rolledOverAt; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
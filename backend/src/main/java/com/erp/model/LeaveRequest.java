@@ -1,6 +1,7 @@
 package com.erp.model;
 
 import jakarta.persistence.*;
+import com.erp.model.listener.EntityChangePublisher;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -8,6 +9,7 @@ import java.math.BigDecimal;
 
 @Entity
 @Table(name = "leave_requests")
+@EntityListeners(EntityChangePublisher.class)
 public class LeaveRequest {
 
     @Id
@@ -0,0 +1,117 @@
+package com.erp.model;
+
+import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Immutable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One movement on a leave balance. Rows are only ever appended; the matching leave_balances row holds the
+// running totals, and summing a balance's transactions gives the same figures back.
+@Entity
+@Immutable
+@Table(name = "leave_transactions",
+       indexes = {
+           @Index(name = "idx_leave_transactions_balance", columnList = "employee_id, leave_type_id, year"),
+           @Index(name = "idx_leave_transactions_request", columnList = "leave_request_id")
+       })
+public class LeaveTransaction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "employee_id", nullable = false)
+    @JsonIgnore
+    private Employee employee;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "leave_type_id", nullable = false)
+    @JsonIgnore
+    private LeaveType leaveType;
+
+    @Column(nullable = false)
+    private Integer year;
+
+    @Column(nullable = false, length = 30)
+    private String transactionType; // OPENING, CARRY_FORWARD, RESERVE, RELEASE, APPROVE, ADJUST, ACCRUAL, LAPSE
+
+    private BigDecimal openingDelta;
+    private BigDecimal creditedDelta;
+    private BigDecimal usedDelta;
+    private BigDecimal pendingDelta;
+    private BigDecimal lapsedDelta;
+    private BigDecimal carryForwardDelta;
+    private BigDecimal encashedDelta;
+
+    @Column(name = "leave_request_id")
+    private Long leaveRequestId;
+
+    @Column(length = 500)
+    private String remarks;
+
+    private Long createdBy;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (openingDelta == null) openingDelta = BigDecimal.ZERO;
+        if (creditedDelta == null) creditedDelta = BigDecimal.ZERO;
+        if (usedDelta == null) usedDelta = BigDecimal.ZERO;
+        if (pendingDelta == null) pendingDelta = BigDecimal.ZERO;
+        if (lapsedDelta == null) lapsedDelta = BigDecimal.ZERO;
+        if (carryForwardDelta == null) carryForwardDelta = BigDecimal.ZERO;
+        if (encashedDelta == null) encashedDelta = BigDecimal.ZERO;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Employee getEmployee() { return employee; }
+    public void setEmployee(Employee employee) { this.employee = employee; }
+
+    public LeaveType getLeaveType() { return leaveType; }
+    public void setLeaveType(LeaveType leaveType) { this.leaveType = leaveType; }
+
+    public Integer getYear() { return year; }
+    public void setYear(Integer year) { this.year = year; }
+
+    public String getTransactionType() { return transactionType; }
+    public void setTransactionType(String transactionType) { this.transactionType = transactionType; }
+
+    public BigDecimal getOpeningDelta() { return openingDelta; }
+    public void setOpeningDelta(BigDecimal openingDelta) { this.openingDelta = openingDelta; }
+
+    public BigDecimal getCreditedDelta() { return creditedDelta; }
+    public void setCreditedDelta(BigDecimal creditedDelta) { this.creditedDelta = creditedDelta; }
+
+    public BigDecimal getUsedDelta() { return usedDelta; }
+    public void setUsedDelta(BigDecimal usedDelta) { this.usedDelta = usedDelta; }
+
+    public BigDecimal getPendingDelta() { return pendingDelta; }
+    public void setPendingDelta(BigDecimal pendingDelta) { this.pendingDelta = pendingDelta; }
+
+    public BigDecimal getLapsedDelta() { return lapsedDelta; }
+    public void setLapsedDelta(BigDecimal lapsedDelta) { this.lapsedDelta = lapsedDelta; }
+
+    public BigDecimal getCarryForwardDelta() { return carryForwardDelta; }
+    public void setCarryForwardDelta(BigDecimal carryForwardDelta) { this.carryForwardDelta = carryForwardDelta; }
+
+    public BigDecimal getEncashedDelta() { return encashedDelta; }
+    public void setEncashedDelta(BigDecimal encashedDelta) { this.encashedDelta = encashedDelta; }
+
+    public Long getLeaveRequestId() { return leaveRequestId; }
+    public void setLeaveRequestId(Long leaveRequestId) { this.leaveRequestId = leaveRequestId; }
+
+    public String getRemarks() { return remarks; }
+    public void setRemarks(String remarks) { this.remarks = remarks; }
+
+    public Long getCreatedBy() { return createdBy; }
+    public void setCreatedBy(Long createdBy) { this.createdBy = createdBy; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -53,6 +53,8 @@ public class LeaveType {
 
     private Boolean allowHourlyLeave; // Whether this leave type allows hourly requests
 
+    private Boolean countNonWorkingDays; // Count weekends and holidays inside the leave (calendar days) instead of working days only
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -139,4 +141,7 @@ public class LeaveType {
 
     public Boolean getAllowHourlyLeave() { return allowHourlyLeave; }
     public void setAllowHourlyLeave(Boolean allowHourlyLeave) { this.allowHourlyLeave = allowHourlyLeave; }
+
+    public Boolean getCountNonWorkingDays() { return countNonWorkingDays; }
+    public void setCountNonWorkingDays(Boolean countNonWorkingDays) { this.countNonWorkingDays = countNonWorkingDays; }
 }
@@ -1,9 +1,11 @@
 package com.erp.model;
 
 import jakarta.persistence.*;
+import com.erp.model.listener.EntityChangePublisher;
 
 @Entity
 @Table(name = "locations")
+@EntityListeners(EntityChangePublisher.class)
 public class Location {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,6 +24,12 @@ public class Location {
     private String email;
     private String locationType;
     private Boolean active = true;
+
+    // Circular geofence for location-based clock-in
+    private Boolean geofenceEnabled;
+    private Double latitude;
+    private Double longitude;
+    private Integer geofenceRadiusMeters;
     
     public Location() {}
     
@@ -49,4 +57,12 @@ public class Location {
     public void setLocationType(String locationType) { this.locationType = locationType; }
     public Boolean getActive() { return active; }
     public void setActive(Boolean active) { this.active = active; }
+    public Boolean getGeofenceEnabled() { return geofenceEnabled; }
+    public void setGeofenceEnabled(Boolean geofenceEnabled) { this.geofenceEnabled = geofenceEnabled; }
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+    public Integer getGeofenceRadiusMeters() { return geofenceRadiusMeters; }
+    public void setGeofenceRadiusMeters(Integer geofenceRadiusMeters) { this.geofenceRadiusMeters = geofenceRadiusMeters; }
 }
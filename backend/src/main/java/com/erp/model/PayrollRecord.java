@@ -45,6 +45,8 @@ public class PayrollRecord {
 
     private BigDecimal bonuses;
 
+    private BigDecimal retroPay; // arrears of back-dated salary revisions paid in this run
+
     private BigDecimal reimbursements;
 
     private BigDecimal grossPay;
@@ -113,6 +115,19 @@ public class PayrollRecord {
     @Column(length = 500)
     private String remarks;
 
+    // Year-to-date totals as of this record, filled in for paystubs
+    @Transient
+    private BigDecimal ytdGrossPay;
+
+    @Transient
+    private BigDecimal ytdTaxableIncome;
+
+    @Transient
+    private BigDecimal ytdTotalTaxes;
+
+    @Transient
+    private BigDecimal ytdNetPay;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -135,6 +150,7 @@ public class PayrollRecord {
         if (basePay == null) basePay = BigDecimal.ZERO;
         if (overtimePay == null) overtimePay = BigDecimal.ZERO;
         if (bonuses == null) bonuses = BigDecimal.ZERO;
+        if (retroPay == null) retroPay = BigDecimal.ZERO;
         if (reimbursements == null) reimbursements = BigDecimal.ZERO;
         if (grossPay == null) grossPay = BigDecimal.ZERO;
         if (preTaxDeductions == null) preTaxDeductions = BigDecimal.ZERO;
@@ -181,6 +197,9 @@ public class PayrollRecord {
     public BigDecimal getBonuses() { return bonuses; }
     public void setBonuses(BigDecimal bonuses) { this.bonuses = bonuses; }
 
+    public BigDecimal getRetroPay() { return retroPay; }
+    public void setRetroPay(BigDecimal retroPay) { this.retroPay = retroPay; }
+
     public BigDecimal getReimbursements() { return reimbursements; }
     public void setReimbursements(BigDecimal reimbursements) { this.reimbursements = reimbursements; }
 
@@ -282,4 +301,16 @@ public class PayrollRecord {
 
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public BigDecimal getYtdGrossPay() { return ytdGrossPay; }
+    public void setYtdGrossPay(BigDecimal ytdGrossPay) { this.ytdGrossPay = ytdGrossPay; }
+
+    public BigDecimal getYtdTaxableIncome() { return ytdTaxableIncome; }
+    public void setYtdTaxableIncome(BigDecimal ytdTaxableIncome) { this.ytdTaxableIncome = ytdTaxableIncome; }
+
+    public BigDecimal getYtdTotalTaxes() { return ytdTotalTaxes; }
+    public void setYtdTotalTaxes(BigDecimal ytdTotalTaxes) { this.ytdTotalTaxes = ytdTotalTaxes; }
+
+    public BigDecimal getYtdNetPay() { return ytdNetPay; }
+    public void setYtdNetPay(BigDecimal ytdNetPay) { this.ytdNetPay = ytdNetPay; }
 }
@@ -0,0 +1,125 @@
+package com.erp.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Arrears owed for one back-dated salary revision: the difference between the closed payroll records
+// re-run at the revised salary and at the salary before it, paid out as a retro pay line in the next run
+@Entity
+@Table(name = "payroll_retro_adjustments",
+       indexes = @Index(name = "idx_payroll_retro_adjustments_status", columnList = "status, employee_id"))
+public class PayrollRetroAdjustment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "employee_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "department", "designation", "grade", "location", "branch", "costCenter", "expenseCenter", "jobRole", "reportingManager", "createdBy"})
+    private Employee employee;
+
+    @ManyToOne
+    @JoinColumn(name = "salary_revision_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "employee"})
+    private EmployeeSalary salaryRevision;
+
+    private LocalDate effectiveFrom;
+
+    @Column(nullable = false, length = 20)
+    private String status; // PENDING, CALCULATED, NONE_DUE, APPLIED
+
+    private Integer affectedRunCount;
+
+    private BigDecimal arrearsGrossPay;
+
+    private BigDecimal arrearsTaxes;
+
+    private BigDecimal arrearsNetPay;
+
+    private BigDecimal arrearsEmployerContributions;
+
+    // Run carrying the arrears line; set when that run is calculated, final once it is approved
+    @ManyToOne
+    @JoinColumn(name = "payroll_run_id")
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "createdBy", "approvedBy", "processedBy"})
+    private PayrollRun payrollRun;
+
+    private LocalDateTime calculatedAt;
+
+    private LocalDateTime appliedAt;
+
+    @Column(length = 500)
+    private String remarks;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (status == null) status = "PENDING";
+        if (affectedRunCount == null) affectedRunCount = 0;
+        if (arrearsGrossPay == null) arrearsGrossPay = BigDecimal.ZERO;
+        if (arrearsTaxes == null) arrearsTaxes = BigDecimal.ZERO;
+        if (arrearsNetPay == null) arrearsNetPay = BigDecimal.ZERO;
+        if (arrearsEmployerContributions == null) arrearsEmployerContributions = BigDecimal.ZERO;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Employee getEmployee() { return employee; }
+    public void setEmployee(Employee employee) { this.employee = employee; }
+
+    public EmployeeSalary getSalaryRevision() { return salaryRevision; }
+    public void setSalaryRevision(EmployeeSalary salaryRevision) { this.salaryRevision = salaryRevision; }
+
+    public LocalDate getEffectiveFrom() { return effectiveFrom; }
+    public void setEffectiveFrom(LocalDate effectiveFrom) { this.effectiveFrom = effectiveFrom; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Integer getAffectedRunCount() { return affectedRunCount; }
+    public void setAffectedRunCount(Integer affectedRunCount) { this.affectedRunCount = affectedRunCount; }
+
+    public BigDecimal getArrearsGrossPay() { return arrearsGrossPay; }
+    public void setArrearsGrossPay(BigDecimal arrearsGrossPay) { this.arrearsGrossPay = arrearsGrossPay; }
+
+    public BigDecimal getArrearsTaxes() { return arrearsTaxes; }
+    public void setArrearsTaxes(BigDecimal arrearsTaxes) { this.arrearsTaxes = arrearsTaxes; }
+
+    public BigDecimal getArrearsNetPay() { return arrearsNetPay; }
+    public void setArrearsNetPay(BigDecimal arrearsNetPay) { this.arrearsNetPay = arrearsNetPay; }
+
+    public BigDecimal getArrearsEmployerContributions() { return arrearsEmployerContributions; }
+    public void setArrearsEmployerContributions(BigDecimal arrearsEmployerContributions) { this.arrearsEmployerContributions = arrearsEmployerContributions; }
+
+    public PayrollRun getPayrollRun() { return payrollRun; }
+    public void setPayrollRun(PayrollRun payrollRun) { this.payrollRun = payrollRun; }
+
+    public LocalDateTime getCalculatedAt() { return calculatedAt; }
+    public void setCalculatedAt(LocalDateTime calculatedAt) { this.calculatedAt = calculatedAt; }
+
+    public LocalDateTime getAppliedAt() { return appliedAt; }
+    public void setAppliedAt(LocalDateTime appliedAt) { this.appliedAt = appliedAt; }
+
+    public String getRemarks() { return remarks; }
+    public void setRemarks(String remarks) { this.remarks = remarks; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -47,7 +47,7 @@ public class PayrollRun {
     private BigDecimal totalEmployerContributions;
 
     @Column(nullable = false, length = 20)
-    private String status; // DRAFT, CALCULATING, CALCULATED, PENDING_APPROVAL, APPROVED, PROCESSED, CANCELLED
+    private String status; // DRAFT, CALCULATING, CALCULATED, PENDING_APPROVAL, APPROVED, PROCESSED, CANCELLED, VOIDED
 
     @ManyToOne
     @JoinColumn(name = "created_by")
@@ -75,6 +75,10 @@ public class PayrollRun {
 
     private LocalDateTime postedAt;
 
+    private Integer ytdTaxYear; // Tax year the run was added to in the YTD accumulators
+
+    private LocalDateTime ytdAppliedAt;
+
     @Transient
     private Integer processedCount;
 
@@ -174,6 +178,12 @@ public class PayrollRun {
     public LocalDateTime getPostedAt() { return postedAt; }
     public void setPostedAt(LocalDateTime postedAt) { this.postedAt = postedAt; }
 
+    public Integer getYtdTaxYear() { return ytdTaxYear; }
+    public void setYtdTaxYear(Integer ytdTaxYear) { this.ytdTaxYear = ytdTaxYear; }
+
+    public LocalDateTime getYtdAppliedAt() { return ytdAppliedAt; }
+    public void setYtdAppliedAt(LocalDateTime ytdAppliedAt) { this.ytdAppliedAt = ytdAppliedAt; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
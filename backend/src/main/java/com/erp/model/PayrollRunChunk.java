@@ -0,0 +1,134 @@
+package com.erp.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "payroll_run_chunks",
+       indexes = @Index(name = "idx_payroll_run_chunks_run", columnList = "payroll_run_id, chunk_index"))
+public class PayrollRunChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "payroll_run_id", nullable = false)
+    @JsonIgnore
+    private PayrollRun payrollRun;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String timesheetIds; // comma-separated, the unit of work re-read on retry
+
+    private Integer employeeCount;
+
+    @Column(nullable = false, length = 20)
+    private String status; // PENDING, RUNNING, COMPLETED, FAILED
+
+    private Integer attempts;
+
+    private Integer recordCount;
+
+    private Integer failedCount;
+
+    private BigDecimal totalGrossPay;
+
+    private BigDecimal totalDeductions;
+
+    private BigDecimal totalTaxes;
+
+    private BigDecimal totalNetPay;
+
+    private BigDecimal totalEmployerContributions;
+
+    @Column(length = 1000)
+    private String errorMessage;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (status == null) status = "PENDING";
+        if (attempts == null) attempts = 0;
+        if (recordCount == null) recordCount = 0;
+        if (failedCount == null) failedCount = 0;
+        if (totalGrossPay == null) totalGrossPay = BigDecimal.ZERO;
+        if (totalDeductions == null) totalDeductions = BigDecimal.ZERO;
+        if (totalTaxes == null) totalTaxes = BigDecimal.ZERO;
+        if (totalNetPay == null) totalNetPay = BigDecimal.ZERO;
+        if (totalEmployerContributions == null) totalEmployerContributions = BigDecimal.ZERO;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public PayrollRun getPayrollRun() { return payrollRun; }
+    public void setPayrollRun(PayrollRun payrollRun) { this.payrollRun = payrollRun; }
+
+    public Integer getChunkIndex() { return chunkIndex; }
+    public void setChunkIndex(Integer chunkIndex) { this.chunkIndex = chunkIndex; }
+
+    public String getTimesheetIds() { return timesheetIds; }
+    public void setTimesheetIds(String timesheetIds) { this.timesheetIds = timesheetIds; }
+
+    public Integer getEmployeeCount() { return employeeCount; }
+    public void setEmployeeCount(Integer employeeCount) { this.employeeCount = employeeCount; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public Integer getRecordCount() { return recordCount; }
+    public void setRecordCount(Integer recordCount) { this.recordCount = recordCount; }
+
+    public Integer getFailedCount() { return failedCount; }
+    public void setFailedCount(Integer failedCount) { this.failedCount = failedCount; }
+
+    public BigDecimal getTotalGrossPay() { return totalGrossPay; }
+    public void setTotalGrossPay(BigDecimal totalGrossPay) { this.totalGrossPay = totalGrossPay; }
+
+    public BigDecimal getTotalDeductions() { return totalDeductions; }
+    public void setTotalDeductions(BigDecimal totalDeductions) { this.totalDeductions = totalDeductions; }
+
+    public BigDecimal getTotalTaxes() { return totalTaxes; }
+    public void setTotalTaxes(BigDecimal totalTaxes) { this.totalTaxes = totalTaxes; }
+
+    public BigDecimal getTotalNetPay() { return totalNetPay; }
+    public void setTotalNetPay(BigDecimal totalNetPay) { this.totalNetPay = totalNetPay; }
+
+    public BigDecimal getTotalEmployerContributions() { return totalEmployerContributions; }
+    public void setTotalEmployerContributions(BigDecimal totalEmployerContributions) { this.totalEmployerContributions = totalEmployerContributions; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,201 @@
+package com.erp.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Running year-to-date payroll totals of one employee, maintained as runs are approved and voided
+@Entity
+@Table(name = "payroll_ytd_accumulators",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"employee_id", "tax_year"}))
+public class PayrollYtdAccumulator {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "employee_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "department", "designation", "grade", "location", "branch", "costCenter", "expenseCenter", "jobRole", "reportingManager", "createdBy"})
+    private Employee employee;
+
+    @Column(name = "tax_year", nullable = false)
+    private Integer taxYear;
+
+    private BigDecimal grossPay;
+
+    private BigDecimal taxableWages;
+
+    private BigDecimal federalTax;
+
+    private BigDecimal stateTax;
+
+    private BigDecimal localTax;
+
+    private BigDecimal socialSecurityTax;
+
+    private BigDecimal medicareTax;
+
+    private BigDecimal disabilityTax;
+
+    private BigDecimal totalTaxes;
+
+    private BigDecimal preTaxDeductions;
+
+    private BigDecimal postTaxDeductions;
+
+    private BigDecimal totalDeductions;
+
+    private BigDecimal reimbursements;
+
+    private BigDecimal netPay;
+
+    private BigDecimal employerSocialSecurity;
+
+    private BigDecimal employerMedicare;
+
+    private BigDecimal totalEmployerContributions;
+
+    private Integer payrollCount;
+
+    private Long lastPayrollRunId;
+
+    @Version
+    private Long version;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (payrollCount == null) payrollCount = 0;
+        if (grossPay == null) grossPay = BigDecimal.ZERO;
+        if (taxableWages == null) taxableWages = BigDecimal.ZERO;
+        if (federalTax == null) federalTax = BigDecimal.ZERO;
+        if (stateTax == null) stateTax = BigDecimal.ZERO;
+        if (localTax == null) localTax = BigDecimal.ZERO;
+        if (socialSecurityTax == null) socialSecurityTax = BigDecimal.ZERO;
+        if (medicareTax == null) medicareTax = BigDecimal.ZERO;
+        if (disabilityTax == null) disabilityTax = BigDecimal.ZERO;
+        if (totalTaxes == null) totalTaxes = BigDecimal.ZERO;
+        if (preTaxDeductions == null) preTaxDeductions = BigDecimal.ZERO;
+        if (postTaxDeductions == null) postTaxDeductions = BigDecimal.ZERO;
+        if (totalDeductions == null) totalDeductions = BigDecimal.ZERO;
+        if (reimbursements == null) reimbursements = BigDecimal.ZERO;
+        if (netPay == null) netPay = BigDecimal.ZERO;
+        if (employerSocialSecurity == null) employerSocialSecurity = BigDecimal.ZERO;
+        if (employerMedicare == null) employerMedicare = BigDecimal.ZERO;
+        if (totalEmployerContributions == null) totalEmployerContributions = BigDecimal.ZERO;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Adds (sign 1) or removes (sign -1) one payroll record
+    public void apply(PayrollRecord record, int sign) {
+        grossPay = add(grossPay, record.getGrossPay(), sign);
+        taxableWages = add(taxableWages, record.getTaxableIncome(), sign);
+        federalTax = add(federalTax, record.getFederalTax(), sign);
+        stateTax = add(stateTax, record.getStateTax(), sign);
+        localTax = add(localTax, record.getLocalTax(), sign);
+        socialSecurityTax = add(socialSecurityTax, record.getSocialSecurityTax(), sign);
+        medicareTax = add(medicareTax, record.getMedicareTax(), sign);
+        disabilityTax = add(disabilityTax, record.getDisabilityTax(), sign);
+        totalTaxes = add(totalTaxes, record.getTotalTaxes(), sign);
+        preTaxDeductions = add(preTaxDeductions, record.getPreTaxDeductions(), sign);
+        postTaxDeductions = add(postTaxDeductions, record.getPostTaxDeductions(), sign);
+        totalDeductions = add(totalDeductions, record.getTotalDeductions(), sign);
+        reimbursements = add(reimbursements, record.getReimbursements(), sign);
+        netPay = add(netPay, record.getNetPay(), sign);
+        employerSocialSecurity = add(employerSocialSecurity, record.getEmployerSocialSecurity(), sign);
+        employerMedicare = add(employerMedicare, record.getEmployerMedicare(), sign);
+        totalEmployerContributions = add(totalEmployerContributions, record.getTotalEmployerContributions(), sign);
+        payrollCount = (payrollCount != null ? payrollCount : 0) + sign;
+    }
+
+    private static BigDecimal add(BigDecimal total, BigDecimal amount, int sign) {
+        BigDecimal base = total != null ? total : BigDecimal.ZERO;
+        if (amount == null) return base;
+        return sign < 0 ? base.subtract(amount) : base.add(amount);
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Employee getEmployee() { return employee; }
+    public void setEmployee(Employee employee) { this.employee = employee; }
+
+    public Integer getTaxYear() { return taxYear; }
+    public void setTaxYear(Integer taxYear) { this.taxYear = taxYear; }
+
+    public BigDecimal getGrossPay() { return grossPay; }
+    public void setGrossPay(BigDecimal grossPay) { this.grossPay = grossPay; }
+
+    public BigDecimal getTaxableWages() { return taxableWages; }
+    public void setTaxableWages(BigDecimal taxableWages) { this.taxableWages = taxableWages; }
+
+    public BigDecimal getFederalTax() { return federalTax; }
+    public void setFederalTax(BigDecimal federalTax) { this.federalTax = federalTax; }
+
+    public BigDecimal getStateTax() { return stateTax; }
+    public void setStateTax(BigDecimal stateTax) { this.stateTax = stateTax; }
+
+    public BigDecimal getLocalTax() { return localTax; }
+    public void setLocalTax(BigDecimal localTax) { this.localTax = localTax; }
+
+    public BigDecimal getSocialSecurityTax() { return socialSecurityTax; }
+    public void setSocialSecurityTax(BigDecimal socialSecurityTax) { this.socialSecurityTax = socialSecurityTax; }
+
+    public BigDecimal getMedicareTax() { return medicareTax; }
+    public void setMedicareTax(BigDecimal medicareTax) { this.medicareTax = medicareTax; }
+
+    public BigDecimal getDisabilityTax() { return disabilityTax; }
+    public void setDisabilityTax(BigDecimal disabilityTax) { this.disabilityTax = disabilityTax; }
+
+    public BigDecimal getTotalTaxes() { return totalTaxes; }
+    public void setTotalTaxes(BigDecimal totalTaxes) { this.totalTaxes = totalTaxes; }
+
+    public BigDecimal getPreTaxDeductions() { return preTaxDeductions; }
+    public void setPreTaxDeductions(BigDecimal preTaxDeductions) { this.preTaxDeductions = preTaxDeductions; }
+
+    public BigDecimal getPostTaxDeductions() { return postTaxDeductions; }
+    public void setPostTaxDeductions(BigDecimal postTaxDeductions) { this.postTaxDeductions = postTaxDeductions; }
+
+    public BigDecimal getTotalDeductions() { return totalDeductions; }
+    public void setTotalDeductions(BigDecimal totalDeductions) { this.totalDeductions = totalDeductions; }
+
+    public BigDecimal getReimbursements() { return reimbursements; }
+    public void setReimbursements(BigDecimal reimbursements) { this.reimbursements = reimbursements; }
+
+    public BigDecimal getNetPay() { return netPay; }
+    public void setNetPay(BigDecimal netPay) { this.netPay = netPay; }
+
+    public BigDecimal getEmployerSocialSecurity() { return employerSocialSecurity; }
+    public void setEmployerSocialSecurity(BigDecimal employerSocialSecurity) { this.employerSocialSecurity = employerSocialSecurity; }
+
+    public BigDecimal getEmployerMedicare() { return employerMedicare; }
+    public void setEmployerMedicare(BigDecimal employerMedicare) { this.employerMedicare = employerMedicare; }
+
+    public BigDecimal getTotalEmployerContributions() { return totalEmployerContributions; }
+    public void setTotalEmployerContributions(BigDecimal totalEmployerContributions) { this.totalEmployerContributions = totalEmployerContributions; }
+
+    public Integer getPayrollCount() { return payrollCount; }
+    public void setPayrollCount(Integer payrollCount) { this.payrollCount = payrollCount; }
+
+    public Long getLastPayrollRunId() { return lastPayrollRunId; }
+    public void setLastPayrollRunId(Long lastPayrollRunId) { this.lastPayrollRunId = lastPayrollRunId; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,32 @@
+package com.erp.model.listener;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+// Publishes inserts, updates and deletes of the entities it is attached to as EntityChangedEvents, so the
+// services that cache them can follow along without the model depending on the service layer
+public class EntityChangePublisher {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Object entity) {
+        publish(entity, false);
+    }
+
+    @PostRemove
+    public void onRemoved(Object entity) {
+        publish(entity, true);
+    }
+
+    private void publish(Object entity, boolean removed) {
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(new EntityChangedEvent(entity, removed));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.erp.model.listener;
+
+// A save or delete of an entity that carries EntityChangePublisher, published while the change is flushed
+public class EntityChangedEvent {
+
+    private final Object entity;
+    private final boolean removed;
+
+    public EntityChangedEvent(Object entity, boolean removed) {
+        this.entity = entity;
+        this.removed = removed;
+    }
+
+    public Object getEntity() {
+        return entity;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+}
@@ -0,0 +1,141 @@
+package com.erp.repository;
+
+import com.erp.model.AttendanceDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AttendanceDailyRollupRepository extends JpaRepository<AttendanceDailyRollup, Long> {
+
+    // Adds a (possibly negative) delta to the day's counters, creating the row on first use
+    @Modifying
+    @Query(value = "INSERT INTO attendance_daily_rollups (rollup_date, branch_id, department_id, record_count, present_count, " +
+            "absent_count, on_leave_count, half_day_count, late_count, early_departure_count, pending_approval_count, " +
+            "regular_hours, overtime_hours, updated_at) " +
+            "VALUES (:date, :branchId, :departmentId, :records, :present, :absent, :onLeave, :halfDay, :late, :earlyDeparture, " +
+            ":pendingApproval, :regularHours, :overtimeHours, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (rollup_date, branch_id, department_id) DO UPDATE SET " +
+            "record_count = attendance_daily_rollups.record_count + EXCLUDED.record_count, " +
+            "present_count = attendance_daily_rollups.present_count + EXCLUDED.present_count, " +
+            "absent_count = attendance_daily_rollups.absent_count + EXCLUDED.absent_count, " +
+            "on_leave_count = attendance_daily_rollups.on_leave_count + EXCLUDED.on_leave_count, " +
+            "half_day_count = attendance_daily_rollups.half_day_count + EXCLUDED.half_day_count, " +
+            "late_count = attendance_daily_rollups.late_count + EXCLUDED.late_count, " +
+            "early_departure_count = attendance_daily_rollups.early_departure_count + EXCLUDED.early_departure_count, " +
+            "pending_approval_count = attendance_daily_rollups.pending_approval_count + EXCLUDED.pending_approval_count, " +
+            "regular_hours = attendance_daily_rollups.regular_hours + EXCLUDED.regular_hours, " +
+            "overtime_hours = attendance_daily_rollups.overtime_hours + EXCLUDED.overtime_hours, " +
+            "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    void addDelta(@Param("date") LocalDate date, @Param("branchId") Long branchId, @Param("departmentId") Long departmentId,
+                  @Param("records") long records, @Param("present") long present, @Param("absent") long absent,
+                  @Param("onLeave") long onLeave, @Param("halfDay") long halfDay, @Param("late") long late,
+                  @Param("earlyDeparture") long earlyDeparture, @Param("pendingApproval") long pendingApproval,
+                  @Param("regularHours") BigDecimal regularHours, @Param("overtimeHours") BigDecimal overtimeHours);
+
+    @Modifying
+    @Query(value = "DELETE FROM attendance_daily_rollups WHERE rollup_date BETWEEN :startDate AND :endDate", nativeQuery = true)
+    int deleteBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Recounts the days from attendance_records in one statement
+    @Modifying
+    @Query(value = "INSERT INTO attendance_daily_rollups (rollup_date, branch_id, department_id, record_count, present_count, " +
+            "absent_count, on_leave_count, half_day_count, late_count, early_departure_count, pending_approval_count, " +
+            "regular_hours, overtime_hours, updated_at) " +
+            "SELECT r.attendance_date, COALESCE(r.branch_id, e.branch_id, 0), COALESCE(r.department_id, e.department_id, 0), COUNT(*), " +
+            "SUM(CASE WHEN r.status = 'PRESENT' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.status = 'ABSENT' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.status = 'ON_LEAVE' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.status = 'HALF_DAY' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.late_arrival = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.early_departure = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.approval_status = 'PENDING' THEN 1 ELSE 0 END), " +
+            "COALESCE(SUM(r.regular_hours), 0), COALESCE(SUM(r.overtime_hours), 0), CURRENT_TIMESTAMP " +
+            "FROM attendance_records r JOIN employees e ON e.id = r.employee_id " +
+            "WHERE r.attendance_date BETWEEN :startDate AND :endDate " +
+            "GROUP BY r.attendance_date, COALESCE(r.branch_id, e.branch_id, 0), COALESCE(r.department_id, e.department_id, 0)", nativeQuery = true)
+    int insertRecountBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Takes an employee's records out of the counters they were added to, before the records are deleted in bulk
+    @Modifying
+    @Query(value = "UPDATE attendance_daily_rollups d SET record_count = d.record_count - s.records, " +
+            "present_count = d.present_count - s.present, absent_count = d.absent_count - s.absent, " +
+            "on_leave_count = d.on_leave_count - s.on_leave, half_day_count = d.half_day_count - s.half_day, " +
+            "late_count = d.late_count - s.late, early_departure_count = d.early_departure_count - s.early_departure, " +
+            "pending_approval_count = d.pending_approval_count - s.pending_approval, " +
+            "regular_hours = d.regular_hours - s.regular_hours, overtime_hours = d.overtime_hours - s.overtime_hours, " +
+            "updated_at = CURRENT_TIMESTAMP FROM (" +
+            "SELECT r.attendance_date, COALESCE(r.branch_id, e.branch_id, 0) AS branch_id, " +
+            "COALESCE(r.department_id, e.department_id, 0) AS department_id, COUNT(*) AS records, " +
+            "SUM(CASE WHEN r.status = 'PRESENT' THEN 1 ELSE 0 END) AS present, " +
+            "SUM(CASE WHEN r.status = 'ABSENT' THEN 1 ELSE 0 END) AS absent, " +
+            "SUM(CASE WHEN r.status = 'ON_LEAVE' THEN 1 ELSE 0 END) AS on_leave, " +
+            "SUM(CASE WHEN r.status = 'HALF_DAY' THEN 1 ELSE 0 END) AS half_day, " +
+            "SUM(CASE WHEN r.late_arrival = true THEN 1 ELSE 0 END) AS late, " +
+            "SUM(CASE WHEN r.early_departure = true THEN 1 ELSE 0 END) AS early_departure, " +
+            "SUM(CASE WHEN r.approval_status = 'PENDING' THEN 1 ELSE 0 END) AS pending_approval, " +
+            "COALESCE(SUM(r.regular_hours), 0) AS regular_hours, COALESCE(SUM(r.overtime_hours), 0) AS overtime_hours " +
+            "FROM attendance_records r JOIN employees e ON e.id = r.employee_id WHERE r.employee_id = :employeeId " +
+            "GROUP BY r.attendance_date, COALESCE(r.branch_id, e.branch_id, 0), COALESCE(r.department_id, e.department_id, 0)) s " +
+            "WHERE d.rollup_date = s.attendance_date AND d.branch_id = s.branch_id AND d.department_id = s.department_id",
+            nativeQuery = true)
+    int subtractEmployeeRecords(@Param("employeeId") Long employeeId);
+
+    @Query("SELECT COALESCE(SUM(r.recordCount), 0) AS records, COALESCE(SUM(r.presentCount), 0) AS present, " +
+           "COALESCE(SUM(r.absentCount), 0) AS absent, COALESCE(SUM(r.onLeaveCount), 0) AS onLeave, " +
+           "COALESCE(SUM(r.halfDayCount), 0) AS halfDay, COALESCE(SUM(r.lateCount), 0) AS late, " +
+           "COALESCE(SUM(r.earlyDepartureCount), 0) AS earlyDeparture, " +
+           "COALESCE(SUM(r.pendingApprovalCount), 0) AS pendingApproval, " +
+           "COALESCE(SUM(r.regularHours), 0) AS regularHours, COALESCE(SUM(r.overtimeHours), 0) AS overtimeHours " +
+           "FROM AttendanceDailyRollup r WHERE r.rollupDate BETWEEN :startDate AND :endDate " +
+           "AND (:branchId IS NULL OR r.branchId = :branchId)")
+    RollupTotals sumBetween(@Param("branchId") Long branchId, @Param("startDate") LocalDate startDate,
+                            @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT r.rollupDate AS rollupDate, SUM(r.recordCount) AS records, SUM(r.presentCount) AS present, " +
+           "SUM(r.absentCount) AS absent, SUM(r.onLeaveCount) AS onLeave, SUM(r.halfDayCount) AS halfDay, " +
+           "SUM(r.lateCount) AS late, SUM(r.earlyDepartureCount) AS earlyDeparture, " +
+           "SUM(r.pendingApprovalCount) AS pendingApproval, SUM(r.regularHours) AS regularHours, " +
+           "SUM(r.overtimeHours) AS overtimeHours " +
+           "FROM AttendanceDailyRollup r WHERE r.rollupDate BETWEEN :startDate AND :endDate " +
+           "AND (:branchId IS NULL OR r.branchId = :branchId) GROUP BY r.rollupDate ORDER BY r.rollupDate")
+    List<DailyTotals> sumByDateBetween(@Param("branchId") Long branchId, @Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT r.departmentId AS departmentId, SUM(r.recordCount) AS records, SUM(r.presentCount) AS present, " +
+           "SUM(r.absentCount) AS absent, SUM(r.onLeaveCount) AS onLeave, SUM(r.halfDayCount) AS halfDay, " +
+           "SUM(r.lateCount) AS late, SUM(r.earlyDepartureCount) AS earlyDeparture, " +
+           "SUM(r.pendingApprovalCount) AS pendingApproval, SUM(r.regularHours) AS regularHours, " +
+           "SUM(r.overtimeHours) AS overtimeHours " +
+           "FROM AttendanceDailyRollup r WHERE r.rollupDate BETWEEN :startDate AND :endDate " +
+           "AND (:branchId IS NULL OR r.branchId = :branchId) GROUP BY r.departmentId")
+    List<DepartmentTotals> sumByDepartmentBetween(@Param("branchId") Long branchId, @Param("startDate") LocalDate startDate,
+                                                  @Param("endDate") LocalDate endDate);
+
+    interface RollupTotals {
+        Long getRecords();
+        Long getPresent();
+        Long getAbsent();
+        Long getOnLeave();
+        Long getHalfDay();
+        Long getLate();
+        Long getEarlyDeparture();
+        Long getPendingApproval();
+        BigDecimal getRegularHours();
+        BigDecimal getOvertimeHours();
+    }
+
+    interface DailyTotals extends RollupTotals {
+        LocalDate getRollupDate();
+    }
+
+    interface DepartmentTotals extends RollupTotals {
+        Long getDepartmentId();
+    }
+}
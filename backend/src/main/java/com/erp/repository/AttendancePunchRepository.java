@@ -0,0 +1,30 @@
+package com.erp.repository;
+
+import com.erp.model.AttendancePunch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AttendancePunchRepository extends JpaRepository<AttendancePunch, Long> {
+
+    // Every stored punch of the given employees in the date range, in time order per employee
+    @Query("SELECT p.employee.id AS employeeId, p.punchDate AS punchDate, p.punchedAt AS punchedAt, p.punchType AS punchType " +
+           "FROM AttendancePunch p WHERE p.employee.id IN :employeeIds AND p.punchDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY p.employee.id, p.punchedAt")
+    List<PunchRow> findPunches(@Param("employeeIds") Collection<Long> employeeIds, @Param("startDate") LocalDate startDate,
+                               @Param("endDate") LocalDate endDate);
+
+    interface PunchRow {
+        Long getEmployeeId();
+        LocalDate getPunchDate();
+        LocalDateTime getPunchedAt();
+        String getPunchType();
+    }
+}
@@ -2,12 +2,20 @@ package com.erp.repository;
 
 import com.erp.model.AttendanceRecord;
 import com.erp.model.Employee;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +30,8 @@ public interface AttendanceRecordRepository extends JpaRepository<AttendanceReco
     
     List<AttendanceRecord> findByAttendanceDateBetween(LocalDate startDate, LocalDate endDate);
     
+    List<AttendanceRecord> findByEmployeeIdInAndAttendanceDateBetween(Collection<Long> employeeIds, LocalDate startDate, LocalDate endDate);
+    
     Optional<AttendanceRecord> findByEmployeeIdAndAttendanceDate(Long employeeId, LocalDate date);
     
     List<AttendanceRecord> findByStatus(String status);
@@ -51,4 +61,166 @@ public interface AttendanceRecordRepository extends JpaRepository<AttendanceReco
 
     @Query("SELECT a FROM AttendanceRecord a WHERE a.employee.id = :employeeId AND a.attendanceDate BETWEEN :startDate AND :endDate AND a.approvalStatus = 'APPROVED'")
     List<AttendanceRecord> findApprovedAttendanceByEmployeeAndDateRange(@Param("employeeId") Long employeeId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Stamps records written by bulk upserts, or before the columns existed, with their employee's current
+    // branch and department
+    @Modifying
+    @Query(value = "UPDATE attendance_records r SET branch_id = COALESCE(e.branch_id, 0), department_id = COALESCE(e.department_id, 0) " +
+           "FROM employees e WHERE e.id = r.employee_id AND r.branch_id IS NULL " +
+           "AND r.attendance_date BETWEEN :startDate AND :endDate", nativeQuery = true)
+    int stampRollupKeys(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT MIN(a.attendanceDate) FROM AttendanceRecord a")
+    LocalDate findEarliestAttendanceDate();
+
+    @Query("SELECT MAX(a.attendanceDate) FROM AttendanceRecord a")
+    LocalDate findLatestAttendanceDate();
+
+    @Modifying
+    @Query("UPDATE AttendanceRecord r SET r.projectCode = :projectCode, r.projectName = :projectName " +
+           "WHERE r.id = :id AND (r.projectName IS NULL OR r.projectName = '')")
+    int fillMissingProject(@Param("id") Long id, @Param("projectCode") String projectCode, @Param("projectName") String projectName);
+
+    // Branch-scoped listing with the filters in SQL; a null branch means every branch
+    @Query("SELECT r FROM AttendanceRecord r JOIN FETCH r.employee e " +
+           "WHERE e.active = true AND (:branchId IS NULL OR e.branch.id = :branchId) " +
+           "AND r.attendanceDate BETWEEN :startDate AND :endDate ORDER BY r.attendanceDate DESC, r.id DESC")
+    List<AttendanceRecord> findForBranchBetween(@Param("branchId") Long branchId, @Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+
+    // One keyset page, newest first: rows strictly after the (cursorDate, cursorId) position. Only the
+    // columns of the listing are read; the employee's own project stands in for a record without one.
+    @Query("SELECT r.id AS id, e.id AS employeeId, e.employeeCode AS employeeCode, e.firstName AS firstName, " +
+           "e.lastName AS lastName, r.attendanceDate AS attendanceDate, r.clockIn AS clockIn, r.clockOut AS clockOut, " +
+           "r.status AS status, r.approvalStatus AS approvalStatus, r.captureMethod AS captureMethod, " +
+           "r.regularHours AS regularHours, r.overtimeHours AS overtimeHours, r.lateArrival AS lateArrival, " +
+           "r.lateMinutes AS lateMinutes, r.earlyDeparture AS earlyDeparture, r.earlyMinutes AS earlyMinutes, " +
+           "r.remarks AS remarks, COALESCE(r.projectCode, p.projectCode) AS projectCode, " +
+           "COALESCE(r.projectName, p.name) AS projectName " +
+           "FROM AttendanceRecord r JOIN r.employee e LEFT JOIN e.branch b LEFT JOIN e.project p " +
+           "WHERE e.active = true AND (:branchId IS NULL OR b.id = :branchId) " +
+           "AND (:employeeId IS NULL OR e.id = :employeeId) AND (:status IS NULL OR r.status = :status) " +
+           "AND r.attendanceDate BETWEEN :startDate AND :endDate " +
+           "AND (r.attendanceDate < :cursorDate OR (r.attendanceDate = :cursorDate AND r.id < :cursorId)) " +
+           "ORDER BY r.attendanceDate DESC, r.id DESC")
+    List<AttendanceRow> findPageAfter(@Param("branchId") Long branchId, @Param("employeeId") Long employeeId,
+                                      @Param("status") String status, @Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate, @Param("cursorDate") LocalDate cursorDate,
+                                      @Param("cursorId") Long cursorId, Pageable pageable);
+
+    // One chunk of a day's records for the anomaly sweep, walked in id order on the (attendance_date, id) index
+    @Query("SELECT r.id AS id, e.id AS employeeId, e.firstName AS firstName, e.lastName AS lastName, m.id AS managerId, " +
+           "r.clockIn AS clockIn, r.clockOut AS clockOut, r.lateArrival AS lateArrival, r.approvalStatus AS approvalStatus " +
+           "FROM AttendanceRecord r JOIN r.employee e LEFT JOIN e.reportingManager m " +
+           "WHERE r.attendanceDate = :date AND r.id > :afterId ORDER BY r.id")
+    List<AnomalyScanRow> findAnomalyScanChunk(@Param("date") LocalDate date, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE AttendanceRecord r SET r.anomalyFlags = NULL WHERE r.attendanceDate = :date AND r.anomalyFlags IS NOT NULL")
+    int clearAnomalyFlags(@Param("date") LocalDate date);
+
+    @Modifying
+    @Query("UPDATE AttendanceRecord r SET r.anomalyFlags = :flags WHERE r.id IN :ids")
+    int setAnomalyFlags(@Param("ids") Collection<Long> ids, @Param("flags") String flags);
+
+    @Query("SELECT r FROM AttendanceRecord r JOIN FETCH r.employee e " +
+           "WHERE e.active = true AND (:branchId IS NULL OR e.branch.id = :branchId) " +
+           "AND r.attendanceDate = :date AND r.anomalyFlags IS NOT NULL ORDER BY r.id")
+    List<AttendanceRecord> findFlaggedForBranch(@Param("branchId") Long branchId, @Param("date") LocalDate date);
+
+    interface AnomalyScanRow {
+        Long getId();
+        Long getEmployeeId();
+        String getFirstName();
+        String getLastName();
+        Long getManagerId();
+        LocalTime getClockIn();
+        LocalTime getClockOut();
+        Boolean getLateArrival();
+        String getApprovalStatus();
+    }
+
+    // Clock times already on record for the given employees in the date range
+    @Query("SELECT r.employee.id AS employeeId, r.attendanceDate AS attendanceDate, r.clockIn AS clockIn, r.clockOut AS clockOut " +
+           "FROM AttendanceRecord r WHERE r.employee.id IN :employeeIds AND r.attendanceDate BETWEEN :startDate AND :endDate")
+    List<ClockTimesRow> findClockTimes(@Param("employeeIds") Collection<Long> employeeIds, @Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate);
+
+    // What the records of the given employees in the date range count for in the daily rollups, locked so a
+    // bulk upsert can take exactly these states back out
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r.employee.id AS employeeId, r.attendanceDate AS attendanceDate, " +
+           "COALESCE(r.branchId, e.branch.id, 0L) AS branchId, COALESCE(r.departmentId, e.department.id, 0L) AS departmentId, " +
+           "r.status AS status, r.approvalStatus AS approvalStatus, r.lateArrival AS lateArrival, " +
+           "r.earlyDeparture AS earlyDeparture, r.regularHours AS regularHours, r.overtimeHours AS overtimeHours " +
+           "FROM AttendanceRecord r JOIN r.employee e " +
+           "WHERE r.employee.id IN :employeeIds AND r.attendanceDate BETWEEN :startDate AND :endDate")
+    List<RollupRow> lockRollupStates(@Param("employeeIds") Collection<Long> employeeIds, @Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate);
+
+    interface RollupRow {
+        Long getEmployeeId();
+        LocalDate getAttendanceDate();
+        Long getBranchId();
+        Long getDepartmentId();
+        String getStatus();
+        String getApprovalStatus();
+        Boolean getLateArrival();
+        Boolean getEarlyDeparture();
+        BigDecimal getRegularHours();
+        BigDecimal getOvertimeHours();
+    }
+
+    interface ClockTimesRow {
+        Long getEmployeeId();
+        LocalDate getAttendanceDate();
+        LocalTime getClockIn();
+        LocalTime getClockOut();
+    }
+
+    // Locks the requested records that are in scope (active employee, in the branch unless it is null) for a
+    // bulk approval; ids that do not come back are missing or out of scope
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r.id AS id, r.approvalStatus AS approvalStatus, r.attendanceDate AS attendanceDate, " +
+           "e.id AS employeeId, COALESCE(r.branchId, e.branch.id) AS branchId, COALESCE(r.departmentId, e.department.id) AS departmentId " +
+           "FROM AttendanceRecord r JOIN r.employee e " +
+           "WHERE r.id IN :ids AND e.active = true AND (:branchId IS NULL OR e.branch.id = :branchId)")
+    List<ApprovalRow> lockForApproval(@Param("ids") Collection<Long> ids, @Param("branchId") Long branchId);
+
+    @Modifying
+    @Query("UPDATE AttendanceRecord r SET r.approvalStatus = 'APPROVED', r.approvedAt = :now, r.approvedBy = :approver, " +
+           "r.updatedAt = :now WHERE r.id IN :ids AND (r.approvalStatus IS NULL OR r.approvalStatus NOT IN ('APPROVED', 'REJECTED'))")
+    int approveAll(@Param("ids") Collection<Long> ids, @Param("approver") Employee approver, @Param("now") LocalDateTime now);
+
+    interface ApprovalRow {
+        Long getId();
+        String getApprovalStatus();
+        LocalDate getAttendanceDate();
+        Long getEmployeeId();
+        Long getBranchId();
+        Long getDepartmentId();
+    }
+
+    interface AttendanceRow {
+        Long getId();
+        Long getEmployeeId();
+        String getEmployeeCode();
+        String getFirstName();
+        String getLastName();
+        LocalDate getAttendanceDate();
+        LocalTime getClockIn();
+        LocalTime getClockOut();
+        String getStatus();
+        String getApprovalStatus();
+        String getCaptureMethod();
+        BigDecimal getRegularHours();
+        BigDecimal getOvertimeHours();
+        Boolean getLateArrival();
+        Integer getLateMinutes();
+        Boolean getEarlyDeparture();
+        Integer getEarlyMinutes();
+        String getRemarks();
+        String getProjectCode();
+        String getProjectName();
+    }
 }
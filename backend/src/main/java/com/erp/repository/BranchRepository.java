@@ -13,6 +13,7 @@ public interface BranchRepository extends JpaRepository<Branch, Long> {
     Optional<Branch> findByName(String name);
     Optional<Branch> findBySlug(String slug);
     List<Branch> findByActiveTrue();
+    List<Branch> findByActiveTrueAndGeofenceEnabledTrue();
     boolean existsByCode(String code);
     boolean existsBySlug(String slug);
 }
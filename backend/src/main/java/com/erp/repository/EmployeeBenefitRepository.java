@@ -4,6 +4,7 @@ import com.erp.model.EmployeeBenefit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -20,4 +21,6 @@ public interface EmployeeBenefitRepository extends JpaRepository<EmployeeBenefit
     List<EmployeeBenefit> findByIsPreTaxTrue();
     
     List<EmployeeBenefit> findByEmployeeIdAndIsPreTaxTrueAndIsActiveTrue(Long employeeId);
+    
+    List<EmployeeBenefit> findByEmployeeIdInAndIsActiveTrue(Collection<Long> employeeIds);
 }
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -56,4 +57,41 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     List<Employee> searchEmployeesByBranch(@Param("branchId") Long branchId, @Param("search") String search);
     
     Optional<Employee> findByIdAndBranchId(Long id, Long branchId);
+    
+    // Branch membership index: one lean row per active employee
+    @Query("SELECT e.id AS employeeId, b.id AS branchId FROM Employee e LEFT JOIN e.branch b WHERE e.active = true")
+    List<BranchMembership> findActiveBranchMemberships();
+
+    // With the location and branch the overtime rules are chosen by, for batch overtime over many employees
+    @Query("SELECT DISTINCT e FROM Employee e LEFT JOIN FETCH e.location LEFT JOIN FETCH e.branch WHERE e.id IN :ids")
+    List<Employee> findWithOvertimeSitesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT e.id FROM Employee e WHERE e.active = true ORDER BY e.id")
+    List<Long> findActiveIds();
+
+    @Query("SELECT e.id FROM Employee e WHERE e.department.id = :departmentId AND e.active = true")
+    List<Long> findActiveIdsByDepartment(@Param("departmentId") Long departmentId);
+    
+    // The branch and location whose geofences the employee may clock in from
+    @Query("SELECT b.id AS branchId, l.id AS locationId FROM Employee e LEFT JOIN e.branch b LEFT JOIN e.location l " +
+           "WHERE e.id = :employeeId")
+    Optional<EmployeeSites> findSites(@Param("employeeId") Long employeeId);
+
+    interface EmployeeSites {
+        Long getBranchId();
+        Long getLocationId();
+    }
+
+    interface BranchMembership {
+        Long getEmployeeId();
+        Long getBranchId();
+    }
+    
+    @Query("SELECT e.id AS employeeId, e.employeeCode AS employeeCode FROM Employee e")
+    List<EmployeeCodeRow> findAllEmployeeCodes();
+    
+    interface EmployeeCodeRow {
+        Long getEmployeeId();
+        String getEmployeeCode();
+    }
 }
@@ -4,6 +4,7 @@ import com.erp.model.EmployeeSalary;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +15,8 @@ public interface EmployeeSalaryRepository extends JpaRepository<EmployeeSalary,
     Optional<EmployeeSalary> findByEmployeeIdAndIsCurrentTrue(Long employeeId);
     
     List<EmployeeSalary> findByEmployeeIdOrderByEffectiveFromDesc(Long employeeId);
+    
+    List<EmployeeSalary> findByEmployeeIdInAndIsCurrentTrue(Collection<Long> employeeIds);
+    
+    List<EmployeeSalary> findByEmployeeIdIn(Collection<Long> employeeIds);
 }
@@ -4,10 +4,12 @@ import com.erp.model.ExpenseRequest;
 import com.erp.model.Employee;
 import com.erp.model.CostCenter;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -46,4 +48,25 @@ public interface ExpenseRequestRepository extends JpaRepository<ExpenseRequest,
 
     @Query("SELECT e FROM ExpenseRequest e WHERE e.employee.id = :employeeId AND e.status = 'APPROVED' AND e.reimbursementRequired = true AND (e.reimbursementStatus IS NULL OR e.reimbursementStatus = 'PENDING') AND e.expenseDate BETWEEN :startDate AND :endDate")
     List<ExpenseRequest> findApprovedReimbursementsByExpenseDate(@Param("employeeId") Long employeeId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT e FROM ExpenseRequest e WHERE e.employee.id IN :employeeIds AND e.status = 'APPROVED' AND e.reimbursementRequired = true AND (e.reimbursementStatus IS NULL OR e.reimbursementStatus = 'PENDING') AND e.approvedAt IS NOT NULL AND CAST(e.approvedAt AS localdate) BETWEEN :startDate AND :endDate")
+    List<ExpenseRequest> findApprovedReimbursementsForPayrollByEmployees(@Param("employeeIds") Collection<Long> employeeIds, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT e FROM ExpenseRequest e WHERE e.employee.id IN :employeeIds AND e.status = 'APPROVED' AND e.reimbursementRequired = true AND (e.reimbursementStatus IS NULL OR e.reimbursementStatus = 'PENDING') AND e.expenseDate BETWEEN :startDate AND :endDate")
+    List<ExpenseRequest> findApprovedReimbursementsByExpenseDateForEmployees(@Param("employeeIds") Collection<Long> employeeIds, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Reimbursements paid through unprocessed records of the run go back to pending before those records are
+    // deleted and recalculated, so the new records pick them up again
+    @Modifying
+    @Query("UPDATE ExpenseRequest e SET e.reimbursementStatus = 'PENDING', e.reimbursedAt = NULL, e.payrollRecord = NULL " +
+           "WHERE e.reimbursementStatus = 'PROCESSED' AND e.payrollRecord.id IN (SELECT pr.id FROM PayrollRecord pr " +
+           "WHERE pr.payrollRun.id = :runId AND pr.employee.id IN :employeeIds AND pr.status <> 'PROCESSED')")
+    int releaseForRecalculation(@Param("runId") Long runId, @Param("employeeIds") Collection<Long> employeeIds);
+
+    // A voided run pays nothing, so its reimbursements become payable in a later run
+    @Modifying
+    @Query("UPDATE ExpenseRequest e SET e.reimbursementStatus = 'PENDING', e.reimbursedAt = NULL, e.payrollRecord = NULL " +
+           "WHERE e.reimbursementStatus = 'PROCESSED' AND e.payrollRecord.id IN (SELECT pr.id FROM PayrollRecord pr " +
+           "WHERE pr.payrollRun.id = :runId)")
+    int releaseForRun(@Param("runId") Long runId);
 }
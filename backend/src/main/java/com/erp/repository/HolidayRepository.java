@@ -33,4 +33,10 @@ public interface HolidayRepository extends JpaRepository<Holiday, Long> {
     
     @Query("SELECT COUNT(h) FROM Holiday h WHERE h.holidayDate BETWEEN :startDate AND :endDate AND h.isActive = true AND h.isOptional = false")
     long countHolidaysBetweenDates(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Dates of the mandatory holidays observed in the branch (or everywhere, for a null branch) in the range
+    @Query("SELECT h.holidayDate FROM Holiday h WHERE h.holidayDate BETWEEN :startDate AND :endDate AND h.isActive = true " +
+           "AND h.isOptional = false AND (h.branch.id IS NULL OR h.branch.id = :branchId)")
+    List<LocalDate> findObservedHolidayDates(@Param("branchId") Long branchId, @Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate);
 }
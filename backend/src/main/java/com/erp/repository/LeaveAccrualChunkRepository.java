@@ -0,0 +1,17 @@
+package com.erp.repository;
+
+import com.erp.model.LeaveAccrualChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LeaveAccrualChunkRepository extends JpaRepository<LeaveAccrualChunk, Long> {
+
+    List<LeaveAccrualChunk> findByAccrualRunIdOrderByChunkIndexAsc(Long accrualRunId);
+
+    List<LeaveAccrualChunk> findByAccrualRunIdAndStatusNotOrderByChunkIndexAsc(Long accrualRunId, String status);
+
+    long countByAccrualRunIdAndStatus(Long accrualRunId, String status);
+}
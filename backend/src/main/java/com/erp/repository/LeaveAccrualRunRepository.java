@@ -0,0 +1,30 @@
+package com.erp.repository;
+
+import com.erp.model.LeaveAccrualRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LeaveAccrualRunRepository extends JpaRepository<LeaveAccrualRun, Long> {
+
+    Optional<LeaveAccrualRun> findByRunTypeAndYearAndMonth(String runType, Integer year, Integer month);
+
+    List<LeaveAccrualRun> findByStatus(String status);
+
+    List<LeaveAccrualRun> findTop50ByOrderByIdDesc();
+
+    // Progress counters, bumped in each chunk's own transaction so they always match the chunks committed
+    @Modifying
+    @Query("UPDATE LeaveAccrualRun r SET r.completedChunks = r.completedChunks + 1, " +
+           "r.processedEmployees = r.processedEmployees + :employees, r.balancesWritten = r.balancesWritten + :written, " +
+           "r.updatedAt = :now WHERE r.id = :runId")
+    int recordChunk(@Param("runId") Long runId, @Param("employees") int employees, @Param("written") int written,
+                    @Param("now") LocalDateTime now);
+}
@@ -1,11 +1,17 @@
 package com.erp.repository;
 
 import com.erp.model.LeaveBalance;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +28,95 @@ public interface LeaveBalanceRepository extends JpaRepository<LeaveBalance, Long
     
     @Query("SELECT lb FROM LeaveBalance lb WHERE lb.employee.id = :employeeId AND lb.year = :year")
     List<LeaveBalance> findEmployeeBalancesForYear(@Param("employeeId") Long employeeId, @Param("year") Integer year);
+
+    boolean existsByEmployeeIdAndLeaveTypeIdAndYear(Long employeeId, Long leaveTypeId, Integer year);
+
+    // insertIfAbsent and the accrual job's inserts rely on this constraint to detect an existing balance
+    @Query(value = "SELECT COUNT(*) FROM pg_constraint WHERE conname = 'uk_leave_balances_employee_type_year'", nativeQuery = true)
+    long countUniqueKeyConstraints();
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM leave_balances GROUP BY employee_id, leave_type_id, year " +
+           "HAVING COUNT(*) > 1) duplicates", nativeQuery = true)
+    long countDuplicateKeys();
+
+    @Modifying
+    @Query(value = "ALTER TABLE leave_balances ADD CONSTRAINT uk_leave_balances_employee_type_year " +
+           "UNIQUE (employee_id, leave_type_id, year)", nativeQuery = true)
+    void addUniqueKeyConstraint();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT lb FROM LeaveBalance lb WHERE lb.id = :id")
+    Optional<LeaveBalance> lockById(@Param("id") Long id);
+
+    // Creates an all-zero balance unless one exists; returns 1 only for the caller whose insert won
+    @Modifying
+    @Query(value = "INSERT INTO leave_balances (employee_id, leave_type_id, year, opening_balance, credited, used, pending, " +
+           "lapsed, carry_forward, encashed, created_at, updated_at) " +
+           "VALUES (:employeeId, :leaveTypeId, :year, 0, 0, 0, 0, 0, 0, 0, :now, :now) " +
+           "ON CONFLICT (employee_id, leave_type_id, year) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("employeeId") Long employeeId, @Param("leaveTypeId") Long leaveTypeId,
+                       @Param("year") Integer year, @Param("now") LocalDateTime now);
+
+    // Adds a ledger transaction's deltas in one statement, so concurrent postings never overwrite each other;
+    // returns 0 when the balance does not exist
+    @Modifying
+    @Query("UPDATE LeaveBalance lb SET lb.openingBalance = COALESCE(lb.openingBalance, 0) + :opening, " +
+           "lb.credited = COALESCE(lb.credited, 0) + :credited, lb.used = COALESCE(lb.used, 0) + :used, " +
+           "lb.pending = COALESCE(lb.pending, 0) + :pending, lb.lapsed = COALESCE(lb.lapsed, 0) + :lapsed, " +
+           "lb.carryForward = COALESCE(lb.carryForward, 0) + :carryForward, lb.encashed = COALESCE(lb.encashed, 0) + :encashed, " +
+           "lb.updatedAt = :now WHERE lb.employee.id = :employeeId AND lb.leaveType.id = :leaveTypeId AND lb.year = :year")
+    int applyDelta(@Param("employeeId") Long employeeId, @Param("leaveTypeId") Long leaveTypeId, @Param("year") Integer year,
+                   @Param("opening") BigDecimal opening, @Param("credited") BigDecimal credited, @Param("used") BigDecimal used,
+                   @Param("pending") BigDecimal pending, @Param("lapsed") BigDecimal lapsed,
+                   @Param("carryForward") BigDecimal carryForward, @Param("encashed") BigDecimal encashed,
+                   @Param("now") LocalDateTime now);
+
+    // Adds days to pending only while the available balance covers them; the check and the increment are one
+    // statement, so a concurrent reservation re-evaluates the condition against the updated row
+    @Modifying
+    @Query("UPDATE LeaveBalance lb SET lb.pending = COALESCE(lb.pending, 0) + :days, lb.updatedAt = :now " +
+           "WHERE lb.employee.id = :employeeId AND lb.leaveType.id = :leaveTypeId AND lb.year = :year " +
+           "AND COALESCE(lb.openingBalance, 0) + COALESCE(lb.credited, 0) + COALESCE(lb.carryForward, 0) " +
+           "- COALESCE(lb.used, 0) - COALESCE(lb.pending, 0) - COALESCE(lb.lapsed, 0) - COALESCE(lb.encashed, 0) >= :days")
+    int reservePending(@Param("employeeId") Long employeeId, @Param("leaveTypeId") Long leaveTypeId,
+                       @Param("year") Integer year, @Param("days") BigDecimal days, @Param("now") LocalDateTime now);
+
+    // Resets a balance to the sums of its ledger transactions
+    @Modifying
+    @Query(value = "UPDATE leave_balances SET opening_balance = s.opening, credited = s.credited, used = s.used, " +
+           "pending = s.pending, lapsed = s.lapsed, carry_forward = s.carry_forward, encashed = s.encashed, updated_at = :now " +
+           "FROM (SELECT COALESCE(SUM(opening_delta), 0) AS opening, COALESCE(SUM(credited_delta), 0) AS credited, " +
+           "COALESCE(SUM(used_delta), 0) AS used, COALESCE(SUM(pending_delta), 0) AS pending, " +
+           "COALESCE(SUM(lapsed_delta), 0) AS lapsed, COALESCE(SUM(carry_forward_delta), 0) AS carry_forward, " +
+           "COALESCE(SUM(encashed_delta), 0) AS encashed FROM leave_transactions " +
+           "WHERE employee_id = :employeeId AND leave_type_id = :leaveTypeId AND year = :year) s " +
+           "WHERE leave_balances.id = :id", nativeQuery = true)
+    int rebuildFromLedger(@Param("id") Long id, @Param("employeeId") Long employeeId, @Param("leaveTypeId") Long leaveTypeId,
+                          @Param("year") Integer year, @Param("now") LocalDateTime now);
+
+    // Marks the balance as rolled into the next year, so the year-end job leaves it alone
+    @Modifying
+    @Query("UPDATE LeaveBalance lb SET lb.rolledOverAt = :now, lb.updatedAt = :now " +
+           "WHERE lb.employee.id = :employeeId AND lb.leaveType.id = :leaveTypeId AND lb.year = :year AND lb.rolledOverAt IS NULL")
+    int markRolledOver(@Param("employeeId") Long employeeId, @Param("leaveTypeId") Long leaveTypeId,
+                       @Param("year") Integer year, @Param("now") LocalDateTime now);
+
+    @Query("SELECT lb.id AS id, lb.employee.id AS employeeId, lb.leaveType.id AS leaveTypeId, " +
+           "lb.openingBalance AS openingBalance, lb.credited AS credited, lb.carryForward AS carryForward, lb.used AS used, " +
+           "lb.lapsed AS lapsed, lb.encashed AS encashed, lb.rolledOverAt AS rolledOverAt " +
+           "FROM LeaveBalance lb WHERE lb.year = :year AND lb.employee.id IN :employeeIds")
+    List<AccrualRow> findAccrualRows(@Param("employeeIds") Collection<Long> employeeIds, @Param("year") Integer year);
+
+    interface AccrualRow {
+        Long getId();
+        Long getEmployeeId();
+        Long getLeaveTypeId();
+        BigDecimal getOpeningBalance();
+        BigDecimal getCredited();
+        BigDecimal getCarryForward();
+        BigDecimal getUsed();
+        BigDecimal getLapsed();
+        BigDecimal getEncashed();
+        LocalDateTime getRolledOverAt();
+    }
 }
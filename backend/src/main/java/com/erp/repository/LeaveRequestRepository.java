@@ -1,12 +1,19 @@
 package com.erp.repository;
 
+import com.erp.model.Employee;
 import com.erp.model.LeaveRequest;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -38,4 +45,57 @@ public interface LeaveRequestRepository extends JpaRepository<LeaveRequest, Long
     
     @Query("SELECT lr FROM LeaveRequest lr WHERE :date BETWEEN lr.startDate AND lr.endDate AND lr.status = 'APPROVED'")
     List<LeaveRequest> findApprovedLeavesOnDate(@Param("date") LocalDate date);
+
+    // Locks the requested leave requests that are in scope for a bulk approval; ids that do not come back
+    // are missing or out of scope
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT lr.id AS id, lr.status AS status, lr.startDate AS startDate, lr.endDate AS endDate, " +
+           "lr.totalDays AS totalDays, e.id AS employeeId, lr.leaveType.id AS leaveTypeId " +
+           "FROM LeaveRequest lr JOIN lr.employee e " +
+           "WHERE lr.id IN :ids AND e.active = true AND (:branchId IS NULL OR e.branch.id = :branchId)")
+    List<ApprovalRow> lockForApproval(@Param("ids") Collection<Long> ids, @Param("branchId") Long branchId);
+
+    @Modifying
+    @Query("UPDATE LeaveRequest lr SET lr.status = 'APPROVED', lr.approvedAt = :now, lr.approvedBy = :approver, " +
+           "lr.approverRemarks = COALESCE(:remarks, lr.approverRemarks), lr.updatedAt = :now " +
+           "WHERE lr.id IN :ids AND lr.status IN ('PENDING', 'PENDING_MANAGER', 'PENDING_HR')")
+    int approveAll(@Param("ids") Collection<Long> ids, @Param("approver") Employee approver,
+                   @Param("remarks") String remarks, @Param("now") LocalDateTime now);
+
+    // Pending and approved leave for the leave calendar index
+    @Query("SELECT lr.id AS id, e.id AS employeeId, e.department.id AS departmentId, e.firstName AS firstName, " +
+           "e.lastName AS lastName, lr.leaveType.name AS leaveTypeName, lr.startDate AS startDate, lr.endDate AS endDate, " +
+           "lr.status AS status, lr.dayType AS dayType, lr.isHourlyLeave AS isHourlyLeave " +
+           "FROM LeaveRequest lr JOIN lr.employee e WHERE lr.status IN :statuses")
+    List<CalendarRow> findCalendarRows(@Param("statuses") Collection<String> statuses);
+
+    @Query("SELECT lr.id AS id, e.id AS employeeId, e.department.id AS departmentId, e.firstName AS firstName, " +
+           "e.lastName AS lastName, lr.leaveType.name AS leaveTypeName, lr.startDate AS startDate, lr.endDate AS endDate, " +
+           "lr.status AS status, lr.dayType AS dayType, lr.isHourlyLeave AS isHourlyLeave " +
+           "FROM LeaveRequest lr JOIN lr.employee e WHERE lr.id IN :ids AND lr.status IN :statuses")
+    List<CalendarRow> findCalendarRows(@Param("ids") Collection<Long> ids, @Param("statuses") Collection<String> statuses);
+
+    interface ApprovalRow {
+        Long getId();
+        String getStatus();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+        BigDecimal getTotalDays();
+        Long getEmployeeId();
+        Long getLeaveTypeId();
+    }
+
+    interface CalendarRow {
+        Long getId();
+        Long getEmployeeId();
+        Long getDepartmentId();
+        String getFirstName();
+        String getLastName();
+        String getLeaveTypeName();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+        String getStatus();
+        String getDayType();
+        Boolean getIsHourlyLeave();
+    }
 }
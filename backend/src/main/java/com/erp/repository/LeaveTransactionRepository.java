@@ -0,0 +1,50 @@
+package com.erp.repository;
+
+import com.erp.model.LeaveTransaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LeaveTransactionRepository extends JpaRepository<LeaveTransaction, Long> {
+
+    List<LeaveTransaction> findByEmployeeIdAndLeaveTypeIdAndYearOrderByIdAsc(Long employeeId, Long leaveTypeId, Integer year);
+
+    List<LeaveTransaction> findByLeaveRequestIdOrderByIdAsc(Long leaveRequestId);
+
+    // Days each request still holds as pending on the year's balance: what its RESERVE added less what a RELEASE
+    // or APPROVE took back. Requests the ledger has never seen on that balance are missing from the result.
+    @Query("SELECT t.leaveRequestId AS leaveRequestId, COALESCE(SUM(t.pendingDelta), 0) AS pending FROM LeaveTransaction t " +
+           "WHERE t.leaveRequestId IN :requestIds AND t.year = :year GROUP BY t.leaveRequestId")
+    List<RequestPending> sumPendingByLeaveRequestIds(@Param("requestIds") Collection<Long> requestIds, @Param("year") Integer year);
+
+    // When the ledger was opened for a balance that existed before it, if it was
+    @Query("SELECT MIN(t.createdAt) FROM LeaveTransaction t WHERE t.employee.id = :employeeId AND t.leaveType.id = :leaveTypeId " +
+           "AND t.year = :year AND t.transactionType = 'OPENING' AND t.remarks = :remarks")
+    LocalDateTime findLedgerOpenedAt(@Param("employeeId") Long employeeId, @Param("leaveTypeId") Long leaveTypeId,
+                                     @Param("year") Integer year, @Param("remarks") String remarks);
+
+    // Gives every balance that has no ledger history yet one OPENING transaction carrying its current totals,
+    // so the ledger of balances created before it existed still sums to the stored figures
+    @Modifying
+    @Query(value = "INSERT INTO leave_transactions (employee_id, leave_type_id, year, transaction_type, opening_delta, " +
+           "credited_delta, used_delta, pending_delta, lapsed_delta, carry_forward_delta, encashed_delta, remarks, created_at) " +
+           "SELECT lb.employee_id, lb.leave_type_id, lb.year, 'OPENING', COALESCE(lb.opening_balance, 0), " +
+           "COALESCE(lb.credited, 0), COALESCE(lb.used, 0), COALESCE(lb.pending, 0), COALESCE(lb.lapsed, 0), " +
+           "COALESCE(lb.carry_forward, 0), COALESCE(lb.encashed, 0), :remarks, :now FROM leave_balances lb " +
+           "WHERE NOT EXISTS (SELECT 1 FROM leave_transactions t WHERE t.employee_id = lb.employee_id " +
+           "AND t.leave_type_id = lb.leave_type_id AND t.year = lb.year)", nativeQuery = true)
+    int insertOpeningForUnledgeredBalances(@Param("remarks") String remarks, @Param("now") LocalDateTime now);
+
+    interface RequestPending {
+        Long getLeaveRequestId();
+        BigDecimal getPending();
+    }
+}
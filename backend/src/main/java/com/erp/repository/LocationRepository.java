@@ -13,4 +13,5 @@ public interface LocationRepository extends JpaRepository<Location, Long> {
     Optional<Location> findByName(String name);
     List<Location> findByActiveTrue();
     List<Location> findByLocationType(String locationType);
+    List<Location> findByActiveTrueAndGeofenceEnabledTrue();
 }
@@ -2,11 +2,18 @@ package com.erp.repository;
 
 import com.erp.model.PayrollRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface PayrollRecordRepository extends JpaRepository<PayrollRecord, Long> {
@@ -27,4 +34,118 @@ public interface PayrollRecordRepository extends JpaRepository<PayrollRecord, Lo
 
     @Query("SELECT COUNT(pr) FROM PayrollRecord pr WHERE pr.payrollRun.id = :runId AND pr.status = 'PROCESSED'")
     int countProcessedByRunId(@Param("runId") Long runId);
+
+    @Modifying
+    @Query("DELETE FROM PayrollRecord pr WHERE pr.payrollRun.id = :runId AND pr.employee.id IN :employeeIds AND pr.status <> 'PROCESSED'")
+    int deleteUnprocessedByPayrollRunIdAndEmployeeIds(@Param("runId") Long runId, @Param("employeeIds") Collection<Long> employeeIds);
+
+    List<PayrollRecord> findByPayrollRunIdAndEmployeeIdIn(Long payrollRunId, Collection<Long> employeeIds);
+
+    @Query("SELECT pr.employee.id FROM PayrollRecord pr WHERE pr.payrollRun.id = :runId")
+    List<Long> findEmployeeIdsByPayrollRunId(@Param("runId") Long runId);
+
+    // Run variance report: one lean row per record, joined to the other run in memory
+    @Query("SELECT e.id AS employeeId, e.employeeCode AS employeeCode, e.firstName AS firstName, e.lastName AS lastName, " +
+           "pr.grossPay AS grossPay, pr.totalTaxes AS totalTaxes, pr.netPay AS netPay " +
+           "FROM PayrollRecord pr JOIN pr.employee e WHERE pr.payrollRun.id = :runId AND pr.status <> 'CANCELLED'")
+    List<VarianceRow> findVarianceRowsByPayrollRunId(@Param("runId") Long runId);
+
+    // The same rows in employee order through a cursor, for the CSV export. Must be consumed inside a
+    // transaction and closed by the caller.
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT e.id AS employeeId, e.employeeCode AS employeeCode, e.firstName AS firstName, e.lastName AS lastName, " +
+           "pr.grossPay AS grossPay, pr.totalTaxes AS totalTaxes, pr.netPay AS netPay " +
+           "FROM PayrollRecord pr JOIN pr.employee e WHERE pr.payrollRun.id = :runId AND pr.status <> 'CANCELLED' ORDER BY e.id")
+    Stream<VarianceRow> streamVarianceRowsByPayrollRunId(@Param("runId") Long runId);
+
+    // GL posting: the run's records summed per cost center and department by the database
+    @Query("SELECT cc.id AS costCenterId, cc.code AS costCenterCode, d.id AS departmentId, d.name AS departmentName, COUNT(pr) AS recordCount, " +
+           "SUM(pr.grossPay) AS grossPay, SUM(pr.reimbursements) AS reimbursements, " +
+           "SUM(pr.federalTax) AS federalTax, SUM(pr.stateTax) AS stateTax, SUM(pr.localTax) AS localTax, " +
+           "SUM(pr.socialSecurityTax) AS socialSecurityTax, SUM(pr.medicareTax) AS medicareTax, SUM(pr.disabilityTax) AS disabilityTax, " +
+           "SUM(pr.preTaxDeductions) AS preTaxDeductions, SUM(pr.postTaxDeductions) AS postTaxDeductions, SUM(pr.netPay) AS netPay, " +
+           "SUM(pr.employerSocialSecurity) AS employerSocialSecurity, SUM(pr.employerMedicare) AS employerMedicare, " +
+           "SUM(pr.employerHealthContribution) AS employerHealthContribution, SUM(pr.employer401kMatch) AS employer401kMatch " +
+           "FROM PayrollRecord pr JOIN pr.employee e LEFT JOIN e.costCenter cc LEFT JOIN e.department d " +
+           "WHERE pr.payrollRun.id = :runId AND pr.status <> 'CANCELLED' " +
+           "GROUP BY cc.id, cc.code, d.id, d.name ORDER BY cc.code, d.name")
+    List<GlSummaryRow> summarizeForGlByPayrollRunId(@Param("runId") Long runId);
+
+    // Records of runs already added to the YTD accumulators, in pay order, for the retro-pay engine
+    @Query("SELECT pr FROM PayrollRecord pr JOIN FETCH pr.payrollRun r WHERE pr.employee.id IN :employeeIds AND r.ytdAppliedAt IS NOT NULL AND r.periodEndDate >= :fromDate AND pr.status <> 'CANCELLED' ORDER BY pr.employee.id, r.periodEndDate, pr.id")
+    List<PayrollRecord> findClosedByEmployeeIdsSince(@Param("employeeIds") Collection<Long> employeeIds, @Param("fromDate") LocalDate fromDate);
+
+    // Dirty tracking for incremental recalculation: employees whose inputs changed after their record was calculated
+
+    @Query("SELECT DISTINCT pr.employee.id FROM PayrollRecord pr, AttendanceRecord a WHERE pr.payrollRun.id = :runId AND pr.status <> 'PROCESSED' AND a.employee.id = pr.employee.id AND a.attendanceDate BETWEEN :startDate AND :endDate AND a.updatedAt > pr.createdAt")
+    List<Long> findEmployeeIdsWithAttendanceChangedSinceCalculation(@Param("runId") Long runId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT DISTINCT pr.employee.id FROM PayrollRecord pr, EmployeeSalary s WHERE pr.payrollRun.id = :runId AND pr.status <> 'PROCESSED' AND s.employee.id = pr.employee.id AND s.updatedAt > pr.createdAt")
+    List<Long> findEmployeeIdsWithSalaryChangedSinceCalculation(@Param("runId") Long runId);
+
+    @Query("SELECT DISTINCT pr.employee.id FROM PayrollRecord pr, EmployeeBenefit b WHERE pr.payrollRun.id = :runId AND pr.status <> 'PROCESSED' AND b.employee.id = pr.employee.id AND b.updatedAt > pr.createdAt")
+    List<Long> findEmployeeIdsWithBenefitChangedSinceCalculation(@Param("runId") Long runId);
+
+    @Query("SELECT DISTINCT pr.employee.id FROM PayrollRecord pr, ExpenseRequest e WHERE pr.payrollRun.id = :runId AND pr.status <> 'PROCESSED' AND e.employee.id = pr.employee.id AND e.status = 'APPROVED' AND e.reimbursementRequired = true AND (e.reimbursementStatus IS NULL OR e.reimbursementStatus = 'PENDING') AND (e.expenseDate BETWEEN :startDate AND :endDate OR (e.approvedAt IS NOT NULL AND CAST(e.approvedAt AS localdate) BETWEEN :startDate AND :endDate))")
+    List<Long> findEmployeeIdsWithPendingReimbursements(@Param("runId") Long runId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT DISTINCT pr.employee.id FROM PayrollRecord pr, PayrollRetroAdjustment a LEFT JOIN a.payrollRun ar WHERE pr.payrollRun.id = :runId AND pr.status <> 'PROCESSED' AND a.employee.id = pr.employee.id AND (a.status = 'CALCULATED' OR ar.id = :runId) AND a.updatedAt > pr.createdAt")
+    List<Long> findEmployeeIdsWithRetroAdjustmentChangedSinceCalculation(@Param("runId") Long runId);
+
+    // Bank payment file: processed records with the employee's primary active account, read through a cursor.
+    // Must be consumed inside a transaction and closed by the caller.
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT pr.id AS recordId, e.id AS employeeId, e.employeeCode AS employeeCode, e.firstName AS firstName, e.lastName AS lastName, " +
+           "pr.netPay AS netPay, b.routingNumber AS routingNumber, b.accountNumber AS accountNumber, b.accountType AS accountType, " +
+           "b.accountHolderName AS accountHolderName " +
+           "FROM PayrollRecord pr JOIN pr.employee e " +
+           "LEFT JOIN EmployeeBankDetail b ON b.employee = e AND b.isPrimary = true AND b.active = true " +
+           "WHERE pr.payrollRun.id = :runId AND pr.status = 'PROCESSED' ORDER BY e.id, pr.id, b.id")
+    Stream<PaymentRow> streamPaymentRowsByPayrollRunId(@Param("runId") Long runId);
+
+    interface GlSummaryRow {
+        Long getCostCenterId();
+        String getCostCenterCode();
+        Long getDepartmentId();
+        String getDepartmentName();
+        Long getRecordCount();
+        BigDecimal getGrossPay();
+        BigDecimal getReimbursements();
+        BigDecimal getFederalTax();
+        BigDecimal getStateTax();
+        BigDecimal getLocalTax();
+        BigDecimal getSocialSecurityTax();
+        BigDecimal getMedicareTax();
+        BigDecimal getDisabilityTax();
+        BigDecimal getPreTaxDeductions();
+        BigDecimal getPostTaxDeductions();
+        BigDecimal getNetPay();
+        BigDecimal getEmployerSocialSecurity();
+        BigDecimal getEmployerMedicare();
+        BigDecimal getEmployerHealthContribution();
+        BigDecimal getEmployer401kMatch();
+    }
+
+    interface VarianceRow {
+        Long getEmployeeId();
+        String getEmployeeCode();
+        String getFirstName();
+        String getLastName();
+        BigDecimal getGrossPay();
+        BigDecimal getTotalTaxes();
+        BigDecimal getNetPay();
+    }
+
+    interface PaymentRow {
+        Long getRecordId();
+        Long getEmployeeId();
+        String getEmployeeCode();
+        String getFirstName();
+        String getLastName();
+        BigDecimal getNetPay();
+        String getRoutingNumber();
+        String getAccountNumber();
+        String getAccountType();
+        String getAccountHolderName();
+    }
 }
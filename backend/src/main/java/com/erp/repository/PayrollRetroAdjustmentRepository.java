@@ -0,0 +1,47 @@
+package com.erp.repository;
+
+import com.erp.model.PayrollRetroAdjustment;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PayrollRetroAdjustmentRepository extends JpaRepository<PayrollRetroAdjustment, Long> {
+
+    List<PayrollRetroAdjustment> findByStatusOrderByEmployeeIdAscEffectiveFromAsc(String status);
+
+    List<PayrollRetroAdjustment> findAllByOrderByCreatedAtDesc();
+
+    List<PayrollRetroAdjustment> findByEmployeeIdOrderByCreatedAtDesc(Long employeeId);
+
+    List<PayrollRetroAdjustment> findByPayrollRunId(Long payrollRunId);
+
+    // Arrears still to be paid, either unassigned or already assigned to this run by an earlier calculation. The
+    // rows stay locked until the calculating transaction assigns them, so a concurrent run waits and then no
+    // longer finds the ones this run claimed.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM PayrollRetroAdjustment a WHERE a.status = 'CALCULATED' AND a.employee.id IN :employeeIds " +
+           "AND (a.payrollRun IS NULL OR a.payrollRun.id = :runId) ORDER BY a.id")
+    List<PayrollRetroAdjustment> findPayableForRun(@Param("runId") Long runId, @Param("employeeIds") Collection<Long> employeeIds);
+
+    // Arrears held by the employees' unprocessed records of the run go back to the pool before those records are
+    // rebuilt; an employee whose recalculation fails then keeps them for a later run
+    @Modifying
+    @Query("UPDATE PayrollRetroAdjustment a SET a.payrollRun = NULL, a.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE a.status = 'CALCULATED' AND a.payrollRun.id = :runId AND a.employee.id IN :employeeIds " +
+           "AND NOT EXISTS (SELECT pr.id FROM PayrollRecord pr WHERE pr.payrollRun.id = :runId " +
+           "AND pr.employee.id = a.employee.id AND pr.status = 'PROCESSED')")
+    int releaseForRecalculation(@Param("runId") Long runId, @Param("employeeIds") Collection<Long> employeeIds);
+
+    // Only arrears actually paid in one of the run's records are settled with it
+    @Query("SELECT a FROM PayrollRetroAdjustment a WHERE a.payrollRun.id = :runId AND EXISTS (SELECT pr.id FROM PayrollRecord pr " +
+           "WHERE pr.payrollRun.id = :runId AND pr.employee.id = a.employee.id AND pr.status <> 'CANCELLED')")
+    List<PayrollRetroAdjustment> findPaidInRun(@Param("runId") Long runId);
+}
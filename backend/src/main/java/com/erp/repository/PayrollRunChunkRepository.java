@@ -0,0 +1,22 @@
+package com.erp.repository;
+
+import com.erp.model.PayrollRunChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PayrollRunChunkRepository extends JpaRepository<PayrollRunChunk, Long> {
+
+    List<PayrollRunChunk> findByPayrollRunIdOrderByChunkIndexAsc(Long payrollRunId);
+
+    List<PayrollRunChunk> findByPayrollRunIdAndStatusOrderByChunkIndexAsc(Long payrollRunId, String status);
+
+    @Modifying
+    @Query("DELETE FROM PayrollRunChunk c WHERE c.payrollRun.id = :runId")
+    void deleteByPayrollRunId(@Param("runId") Long runId);
+}
@@ -1,10 +1,15 @@
 package com.erp.repository;
 
 import com.erp.model.PayrollRun;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +27,10 @@ public interface PayrollRunRepository extends JpaRepository<PayrollRun, Long> {
     Optional<PayrollRun> findByPeriodStartDateAndPeriodEndDate(LocalDate startDate, LocalDate endDate);
     
     List<PayrollRun> findAllByOrderByCreatedAtDesc();
+    
+    Optional<PayrollRun> findFirstByPeriodEndDateBeforeAndStatusInOrderByPeriodEndDateDesc(LocalDate date, Collection<String> statuses);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM PayrollRun r WHERE r.id = :id")
+    Optional<PayrollRun> lockById(@Param("id") Long id);
 }
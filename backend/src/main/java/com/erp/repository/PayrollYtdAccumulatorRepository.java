@@ -0,0 +1,19 @@
+package com.erp.repository;
+
+import com.erp.model.PayrollYtdAccumulator;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PayrollYtdAccumulatorRepository extends JpaRepository<PayrollYtdAccumulator, Long> {
+    
+    Optional<PayrollYtdAccumulator> findByEmployeeIdAndTaxYear(Long employeeId, Integer taxYear);
+    
+    List<PayrollYtdAccumulator> findByEmployeeIdInAndTaxYear(Collection<Long> employeeIds, Integer taxYear);
+    
+    List<PayrollYtdAccumulator> findByEmployeeIdOrderByTaxYearDesc(Long employeeId);
+}
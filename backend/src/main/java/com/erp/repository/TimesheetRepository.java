@@ -1,12 +1,18 @@
 package com.erp.repository;
 
+import com.erp.model.Employee;
 import com.erp.model.Timesheet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,4 +39,27 @@ public interface TimesheetRepository extends JpaRepository<Timesheet, Long> {
     
     @Query("SELECT t FROM Timesheet t WHERE t.periodStartDate <= :endDate AND t.periodEndDate >= :startDate")
     List<Timesheet> findByPeriodOverlapping(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Locks the requested timesheets that are in scope for a bulk approval; ids that do not come back are
+    // missing or out of scope
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t.id AS id, t.status AS status, t.periodStartDate AS periodStartDate, t.periodEndDate AS periodEndDate, " +
+           "e.id AS employeeId FROM Timesheet t JOIN t.employee e " +
+           "WHERE t.id IN :ids AND e.active = true AND (:branchId IS NULL OR e.branch.id = :branchId)")
+    List<ApprovalRow> lockForApproval(@Param("ids") Collection<Long> ids, @Param("branchId") Long branchId);
+
+    @Modifying
+    @Query("UPDATE Timesheet t SET t.status = 'APPROVED', t.approvedAt = :now, t.approvedBy = :approver, " +
+           "t.approverRemarks = COALESCE(:remarks, t.approverRemarks), t.updatedAt = :now " +
+           "WHERE t.id IN :ids AND t.status <> 'APPROVED'")
+    int approveAll(@Param("ids") Collection<Long> ids, @Param("approver") Employee approver,
+                   @Param("remarks") String remarks, @Param("now") LocalDateTime now);
+
+    interface ApprovalRow {
+        Long getId();
+        String getStatus();
+        LocalDate getPeriodStartDate();
+        LocalDate getPeriodEndDate();
+        Long getEmployeeId();
+    }
 }
@@ -3,6 +3,7 @@ package com.erp.repository;
 import com.erp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +17,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByBranchId(Long branchId);
     List<User> findByBranchIdAndActiveTrue(Long branchId);
     List<User> findByIsSuperAdminTrue();
+    List<User> findByUsernameIn(Collection<String> usernames);
+    List<User> findByEmailIn(Collection<String> emails);
 }
@@ -0,0 +1,215 @@
+package com.erp.service;
+
+import com.erp.model.Employee;
+import com.erp.repository.AttendancePunchRepository;
+import com.erp.repository.AttendancePunchRepository.PunchRow;
+import com.erp.repository.AttendanceRecordRepository;
+import com.erp.repository.AttendanceRecordRepository.AnomalyScanRow;
+import com.erp.repository.EmployeeRepository;
+import com.erp.service.UserNotificationService.EmployeeNotice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+
+// Nightly sweep of the previous day's attendance for missing clock-outs, double punches and late arrivals that
+// are not approved. The day is read in id-ordered chunks on the (attendance_date, id) index, each chunk's flags
+// are written with one UPDATE per flag combination, and each reporting manager gets one digest for the day;
+// records of employees without a manager go into a single digest for admins and HR.
+@Service
+public class AttendanceAnomalyScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendanceAnomalyScheduler.class);
+
+    public static final String MISSING_CLOCK_OUT = "MISSING_CLOCK_OUT";
+    public static final String DOUBLE_PUNCH = "DOUBLE_PUNCH";
+    public static final String LATE_UNAPPROVED = "LATE_UNAPPROVED";
+
+    private static final int NAMES_PER_DIGEST = 10;
+
+    @Autowired
+    private AttendanceRecordRepository attendanceRecordRepository;
+
+    @Autowired
+    private AttendancePunchRepository attendancePunchRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private UserNotificationService notificationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${attendance.anomaly.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${attendance.anomaly.double-punch-minutes:2}")
+    private int doublePunchMinutes;
+
+    @Scheduled(cron = "${attendance.anomaly.cron:0 30 1 * * ?}")
+    public void sweepPreviousDay() {
+        try {
+            sweep(LocalDate.now().minusDays(1));
+        } catch (Exception e) {
+            logger.error("Attendance anomaly sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Safe to run again for the same day: the day's flags are cleared first and rewritten
+    public SweepResult sweep(LocalDate date) {
+        SweepResult result = new SweepResult(date);
+        Map<Long, Digest> digests = new LinkedHashMap<>();
+        Digest unassigned = new Digest();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> attendanceRecordRepository.clearAnomalyFlags(date));
+
+        long afterId = 0L;
+        while (true) {
+            List<AnomalyScanRow> chunk = attendanceRecordRepository.findAnomalyScanChunk(date, afterId, PageRequest.of(0, Math.max(1, chunkSize)));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+            result.scanned += chunk.size();
+
+            Set<Long> doublePunched = findDoublePunches(chunk, date);
+            Map<String, List<Long>> idsByFlags = new HashMap<>();
+            for (AnomalyScanRow row : chunk) {
+                List<String> flags = new ArrayList<>(3);
+                if (row.getClockIn() != null && row.getClockOut() == null) {
+                    flags.add(MISSING_CLOCK_OUT);
+                }
+                if (doublePunched.contains(row.getEmployeeId()) || (row.getClockIn() != null && row.getClockOut() != null
+                        && Duration.between(row.getClockIn(), row.getClockOut()).toMinutes() < doublePunchMinutes)) {
+                    flags.add(DOUBLE_PUNCH);
+                }
+                if (Boolean.TRUE.equals(row.getLateArrival()) && !"APPROVED".equals(row.getApprovalStatus())) {
+                    flags.add(LATE_UNAPPROVED);
+                }
+                if (flags.isEmpty()) {
+                    continue;
+                }
+                idsByFlags.computeIfAbsent(String.join(",", flags), k -> new ArrayList<>()).add(row.getId());
+                result.flagged++;
+                Digest digest = row.getManagerId() != null ? digests.computeIfAbsent(row.getManagerId(), id -> new Digest()) : unassigned;
+                digest.add(row, flags);
+                for (String flag : flags) {
+                    result.byType.merge(flag, 1, Integer::sum);
+                }
+            }
+
+            if (!idsByFlags.isEmpty()) {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    idsByFlags.forEach((flags, ids) -> attendanceRecordRepository.setAnomalyFlags(ids, flags)));
+            }
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+
+        result.digestsSent = sendDigests(date, digests, unassigned);
+        logger.info("Attendance anomaly sweep for {}: {} record(s) scanned, {} flagged {}, {} digest(s) sent",
+            date, result.scanned, result.flagged, result.byType, result.digestsSent);
+        return result;
+    }
+
+    // Employees of the chunk with two stored terminal punches closer together than the threshold
+    private Set<Long> findDoublePunches(List<AnomalyScanRow> chunk, LocalDate date) {
+        Set<Long> employeeIds = new HashSet<>();
+        for (AnomalyScanRow row : chunk) {
+            employeeIds.add(row.getEmployeeId());
+        }
+        Set<Long> doublePunched = new HashSet<>();
+        PunchRow previous = null;
+        for (PunchRow punch : attendancePunchRepository.findPunches(employeeIds, date, date)) {
+            if (previous != null && previous.getEmployeeId().equals(punch.getEmployeeId())
+                    && Duration.between(previous.getPunchedAt(), punch.getPunchedAt()).toMinutes() < doublePunchMinutes) {
+                doublePunched.add(punch.getEmployeeId());
+            }
+            previous = punch;
+        }
+        return doublePunched;
+    }
+
+    private int sendDigests(LocalDate date, Map<Long, Digest> digests, Digest unassigned) {
+        String title = "Attendance Anomalies for " + date;
+        int sent = 0;
+        if (!digests.isEmpty()) {
+            List<EmployeeNotice> notices = new ArrayList<>();
+            for (Employee manager : employeeRepository.findAllById(digests.keySet())) {
+                notices.add(new EmployeeNotice(manager, title, digests.get(manager.getId()).message(),
+                    "ATTENDANCE_ANOMALY", "ATTENDANCE_ANOMALY_DIGEST", null));
+            }
+            sent += notificationService.notifyEmployees(notices).size();
+        }
+        if (unassigned.records > 0) {
+            notificationService.notifyAdminsAndHR(title, unassigned.message() + " (employees without a reporting manager)",
+                "ATTENDANCE_ANOMALY", "ATTENDANCE_ANOMALY_DIGEST", null);
+            sent++;
+        }
+        return sent;
+    }
+
+    // One recipient's anomalies for the day: counts per type and the first few employee names
+    private static class Digest {
+        private int records;
+        private final Map<String, Integer> counts = new LinkedHashMap<>();
+        private final Set<String> names = new LinkedHashSet<>();
+
+        void add(AnomalyScanRow row, List<String> flags) {
+            records++;
+            for (String flag : flags) {
+                counts.merge(flag, 1, Integer::sum);
+            }
+            if (names.size() < NAMES_PER_DIGEST) {
+                names.add(((row.getFirstName() != null ? row.getFirstName() : "") + " "
+                    + (row.getLastName() != null ? row.getLastName() : "")).trim());
+            }
+        }
+
+        String message() {
+            List<String> parts = new ArrayList<>();
+            counts.forEach((flag, count) -> parts.add(count + " " + describe(flag)));
+            String message = records + " attendance record(s) need attention: " + String.join(", ", parts) + ". " + String.join(", ", names);
+            return records > names.size() ? message + " and " + (records - names.size()) + " more" : message;
+        }
+
+        private static String describe(String flag) {
+            switch (flag) {
+                case MISSING_CLOCK_OUT: return "missing clock-out";
+                case DOUBLE_PUNCH: return "double punch";
+                default: return "late arrival pending approval";
+            }
+        }
+    }
+
+    public static class SweepResult {
+        private final LocalDate date;
+        private int scanned;
+        private int flagged;
+        private int digestsSent;
+        private final Map<String, Integer> byType = new LinkedHashMap<>();
+
+        SweepResult(LocalDate date) {
+            this.date = date;
+        }
+
+        public LocalDate getDate() { return date; }
+        public int getScanned() { return scanned; }
+        public int getFlagged() { return flagged; }
+        public int getDigestsSent() { return digestsSent; }
+        public Map<String, Integer> getByType() { return byType; }
+    }
+}
@@ -0,0 +1,7 @@
+package com.erp.service;
+
+public class AttendanceClockException extends RuntimeException {
+    public AttendanceClockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,409 @@
+package com.erp.service;
+
+import com.erp.model.AttendanceRecord;
+import com.erp.model.AttendanceRule;
+import com.erp.model.Employee;
+import com.erp.model.ProjectMember;
+import com.erp.model.User;
+import com.erp.repository.AttendanceRecordRepository;
+import com.erp.repository.AttendanceRuleRepository;
+import com.erp.repository.EmployeeRepository;
+import com.erp.repository.ProjectMemberRepository;
+import com.erp.repository.UserRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Clock-in/clock-out fast path. The request only validates against the cached default rule, checks the day's
+// record and writes the punch; the employee and admin notifications and the project lookup run afterwards on
+// the attendance executor, once the punch has committed.
+@Service
+public class AttendanceClockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendanceClockService.class);
+
+    private static final DateTimeFormatter TIME_TEXT = DateTimeFormatter.ofPattern("hh:mm a");
+
+    @Autowired
+    private AttendanceRecordRepository attendanceRecordRepository;
+
+    @Autowired
+    private AttendanceRuleRepository attendanceRuleRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ProjectMemberRepository projectMemberRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserNotificationService userNotificationService;
+
+    @Autowired
+    private AttendanceRollupService attendanceRollupService;
+
+    @Autowired
+    private GeofenceIndex geofenceIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("attendanceExecutor")
+    private ThreadPoolTaskExecutor attendanceExecutor;
+
+    @Value("${attendance.clock.latency-target-ms:250}")
+    private long latencyTargetMillis;
+
+    @Value("${attendance.clock.recipient-cache-seconds:60}")
+    private long recipientCacheSeconds;
+
+    @Value("${attendance.geofence.mode:FLAG}")
+    private String geofenceMode;
+
+    private final AtomicReference<Optional<AttendanceRule>> defaultRule = new AtomicReference<>();
+    private volatile CachedRecipients adminRecipients;
+
+    private final ClockLatencyStats clockInStats = new ClockLatencyStats();
+    private final ClockLatencyStats clockOutStats = new ClockLatencyStats();
+
+    // The default attendance rule, read once and kept until a rule is changed
+    public Optional<AttendanceRule> defaultRule() {
+        Optional<AttendanceRule> rule = defaultRule.get();
+        if (rule == null) {
+            rule = attendanceRuleRepository.findByIsDefaultTrue();
+            defaultRule.compareAndSet(null, rule);
+        }
+        return rule;
+    }
+
+    public void invalidateRules() {
+        defaultRule.set(null);
+    }
+
+    public AttendanceRecord clockIn(Long employeeId, String captureMethod, LocalDate date, LocalTime clockInTime,
+                                    Double latitude, Double longitude) {
+        long started = System.nanoTime();
+        try {
+            String geofenceStatus = checkGeofence(employeeId, captureMethod, latitude, longitude);
+            AttendanceRecord saved = clockTransaction().execute(status -> {
+                Optional<AttendanceRecord> existing = attendanceRecordRepository.findByEmployeeIdAndAttendanceDate(employeeId, date);
+                if (existing.isPresent() && existing.get().getClockIn() != null && existing.get().getClockOut() == null) {
+                    throw new AttendanceClockException("Already clocked in for " + date + ". Please clock out first.");
+                }
+                if (existing.isPresent() && existing.get().getClockIn() != null && existing.get().getClockOut() != null) {
+                    throw new AttendanceClockException("Attendance already completed for " + date + ". Use 'Add Entry' for corrections.");
+                }
+
+                AttendanceRecord record = existing.orElse(new AttendanceRecord());
+                if (record.getEmployee() == null) {
+                    record.setEmployee(employeeRepository.getReferenceById(employeeId));
+                }
+                record.setAttendanceDate(date);
+                record.setClockIn(clockInTime);
+                record.setCaptureMethod(captureMethod);
+                record.setLocationType(captureMethod);
+                record.setStatus("PRESENT");
+                record.setApprovalStatus("APPROVED");
+                record.setClockInLatitude(latitude);
+                record.setClockInLongitude(longitude);
+                record.setGeofenceStatus(geofenceStatus);
+                applyClockInRules(record);
+                return attendanceRollupService.save(record);
+            });
+
+            Long recordId = saved.getId();
+            runInBackground("clock-in " + recordId, () -> afterClockIn(recordId, employeeId, date, clockInTime, geofenceStatus));
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            // Two punches for the same employee and day raced; the unique key kept the first one
+            throw new AttendanceClockException("Already clocked in for " + date + ". Please clock out first.");
+        } finally {
+            clockInStats.record(System.nanoTime() - started, latencyTargetMillis);
+        }
+    }
+
+    public AttendanceRecord clockOut(Long employeeId, LocalDate date, LocalTime clockOutTime) {
+        long started = System.nanoTime();
+        try {
+            AttendanceRecord saved = clockTransaction().execute(status -> {
+                AttendanceRecord record = attendanceRecordRepository.findByEmployeeIdAndAttendanceDate(employeeId, date)
+                    .orElseThrow(() -> new AttendanceClockException("No clock-in record found for today"));
+                if (record.getClockOut() != null) {
+                    throw new AttendanceClockException("Already clocked out today");
+                }
+                record.setClockOut(clockOutTime);
+                applyClockOutRules(record);
+
+                record.setApprovalStatus("PENDING");
+                return attendanceRollupService.save(record);
+            });
+
+            Long recordId = saved.getId();
+            LocalTime clockInTime = saved.getClockIn();
+            runInBackground("clock-out " + recordId, () -> afterClockOut(recordId, employeeId, clockInTime, clockOutTime));
+            return saved;
+        } finally {
+            clockOutStats.record(System.nanoTime() - started, latencyTargetMillis);
+        }
+    }
+
+    // Mobile punches, and any punch that reports a position, are checked against the employee's geofences.
+    // ENFORCE rejects a punch outside them (or a mobile punch without a position); FLAG records the result only.
+    private String checkGeofence(Long employeeId, String captureMethod, Double latitude, Double longitude) {
+        if ("OFF".equalsIgnoreCase(geofenceMode) || (latitude == null && !"MOBILE".equalsIgnoreCase(captureMethod))) {
+            return null;
+        }
+        GeofenceIndex.GeofenceCheck check = geofenceIndex.check(employeeId, latitude, longitude);
+        if ("ENFORCE".equalsIgnoreCase(geofenceMode)) {
+            if (GeofenceIndex.OUTSIDE.equals(check.getStatus())) {
+                throw new AttendanceClockException("Clock-in location is outside the allowed area of your work site");
+            }
+            if (GeofenceIndex.NO_LOCATION.equals(check.getStatus())) {
+                throw new AttendanceClockException("Your location is required to clock in from a mobile device");
+            }
+        }
+        return check.getStatus();
+    }
+
+    // Late arrival against the default rule's start time and grace period
+    public void applyClockInRules(AttendanceRecord record) {
+        AttendanceRule rule = defaultRule().orElse(null);
+        if (rule != null && rule.getStandardStartTime() != null && rule.getGraceMinutesIn() != null) {
+            LocalTime graceTime = rule.getStandardStartTime().plusMinutes(rule.getGraceMinutesIn());
+            if (record.getClockIn().isAfter(graceTime)) {
+                record.setLateArrival(true);
+                record.setLateMinutes((int) ChronoUnit.MINUTES.between(graceTime, record.getClockIn()));
+            } else {
+                record.setLateArrival(false);
+                record.setLateMinutes(0);
+            }
+        }
+    }
+
+    // Regular and overtime hours, the automatic break and early departure for a record with both punches
+    public void applyClockOutRules(AttendanceRecord record) {
+        if (record.getClockIn() == null) {
+            return;
+        }
+        long minutesWorked = ChronoUnit.MINUTES.between(record.getClockIn(), record.getClockOut());
+        BigDecimal hoursWorked = BigDecimal.valueOf(minutesWorked / 60.0);
+
+        AttendanceRule rule = defaultRule().orElse(null);
+        BigDecimal regularHours = rule != null && rule.getRegularHoursPerDay() != null
+            ? rule.getRegularHoursPerDay()
+            : BigDecimal.valueOf(8);
+
+        if (rule != null && rule.getAutoDeductBreak() != null && rule.getAutoDeductBreak() && rule.getBreakDurationMinutes() != null) {
+            BigDecimal breakHours = rule.getBreakDurationMinutes().divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+            hoursWorked = hoursWorked.subtract(breakHours);
+            record.setBreakDuration(rule.getBreakDurationMinutes());
+        }
+
+        if (hoursWorked.compareTo(regularHours) > 0) {
+            record.setRegularHours(regularHours);
+            record.setOvertimeHours(hoursWorked.subtract(regularHours));
+        } else {
+            record.setRegularHours(hoursWorked);
+            record.setOvertimeHours(BigDecimal.ZERO);
+        }
+
+        if (rule != null && rule.getStandardEndTime() != null && rule.getGraceMinutesOut() != null) {
+            LocalTime earlyTime = rule.getStandardEndTime().minusMinutes(rule.getGraceMinutesOut());
+            if (record.getClockOut().isBefore(earlyTime)) {
+                record.setEarlyDeparture(true);
+                record.setEarlyMinutes((int) ChronoUnit.MINUTES.between(record.getClockOut(), earlyTime));
+            }
+        }
+    }
+
+    public Map<String, Object> getLatencyStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("latencyTargetMs", latencyTargetMillis);
+        stats.put("clockIn", clockInStats.toMap());
+        stats.put("clockOut", clockOutStats.toMap());
+        stats.put("backgroundQueued", attendanceExecutor.getThreadPoolExecutor().getQueue().size());
+        stats.put("backgroundActive", attendanceExecutor.getActiveCount());
+        return stats;
+    }
+
+    private void afterClockIn(Long recordId, Long employeeId, LocalDate date, LocalTime clockInTime, String geofenceStatus) {
+        Employee employee = backgroundTransaction().execute(status -> {
+            Employee loaded = employeeRepository.findById(employeeId).orElse(null);
+            if (loaded != null) {
+                fillProject(recordId, loaded);
+            }
+            return loaded;
+        });
+        if (employee == null) {
+            return;
+        }
+        String timeText = clockInTime.format(TIME_TEXT);
+        notifyEmployee(employee, "Clock-In Recorded", "You clocked in at " + timeText + " on " + date + ".", recordId);
+        userNotificationService.createNotifications(adminRecipients(), "Employee Clocked In",
+            employee.getFirstName() + " " + employee.getLastName() + " clocked in at " + timeText
+                + (GeofenceIndex.OUTSIDE.equals(geofenceStatus) ? " outside their work site's geofence" : ""),
+            "ATTENDANCE", "Attendance", recordId);
+    }
+
+    private void afterClockOut(Long recordId, Long employeeId, LocalTime clockInTime, LocalTime clockOutTime) {
+        Employee employee = employeeRepository.findById(employeeId).orElse(null);
+        if (employee == null) {
+            return;
+        }
+        long mins = clockInTime != null ? ChronoUnit.MINUTES.between(clockInTime, clockOutTime) : 0;
+        String hours = String.format("%.1f", mins / 60.0);
+        notifyEmployee(employee, "Clock-Out Recorded",
+            "You clocked out at " + clockOutTime.format(TIME_TEXT) + ". Total hours: " + hours, recordId);
+    }
+
+    private void notifyEmployee(Employee employee, String title, String message, Long recordId) {
+        if (employee.getEmployeeCode() == null) {
+            return;
+        }
+        userRepository.findByUsername(employee.getEmployeeCode()).ifPresent(user ->
+            userNotificationService.createNotification(user.getUsername(), title, message, "ATTENDANCE", "Attendance", recordId));
+    }
+
+    // The employee's own project, else the first project they are a member of
+    private void fillProject(Long recordId, Employee employee) {
+        String projectCode = null;
+        String projectName = null;
+        if (employee.getProject() != null) {
+            projectCode = employee.getProject().getProjectCode();
+            projectName = employee.getProject().getName();
+        } else {
+            List<ProjectMember> memberships = projectMemberRepository.findByEmployeeId(employee.getId());
+            if (!memberships.isEmpty()) {
+                projectCode = memberships.get(0).getProject().getProjectCode();
+                projectName = memberships.get(0).getProject().getName();
+            }
+        }
+        if (projectName != null) {
+            attendanceRecordRepository.fillMissingProject(recordId, projectCode, projectName);
+        }
+    }
+
+    private List<String> adminRecipients() {
+        CachedRecipients cached = adminRecipients;
+        long now = System.currentTimeMillis();
+        if (cached == null || cached.expiresAt < now) {
+            Set<String> usernames = new LinkedHashSet<>();
+            for (User admin : userRepository.findByRoleName("SUPER_ADMIN")) {
+                usernames.add(admin.getUsername());
+            }
+            for (User admin : userRepository.findByRoleName("ADMIN")) {
+                usernames.add(admin.getUsername());
+            }
+            cached = new CachedRecipients(List.copyOf(usernames), now + TimeUnit.SECONDS.toMillis(recipientCacheSeconds));
+            adminRecipients = cached;
+        }
+        return cached.usernames;
+    }
+
+    private void runInBackground(String description, Runnable task) {
+        attendanceExecutor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.warn("Background work for {} failed: {}", description, e.getMessage());
+            }
+        });
+    }
+
+    private TransactionTemplate clockTransaction() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private TransactionTemplate backgroundTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static class CachedRecipients {
+        private final List<String> usernames;
+        private final long expiresAt;
+
+        CachedRecipients(List<String> usernames, long expiresAt) {
+            this.usernames = usernames;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Latency histogram of one punch type with fixed millisecond buckets; percentiles are bucket upper bounds
+    private static class ClockLatencyStats {
+        private static final long[] BUCKET_MILLIS = {1, 2, 5, 10, 20, 50, 100, 250, 500, 1000, 2500, 5000, 10000, Long.MAX_VALUE};
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_MILLIS.length);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder overTarget = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, long targetMillis) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (millis >= BUCKET_MILLIS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            if (millis > targetMillis) {
+                overTarget.increment();
+            }
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long total = count.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", total);
+            map.put("overTarget", overTarget.sum());
+            map.put("p50Ms", percentile(total, 50));
+            map.put("p95Ms", percentile(total, 95));
+            map.put("p99Ms", percentile(total, 99));
+            map.put("maxMs", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+            return map;
+        }
+
+        private Long percentile(long total, int percent) {
+            if (total == 0) {
+                return null;
+            }
+            long rank = (total * percent + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKET_MILLIS.length - 1; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return BUCKET_MILLIS[i];
+                }
+            }
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.erp.service;
+
+import com.erp.repository.EmployeeRepository;
+import com.erp.repository.EmployeeRepository.EmployeeCodeRow;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+// Bulk attendance import (biometric exports, spreadsheets). Rows are parsed one at a time from the request
+// stream, employee codes are resolved from a map loaded once per import, and rows are upserted on
+// (employee_id, attendance_date) in JDBC batches, each committed on its own. Only the current batch and a
+// capped error list are held, so memory does not grow with the file.
+@Service
+public class AttendanceImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendanceImportService.class);
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO attendance_records (employee_id, attendance_date, clock_in, clock_out, status, capture_method, " +
+        "approval_status, regular_hours, overtime_hours, remarks, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, 'EXCEL_UPLOAD', 'APPROVED', ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (employee_id, attendance_date) DO UPDATE SET " +
+        "clock_in = COALESCE(EXCLUDED.clock_in, attendance_records.clock_in), " +
+        "clock_out = COALESCE(EXCLUDED.clock_out, attendance_records.clock_out), " +
+        "status = EXCLUDED.status, " +
+        "capture_method = EXCLUDED.capture_method, " +
+        "approval_status = EXCLUDED.approval_status, " +
+        "regular_hours = COALESCE(EXCLUDED.regular_hours, attendance_records.regular_hours), " +
+        "overtime_hours = COALESCE(EXCLUDED.overtime_hours, attendance_records.overtime_hours), " +
+        "remarks = CASE WHEN ? THEN EXCLUDED.remarks ELSE attendance_records.remarks END, " +
+        "updated_at = EXCLUDED.updated_at";
+
+    private static final int[] UPSERT_TYPES = {
+        Types.BIGINT, Types.DATE, Types.TIME, Types.TIME, Types.VARCHAR, Types.NUMERIC, Types.NUMERIC,
+        Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP, Types.BOOLEAN
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AttendanceRollupService attendanceRollupService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${attendance.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${attendance.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    // A JSON array of row objects
+    public ImportResult importJson(InputStream in) throws IOException {
+        Importer importer = new Importer();
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of attendance rows");
+            }
+            int row = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                row++;
+                Map<String, Object> data = parser.readValueAs(new TypeReference<Map<String, Object>>() {});
+                Map<String, String> values = new HashMap<>();
+                data.forEach((key, value) -> values.put(key, value != null ? value.toString() : null));
+                importer.accept(row, values);
+            }
+        }
+        return importer.finish();
+    }
+
+    // CSV with a header row; column names match the JSON keys (employeeId or employeeCode, date, status,
+    // clockIn, clockOut, regularHours, overtimeHours, remarks) and are case-insensitive
+    public ImportResult importCsv(BufferedReader in) throws IOException {
+        Importer importer = new Importer();
+        List<String> header = readCsvRecord(in);
+        if (header == null) {
+            return importer.finish();
+        }
+        Map<String, String> columns = Map.of("employeeid", "employeeId", "employeecode", "employeeCode", "date", "date",
+            "status", "status", "clockin", "clockIn", "clockout", "clockOut", "regularhours", "regularHours",
+            "overtimehours", "overtimeHours", "remarks", "remarks");
+        String[] keys = new String[header.size()];
+        for (int i = 0; i < header.size(); i++) {
+            keys[i] = columns.get(header.get(i).trim().replace(" ", "").replace("_", "").toLowerCase());
+        }
+
+        int row = 0;
+        List<String> fields;
+        while ((fields = readCsvRecord(in)) != null) {
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            row++;
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < fields.size() && i < keys.length; i++) {
+                if (keys[i] != null && !fields.get(i).isBlank()) {
+                    values.put(keys[i], fields.get(i).trim());
+                }
+            }
+            importer.accept(row, values);
+        }
+        return importer.finish();
+    }
+
+    // One import: the employee lookup, the pending batch and the running counts
+    private class Importer {
+        private final Map<String, Long> employeeIdsByCode = new HashMap<>();
+        private final Set<Long> employeeIds = new HashSet<>();
+        private final List<Object[]> batch = new ArrayList<>();
+        private final List<Integer> batchRows = new ArrayList<>();
+        private final ImportResult result = new ImportResult();
+
+        Importer() {
+            for (EmployeeCodeRow employee : employeeRepository.findAllEmployeeCodes()) {
+                employeeIds.add(employee.getEmployeeId());
+                if (employee.getEmployeeCode() != null) {
+                    employeeIdsByCode.put(employee.getEmployeeCode().trim().toUpperCase(), employee.getEmployeeId());
+                }
+            }
+        }
+
+        void accept(int row, Map<String, String> values) {
+            result.processed++;
+            String reference = values.get("employeeId") != null ? values.get("employeeId") : values.get("employeeCode");
+            try {
+                Object[] parameters = toParameters(values);
+                batch.add(parameters);
+                batchRows.add(row);
+            } catch (RuntimeException e) {
+                result.addError(row, reference, e.getMessage(), maxReportedErrors);
+                return;
+            }
+            if (batch.size() >= Math.max(1, batchSize)) {
+                flush();
+            }
+        }
+
+        ImportResult finish() {
+            flush();
+            logger.info("Attendance import: {} row(s) read, {} saved, {} failed", result.processed, result.saved, result.failed);
+            return result;
+        }
+
+        private Object[] toParameters(Map<String, String> values) {
+            Long employeeId = resolveEmployee(values);
+            if (values.get("date") == null) {
+                throw new IllegalArgumentException("Date is required");
+            }
+            LocalDate date = LocalDate.parse(values.get("date"));
+            String status = values.get("status") != null ? values.get("status") : "PRESENT";
+            if (status.length() > 20) {
+                throw new IllegalArgumentException("Status is longer than 20 characters");
+            }
+            String remarks = values.get("remarks");
+            if (remarks != null && remarks.length() > 500) {
+                throw new IllegalArgumentException("Remarks are longer than 500 characters");
+            }
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            return new Object[] {
+                employeeId,
+                Date.valueOf(date),
+                values.get("clockIn") != null ? Time.valueOf(LocalTime.parse(values.get("clockIn"))) : null,
+                values.get("clockOut") != null ? Time.valueOf(LocalTime.parse(values.get("clockOut"))) : null,
+                status,
+                values.get("regularHours") != null ? new BigDecimal(values.get("regularHours")) : null,
+                values.get("overtimeHours") != null ? new BigDecimal(values.get("overtimeHours")) : null,
+                remarks,
+                now,
+                now,
+                values.containsKey("remarks")
+            };
+        }
+
+        private Long resolveEmployee(Map<String, String> values) {
+            if (values.get("employeeId") != null) {
+                Long employeeId = Long.valueOf(values.get("employeeId"));
+                if (!employeeIds.contains(employeeId)) {
+                    throw new IllegalArgumentException("Employee not found: " + employeeId);
+                }
+                return employeeId;
+            }
+            if (values.get("employeeCode") != null) {
+                Long employeeId = employeeIdsByCode.get(values.get("employeeCode").trim().toUpperCase());
+                if (employeeId == null) {
+                    throw new IllegalArgumentException("Employee not found: " + values.get("employeeCode"));
+                }
+                return employeeId;
+            }
+            throw new IllegalArgumentException("employeeId or employeeCode is required");
+        }
+
+        // Writes the pending batch in one transaction; if the database rejects it, the rows are retried one
+        // by one so the error is reported against the row that caused it
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                newTransaction().executeWithoutResult(status -> upsert(batch));
+                result.saved += batch.size();
+            } catch (RuntimeException batchFailure) {
+                for (int i = 0; i < batch.size(); i++) {
+                    Object[] parameters = batch.get(i);
+                    try {
+                        newTransaction().executeWithoutResult(status -> upsert(Collections.singletonList(parameters)));
+                        result.saved++;
+                    } catch (RuntimeException e) {
+                        result.addError(batchRows.get(i), String.valueOf(parameters[0]), rootMessage(e), maxReportedErrors);
+                    }
+                }
+            }
+            batch.clear();
+            batchRows.clear();
+        }
+
+        // The rollups move by the difference the rows make, in the transaction that writes them
+        private void upsert(List<Object[]> rows) {
+            AttendanceRollupService.BulkWrite rollups = attendanceRollupService.newBulkWrite();
+            for (Object[] parameters : rows) {
+                rollups.add((Long) parameters[0], ((Date) parameters[1]).toLocalDate());
+            }
+            attendanceRollupService.beginBulkWrite(rollups);
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows, UPSERT_TYPES);
+            attendanceRollupService.finishBulkWrite(rollups);
+        }
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    // Next CSV record, or null at the end of input; quoted fields may contain commas, quotes and newlines
+    private static List<String> readCsvRecord(BufferedReader in) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = in.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    int next = in.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            in.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    public static class ImportError {
+        private final int row;
+        private final String employee;
+        private final String error;
+
+        ImportError(int row, String employee, String error) {
+            this.row = row;
+            this.employee = employee;
+            this.error = error;
+        }
+
+        public int getRow() { return row; }
+        public String getEmployee() { return employee; }
+        public String getError() { return error; }
+    }
+
+    public static class ImportResult {
+        private int processed;
+        private int saved;
+        private int failed;
+        private boolean errorsTruncated;
+        private final List<ImportError> errors = new ArrayList<>();
+
+        void addError(int row, String employee, String error, int maxReported) {
+            failed++;
+            if (errors.size() < maxReported) {
+                errors.add(new ImportError(row, employee, error));
+            } else {
+                errorsTruncated = true;
+            }
+        }
+
+        public int getProcessed() { return processed; }
+        public int getSaved() { return saved; }
+        public int getFailed() { return failed; }
+        public boolean isErrorsTruncated() { return errorsTruncated; }
+        public List<ImportError> getErrors() { return errors; }
+    }
+}
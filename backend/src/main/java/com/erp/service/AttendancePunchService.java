@@ -0,0 +1,396 @@
+package com.erp.service;
+
+import com.erp.model.AttendanceRecord;
+import com.erp.repository.AttendancePunchRepository;
+import com.erp.repository.AttendancePunchRepository.PunchRow;
+import com.erp.repository.AttendanceRecordRepository;
+import com.erp.repository.AttendanceRecordRepository.ClockTimesRow;
+import com.erp.repository.EmployeeRepository;
+import com.erp.repository.EmployeeRepository.EmployeeCodeRow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+// Punch ingestion for attendance terminals. A sync is stored with one INSERT over arrays, where the unique
+// (device, punch id) index drops punches the terminal already sent; only the punches that were new change
+// attendance. Those are paired per employee and day with the punches stored before (earliest in, latest out),
+// and the resulting records are upserted in one JDBC batch, all in one transaction.
+@Service
+public class AttendancePunchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendancePunchService.class);
+
+    public static final String CAPTURE_METHOD = "BIOMETRIC";
+
+    private static final String INSERT_PUNCHES_SQL =
+        "INSERT INTO attendance_punches (device_id, device_punch_id, employee_id, punch_date, punched_at, punch_type, received_at) " +
+        "SELECT ?, p.punch_id, p.employee_id, CAST(p.punched_at AS date), p.punched_at, p.punch_type, ? " +
+        "FROM unnest(?::varchar[], ?::bigint[], ?::timestamp[], ?::varchar[]) AS p(punch_id, employee_id, punched_at, punch_type) " +
+        "ON CONFLICT (device_id, device_punch_id) DO NOTHING " +
+        "RETURNING device_punch_id";
+
+    // On an existing record only the clock times and what is derived from them change. Status, capture method
+    // and break stay as a manager or correction left them, and an approval stands unless the times moved.
+    private static final String UPSERT_RECORD_SQL =
+        "INSERT INTO attendance_records (employee_id, attendance_date, clock_in, clock_out, status, capture_method, location_type, " +
+        "approval_status, late_arrival, late_minutes, early_departure, early_minutes, regular_hours, overtime_hours, " +
+        "break_duration, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, 'PRESENT', '" + CAPTURE_METHOD + "', '" + CAPTURE_METHOD + "', ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (employee_id, attendance_date) DO UPDATE SET " +
+        "approval_status = CASE WHEN attendance_records.clock_in IS NOT DISTINCT FROM EXCLUDED.clock_in " +
+        "AND attendance_records.clock_out IS NOT DISTINCT FROM EXCLUDED.clock_out " +
+        "THEN attendance_records.approval_status ELSE EXCLUDED.approval_status END, " +
+        "clock_in = EXCLUDED.clock_in, clock_out = EXCLUDED.clock_out, " +
+        "late_arrival = EXCLUDED.late_arrival, late_minutes = EXCLUDED.late_minutes, " +
+        "early_departure = EXCLUDED.early_departure, early_minutes = EXCLUDED.early_minutes, " +
+        "regular_hours = EXCLUDED.regular_hours, overtime_hours = EXCLUDED.overtime_hours, updated_at = EXCLUDED.updated_at";
+
+    private static final int[] UPSERT_RECORD_TYPES = {
+        Types.BIGINT, Types.DATE, Types.TIME, Types.TIME, Types.VARCHAR, Types.BOOLEAN, Types.INTEGER, Types.BOOLEAN,
+        Types.INTEGER, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.TIMESTAMP, Types.TIMESTAMP
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AttendancePunchRepository attendancePunchRepository;
+
+    @Autowired
+    private AttendanceRecordRepository attendanceRecordRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private BranchEmployeeIndex branchEmployeeIndex;
+
+    @Autowired
+    private AttendanceClockService attendanceClockService;
+
+    @Autowired
+    private AttendanceRollupService attendanceRollupService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${attendance.punch.max-batch-size:10000}")
+    private int maxBatchSize;
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    // Each punch is a map with punchId, employeeId or employeeCode, punchedAt (ISO date-time) and an optional
+    // type (IN or OUT). Invalid punches are reported and left out; the rest of the batch is still applied.
+    public PunchIngestResult ingest(String deviceId, List<Map<String, Object>> punches) {
+        PunchIngestResult result = new PunchIngestResult();
+        result.received = punches.size();
+
+        Map<String, Long> employeeIdsByCode = new HashMap<>();
+        for (EmployeeCodeRow employee : employeeRepository.findAllEmployeeCodes()) {
+            if (employee.getEmployeeCode() != null) {
+                employeeIdsByCode.put(employee.getEmployeeCode().trim().toUpperCase(), employee.getEmployeeId());
+            }
+        }
+        Set<Long> activeEmployees = branchEmployeeIndex.allActive();
+
+        Map<String, Punch> valid = new LinkedHashMap<>();
+        for (Map<String, Object> values : punches) {
+            String punchId = values.get("punchId") != null ? values.get("punchId").toString().trim() : null;
+            try {
+                Punch punch = toPunch(punchId, values, employeeIdsByCode, activeEmployees);
+                if (valid.putIfAbsent(punch.punchId, punch) != null) {
+                    result.duplicates++;
+                }
+            } catch (RuntimeException e) {
+                result.addError(punchId, e.getMessage());
+            }
+        }
+        if (valid.isEmpty()) {
+            return result;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Set<String> inserted = insertPunches(deviceId, valid.values());
+            result.accepted = inserted.size();
+            result.duplicates += valid.size() - inserted.size();
+
+            Set<DayKey> days = new HashSet<>();
+            for (String punchId : inserted) {
+                Punch punch = valid.get(punchId);
+                days.add(new DayKey(punch.employeeId, punch.punchedAt.toLocalDate()));
+            }
+            if (!days.isEmpty()) {
+                result.recordsUpdated = applyToAttendance(days);
+            }
+        });
+        logger.info("Terminal {} sync: {} punch(es) received, {} new, {} duplicate, {} rejected, {} attendance record(s) updated",
+            deviceId, result.received, result.accepted, result.duplicates, result.rejected, result.recordsUpdated);
+        return result;
+    }
+
+    private Punch toPunch(String punchId, Map<String, Object> values, Map<String, Long> employeeIdsByCode, Set<Long> activeEmployees) {
+        if (punchId == null || punchId.isEmpty()) {
+            throw new IllegalArgumentException("punchId is required");
+        }
+        if (punchId.length() > 100) {
+            throw new IllegalArgumentException("punchId is longer than 100 characters");
+        }
+
+        Long employeeId;
+        if (values.get("employeeId") != null) {
+            try {
+                employeeId = Long.valueOf(values.get("employeeId").toString().trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid employeeId: " + values.get("employeeId"));
+            }
+        } else if (values.get("employeeCode") != null) {
+            employeeId = employeeIdsByCode.get(values.get("employeeCode").toString().trim().toUpperCase());
+            if (employeeId == null) {
+                throw new IllegalArgumentException("Unknown employee code: " + values.get("employeeCode"));
+            }
+        } else {
+            throw new IllegalArgumentException("employeeId or employeeCode is required");
+        }
+        if (!activeEmployees.contains(employeeId)) {
+            throw new IllegalArgumentException("Employee not found or inactive: " + employeeId);
+        }
+
+        if (values.get("punchedAt") == null) {
+            throw new IllegalArgumentException("punchedAt is required");
+        }
+        LocalDateTime punchedAt = parseTimestamp(values.get("punchedAt").toString().trim());
+
+        String type = values.get("type") != null ? values.get("type").toString().trim().toUpperCase() : null;
+        if (type != null && !type.isEmpty() && !"IN".equals(type) && !"OUT".equals(type)) {
+            throw new IllegalArgumentException("Invalid punch type: " + values.get("type"));
+        }
+        return new Punch(punchId, employeeId, punchedAt, type != null && !type.isEmpty() ? type : null);
+    }
+
+    // Terminal local time; an offset, if the terminal sends one, is dropped rather than converted
+    private static LocalDateTime parseTimestamp(String text) {
+        try {
+            return LocalDateTime.parse(text);
+        } catch (DateTimeParseException e) {
+            try {
+                return OffsetDateTime.parse(text).toLocalDateTime();
+            } catch (DateTimeParseException ignored) {
+                throw new IllegalArgumentException("Invalid punchedAt: " + text);
+            }
+        }
+    }
+
+    // One statement for the whole batch; returns the punch ids that were not stored before
+    private Set<String> insertPunches(String deviceId, Collection<Punch> punches) {
+        String[] punchIds = new String[punches.size()];
+        Long[] employeeIds = new Long[punches.size()];
+        Timestamp[] punchedAt = new Timestamp[punches.size()];
+        String[] types = new String[punches.size()];
+        int i = 0;
+        for (Punch punch : punches) {
+            punchIds[i] = punch.punchId;
+            employeeIds[i] = punch.employeeId;
+            punchedAt[i] = Timestamp.valueOf(punch.punchedAt);
+            types[i] = punch.type;
+            i++;
+        }
+        Timestamp receivedAt = Timestamp.valueOf(LocalDateTime.now());
+        List<String> inserted = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_PUNCHES_SQL);
+            statement.setString(1, deviceId);
+            statement.setTimestamp(2, receivedAt);
+            statement.setArray(3, connection.createArrayOf("varchar", punchIds));
+            statement.setArray(4, connection.createArrayOf("bigint", employeeIds));
+            statement.setArray(5, connection.createArrayOf("timestamp", punchedAt));
+            statement.setArray(6, connection.createArrayOf("varchar", types));
+            return statement;
+        }, (rs, rowNum) -> rs.getString(1));
+        return new HashSet<>(inserted);
+    }
+
+    // Re-pairs every punch stored for the given employee-days and writes the days whose clock times changed
+    private int applyToAttendance(Set<DayKey> days) {
+        Set<Long> employeeIds = new HashSet<>();
+        LocalDate startDate = null;
+        LocalDate endDate = null;
+        for (DayKey day : days) {
+            employeeIds.add(day.employeeId);
+            startDate = startDate == null || day.date.isBefore(startDate) ? day.date : startDate;
+            endDate = endDate == null || day.date.isAfter(endDate) ? day.date : endDate;
+        }
+
+        Map<DayKey, List<PunchRow>> punchesByDay = new HashMap<>();
+        for (PunchRow row : attendancePunchRepository.findPunches(employeeIds, startDate, endDate)) {
+            DayKey day = new DayKey(row.getEmployeeId(), row.getPunchDate());
+            if (days.contains(day)) {
+                punchesByDay.computeIfAbsent(day, d -> new ArrayList<>()).add(row);
+            }
+        }
+        Map<DayKey, ClockTimesRow> existing = new HashMap<>();
+        for (ClockTimesRow row : attendanceRecordRepository.findClockTimes(employeeIds, startDate, endDate)) {
+            existing.put(new DayKey(row.getEmployeeId(), row.getAttendanceDate()), row);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>();
+        AttendanceRollupService.BulkWrite rollups = attendanceRollupService.newBulkWrite();
+        for (Map.Entry<DayKey, List<PunchRow>> entry : punchesByDay.entrySet()) {
+            ClockTimesRow current = existing.get(entry.getKey());
+            LocalTime[] paired = pair(entry.getValue(), current);
+            if (current != null && Objects.equals(paired[0], current.getClockIn()) && Objects.equals(paired[1], current.getClockOut())) {
+                continue;
+            }
+
+            AttendanceRecord record = new AttendanceRecord();
+            record.setClockIn(paired[0]);
+            record.setClockOut(paired[1]);
+            attendanceClockService.applyClockInRules(record);
+            if (record.getClockOut() != null) {
+                attendanceClockService.applyClockOutRules(record);
+            }
+            rollups.add(entry.getKey().employeeId, entry.getKey().date);
+            // As at the web clock: a completed day waits for approval, an open one does not
+            batch.add(new Object[] {
+                entry.getKey().employeeId, Date.valueOf(entry.getKey().date), Time.valueOf(record.getClockIn()),
+                record.getClockOut() != null ? Time.valueOf(record.getClockOut()) : null,
+                record.getClockOut() != null ? "PENDING" : "APPROVED",
+                record.getLateArrival(), record.getLateMinutes(), record.getEarlyDeparture(), record.getEarlyMinutes(),
+                record.getRegularHours(), record.getOvertimeHours(), record.getBreakDuration(),
+                Timestamp.valueOf(now), Timestamp.valueOf(now)
+            });
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        // Only the written days move the rollups, by the difference between their records before and after
+        attendanceRollupService.beginBulkWrite(rollups);
+        jdbcTemplate.batchUpdate(UPSERT_RECORD_SQL, batch, UPSERT_RECORD_TYPES);
+        attendanceRollupService.finishBulkWrite(rollups);
+        return batch.size();
+    }
+
+    // Clock-in is the earliest IN punch (any punch if the terminal sends no types), clock-out the latest OUT
+    // punch after it (the latest other punch if untyped); times already on the record widen the span
+    private static LocalTime[] pair(List<PunchRow> punches, ClockTimesRow current) {
+        boolean typed = punches.stream().anyMatch(p -> p.getPunchType() != null);
+        LocalTime clockIn = null;
+        for (PunchRow punch : punches) {
+            if (!typed || !"OUT".equals(punch.getPunchType())) {
+                clockIn = punch.getPunchedAt().toLocalTime();
+                break;
+            }
+        }
+        if (clockIn == null) {
+            clockIn = punches.get(0).getPunchedAt().toLocalTime();
+        }
+        if (current != null && current.getClockIn() != null && current.getClockIn().isBefore(clockIn)) {
+            clockIn = current.getClockIn();
+        }
+
+        LocalTime clockOut = null;
+        for (int i = punches.size() - 1; i >= 0; i--) {
+            PunchRow punch = punches.get(i);
+            LocalTime time = punch.getPunchedAt().toLocalTime();
+            if (time.isAfter(clockIn) && (!typed || "OUT".equals(punch.getPunchType()))) {
+                clockOut = time;
+                break;
+            }
+        }
+        if (current != null && current.getClockOut() != null && current.getClockOut().isAfter(clockIn)
+                && (clockOut == null || current.getClockOut().isAfter(clockOut))) {
+            clockOut = current.getClockOut();
+        }
+        return new LocalTime[] {clockIn, clockOut};
+    }
+
+    private static class Punch {
+        private final String punchId;
+        private final Long employeeId;
+        private final LocalDateTime punchedAt;
+        private final String type;
+
+        Punch(String punchId, Long employeeId, LocalDateTime punchedAt, String type) {
+            this.punchId = punchId;
+            this.employeeId = employeeId;
+            this.punchedAt = punchedAt;
+            this.type = type;
+        }
+    }
+
+    private static class DayKey {
+        private final Long employeeId;
+        private final LocalDate date;
+
+        DayKey(Long employeeId, LocalDate date) {
+            this.employeeId = employeeId;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof DayKey)) return false;
+            DayKey other = (DayKey) o;
+            return employeeId.equals(other.employeeId) && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(employeeId, date);
+        }
+    }
+
+    public static class PunchError {
+        private final String punchId;
+        private final String error;
+
+        PunchError(String punchId, String error) {
+            this.punchId = punchId;
+            this.error = error;
+        }
+
+        public String getPunchId() { return punchId; }
+        public String getError() { return error; }
+    }
+
+    public static class PunchIngestResult {
+        private int received;
+        private int accepted;
+        private int duplicates;
+        private int rejected;
+        private int recordsUpdated;
+        private final List<PunchError> errors = new ArrayList<>();
+
+        void addError(String punchId, String error) {
+            rejected++;
+            errors.add(new PunchError(punchId, error));
+        }
+
+        public int getReceived() { return received; }
+        public int getAccepted() { return accepted; }
+        public int getDuplicates() { return duplicates; }
+        public int getRejected() { return rejected; }
+        public int getRecordsUpdated() { return recordsUpdated; }
+        public List<PunchError> getErrors() { return errors; }
+    }
+}
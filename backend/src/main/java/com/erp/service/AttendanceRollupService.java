@@ -0,0 +1,253 @@
+package com.erp.service;
+
+import com.erp.model.AttendanceRecord;
+import com.erp.model.AttendanceRecord.RollupState;
+import com.erp.model.Employee;
+import com.erp.repository.AttendanceDailyRollupRepository;
+import com.erp.repository.AttendanceRecordRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Keeps attendance_daily_rollups in step with attendance_records. Every save or delete of a record goes
+// through here and, in the same transaction, takes the record's old contribution out of its day's counters
+// and adds the new one. A record is counted under the branch and department stamped on it when it was first
+// written, so editing it after the employee transfers still moves the counters it was added to. Bulk upserts
+// that bypass the entities apply the same deltas through a BulkWrite.
+@Service
+public class AttendanceRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendanceRollupService.class);
+
+    @Autowired
+    private AttendanceDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private AttendanceRecordRepository attendanceRecordRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Stamps records that predate the branch and department columns, then backfills the rollups once, the first
+    // time the application starts with attendance but no rollups
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                LocalDate earliest = attendanceRecordRepository.findEarliestAttendanceDate();
+                LocalDate latest = attendanceRecordRepository.findLatestAttendanceDate();
+                if (earliest == null || latest == null) {
+                    return;
+                }
+                int stamped = attendanceRecordRepository.stampRollupKeys(earliest, latest);
+                if (stamped > 0) {
+                    logger.info("Stamped {} attendance record(s) with their employee's branch and department", stamped);
+                }
+                if (rollupRepository.count() == 0) {
+                    rebuild(earliest, latest);
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("Could not backfill attendance rollups at startup: {}", e.getMessage());
+        }
+    }
+
+    @Transactional
+    public AttendanceRecord save(AttendanceRecord record) {
+        RollupState before = record.getId() != null ? record.getLoadedRollupState() : null;
+        if (record.getBranchId() == null) {
+            Employee employee = record.getEmployee();
+            record.setBranchId(employee != null && employee.getBranch() != null ? employee.getBranch().getId() : 0L);
+            record.setDepartmentId(employee != null && employee.getDepartment() != null ? employee.getDepartment().getId() : 0L);
+        }
+        AttendanceRecord saved = attendanceRecordRepository.save(record);
+        recordChanged(before, saved.currentRollupState());
+        saved.setLoadedRollupState(saved.currentRollupState());
+        return saved;
+    }
+
+    @Transactional
+    public void delete(AttendanceRecord record) {
+        RollupState before = record.getLoadedRollupState() != null ? record.getLoadedRollupState() : record.currentRollupState();
+        attendanceRecordRepository.delete(record);
+        recordChanged(before, null);
+    }
+
+    // Takes all of an employee's records out of the rollups; called before they are deleted with the employee
+    public void employeeRecordsDeleting(Long employeeId) {
+        int rows = rollupRepository.subtractEmployeeRecords(employeeId);
+        logger.info("Removed attendance of employee {} from {} daily rollup row(s)", employeeId, rows);
+    }
+
+    // Applies the change from one state of a record to another; either side may be null for an insert or delete.
+    // Each side counts under its own day, branch and department. Must run inside the transaction that writes
+    // the record.
+    public void recordChanged(RollupState before, RollupState after) {
+        if (before != null && after != null && sameBucket(before, after)) {
+            Delta delta = new Delta().add(after, 1).add(before, -1);
+            if (!delta.isZero()) {
+                apply(after.getAttendanceDate(), after.getBranchId(), after.getDepartmentId(), delta);
+            }
+            return;
+        }
+        if (before != null && before.getAttendanceDate() != null) {
+            apply(before.getAttendanceDate(), before.getBranchId(), before.getDepartmentId(), new Delta().add(before, -1));
+        }
+        if (after != null && after.getAttendanceDate() != null) {
+            apply(after.getAttendanceDate(), after.getBranchId(), after.getDepartmentId(), new Delta().add(after, 1));
+        }
+    }
+
+    private static boolean sameBucket(RollupState a, RollupState b) {
+        return Objects.equals(a.getAttendanceDate(), b.getAttendanceDate()) && a.getBranchId().equals(b.getBranchId())
+            && a.getDepartmentId().equals(b.getDepartmentId());
+    }
+
+    // Bulk upserts bypass the entities. Register the employee-days a batch writes, call beginBulkWrite before the
+    // upsert and finishBulkWrite after it, all in the upsert's transaction: the records are locked and read
+    // before and after, and only the differences are added to the counters of the days, branches and
+    // departments involved, as the entity path does one record at a time.
+    public BulkWrite newBulkWrite() {
+        return new BulkWrite();
+    }
+
+    public void beginBulkWrite(BulkWrite write) {
+        if (!write.days.isEmpty()) {
+            write.before = readStates(write);
+        }
+    }
+
+    public void finishBulkWrite(BulkWrite write) {
+        if (write.days.isEmpty()) {
+            return;
+        }
+        attendanceRecordRepository.stampRollupKeys(write.startDate, write.endDate);
+        Map<List<Object>, RollupState> after = readStates(write);
+
+        Map<List<Object>, Delta> deltas = new HashMap<>();
+        for (List<Object> day : write.days) {
+            RollupState before = write.before.get(day);
+            RollupState now = after.get(day);
+            if (before != null) {
+                deltas.computeIfAbsent(bucket(before), k -> new Delta()).add(before, -1);
+            }
+            if (now != null) {
+                deltas.computeIfAbsent(bucket(now), k -> new Delta()).add(now, 1);
+            }
+        }
+        deltas.forEach((bucket, delta) -> {
+            if (!delta.isZero()) {
+                apply((LocalDate) bucket.get(0), (Long) bucket.get(1), (Long) bucket.get(2), delta);
+            }
+        });
+    }
+
+    private Map<List<Object>, RollupState> readStates(BulkWrite write) {
+        Map<List<Object>, RollupState> states = new HashMap<>();
+        for (AttendanceRecordRepository.RollupRow row : attendanceRecordRepository.lockRollupStates(
+                write.employeeIds, write.startDate, write.endDate)) {
+            List<Object> day = List.of(row.getEmployeeId(), row.getAttendanceDate());
+            if (write.days.contains(day)) {
+                states.put(day, new RollupState(row.getAttendanceDate(), row.getBranchId(), row.getDepartmentId(), row.getStatus(),
+                    row.getApprovalStatus(), row.getLateArrival(), row.getEarlyDeparture(), row.getRegularHours(), row.getOvertimeHours()));
+            }
+        }
+        return states;
+    }
+
+    private static List<Object> bucket(RollupState state) {
+        return List.of(state.getAttendanceDate(), state.getBranchId(), state.getDepartmentId());
+    }
+
+    // Takes records that a set-based update moved out of PENDING off the day's pending-approval counter
+    public void pendingApprovalsCleared(LocalDate date, Long branchId, Long departmentId, long records) {
+        Delta delta = new Delta();
+        delta.pendingApproval = -records;
+        apply(date, branchId, departmentId, delta);
+    }
+
+    // Recounts the given days from attendance_records, replacing whatever the rollups held for them
+    @Transactional
+    public int rebuild(LocalDate startDate, LocalDate endDate) {
+        rollupRepository.deleteBetween(startDate, endDate);
+        int rows = rollupRepository.insertRecountBetween(startDate, endDate);
+        logger.info("Rebuilt attendance rollups from {} to {}: {} row(s)", startDate, endDate, rows);
+        return rows;
+    }
+
+    private void apply(LocalDate date, Long branchId, Long departmentId, Delta delta) {
+        rollupRepository.addDelta(date, branchId, departmentId, delta.records, delta.present, delta.absent, delta.onLeave,
+            delta.halfDay, delta.late, delta.earlyDeparture, delta.pendingApproval, delta.regularHours, delta.overtimeHours);
+    }
+
+    public static class BulkWrite {
+        private final Set<List<Object>> days = new HashSet<>();
+        private final Set<Long> employeeIds = new HashSet<>();
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private Map<List<Object>, RollupState> before = Collections.emptyMap();
+
+        public void add(Long employeeId, LocalDate date) {
+            days.add(List.of(employeeId, date));
+            employeeIds.add(employeeId);
+            startDate = startDate == null || date.isBefore(startDate) ? date : startDate;
+            endDate = endDate == null || date.isAfter(endDate) ? date : endDate;
+        }
+    }
+
+    private static class Delta {
+        private long records;
+        private long present;
+        private long absent;
+        private long onLeave;
+        private long halfDay;
+        private long late;
+        private long earlyDeparture;
+        private long pendingApproval;
+        private BigDecimal regularHours = BigDecimal.ZERO;
+        private BigDecimal overtimeHours = BigDecimal.ZERO;
+
+        Delta add(RollupState state, int sign) {
+            records += sign;
+            present += "PRESENT".equals(state.getStatus()) ? sign : 0;
+            absent += "ABSENT".equals(state.getStatus()) ? sign : 0;
+            onLeave += "ON_LEAVE".equals(state.getStatus()) ? sign : 0;
+            halfDay += "HALF_DAY".equals(state.getStatus()) ? sign : 0;
+            late += Boolean.TRUE.equals(state.getLateArrival()) ? sign : 0;
+            earlyDeparture += Boolean.TRUE.equals(state.getEarlyDeparture()) ? sign : 0;
+            pendingApproval += "PENDING".equals(state.getApprovalStatus()) ? sign : 0;
+            // Rounded as the columns store them, so taking a loaded value back out cancels exactly
+            if (state.getRegularHours() != null) {
+                regularHours = regularHours.add(state.getRegularHours().setScale(2, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(sign)));
+            }
+            if (state.getOvertimeHours() != null) {
+                overtimeHours = overtimeHours.add(state.getOvertimeHours().setScale(2, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(sign)));
+            }
+            return this;
+        }
+
+        boolean isZero() {
+            return records == 0 && present == 0 && absent == 0 && onLeave == 0 && halfDay == 0 && late == 0
+                && earlyDeparture == 0 && pendingApproval == 0
+                && regularHours.signum() == 0 && overtimeHours.signum() == 0;
+        }
+    }
+}
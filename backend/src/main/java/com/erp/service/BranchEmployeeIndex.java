@@ -0,0 +1,204 @@
+package com.erp.service;
+
+import com.erp.repository.EmployeeRepository;
+import com.erp.repository.EmployeeRepository.BranchMembership;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+// In-memory branch -> active employee id index used for branch scoping. Each branch holds a bitmap of employee
+// ids, so a membership check is one bit test instead of loading the branch's employees per request; the rare id
+// that does not fit an int bit index is kept in a plain set beside it. Snapshots are immutable and swapped
+// whole; employee saves and deletes are applied by BranchEmployeeIndexListener.
+@Service
+public class BranchEmployeeIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BranchEmployeeIndex.class);
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.warn("Could not build branch employee index at startup, will retry on first use: {}", e.getMessage());
+        }
+    }
+
+    // Active employees of the branch
+    public EmployeeIdSet forBranch(Long branchId) {
+        EmployeeIdSet ids = current().byBranch.get(branchId);
+        return ids != null ? ids : EmployeeIdSet.EMPTY;
+    }
+
+    // Active employees of every branch, including those without one
+    public EmployeeIdSet allActive() {
+        return current().allActive;
+    }
+
+    public synchronized void rebuild() {
+        Map<Long, EmployeeIdSet.Builder> byBranch = new HashMap<>();
+        EmployeeIdSet.Builder allActive = new EmployeeIdSet.Builder();
+        List<BranchMembership> memberships = employeeRepository.findActiveBranchMemberships();
+        for (BranchMembership membership : memberships) {
+            allActive.add(membership.getEmployeeId());
+            if (membership.getBranchId() != null) {
+                byBranch.computeIfAbsent(membership.getBranchId(), id -> new EmployeeIdSet.Builder()).add(membership.getEmployeeId());
+            }
+        }
+        Map<Long, EmployeeIdSet> sets = new HashMap<>();
+        byBranch.forEach((id, builder) -> sets.put(id, builder.build()));
+        snapshot = new Snapshot(sets, allActive.build());
+        logger.info("Built branch employee index: {} active employee(s) in {} branch(es)", memberships.size(), byBranch.size());
+    }
+
+    // Moves the employee to its current branch, or out of the index when inactive
+    public synchronized void update(Long employeeId, Long branchId, boolean active) {
+        Snapshot current = snapshot;
+        if (current == null || employeeId == null) {
+            return;
+        }
+        Map<Long, EmployeeIdSet> byBranch = new HashMap<>(current.byBranch);
+        byBranch.replaceAll((id, ids) -> ids.contains(employeeId) && !(active && id.equals(branchId)) ? ids.without(employeeId) : ids);
+        if (active && branchId != null) {
+            byBranch.put(branchId, byBranch.getOrDefault(branchId, EmployeeIdSet.EMPTY).with(employeeId));
+        }
+        EmployeeIdSet allActive = active ? current.allActive.with(employeeId) : current.allActive.without(employeeId);
+        snapshot = new Snapshot(byBranch, allActive);
+    }
+
+    public void remove(Long employeeId) {
+        update(employeeId, null, false);
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            rebuild();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    private static class Snapshot {
+        private final Map<Long, EmployeeIdSet> byBranch;
+        private final EmployeeIdSet allActive;
+
+        Snapshot(Map<Long, EmployeeIdSet> byBranch, EmployeeIdSet allActive) {
+            this.byBranch = byBranch;
+            this.allActive = allActive;
+        }
+    }
+
+    // Read-only set of employee ids backed by a bitmap; contains() is a single bit test. Ids outside the int
+    // range, which a bitmap cannot index, are held in a small sorted set instead.
+    public static class EmployeeIdSet extends AbstractSet<Long> {
+        private static final EmployeeIdSet EMPTY = new EmployeeIdSet(new BitSet(), new TreeSet<>());
+
+        private final BitSet bits;
+        private final NavigableSet<Long> wide;
+        private final int size;
+
+        private EmployeeIdSet(BitSet bits, NavigableSet<Long> wide) {
+            this.bits = bits;
+            this.wide = wide;
+            this.size = bits.cardinality() + wide.size();
+        }
+
+        private static boolean fitsBit(long id) {
+            return id >= 0 && id <= Integer.MAX_VALUE;
+        }
+
+        EmployeeIdSet with(long id) {
+            if (contains(id)) {
+                return this;
+            }
+            if (!fitsBit(id)) {
+                NavigableSet<Long> copy = new TreeSet<>(wide);
+                copy.add(id);
+                return new EmployeeIdSet(bits, copy);
+            }
+            BitSet copy = (BitSet) bits.clone();
+            copy.set((int) id);
+            return new EmployeeIdSet(copy, wide);
+        }
+
+        EmployeeIdSet without(long id) {
+            if (!contains(id)) {
+                return this;
+            }
+            if (!fitsBit(id)) {
+                NavigableSet<Long> copy = new TreeSet<>(wide);
+                copy.remove(id);
+                return new EmployeeIdSet(bits, copy);
+            }
+            BitSet copy = (BitSet) bits.clone();
+            copy.clear((int) id);
+            return new EmployeeIdSet(copy, wide);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Long)) {
+                return false;
+            }
+            long id = (Long) o;
+            return fitsBit(id) ? bits.get((int) id) : wide.contains(id);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Long> iterator() {
+            Iterator<Long> wideIds = wide.iterator();
+            return new Iterator<>() {
+                private int next = bits.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0 || wideIds.hasNext();
+                }
+
+                @Override
+                public Long next() {
+                    if (next < 0) {
+                        return wideIds.next();
+                    }
+                    long id = next;
+                    next = next == Integer.MAX_VALUE ? -1 : bits.nextSetBit(next + 1);
+                    return id;
+                }
+            };
+        }
+
+        static class Builder {
+            private final BitSet bits = new BitSet();
+            private final NavigableSet<Long> wide = new TreeSet<>();
+
+            void add(long id) {
+                if (fitsBit(id)) {
+                    bits.set((int) id);
+                } else {
+                    wide.add(id);
+                }
+            }
+
+            EmployeeIdSet build() {
+                return new EmployeeIdSet(bits, wide);
+            }
+        }
+    }
+}
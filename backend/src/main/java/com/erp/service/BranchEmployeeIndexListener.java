@@ -0,0 +1,47 @@
+package com.erp.service;
+
+import com.erp.model.Employee;
+import com.erp.model.listener.EntityChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Keeps BranchEmployeeIndex current from every employee insert, update and delete; inside a transaction
+// the change is applied only once it commits
+@Component
+public class BranchEmployeeIndexListener {
+
+    @Autowired
+    private BranchEmployeeIndex branchEmployeeIndex;
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!(event.getEntity() instanceof Employee)) {
+            return;
+        }
+        Employee employee = (Employee) event.getEntity();
+        Long employeeId = employee.getId();
+        if (event.isRemoved()) {
+            afterCommit(() -> branchEmployeeIndex.remove(employeeId));
+            return;
+        }
+        Long branchId = employee.getBranch() != null ? employee.getBranch().getId() : null;
+        boolean active = !Boolean.FALSE.equals(employee.getActive());
+        afterCommit(() -> branchEmployeeIndex.update(employeeId, branchId, active));
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
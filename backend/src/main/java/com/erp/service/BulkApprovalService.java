@@ -0,0 +1,241 @@
+package com.erp.service;
+
+import com.erp.model.Employee;
+import com.erp.repository.AttendanceRecordRepository;
+import com.erp.repository.EmployeeRepository;
+import com.erp.repository.LeaveRequestRepository;
+import com.erp.repository.TimesheetRepository;
+import com.erp.service.UserNotificationService.EmployeeNotice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+// Bulk approval of attendance records, timesheets and leave requests. The ids are worked through in chunks, each
+// in its own transaction: one query locks the chunk's rows that are in the caller's branch scope, one UPDATE
+// approves the eligible ones, and side effects (rollup counters, leave balances) are applied once per group
+// rather than once per row. Each affected employee and the approver get a single notification for the request.
+@Service
+public class BulkApprovalService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkApprovalService.class);
+
+    @Autowired
+    private AttendanceRecordRepository attendanceRecordRepository;
+
+    @Autowired
+    private TimesheetRepository timesheetRepository;
+
+    @Autowired
+    private LeaveRequestRepository leaveRequestRepository;
+
+    @Autowired
+    private LeaveLedgerService leaveLedgerService;
+
+    @Autowired
+    private LeaveCalendarIndex leaveCalendarIndex;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private AttendanceRollupService attendanceRollupService;
+
+    @Autowired
+    private UserNotificationService userNotificationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${approval.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    // A null branch means every branch
+    public BulkApprovalResult approveAttendance(Collection<Long> ids, Long branchId, Employee approver) {
+        BulkApprovalResult result = inChunks(ids, (chunk, part) -> {
+            Map<Long, AttendanceRecordRepository.ApprovalRow> rows = new HashMap<>();
+            for (AttendanceRecordRepository.ApprovalRow row : attendanceRecordRepository.lockForApproval(chunk, branchId)) {
+                rows.put(row.getId(), row);
+            }
+
+            List<Long> eligible = new ArrayList<>();
+            Map<List<Object>, Long> pendingCleared = new LinkedHashMap<>();
+            for (Long id : chunk) {
+                AttendanceRecordRepository.ApprovalRow row = rows.get(id);
+                if (row == null) {
+                    part.errors.add("Record not found: " + id);
+                } else if ("APPROVED".equals(row.getApprovalStatus())) {
+                    part.skippedDetails.add("Already approved: " + id);
+                } else if ("REJECTED".equals(row.getApprovalStatus())) {
+                    part.skippedDetails.add("Already rejected, cannot approve: " + id);
+                } else {
+                    eligible.add(id);
+                    part.approvedFor(row.getEmployeeId());
+                    if ("PENDING".equals(row.getApprovalStatus())) {
+                        List<Object> day = Arrays.asList(row.getAttendanceDate(),
+                            row.getBranchId() != null ? row.getBranchId() : 0L, row.getDepartmentId() != null ? row.getDepartmentId() : 0L);
+                        pendingCleared.merge(day, 1L, Long::sum);
+                    }
+                }
+            }
+
+            if (!eligible.isEmpty()) {
+                attendanceRecordRepository.approveAll(eligible, approver, LocalDateTime.now());
+            }
+            pendingCleared.forEach((day, records) -> attendanceRollupService.pendingApprovalsCleared(
+                (LocalDate) day.get(0), (Long) day.get(1), (Long) day.get(2), records));
+        });
+
+        notify(result, approver, "Attendance Approved", "attendance record", "ATTENDANCE_APPROVED", "ATTENDANCE");
+        return result;
+    }
+
+    public BulkApprovalResult approveTimesheets(Collection<Long> ids, Long branchId, Employee approver, String remarks) {
+        BulkApprovalResult result = inChunks(ids, (chunk, part) -> {
+            Map<Long, TimesheetRepository.ApprovalRow> rows = new HashMap<>();
+            for (TimesheetRepository.ApprovalRow row : timesheetRepository.lockForApproval(chunk, branchId)) {
+                rows.put(row.getId(), row);
+            }
+
+            List<Long> eligible = new ArrayList<>();
+            for (Long id : chunk) {
+                TimesheetRepository.ApprovalRow row = rows.get(id);
+                if (row == null) {
+                    part.errors.add("Timesheet not found: " + id);
+                } else if ("APPROVED".equals(row.getStatus())) {
+                    part.skippedDetails.add("Already approved: " + id);
+                } else {
+                    eligible.add(id);
+                    part.approvedFor(row.getEmployeeId());
+                }
+            }
+
+            if (!eligible.isEmpty()) {
+                timesheetRepository.approveAll(eligible, approver, remarks, LocalDateTime.now());
+            }
+        });
+
+        notify(result, approver, "Timesheet Approved", "timesheet", "TIMESHEET_APPROVED", "TIMESHEET");
+        return result;
+    }
+
+    // Approved days move from pending to used on the balance of the request's start year through the leave
+    // ledger: one transaction per request, one balance UPDATE per employee, leave type and year
+    public BulkApprovalResult approveLeaveRequests(Collection<Long> ids, Long branchId, Employee approver, String remarks) {
+        BulkApprovalResult result = inChunks(ids, (chunk, part) -> {
+            Map<Long, LeaveRequestRepository.ApprovalRow> rows = new HashMap<>();
+            for (LeaveRequestRepository.ApprovalRow row : leaveRequestRepository.lockForApproval(chunk, branchId)) {
+                rows.put(row.getId(), row);
+            }
+
+            List<Long> eligible = new ArrayList<>();
+            Map<List<Object>, Map<Long, BigDecimal>> approvedDays = new LinkedHashMap<>();
+            for (Long id : chunk) {
+                LeaveRequestRepository.ApprovalRow row = rows.get(id);
+                if (row == null) {
+                    part.errors.add("Leave request not found: " + id);
+                } else if ("APPROVED".equals(row.getStatus())) {
+                    part.skippedDetails.add("Already approved: " + id);
+                } else if (!"PENDING".equals(row.getStatus()) && !"PENDING_MANAGER".equals(row.getStatus())
+                        && !"PENDING_HR".equals(row.getStatus())) {
+                    part.skippedDetails.add("Cannot approve " + String.valueOf(row.getStatus()).toLowerCase() + " request: " + id);
+                } else {
+                    eligible.add(id);
+                    part.approvedFor(row.getEmployeeId());
+                    List<Object> balance = Arrays.asList(row.getEmployeeId(), row.getLeaveTypeId(), row.getStartDate().getYear());
+                    approvedDays.computeIfAbsent(balance, k -> new LinkedHashMap<>()).put(id, row.getTotalDays());
+                }
+            }
+
+            if (!eligible.isEmpty()) {
+                leaveRequestRepository.approveAll(eligible, approver, remarks, LocalDateTime.now());
+            }
+            Long approverId = approver != null ? approver.getId() : null;
+            approvedDays.forEach((balance, daysByRequest) -> leaveLedgerService.approveAll((Long) balance.get(0),
+                (Long) balance.get(1), (Integer) balance.get(2), daysByRequest, approverId));
+        });
+
+        // The bulk UPDATE bypasses entity listeners, so the calendar index re-reads the approved requests
+        leaveCalendarIndex.reload(ids);
+        notify(result, approver, "Leave Request Approved", "leave request", "LEAVE_APPROVED", "LEAVE_REQUEST");
+        return result;
+    }
+
+    // Runs the work chunk by chunk; a chunk that fails is rolled back and reported without stopping the rest
+    private BulkApprovalResult inChunks(Collection<Long> ids, BiConsumer<List<Long>, BulkApprovalResult> work) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        BulkApprovalResult result = new BulkApprovalResult();
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            List<Long> chunk = distinct.subList(from, Math.min(distinct.size(), from + chunkSize));
+            BulkApprovalResult part = new BulkApprovalResult();
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> work.accept(chunk, part));
+                result.add(part);
+            } catch (RuntimeException e) {
+                logger.warn("Bulk approval of {} id(s) starting at {} failed: {}", chunk.size(), chunk.get(0), e.getMessage());
+                for (Long id : chunk) {
+                    result.errors.add("Could not approve " + id + ": " + e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    private void notify(BulkApprovalResult result, Employee approver, String title, String noun, String type, String referenceType) {
+        if (result.approvedByEmployee.isEmpty()) {
+            return;
+        }
+        try {
+            List<EmployeeNotice> notices = new ArrayList<>();
+            for (Employee employee : employeeRepository.findAllById(result.approvedByEmployee.keySet())) {
+                int count = result.approvedByEmployee.get(employee.getId());
+                String message = count == 1
+                    ? "Your " + noun + " has been approved"
+                    : count + " of your " + noun + "s have been approved";
+                notices.add(new EmployeeNotice(employee, title, message, type, referenceType, null));
+            }
+            if (approver != null) {
+                notices.add(new EmployeeNotice(approver, "Bulk Approval Completed",
+                    "You approved " + result.getApproved() + " " + noun + (result.getApproved() == 1 ? "" : "s") + " for "
+                        + result.approvedByEmployee.size() + " employee(s)", type, referenceType, null));
+            }
+            userNotificationService.notifyEmployees(notices);
+        } catch (Exception e) {
+            logger.warn("Could not send bulk approval notifications: {}", e.getMessage());
+        }
+    }
+
+    public static class BulkApprovalResult {
+        private int approved;
+        private final List<String> errors = new ArrayList<>();
+        private final List<String> skippedDetails = new ArrayList<>();
+        private final Map<Long, Integer> approvedByEmployee = new LinkedHashMap<>();
+
+        void approvedFor(Long employeeId) {
+            approved++;
+            approvedByEmployee.merge(employeeId, 1, Integer::sum);
+        }
+
+        void add(BulkApprovalResult part) {
+            approved += part.approved;
+            errors.addAll(part.errors);
+            skippedDetails.addAll(part.skippedDetails);
+            part.approvedByEmployee.forEach((employeeId, count) -> approvedByEmployee.merge(employeeId, count, Integer::sum));
+        }
+
+        public int getApproved() { return approved; }
+        public int getSkipped() { return skippedDetails.size(); }
+        public List<String> getErrors() { return errors; }
+        public List<String> getSkippedDetails() { return skippedDetails; }
+    }
+}
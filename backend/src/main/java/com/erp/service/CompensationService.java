@@ -33,6 +33,9 @@ public class CompensationService {
     @Autowired
     private GradeRepository gradeRepository;
 
+    @Autowired
+    private RetroPayService retroPayService;
+
     public List<SalaryBand> findAllSalaryBands() {
         return salaryBandRepository.findAll();
     }
@@ -211,7 +214,9 @@ public class CompensationService {
         
         calculateSalaryComponents(newSalary);
         
-        return employeeSalaryRepository.save(newSalary);
+        EmployeeSalary saved = employeeSalaryRepository.save(newSalary);
+        retroPayService.registerRevision(saved);
+        return saved;
     }
 
     @Transactional
@@ -0,0 +1,206 @@
+package com.erp.service;
+
+import com.erp.model.PayFrequency;
+
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+
+// Immutable snapshot of the active tax, statutory and pay-frequency rules, compiled by TaxRuleTableService.
+// Each jurisdiction is a timeline of rule versions keyed by effective date, and each income-tax version is a
+// bracket table held in parallel primitive arrays, so every lookup is a binary search with no allocation.
+public final class CompiledTaxTables {
+
+    private final long version;
+    private final LocalDateTime compiledAt;
+    private final Map<String, Timeline<BracketTable>> incomeTaxes;
+    private final Map<String, BracketTable> defaultIncomeTaxes;
+    private final Map<String, Timeline<Contribution>> contributions;
+    private final Map<String, Contribution> defaultContributions;
+    private final Map<Long, Integer> periodsPerYearById;
+    private final Map<String, Integer> periodsPerYearByCode;
+    private final int defaultPeriodsPerYear;
+    private final int ruleCount;
+
+    CompiledTaxTables(long version, Map<String, Timeline<BracketTable>> incomeTaxes, Map<String, BracketTable> defaultIncomeTaxes,
+                      Map<String, Timeline<Contribution>> contributions, Map<String, Contribution> defaultContributions,
+                      Map<Long, Integer> periodsPerYearById, Map<String, Integer> periodsPerYearByCode,
+                      int defaultPeriodsPerYear, int ruleCount) {
+        this.version = version;
+        this.compiledAt = LocalDateTime.now();
+        this.incomeTaxes = Map.copyOf(incomeTaxes);
+        this.defaultIncomeTaxes = Map.copyOf(defaultIncomeTaxes);
+        this.contributions = Map.copyOf(contributions);
+        this.defaultContributions = Map.copyOf(defaultContributions);
+        this.periodsPerYearById = Map.copyOf(periodsPerYearById);
+        this.periodsPerYearByCode = Map.copyOf(periodsPerYearByCode);
+        this.defaultPeriodsPerYear = defaultPeriodsPerYear;
+        this.ruleCount = ruleCount;
+    }
+
+    public long getVersion() { return version; }
+    public LocalDateTime getCompiledAt() { return compiledAt; }
+    public int getRuleCount() { return ruleCount; }
+
+    // Income tax (FEDERAL, STATE, LOCAL) for a jurisdiction; a state-specific table wins over the generic one
+    public BracketTable incomeTax(String taxType, String jurisdiction, LocalDate date) {
+        BracketTable table = lookup(incomeTaxes, taxType, jurisdiction, date);
+        return table != null ? table : defaultIncomeTaxes.getOrDefault(taxType, BracketTable.NONE);
+    }
+
+    // Statutory contribution (SOCIAL_SECURITY, MEDICARE, DISABILITY, FUTA, SUTA, ...) in effect on a date
+    public Contribution contribution(String ruleType, String jurisdiction, LocalDate date) {
+        Contribution contribution = lookup(contributions, ruleType, jurisdiction, date);
+        return contribution != null ? contribution : defaultContributions.getOrDefault(ruleType, Contribution.NONE);
+    }
+
+    public int periodsPerYear(PayFrequency frequency) {
+        if (frequency == null) {
+            return defaultPeriodsPerYear;
+        }
+        Integer periods = frequency.getId() != null ? periodsPerYearById.get(frequency.getId()) : null;
+        return periods != null ? periods : defaultPeriodsPerYear;
+    }
+
+    public int periodsPerYear(String frequencyCode) {
+        return frequencyCode == null ? defaultPeriodsPerYear : periodsPerYearByCode.getOrDefault(frequencyCode, defaultPeriodsPerYear);
+    }
+
+    static String key(String type, String jurisdiction) {
+        return jurisdiction == null || jurisdiction.isBlank() ? type : type + ":" + jurisdiction.trim().toUpperCase();
+    }
+
+    private static <T> T lookup(Map<String, Timeline<T>> timelines, String type, String jurisdiction, LocalDate date) {
+        LocalDate asOf = date != null ? date : LocalDate.now();
+        if (jurisdiction != null && !jurisdiction.isBlank()) {
+            Timeline<T> specific = timelines.get(key(type, jurisdiction));
+            T value = specific != null ? specific.at(asOf) : null;
+            if (value != null) {
+                return value;
+            }
+        }
+        Timeline<T> generic = timelines.get(type);
+        return generic != null ? generic.at(asOf) : null;
+    }
+
+    // Rule versions of one jurisdiction: starts[i] is the first epoch day on which versions[i] applies,
+    // and a null version marks a gap where no rule is in effect
+    static final class Timeline<T> {
+
+        private final long[] starts;
+        private final Object[] versions;
+
+        Timeline(long[] starts, Object[] versions) {
+            this.starts = starts;
+            this.versions = versions;
+        }
+
+        @SuppressWarnings("unchecked")
+        T at(LocalDate date) {
+            int index = Arrays.binarySearch(starts, date.toEpochDay());
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return index < 0 ? null : (T) versions[index];
+        }
+    }
+
+    // One version of an income tax. Row i covers annual income from lowerBounds[i]; amounts are cents and
+    // rates millionths. A row with a fixed amount follows the percentage method (fixed + rate x excess over
+    // the lower bound), otherwise the rate applies to the whole income; an upper bound caps the taxed base.
+    public static final class BracketTable {
+
+        static final BracketTable NONE = new BracketTable(new long[0], new long[0], new long[0], new long[0], new boolean[0], new boolean[0]);
+
+        private final long[] lowerBounds;
+        private final long[] upperBounds;
+        private final long[] rates;
+        private final long[] fixedAmounts;
+        private final boolean[] excessOnly;
+        private final boolean[] fixedOnly;
+        private final boolean flat;
+
+        BracketTable(long[] lowerBounds, long[] upperBounds, long[] rates, long[] fixedAmounts, boolean[] excessOnly, boolean[] fixedOnly) {
+            this.lowerBounds = lowerBounds;
+            this.upperBounds = upperBounds;
+            this.rates = rates;
+            this.fixedAmounts = fixedAmounts;
+            this.excessOnly = excessOnly;
+            this.fixedOnly = fixedOnly;
+            this.flat = lowerBounds.length == 1 && lowerBounds[0] == Long.MIN_VALUE
+                && upperBounds[0] == Long.MAX_VALUE && !excessOnly[0] && !fixedOnly[0];
+        }
+
+        public int size() { return lowerBounds.length; }
+
+        // Tax on one pay period's wages. Bracket tables are annual, so wages are annualised by the pay
+        // frequency and the annual tax de-annualised; a single flat rate is applied to the period directly.
+        public long periodTax(long periodCents, int periodsPerYear) {
+            if (lowerBounds.length == 0) {
+                return 0L;
+            }
+            if (flat) {
+                return FixedPointMoney.applyRate(periodCents, rates[0], RoundingMode.HALF_UP);
+            }
+            int periods = Math.max(1, periodsPerYear);
+            long annualTax = annualTax(Math.multiplyExact(periodCents, (long) periods));
+            return FixedPointMoney.divide(annualTax, periods, RoundingMode.HALF_UP);
+        }
+
+        public long annualTax(long annualCents) {
+            int index = Arrays.binarySearch(lowerBounds, annualCents);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            if (index < 0) {
+                return 0L;
+            }
+            if (fixedOnly[index]) {
+                return fixedAmounts[index];
+            }
+            long base = Math.min(annualCents, upperBounds[index]);
+            if (excessOnly[index]) {
+                return fixedAmounts[index] + FixedPointMoney.applyRate(base - lowerBounds[index], rates[index], RoundingMode.HALF_UP);
+            }
+            return fixedAmounts[index] + FixedPointMoney.applyRate(base, rates[index], RoundingMode.HALF_UP);
+        }
+    }
+
+    // One version of a statutory contribution; rates are millionths and the wage base is annual cents
+    public static final class Contribution {
+
+        static final Contribution NONE = new Contribution(0L, 0L, Long.MAX_VALUE);
+
+        private final long employeeRate;
+        private final long employerRate;
+        private final long wageBase;
+
+        Contribution(long employeeRate, long employerRate, long wageBase) {
+            this.employeeRate = employeeRate;
+            this.employerRate = employerRate;
+            this.wageBase = wageBase;
+        }
+
+        public long getEmployeeRate() { return employeeRate; }
+        public long getEmployerRate() { return employerRate; }
+        public long getWageBase() { return wageBase; }
+
+        // Portion of this period's wages still under the annual wage base, given the wages already paid this year
+        public long cappedWages(long periodCents, long wagesToDate) {
+            if (wageBase == Long.MAX_VALUE) {
+                return Math.max(0L, periodCents);
+            }
+            return Math.max(0L, Math.min(periodCents, wageBase - Math.max(0L, wagesToDate)));
+        }
+
+        public long employeeAmount(long periodCents, long wagesToDate) {
+            return FixedPointMoney.applyRate(cappedWages(periodCents, wagesToDate), employeeRate, RoundingMode.HALF_UP);
+        }
+
+        public long employerAmount(long periodCents, long wagesToDate) {
+            return FixedPointMoney.applyRate(cappedWages(periodCents, wagesToDate), employerRate, RoundingMode.HALF_UP);
+        }
+    }
+}
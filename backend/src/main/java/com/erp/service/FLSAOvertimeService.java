@@ -8,7 +8,6 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.temporal.WeekFields;
 import java.util.*;
@@ -32,6 +31,9 @@ public class FLSAOvertimeService {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private WorkingDayCalendar workingDayCalendar;
+
     public static class WeeklyOvertimeResult {
         private BigDecimal totalHoursWorked;
         private BigDecimal regularHours;
@@ -237,25 +239,102 @@ public class FLSAOvertimeService {
 
     public Map<Integer, WeeklyOvertimeResult> calculatePeriodOvertime(Long employeeId, 
             LocalDate periodStart, LocalDate periodEnd) {
+        Employee employee = employeeRepository.findById(employeeId).orElse(null);
+        if (employee == null) {
+            return new LinkedHashMap<>();
+        }
+        List<AttendanceRecord> records = new ArrayList<>(attendanceRecordRepository
+            .findByEmployeeIdAndAttendanceDateBetween(employeeId, periodStart, periodEnd));
+        records.sort(Comparator.comparing(AttendanceRecord::getAttendanceDate));
+        return calculateWeeks(employee, records, periodStart, periodEnd);
+    }
+
+    public WeeklyOvertimeResult aggregatePeriodOvertime(Long employeeId, 
+            LocalDate periodStart, LocalDate periodEnd) {
+        return aggregateWeeks(calculatePeriodOvertime(employeeId, periodStart, periodEnd));
+    }
+
+    // Period overtime for many employees from one attendance list. The list is ordered by employee and date
+    // once, then each employee's run of records is cut into workweeks in a single forward pass, so there
+    // are no per-employee or per-week queries. Results are keyed by employee id.
+    public Map<Long, WeeklyOvertimeResult> aggregatePeriodOvertime(Collection<Employee> employees,
+            List<AttendanceRecord> attendance, LocalDate periodStart, LocalDate periodEnd) {
+        List<AttendanceRecord> sorted = attendance.stream()
+            .filter(r -> r.getEmployee() != null && r.getAttendanceDate() != null)
+            .filter(r -> !r.getAttendanceDate().isBefore(periodStart) && !r.getAttendanceDate().isAfter(periodEnd))
+            .sorted(Comparator.comparing((AttendanceRecord r) -> r.getEmployee().getId())
+                .thenComparing(AttendanceRecord::getAttendanceDate))
+            .toList();
+        List<Employee> ordered = employees.stream()
+            .filter(e -> e.getId() != null)
+            .sorted(Comparator.comparing(Employee::getId))
+            .toList();
+
+        Map<Long, WeeklyOvertimeResult> results = new LinkedHashMap<>();
+        int cursor = 0;
+        for (Employee employee : ordered) {
+            while (cursor < sorted.size() && sorted.get(cursor).getEmployee().getId() < employee.getId()) {
+                cursor++;
+            }
+            int from = cursor;
+            while (cursor < sorted.size() && sorted.get(cursor).getEmployee().getId().equals(employee.getId())) {
+                cursor++;
+            }
+            List<AttendanceRecord> employeeRecords = sorted.subList(from, cursor);
+            results.put(employee.getId(), aggregateWeeks(calculateWeeks(employee, employeeRecords, periodStart, periodEnd)));
+        }
+        return results;
+    }
+
+    public Map<Long, WeeklyOvertimeResult> aggregatePeriodOvertime(Collection<Employee> employees,
+            LocalDate periodStart, LocalDate periodEnd) {
+        if (employees.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        List<Long> employeeIds = employees.stream().map(Employee::getId).toList();
+        // Reloaded with location and branch joined so choosing each employee's rules and workweek does not query
+        return aggregatePeriodOvertime(employeeRepository.findWithOvertimeSitesByIdIn(employeeIds),
+            attendanceRecordRepository.findByEmployeeIdInAndAttendanceDateBetween(employeeIds, periodStart, periodEnd),
+            periodStart, periodEnd);
+    }
+
+    // Splits one employee's date-ordered records into the branch's workweeks (Sunday-Saturday by default),
+    // clipped to the period
+    private Map<Integer, WeeklyOvertimeResult> calculateWeeks(Employee employee, List<AttendanceRecord> records,
+            LocalDate periodStart, LocalDate periodEnd) {
         Map<Integer, WeeklyOvertimeResult> weeklyResults = new LinkedHashMap<>();
+        OvertimeCalculationType calcType = determineCalculationType(getEmployeeStateCode(employee));
         
+        Long branchId = employee.getBranch() != null ? employee.getBranch().getId() : null;
         LocalDate current = periodStart;
-        WeekFields weekFields = WeekFields.of(DayOfWeek.SUNDAY, 1);
+        WeekFields weekFields = WeekFields.of(workingDayCalendar.workweekStartDay(branchId), 1);
+        int cursor = 0;
         
         while (!current.isAfter(periodEnd)) {
             int weekNumber = current.get(weekFields.weekOfWeekBasedYear());
             
-            LocalDate weekStart = current.with(DayOfWeek.SUNDAY);
+            LocalDate weekStart = workingDayCalendar.workweekStart(branchId, current);
             if (weekStart.isBefore(periodStart)) {
                 weekStart = periodStart;
             }
             
-            LocalDate weekEnd = current.with(DayOfWeek.SATURDAY);
+            LocalDate weekEnd = workingDayCalendar.workweekEnd(branchId, current);
             if (weekEnd.isAfter(periodEnd)) {
                 weekEnd = periodEnd;
             }
             
-            WeeklyOvertimeResult weekResult = calculateWeeklyOvertime(employeeId, weekStart, weekEnd);
+            while (cursor < records.size() && records.get(cursor).getAttendanceDate().isBefore(weekStart)) {
+                cursor++;
+            }
+            int from = cursor;
+            while (cursor < records.size() && !records.get(cursor).getAttendanceDate().isAfter(weekEnd)) {
+                cursor++;
+            }
+            List<AttendanceRecord> weeklyRecords = records.subList(from, cursor);
+            
+            WeeklyOvertimeResult weekResult = calcType == OvertimeCalculationType.CALIFORNIA
+                ? calculateCaliforniaOvertime(weeklyRecords, weekStart, weekEnd)
+                : calculateFLSAFederalOvertime(weeklyRecords, weekStart, weekEnd);
             weeklyResults.put(weekNumber, weekResult);
             
             current = weekEnd.plusDays(1);
@@ -264,10 +343,7 @@ public class FLSAOvertimeService {
         return weeklyResults;
     }
 
-    public WeeklyOvertimeResult aggregatePeriodOvertime(Long employeeId, 
-            LocalDate periodStart, LocalDate periodEnd) {
-        Map<Integer, WeeklyOvertimeResult> weeklyResults = calculatePeriodOvertime(employeeId, periodStart, periodEnd);
-        
+    private WeeklyOvertimeResult aggregateWeeks(Map<Integer, WeeklyOvertimeResult> weeklyResults) {
         WeeklyOvertimeResult aggregated = new WeeklyOvertimeResult();
         aggregated.setCalculationMethod("AGGREGATED_WEEKLY_FLSA");
         
@@ -0,0 +1,198 @@
+package com.erp.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Sparse field selection for list endpoints: ?fields=id,firstName,department.name becomes one JPQL tuple query
+// selecting just those columns, with a LEFT JOIN per association named, and each row comes back as a map shaped
+// like the entity's JSON ({"id": 1, "firstName": "...", "department": {"name": "..."}}). Selectable fields are the
+// entity's basic columns and the basic columns of its to-one associations, minus anything Jackson would not
+// serialize anyway.
+@Service
+public class FieldProjectionService {
+
+    private static final String ROOT = "root";
+    private static final int MAX_FIELDS = 50;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final Map<Class<?>, Selectable> selectables = new ConcurrentHashMap<>();
+
+    // filter is a JPQL condition on the alias "root" (or null); orderBy a JPQL ordering such as "root.id ASC"
+    public List<Map<String, Object>> select(Class<?> entityClass, String fields, String filter,
+                                            Map<String, Object> parameters, String orderBy) {
+        Selectable selectable = selectables.computeIfAbsent(entityClass, this::describe);
+        List<String> requested = parseFields(fields);
+
+        List<String> columns = new ArrayList<>();
+        Set<String> joins = new LinkedHashSet<>();
+        for (String field : requested) {
+            int dot = field.indexOf('.');
+            if (dot < 0) {
+                if (!selectable.columns.contains(field)) {
+                    throw new IllegalArgumentException(unknownField(field, selectable));
+                }
+                columns.add(ROOT + "." + field);
+            } else {
+                String association = field.substring(0, dot);
+                String column = field.substring(dot + 1);
+                Set<String> associationColumns = selectable.associations.get(association);
+                if (associationColumns == null || !associationColumns.contains(column)) {
+                    throw new IllegalArgumentException(unknownField(field, selectable));
+                }
+                joins.add(association);
+                columns.add(joinAlias(association) + "." + column);
+            }
+        }
+
+        StringBuilder jpql = new StringBuilder("SELECT ").append(String.join(", ", columns))
+            .append(" FROM ").append(selectable.entityName).append(" ").append(ROOT);
+        for (String association : joins) {
+            jpql.append(" LEFT JOIN ").append(ROOT).append(".").append(association).append(" ").append(joinAlias(association));
+        }
+        if (filter != null && !filter.isBlank()) {
+            jpql.append(" WHERE ").append(filter);
+        }
+        if (orderBy != null && !orderBy.isBlank()) {
+            jpql.append(" ORDER BY ").append(orderBy);
+        }
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
+        if (parameters != null) {
+            parameters.forEach(query::setParameter);
+        }
+        List<Tuple> tuples = query.getResultList();
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            rows.add(toRow(requested, tuple));
+        }
+        return rows;
+    }
+
+    // Dotted fields nest under their association; an association whose selected columns are all null is null,
+    // as it would be on the entity
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toRow(List<String> requested, Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < requested.size(); i++) {
+            String field = requested.get(i);
+            Object value = tuple.get(i);
+            int dot = field.indexOf('.');
+            if (dot < 0) {
+                row.put(field, value);
+                continue;
+            }
+            String association = field.substring(0, dot);
+            Object nested = row.get(association);
+            if (value != null) {
+                if (nested == null) {
+                    nested = new LinkedHashMap<String, Object>();
+                    row.put(association, nested);
+                }
+                ((Map<String, Object>) nested).put(field.substring(dot + 1), value);
+            } else if (!row.containsKey(association)) {
+                row.put(association, null);
+            }
+        }
+        return row;
+    }
+
+    private static List<String> parseFields(String fields) {
+        Set<String> parsed = new LinkedHashSet<>();
+        if (fields != null) {
+            for (String field : fields.split(",")) {
+                if (!field.isBlank()) {
+                    parsed.add(field.trim());
+                }
+            }
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("fields must name at least one field");
+        }
+        if (parsed.size() > MAX_FIELDS) {
+            throw new IllegalArgumentException("At most " + MAX_FIELDS + " fields can be selected");
+        }
+        return new ArrayList<>(parsed);
+    }
+
+    private static String joinAlias(String association) {
+        return ROOT + "_" + association;
+    }
+
+    private static String unknownField(String field, Selectable selectable) {
+        return "Unknown field '" + field + "' for " + selectable.entityName + ". Use one of its columns, or <association>.<column> for "
+            + String.join(", ", selectable.associations.keySet());
+    }
+
+    // Built once per entity from the JPA metamodel
+    private Selectable describe(Class<?> entityClass) {
+        EntityType<?> entity = entityManager.getMetamodel().entity(entityClass);
+        Set<String> columns = basicColumns(entity, Collections.emptySet());
+        Map<String, Set<String>> associations = new TreeMap<>();
+        for (SingularAttribute<?, ?> attribute : entity.getSingularAttributes()) {
+            Attribute.PersistentAttributeType type = attribute.getPersistentAttributeType();
+            if ((type != Attribute.PersistentAttributeType.MANY_TO_ONE && type != Attribute.PersistentAttributeType.ONE_TO_ONE)
+                    || hiddenFromJson(attribute.getJavaMember())) {
+                continue;
+            }
+            ManagedType<?> target = entityManager.getMetamodel().managedType(attribute.getJavaType());
+            associations.put(attribute.getName(), basicColumns(target, ignoredProperties(attribute.getJavaMember())));
+        }
+        return new Selectable(entity.getName(), columns, associations);
+    }
+
+    private static Set<String> basicColumns(ManagedType<?> type, Set<String> ignored) {
+        Set<String> columns = new TreeSet<>();
+        for (SingularAttribute<?, ?> attribute : type.getSingularAttributes()) {
+            if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC
+                    && !ignored.contains(attribute.getName()) && !hiddenFromJson(attribute.getJavaMember())) {
+                columns.add(attribute.getName());
+            }
+        }
+        return columns;
+    }
+
+    private static boolean hiddenFromJson(Member member) {
+        if (!(member instanceof Field)) {
+            return false;
+        }
+        Field field = (Field) member;
+        JsonIgnore ignore = field.getAnnotation(JsonIgnore.class);
+        JsonProperty property = field.getAnnotation(JsonProperty.class);
+        return (ignore != null && ignore.value()) || (property != null && property.access() == JsonProperty.Access.WRITE_ONLY);
+    }
+
+    private static Set<String> ignoredProperties(Member member) {
+        JsonIgnoreProperties ignore = member instanceof Field ? ((Field) member).getAnnotation(JsonIgnoreProperties.class) : null;
+        return ignore != null ? new HashSet<>(Arrays.asList(ignore.value())) : Collections.emptySet();
+    }
+
+    private static class Selectable {
+        private final String entityName;
+        private final Set<String> columns;
+        private final Map<String, Set<String>> associations;
+
+        Selectable(String entityName, Set<String> columns, Map<String, Set<String>> associations) {
+            this.entityName = entityName;
+            this.columns = columns;
+            this.associations = associations;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.erp.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+// Primitive fixed-point arithmetic for the payroll hot path. Amounts are long cents, rates are long
+// millionths (0.062 -> 62_000) and hours are long ten-thousandths, so gross-to-net allocates nothing
+// until the results are written back to the BigDecimal columns of PayrollRecord.
+public final class FixedPointMoney {
+
+    public static final int MONEY_SCALE = 2;
+    public static final int RATE_SCALE = 6;
+    public static final int HOURS_SCALE = 4;
+
+    public static final long ONE_RATE = 1_000_000L;
+    public static final long ONE_HOUR = 10_000L;
+
+    private FixedPointMoney() {
+    }
+
+    public static long toCents(BigDecimal amount) {
+        return toUnits(amount, MONEY_SCALE);
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, MONEY_SCALE);
+    }
+
+    public static long toRate(BigDecimal rate) {
+        return toUnits(rate, RATE_SCALE);
+    }
+
+    public static long percentToRate(BigDecimal percent) {
+        return percent == null ? 0L : toUnits(percent.movePointLeft(2), RATE_SCALE);
+    }
+
+    public static BigDecimal fromRate(long rate) {
+        return BigDecimal.valueOf(rate, RATE_SCALE).stripTrailingZeros();
+    }
+
+    public static long toHours(BigDecimal hours) {
+        return toUnits(hours, HOURS_SCALE);
+    }
+
+    public static BigDecimal fromHours(long hours) {
+        BigDecimal value = BigDecimal.valueOf(hours, HOURS_SCALE);
+        return hours % 100 == 0 ? value.setScale(2) : value;
+    }
+
+    // cents x rate, rounded once to whole cents
+    public static long applyRate(long cents, long rate, RoundingMode mode) {
+        return multiplyDivide(cents, rate, ONE_RATE, mode);
+    }
+
+    // hours x cents-per-hour, rounded once to whole cents
+    public static long multiplyHours(long hours, long centsPerHour, RoundingMode mode) {
+        return multiplyDivide(hours, centsPerHour, ONE_HOUR, mode);
+    }
+
+    // hours x cents-per-hour x rate (e.g. an overtime multiplier), rounded once to whole cents
+    public static long multiplyHours(long hours, long centsPerHour, long rate, RoundingMode mode) {
+        try {
+            return divide(Math.multiplyExact(Math.multiplyExact(hours, centsPerHour), rate), ONE_HOUR * ONE_RATE, mode);
+        } catch (ArithmeticException overflow) {
+            BigInteger product = BigInteger.valueOf(hours).multiply(BigInteger.valueOf(centsPerHour)).multiply(BigInteger.valueOf(rate));
+            return divide(product, BigInteger.valueOf(ONE_HOUR * ONE_RATE), mode);
+        }
+    }
+
+    public static long multiplyDivide(long a, long b, long divisor, RoundingMode mode) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return divide(low, divisor, mode);
+        }
+        return divide(BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)), BigInteger.valueOf(divisor), mode);
+    }
+
+    public static long divide(long dividend, long divisor, RoundingMode mode) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        int signum = (dividend < 0) == (divisor < 0) ? 1 : -1;
+        long absRemainder = Math.abs(remainder);
+        int comparedToHalf = Long.compare(absRemainder, Math.abs(divisor) - absRemainder);
+        return roundsAway(mode, signum, comparedToHalf, (quotient & 1) != 0) ? quotient + signum : quotient;
+    }
+
+    private static long divide(BigInteger dividend, BigInteger divisor, RoundingMode mode) {
+        return new BigDecimal(dividend).divide(new BigDecimal(divisor), 0, mode).longValueExact();
+    }
+
+    private static boolean roundsAway(RoundingMode mode, int signum, int comparedToHalf, boolean oddQuotient) {
+        return switch (mode) {
+            case UP -> true;
+            case DOWN -> false;
+            case CEILING -> signum > 0;
+            case FLOOR -> signum < 0;
+            case HALF_UP -> comparedToHalf >= 0;
+            case HALF_DOWN -> comparedToHalf > 0;
+            case HALF_EVEN -> comparedToHalf > 0 || (comparedToHalf == 0 && oddQuotient);
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+        };
+    }
+
+    private static long toUnits(BigDecimal value, int scale) {
+        if (value == null) {
+            return 0L;
+        }
+        return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
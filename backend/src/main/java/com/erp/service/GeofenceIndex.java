@@ -0,0 +1,200 @@
+package com.erp.service;
+
+import com.erp.model.Branch;
+import com.erp.model.Location;
+import com.erp.repository.BranchRepository;
+import com.erp.repository.EmployeeRepository;
+import com.erp.repository.EmployeeRepository.EmployeeSites;
+import com.erp.repository.LocationRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+// In-memory spatial grid of the circular geofences on locations and branches. Each fence is filed under every
+// grid cell its bounding box touches, so a point is checked against the few fences of its own cell instead of
+// every site. Snapshots are immutable and swapped whole; location and branch saves trigger a rebuild through
+// GeofenceIndexListener.
+@Service
+public class GeofenceIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeofenceIndex.class);
+
+    public static final String INSIDE = "INSIDE";
+    public static final String OUTSIDE = "OUTSIDE";
+    public static final String NO_FENCE = "NO_FENCE";
+    public static final String NO_LOCATION = "NO_LOCATION";
+
+    private static final int DEFAULT_RADIUS_METERS = 100;
+    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
+    private static final double METERS_PER_DEGREE_LATITUDE = 111_320.0;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private BranchRepository branchRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Value("${attendance.geofence.cell-size-meters:1000}")
+    private double cellSizeMeters;
+
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.warn("Could not build geofence index at startup, will retry on first use: {}", e.getMessage());
+        }
+    }
+
+    // Checks a clock-in position against the fences of the employee's location and branch. An employee with
+    // neither fenced is not restricted (NO_FENCE).
+    public GeofenceCheck check(Long employeeId, Double latitude, Double longitude) {
+        Snapshot current = current();
+        Optional<EmployeeSites> sites = employeeRepository.findSites(employeeId);
+        Fence locationFence = sites.map(s -> current.byKey.get(Fence.key(Fence.LOCATION, s.getLocationId()))).orElse(null);
+        Fence branchFence = sites.map(s -> current.byKey.get(Fence.key(Fence.BRANCH, s.getBranchId()))).orElse(null);
+        if (locationFence == null && branchFence == null) {
+            return new GeofenceCheck(NO_FENCE, null);
+        }
+        if (latitude == null || longitude == null) {
+            return new GeofenceCheck(NO_LOCATION, null);
+        }
+        for (Fence fence : current.fencesContaining(latitude, longitude)) {
+            if (fence == locationFence || fence == branchFence) {
+                return new GeofenceCheck(INSIDE, fence.name);
+            }
+        }
+        return new GeofenceCheck(OUTSIDE, null);
+    }
+
+    public synchronized void rebuild() {
+        List<Fence> fences = new ArrayList<>();
+        for (Location location : locationRepository.findByActiveTrueAndGeofenceEnabledTrue()) {
+            if (location.getLatitude() != null && location.getLongitude() != null) {
+                fences.add(new Fence(Fence.LOCATION, location.getId(), location.getName(), location.getLatitude(),
+                    location.getLongitude(), location.getGeofenceRadiusMeters()));
+            }
+        }
+        for (Branch branch : branchRepository.findByActiveTrueAndGeofenceEnabledTrue()) {
+            if (branch.getLatitude() != null && branch.getLongitude() != null) {
+                fences.add(new Fence(Fence.BRANCH, branch.getId(), branch.getName(), branch.getLatitude(),
+                    branch.getLongitude(), branch.getGeofenceRadiusMeters()));
+            }
+        }
+        Snapshot built = new Snapshot(fences, Math.max(cellSizeMeters, 50.0) / METERS_PER_DEGREE_LATITUDE);
+        snapshot = built;
+        logger.info("Built geofence index: {} fence(s) in {} grid cell(s)", fences.size(), built.cells.size());
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            rebuild();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    // Square cells of cellDegrees in latitude and longitude; the fences filed under each
+    private static class Snapshot {
+        private final double cellDegrees;
+        private final Map<Long, Fence[]> cells = new HashMap<>();
+        private final Map<String, Fence> byKey = new HashMap<>();
+
+        Snapshot(List<Fence> fences, double cellDegrees) {
+            this.cellDegrees = cellDegrees;
+            Map<Long, List<Fence>> building = new HashMap<>();
+            for (Fence fence : fences) {
+                byKey.put(Fence.key(fence.ownerType, fence.ownerId), fence);
+                double latSpan = fence.radiusMeters / METERS_PER_DEGREE_LATITUDE;
+                double lonSpan = latSpan / Math.max(Math.cos(Math.toRadians(fence.latitude)), 0.01);
+                for (long row = cell(fence.latitude - latSpan); row <= cell(fence.latitude + latSpan); row++) {
+                    for (long column = cell(fence.longitude - lonSpan); column <= cell(fence.longitude + lonSpan); column++) {
+                        building.computeIfAbsent(cellKey(row, column), k -> new ArrayList<>()).add(fence);
+                    }
+                }
+            }
+            building.forEach((key, list) -> cells.put(key, list.toArray(new Fence[0])));
+        }
+
+        List<Fence> fencesContaining(double latitude, double longitude) {
+            Fence[] candidates = cells.get(cellKey(cell(latitude), cell(longitude)));
+            if (candidates == null) {
+                return Collections.emptyList();
+            }
+            List<Fence> containing = new ArrayList<>(1);
+            for (Fence fence : candidates) {
+                if (distanceMeters(latitude, longitude, fence.latitude, fence.longitude) <= fence.radiusMeters) {
+                    containing.add(fence);
+                }
+            }
+            return containing;
+        }
+
+        private long cell(double degrees) {
+            return (long) Math.floor(degrees / cellDegrees);
+        }
+
+        private static long cellKey(long row, long column) {
+            return (row << 32) ^ (column & 0xffffffffL);
+        }
+    }
+
+    private static class Fence {
+        private static final String LOCATION = "LOCATION";
+        private static final String BRANCH = "BRANCH";
+
+        private final String ownerType;
+        private final Long ownerId;
+        private final String name;
+        private final double latitude;
+        private final double longitude;
+        private final int radiusMeters;
+
+        Fence(String ownerType, Long ownerId, String name, double latitude, double longitude, Integer radiusMeters) {
+            this.ownerType = ownerType;
+            this.ownerId = ownerId;
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radiusMeters = radiusMeters != null && radiusMeters > 0 ? radiusMeters : DEFAULT_RADIUS_METERS;
+        }
+
+        static String key(String ownerType, Long ownerId) {
+            return ownerType + ":" + ownerId;
+        }
+    }
+
+    public static class GeofenceCheck {
+        private final String status;
+        private final String fenceName;
+
+        GeofenceCheck(String status, String fenceName) {
+            this.status = status;
+            this.fenceName = fenceName;
+        }
+
+        public String getStatus() { return status; }
+        public String getFenceName() { return fenceName; }
+    }
+}
@@ -0,0 +1,36 @@
+package com.erp.service;
+
+import com.erp.model.Branch;
+import com.erp.model.Location;
+import com.erp.model.listener.EntityChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Rebuilds GeofenceIndex when a location or branch is saved or deleted; inside a transaction the rebuild runs
+// once it commits. There are few sites and they change rarely, so a full rebuild is cheaper than patching.
+@Component
+public class GeofenceIndexListener {
+
+    @Autowired
+    private GeofenceIndex geofenceIndex;
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!(event.getEntity() instanceof Location) && !(event.getEntity() instanceof Branch)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    geofenceIndex.rebuild();
+                }
+            });
+        } else {
+            geofenceIndex.rebuild();
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package com.erp.service;
+
+import com.erp.model.LeaveAccrualChunk;
+import com.erp.model.LeaveAccrualRun;
+import com.erp.model.LeaveType;
+import com.erp.repository.EmployeeRepository;
+import com.erp.repository.LeaveAccrualChunkRepository;
+import com.erp.repository.LeaveAccrualRunRepository;
+import com.erp.repository.LeaveBalanceRepository;
+import com.erp.repository.LeaveBalanceRepository.AccrualRow;
+import com.erp.repository.LeaveTypeRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Year-end rollover and monthly accrual of leave balances for all active employees. A run is split into chunks
+// of employee ids that are processed in parallel on leaveAccrualExecutor. Each chunk reads its balances with one
+// query, writes balances and ledger rows with JDBC batches and is marked COMPLETED in the same transaction, so a
+// run stopped by a failure or a restart resumes from the chunks that did not commit.
+@Service
+public class LeaveAccrualService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaveAccrualService.class);
+
+    public static final String YEAR_END = "YEAR_END";
+    public static final String MONTHLY = "MONTHLY";
+
+    private static final String OPEN_BALANCE_SQL =
+        "INSERT INTO leave_balances (employee_id, leave_type_id, year, opening_balance, credited, used, pending, lapsed, " +
+        "carry_forward, encashed, created_at, updated_at) VALUES (?, ?, ?, 0, ?, 0, 0, 0, 0, 0, ?, ?) " +
+        "ON CONFLICT (employee_id, leave_type_id, year) DO NOTHING";
+
+    private static final int[] OPEN_BALANCE_TYPES = {
+        Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.NUMERIC, Types.TIMESTAMP, Types.TIMESTAMP
+    };
+
+    // The rolled_over_at guard makes closing a balance a one-time step even across runs
+    private static final String CLOSE_BALANCE_SQL =
+        "UPDATE leave_balances SET lapsed = COALESCE(lapsed, 0) + ?, rolled_over_at = ?, updated_at = ? " +
+        "WHERE id = ? AND rolled_over_at IS NULL";
+
+    private static final int[] CLOSE_BALANCE_TYPES = {
+        Types.NUMERIC, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT
+    };
+
+    private static final String CARRY_FORWARD_SQL =
+        "UPDATE leave_balances SET carry_forward = COALESCE(carry_forward, 0) + ?, updated_at = ? " +
+        "WHERE employee_id = ? AND leave_type_id = ? AND year = ?";
+
+    private static final int[] CARRY_FORWARD_TYPES = {
+        Types.NUMERIC, Types.TIMESTAMP, Types.BIGINT, Types.BIGINT, Types.INTEGER
+    };
+
+    // Credits a month at most once: last_accrual_date moves to the start of the month credited
+    private static final String ACCRUE_SQL =
+        "UPDATE leave_balances SET credited = COALESCE(credited, 0) + ?, last_accrual_date = ?, updated_at = ? " +
+        "WHERE employee_id = ? AND leave_type_id = ? AND year = ? AND (last_accrual_date IS NULL OR last_accrual_date < ?)";
+
+    private static final int[] ACCRUE_TYPES = {
+        Types.NUMERIC, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.TIMESTAMP
+    };
+
+    private static final String INSERT_TRANSACTION_SQL =
+        "INSERT INTO leave_transactions (employee_id, leave_type_id, year, transaction_type, opening_delta, credited_delta, " +
+        "used_delta, pending_delta, lapsed_delta, carry_forward_delta, encashed_delta, remarks, created_at) " +
+        "VALUES (?, ?, ?, ?, 0, ?, 0, 0, ?, ?, 0, ?, ?)";
+
+    private static final int[] INSERT_TRANSACTION_TYPES = {
+        Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.VARCHAR, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC,
+        Types.VARCHAR, Types.TIMESTAMP
+    };
+
+    @Autowired
+    private LeaveAccrualRunRepository leaveAccrualRunRepository;
+
+    @Autowired
+    private LeaveAccrualChunkRepository leaveAccrualChunkRepository;
+
+    @Autowired
+    private LeaveBalanceRepository leaveBalanceRepository;
+
+    @Autowired
+    private LeaveTypeRepository leaveTypeRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("leaveAccrualExecutor")
+    private TaskExecutor leaveAccrualExecutor;
+
+    @Value("${leave.accrual.chunk-size:500}")
+    private int chunkSize;
+
+    // Runs with chunks in flight in this instance, so a resume cannot start a second pass over the same chunks
+    private final Set<Long> executing = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRuns() {
+        for (LeaveAccrualRun run : leaveAccrualRunRepository.findByStatus("RUNNING")) {
+            try {
+                logger.info("Resuming leave accrual run {} ({} {}/{}) after restart", run.getId(), run.getRunType(),
+                    run.getYear(), run.getMonth());
+                resume(run.getId());
+            } catch (Exception e) {
+                logger.error("Could not resume leave accrual run {}: {}", run.getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    @Scheduled(cron = "${leave.accrual.year-end-cron:0 0 1 1 1 ?}")
+    public void startScheduledYearEnd() {
+        try {
+            startYearEnd(LocalDate.now().getYear(), null);
+        } catch (Exception e) {
+            logger.error("Scheduled year-end leave rollover failed to start: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${leave.accrual.monthly-cron:0 0 2 1 * ?}")
+    public void startScheduledMonthly() {
+        LocalDate today = LocalDate.now();
+        try {
+            startMonthly(today.getYear(), today.getMonthValue(), null);
+        } catch (Exception e) {
+            logger.error("Scheduled monthly leave accrual failed to start: {}", e.getMessage(), e);
+        }
+    }
+
+    // Rolls the previous year's balances into the given year: what the type lets carry forward moves to the new
+    // balance, the rest lapses, and the new balance is credited with the annual entitlement unless the type
+    // accrues monthly
+    public LeaveAccrualRun startYearEnd(int year, Long startedBy) {
+        return start(YEAR_END, year, 0, startedBy);
+    }
+
+    // Credits one month of every monthly-accruing type
+    public LeaveAccrualRun startMonthly(int year, int month, Long startedBy) {
+        if (month < 1 || month > 12) {
+            throw new IllegalArgumentException("Month must be between 1 and 12");
+        }
+        return start(MONTHLY, year, month, startedBy);
+    }
+
+    // Re-runs the chunks of a run that have not completed; a completed run is returned unchanged
+    public synchronized LeaveAccrualRun resume(Long runId) {
+        LeaveAccrualRun run = leaveAccrualRunRepository.findById(runId)
+            .orElseThrow(() -> new IllegalArgumentException("Leave accrual run not found: " + runId));
+        if ("COMPLETED".equals(run.getStatus()) || executing.contains(runId)) {
+            return run;
+        }
+        run.setStatus("RUNNING");
+        run.setErrorMessage(null);
+        run.setCompletedAt(null);
+        LeaveAccrualRun resumed = leaveAccrualRunRepository.save(run);
+        execute(resumed);
+        return resumed;
+    }
+
+    public Optional<LeaveAccrualRun> getRun(Long runId) {
+        return leaveAccrualRunRepository.findById(runId);
+    }
+
+    public List<LeaveAccrualRun> getRecentRuns() {
+        return leaveAccrualRunRepository.findTop50ByOrderByIdDesc();
+    }
+
+    public List<LeaveAccrualChunk> getChunks(Long runId) {
+        return leaveAccrualChunkRepository.findByAccrualRunIdOrderByChunkIndexAsc(runId);
+    }
+
+    // Starting a period that already has a run resumes that run instead of planning a second one
+    private synchronized LeaveAccrualRun start(String runType, int year, int month, Long startedBy) {
+        Optional<LeaveAccrualRun> existing = leaveAccrualRunRepository.findByRunTypeAndYearAndMonth(runType, year, month);
+        if (existing.isPresent()) {
+            return resume(existing.get().getId());
+        }
+        LeaveAccrualRun run = newTransaction().execute(status -> plan(runType, year, month, startedBy));
+        logger.info("Leave accrual run {} ({} {}/{}) split into {} chunk(s) for {} employee(s)", run.getId(), runType,
+            year, month, run.getTotalChunks(), run.getEmployeeCount());
+        execute(run);
+        return run;
+    }
+
+    private LeaveAccrualRun plan(String runType, int year, int month, Long startedBy) {
+        List<Long> employeeIds = employeeRepository.findActiveIds();
+        LeaveAccrualRun run = new LeaveAccrualRun();
+        run.setRunType(runType);
+        run.setYear(year);
+        run.setMonth(month);
+        run.setStatus("RUNNING");
+        run.setEmployeeCount(employeeIds.size());
+        run.setCreatedBy(startedBy);
+        run.setStartedAt(LocalDateTime.now());
+        run = leaveAccrualRunRepository.save(run);
+
+        List<LeaveAccrualChunk> chunks = new ArrayList<>();
+        int size = Math.max(1, chunkSize);
+        for (int from = 0, index = 0; from < employeeIds.size(); from += size, index++) {
+            List<Long> slice = employeeIds.subList(from, Math.min(from + size, employeeIds.size()));
+            LeaveAccrualChunk chunk = new LeaveAccrualChunk();
+            chunk.setAccrualRun(run);
+            chunk.setChunkIndex(index);
+            chunk.setEmployeeIds(slice.stream().map(String::valueOf).collect(Collectors.joining(",")));
+            chunk.setEmployeeCount(slice.size());
+            chunk.setStatus("PENDING");
+            chunks.add(chunk);
+        }
+        leaveAccrualChunkRepository.saveAll(chunks);
+        run.setTotalChunks(chunks.size());
+        return leaveAccrualRunRepository.save(run);
+    }
+
+    // Submits the unfinished chunks and returns without waiting; the last chunk to finish closes the run
+    private void execute(LeaveAccrualRun run) {
+        Long runId = run.getId();
+        if (!executing.add(runId)) {
+            return;
+        }
+        try {
+            RunScope scope = new RunScope(runId, run.getRunType(), run.getYear(), run.getMonth(), loadPolicies());
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (LeaveAccrualChunk chunk : leaveAccrualChunkRepository.findByAccrualRunIdAndStatusNotOrderByChunkIndexAsc(runId, "COMPLETED")) {
+                Long chunkId = chunk.getId();
+                futures.add(CompletableFuture.runAsync(() -> executeChunk(scope, chunkId), leaveAccrualExecutor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> finish(runId));
+        } catch (RuntimeException e) {
+            executing.remove(runId);
+            throw e;
+        }
+    }
+
+    private void executeChunk(RunScope scope, Long chunkId) {
+        try {
+            newTransaction().executeWithoutResult(status -> processChunk(scope, chunkId));
+        } catch (Exception e) {
+            logger.error("Leave accrual chunk {} of run {} failed: {}", chunkId, scope.runId, e.getMessage(), e);
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            newTransaction().executeWithoutResult(status ->
+                leaveAccrualChunkRepository.findById(chunkId).ifPresent(chunk -> {
+                    chunk.setStatus("FAILED");
+                    chunk.setAttempts(chunk.getAttempts() + 1);
+                    chunk.setErrorMessage(error.length() > 1000 ? error.substring(0, 1000) : error);
+                    chunk.setCompletedAt(LocalDateTime.now());
+                    leaveAccrualChunkRepository.save(chunk);
+                }));
+        }
+    }
+
+    private void processChunk(RunScope scope, Long chunkId) {
+        LeaveAccrualChunk chunk = leaveAccrualChunkRepository.findById(chunkId)
+            .orElseThrow(() -> new IllegalStateException("Leave accrual chunk not found: " + chunkId));
+        if ("COMPLETED".equals(chunk.getStatus())) {
+            return;
+        }
+        List<Long> employeeIds = parseIds(chunk.getEmployeeIds());
+        int written = YEAR_END.equals(scope.runType)
+            ? rollover(employeeIds, scope.year, scope.policies)
+            : accrue(employeeIds, scope.year, scope.month, scope.policies);
+
+        LocalDateTime now = LocalDateTime.now();
+        chunk.setStatus("COMPLETED");
+        chunk.setAttempts(chunk.getAttempts() + 1);
+        chunk.setBalancesWritten(written);
+        chunk.setErrorMessage(null);
+        chunk.setCompletedAt(now);
+        leaveAccrualChunkRepository.save(chunk);
+        // Last statement of the chunk, so the run row stays locked only until this chunk commits
+        leaveAccrualRunRepository.recordChunk(scope.runId, employeeIds.size(), written, now);
+    }
+
+    // Returns the number of balance rows inserted or updated
+    private int rollover(List<Long> employeeIds, int year, Map<Long, Policy> policies) {
+        LocalDateTime now = LocalDateTime.now();
+        String remarks = "Year-end rollover into " + year;
+        Set<List<Long>> touched = new HashSet<>();
+        List<Object[]> transactions = new ArrayList<>();
+
+        // New year's balances that do not exist yet, credited with the entitlement
+        Set<List<Long>> existing = new HashSet<>();
+        for (AccrualRow row : leaveBalanceRepository.findAccrualRows(employeeIds, year)) {
+            existing.add(List.of(row.getEmployeeId(), row.getLeaveTypeId()));
+        }
+        List<Object[]> opens = new ArrayList<>();
+        for (Long employeeId : employeeIds) {
+            for (Policy policy : policies.values()) {
+                if (!existing.contains(List.of(employeeId, policy.leaveTypeId))) {
+                    opens.add(new Object[] { employeeId, policy.leaveTypeId, year, policy.yearlyCredit(), now, now });
+                }
+            }
+        }
+        int[] opened = batchUpdate(OPEN_BALANCE_SQL, opens, OPEN_BALANCE_TYPES);
+        for (int i = 0; i < opens.size(); i++) {
+            if (applied(opened[i])) {
+                Object[] open = opens.get(i);
+                touched.add(List.of((Long) open[0], (Long) open[1], (long) year));
+                transactions.add(transaction((Long) open[0], (Long) open[1], year, LeaveLedgerService.OPENING,
+                    (BigDecimal) open[3], BigDecimal.ZERO, BigDecimal.ZERO, remarks, now));
+            }
+        }
+
+        // Last year's balances not yet rolled over: whatever cannot be carried forward lapses
+        List<AccrualRow> closing = new ArrayList<>();
+        List<BigDecimal> carries = new ArrayList<>();
+        List<Object[]> closes = new ArrayList<>();
+        for (AccrualRow row : leaveBalanceRepository.findAccrualRows(employeeIds, year - 1)) {
+            Policy policy = policies.get(row.getLeaveTypeId());
+            if (policy == null || row.getRolledOverAt() != null) {
+                continue;
+            }
+            BigDecimal remaining = zeroIfNull(row.getOpeningBalance()).add(zeroIfNull(row.getCredited()))
+                .add(zeroIfNull(row.getCarryForward())).subtract(zeroIfNull(row.getUsed()))
+                .subtract(zeroIfNull(row.getLapsed())).subtract(zeroIfNull(row.getEncashed())).max(BigDecimal.ZERO);
+            BigDecimal carry = policy.carryForward(remaining);
+            closing.add(row);
+            carries.add(carry);
+            closes.add(new Object[] { remaining.subtract(carry), now, now, row.getId() });
+        }
+        int[] closed = batchUpdate(CLOSE_BALANCE_SQL, closes, CLOSE_BALANCE_TYPES);
+        List<Object[]> carryUpdates = new ArrayList<>();
+        for (int i = 0; i < closing.size(); i++) {
+            if (!applied(closed[i])) {
+                continue;
+            }
+            AccrualRow row = closing.get(i);
+            BigDecimal lapse = (BigDecimal) closes.get(i)[0];
+            touched.add(List.of(row.getEmployeeId(), row.getLeaveTypeId(), (long) (year - 1)));
+            if (lapse.signum() > 0) {
+                transactions.add(transaction(row.getEmployeeId(), row.getLeaveTypeId(), year - 1, LeaveLedgerService.LAPSE,
+                    BigDecimal.ZERO, lapse, BigDecimal.ZERO, remarks, now));
+            }
+            if (carries.get(i).signum() > 0) {
+                carryUpdates.add(new Object[] { carries.get(i), now, row.getEmployeeId(), row.getLeaveTypeId(), year });
+            }
+        }
+        int[] carried = batchUpdate(CARRY_FORWARD_SQL, carryUpdates, CARRY_FORWARD_TYPES);
+        for (int i = 0; i < carryUpdates.size(); i++) {
+            if (applied(carried[i])) {
+                Object[] carry = carryUpdates.get(i);
+                touched.add(List.of((Long) carry[2], (Long) carry[3], (long) year));
+                transactions.add(transaction((Long) carry[2], (Long) carry[3], year, LeaveLedgerService.CARRY_FORWARD,
+                    BigDecimal.ZERO, BigDecimal.ZERO, (BigDecimal) carry[0], remarks, now));
+            }
+        }
+
+        batchUpdate(INSERT_TRANSACTION_SQL, transactions, INSERT_TRANSACTION_TYPES);
+        return touched.size();
+    }
+
+    // Returns the number of balances credited
+    private int accrue(List<Long> employeeIds, int year, int month, Map<Long, Policy> policies) {
+        List<Policy> monthly = new ArrayList<>();
+        for (Policy policy : policies.values()) {
+            if (policy.monthly && policy.monthlyCredit.signum() > 0) {
+                monthly.add(policy);
+            }
+        }
+        if (monthly.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime monthStart = LocalDate.of(year, month, 1).atStartOfDay();
+        String remarks = "Monthly accrual for " + year + "-" + String.format("%02d", month);
+
+        Set<List<Long>> existing = new HashSet<>();
+        for (AccrualRow row : leaveBalanceRepository.findAccrualRows(employeeIds, year)) {
+            existing.add(List.of(row.getEmployeeId(), row.getLeaveTypeId()));
+        }
+        List<Object[]> opens = new ArrayList<>();
+        List<Object[]> accruals = new ArrayList<>();
+        for (Long employeeId : employeeIds) {
+            for (Policy policy : monthly) {
+                if (!existing.contains(List.of(employeeId, policy.leaveTypeId))) {
+                    opens.add(new Object[] { employeeId, policy.leaveTypeId, year, BigDecimal.ZERO, now, now });
+                }
+                accruals.add(new Object[] { policy.monthlyCredit, monthStart, now, employeeId, policy.leaveTypeId, year, monthStart });
+            }
+        }
+        batchUpdate(OPEN_BALANCE_SQL, opens, OPEN_BALANCE_TYPES);
+        int[] accrued = batchUpdate(ACCRUE_SQL, accruals, ACCRUE_TYPES);
+
+        List<Object[]> transactions = new ArrayList<>();
+        for (int i = 0; i < accruals.size(); i++) {
+            if (applied(accrued[i])) {
+                Object[] accrual = accruals.get(i);
+                transactions.add(transaction((Long) accrual[3], (Long) accrual[4], year, LeaveLedgerService.ACCRUAL,
+                    (BigDecimal) accrual[0], BigDecimal.ZERO, BigDecimal.ZERO, remarks, now));
+            }
+        }
+        batchUpdate(INSERT_TRANSACTION_SQL, transactions, INSERT_TRANSACTION_TYPES);
+        return transactions.size();
+    }
+
+    private void finish(Long runId) {
+        try {
+            newTransaction().executeWithoutResult(status -> leaveAccrualRunRepository.findById(runId).ifPresent(run -> {
+                long failed = leaveAccrualChunkRepository.countByAccrualRunIdAndStatus(runId, "FAILED");
+                run.setFailedChunks((int) failed);
+                run.setStatus(failed > 0 ? "COMPLETED_WITH_ERRORS" : "COMPLETED");
+                run.setErrorMessage(failed > 0 ? failed + " chunk(s) failed; resume the run to retry them" : null);
+                run.setCompletedAt(LocalDateTime.now());
+                leaveAccrualRunRepository.save(run);
+                logger.info("Leave accrual run {} finished: {} of {} chunk(s) completed, {} balance(s) written",
+                    runId, run.getCompletedChunks(), run.getTotalChunks(), run.getBalancesWritten());
+            }));
+        } catch (Exception e) {
+            logger.error("Could not close leave accrual run {}: {}", runId, e.getMessage(), e);
+        } finally {
+            executing.remove(runId);
+        }
+    }
+
+    // Policies of the active leave types, read once so every chunk of a run applies the same rules
+    private Map<Long, Policy> loadPolicies() {
+        Map<Long, Policy> policies = new LinkedHashMap<>();
+        for (LeaveType leaveType : leaveTypeRepository.findByIsActiveTrue()) {
+            policies.put(leaveType.getId(), new Policy(leaveType));
+        }
+        return policies;
+    }
+
+    private int[] batchUpdate(String sql, List<Object[]> rows, int[] types) {
+        return rows.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(sql, rows, types);
+    }
+
+    // The driver may report a successful statement without a row count
+    private static boolean applied(int count) {
+        return count > 0 || count == Statement.SUCCESS_NO_INFO;
+    }
+
+    private static Object[] transaction(Long employeeId, Long leaveTypeId, int year, String type, BigDecimal credited,
+                                        BigDecimal lapsed, BigDecimal carryForward, String remarks, LocalDateTime now) {
+        return new Object[] { employeeId, leaveTypeId, year, type, credited, lapsed, carryForward, remarks, now };
+    }
+
+    private static List<Long> parseIds(String ids) {
+        List<Long> parsed = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            if (!id.isBlank()) {
+                parsed.add(Long.valueOf(id.trim()));
+            }
+        }
+        return parsed;
+    }
+
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private static class RunScope {
+        private final Long runId;
+        private final String runType;
+        private final int year;
+        private final int month;
+        private final Map<Long, Policy> policies;
+
+        RunScope(Long runId, String runType, int year, int month, Map<Long, Policy> policies) {
+            this.runId = runId;
+            this.runType = runType;
+            this.year = year;
+            this.month = month;
+            this.policies = policies;
+        }
+    }
+
+    private static class Policy {
+        private final Long leaveTypeId;
+        private final boolean monthly;
+        private final BigDecimal entitlement;
+        private final BigDecimal monthlyCredit;
+        private final boolean carryForwardAllowed;
+        private final BigDecimal maxCarryForward;
+
+        Policy(LeaveType leaveType) {
+            this.leaveTypeId = leaveType.getId();
+            this.monthly = "MONTHLY".equals(leaveType.getAccrualType());
+            this.entitlement = zeroIfNull(leaveType.getAnnualEntitlement());
+            this.monthlyCredit = leaveType.getAccrualRate() != null && leaveType.getAccrualRate().signum() > 0
+                ? leaveType.getAccrualRate()
+                : entitlement.divide(BigDecimal.valueOf(12), 2, RoundingMode.HALF_UP);
+            this.carryForwardAllowed = Boolean.TRUE.equals(leaveType.getCarryForwardAllowed());
+            this.maxCarryForward = leaveType.getMaxCarryForward();
+        }
+
+        // Monthly types start the year empty and are credited month by month
+        BigDecimal yearlyCredit() {
+            return monthly ? BigDecimal.ZERO : entitlement;
+        }
+
+        BigDecimal carryForward(BigDecimal remaining) {
+            if (!carryForwardAllowed) {
+                return BigDecimal.ZERO;
+            }
+            return maxCarryForward != null && maxCarryForward.signum() > 0 ? remaining.min(maxCarryForward) : remaining;
+        }
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
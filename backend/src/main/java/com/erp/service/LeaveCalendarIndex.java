@@ -0,0 +1,352 @@
+package com.erp.service;
+
+import com.erp.model.Employee;
+import com.erp.model.LeaveRequest;
+import com.erp.repository.LeaveRequestRepository;
+import com.erp.repository.LeaveRequestRepository.CalendarRow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// In-memory interval index of pending and approved leave, partitioned by department. Each partition is a
+// balanced tree over its spans sorted by start date, augmented with the latest end date below every node, so
+// "who is out between these dates" costs O(log n + k). Partitions are immutable and swapped whole on change;
+// leave request and employee saves are applied by LeaveCalendarIndexListener.
+@Service
+public class LeaveCalendarIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaveCalendarIndex.class);
+
+    public static final List<String> ACTIVE_STATUSES = List.of("PENDING", "PENDING_MANAGER", "PENDING_HR", "APPROVED");
+
+    private static final Long NO_DEPARTMENT = 0L;
+
+    @Autowired
+    private LeaveRequestRepository leaveRequestRepository;
+
+    private volatile Map<Long, Partition> partitions;
+
+    // Writer-side bookkeeping, only touched while holding the monitor
+    private final Map<Long, LeaveSpan> byRequest = new HashMap<>();
+    private final Map<Long, Set<Long>> requestsByEmployee = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.warn("Could not build leave calendar index at startup, will retry on first use: {}", e.getMessage());
+        }
+    }
+
+    // Pending and approved leave of the department overlapping the range, in start date order
+    public List<LeaveSpan> outOn(Long departmentId, LocalDate from, LocalDate to) {
+        Partition partition = current().get(departmentId != null ? departmentId : NO_DEPARTMENT);
+        List<LeaveSpan> spans = new ArrayList<>();
+        if (partition != null) {
+            partition.collect(from.toEpochDay(), to.toEpochDay(), spans);
+        }
+        return spans;
+    }
+
+    // The employee's own pending or approved leave that a new request for the range would clash with. Hourly
+    // leave never clashes, and morning and afternoon half days on the same day can both be taken.
+    public List<LeaveSpan> conflicts(Long employeeId, Long departmentId, LocalDate from, LocalDate to,
+                                     String dayType, boolean hourly) {
+        List<LeaveSpan> conflicts = new ArrayList<>();
+        if (hourly) {
+            return conflicts;
+        }
+        for (LeaveSpan span : outOn(departmentId, from, to)) {
+            if (!span.employeeId.equals(employeeId) || span.hourly) {
+                continue;
+            }
+            boolean halfDays = isHalfDay(dayType) && isHalfDay(span.dayType);
+            if (halfDays && !dayType.equals(span.dayType)) {
+                continue;
+            }
+            conflicts.add(span);
+        }
+        return conflicts;
+    }
+
+    public synchronized void rebuild() {
+        byRequest.clear();
+        requestsByEmployee.clear();
+        Map<Long, List<LeaveSpan>> building = new HashMap<>();
+        for (CalendarRow row : leaveRequestRepository.findCalendarRows(ACTIVE_STATUSES)) {
+            LeaveSpan span = LeaveSpan.of(row);
+            track(span);
+            building.computeIfAbsent(span.departmentKey(), k -> new ArrayList<>()).add(span);
+        }
+        Map<Long, Partition> built = new HashMap<>();
+        building.forEach((departmentId, spans) -> built.put(departmentId, new Partition(spans)));
+        partitions = built;
+        logger.info("Built leave calendar index: {} leave span(s) in {} department(s)", byRequest.size(), built.size());
+    }
+
+    // Applies a saved request; one that is no longer pending or approved leaves the index
+    public synchronized void update(Long requestId, LeaveSpan span) {
+        if (partitions == null || requestId == null) {
+            return;
+        }
+        LeaveSpan previous = untrack(requestId);
+        if (span != null) {
+            track(span);
+        }
+        replace(previous != null ? List.of(previous) : List.of(), span != null ? List.of(span) : List.of());
+    }
+
+    public synchronized void remove(Long requestId) {
+        update(requestId, null);
+    }
+
+    // Re-reads the requests from the database, for changes made by bulk UPDATEs that bypass entity listeners
+    public synchronized void reload(Collection<Long> requestIds) {
+        if (partitions == null || requestIds.isEmpty()) {
+            return;
+        }
+        List<LeaveSpan> removed = new ArrayList<>();
+        for (Long requestId : requestIds) {
+            LeaveSpan previous = untrack(requestId);
+            if (previous != null) {
+                removed.add(previous);
+            }
+        }
+        List<LeaveSpan> added = new ArrayList<>();
+        for (CalendarRow row : leaveRequestRepository.findCalendarRows(requestIds, ACTIVE_STATUSES)) {
+            LeaveSpan span = LeaveSpan.of(row);
+            track(span);
+            added.add(span);
+        }
+        replace(removed, added);
+    }
+
+    // Moves the employee's leave to its current department and name; a no-op when neither changed
+    public synchronized void employeeChanged(Long employeeId, Long departmentId, String employeeName) {
+        Set<Long> requestIds = requestsByEmployee.get(employeeId);
+        if (partitions == null || requestIds == null || requestIds.isEmpty()) {
+            return;
+        }
+        LeaveSpan sample = byRequest.get(requestIds.iterator().next());
+        if (Objects.equals(sample.departmentId, departmentId) && Objects.equals(sample.employeeName, employeeName)) {
+            return;
+        }
+        List<LeaveSpan> removed = new ArrayList<>();
+        List<LeaveSpan> added = new ArrayList<>();
+        for (Long requestId : new ArrayList<>(requestIds)) {
+            LeaveSpan previous = untrack(requestId);
+            LeaveSpan moved = previous.withEmployee(departmentId, employeeName);
+            track(moved);
+            removed.add(previous);
+            added.add(moved);
+        }
+        replace(removed, added);
+    }
+
+    public synchronized void removeEmployee(Long employeeId) {
+        Set<Long> requestIds = requestsByEmployee.get(employeeId);
+        if (partitions == null || requestIds == null) {
+            return;
+        }
+        List<LeaveSpan> removed = new ArrayList<>();
+        for (Long requestId : new ArrayList<>(requestIds)) {
+            removed.add(untrack(requestId));
+        }
+        replace(removed, List.of());
+    }
+
+    private Map<Long, Partition> current() {
+        Map<Long, Partition> current = partitions;
+        if (current == null) {
+            rebuild();
+            current = partitions;
+        }
+        return current;
+    }
+
+    // Rebuilds only the partitions that lost or gained spans
+    private void replace(List<LeaveSpan> removed, List<LeaveSpan> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+        Set<Long> removedIds = new HashSet<>();
+        Set<Long> touched = new HashSet<>();
+        for (LeaveSpan span : removed) {
+            removedIds.add(span.requestId);
+            touched.add(span.departmentKey());
+        }
+        for (LeaveSpan span : added) {
+            touched.add(span.departmentKey());
+        }
+        Map<Long, Partition> next = new HashMap<>(partitions);
+        for (Long departmentId : touched) {
+            List<LeaveSpan> spans = new ArrayList<>();
+            Partition old = next.get(departmentId);
+            if (old != null) {
+                for (LeaveSpan span : old.spans) {
+                    if (!removedIds.contains(span.requestId)) {
+                        spans.add(span);
+                    }
+                }
+            }
+            for (LeaveSpan span : added) {
+                if (span.departmentKey().equals(departmentId)) {
+                    spans.add(span);
+                }
+            }
+            if (spans.isEmpty()) {
+                next.remove(departmentId);
+            } else {
+                next.put(departmentId, new Partition(spans));
+            }
+        }
+        partitions = next;
+    }
+
+    private void track(LeaveSpan span) {
+        byRequest.put(span.requestId, span);
+        requestsByEmployee.computeIfAbsent(span.employeeId, id -> new HashSet<>()).add(span.requestId);
+    }
+
+    private LeaveSpan untrack(Long requestId) {
+        LeaveSpan previous = byRequest.remove(requestId);
+        if (previous != null) {
+            Set<Long> requestIds = requestsByEmployee.get(previous.employeeId);
+            if (requestIds != null && requestIds.remove(requestId) && requestIds.isEmpty()) {
+                requestsByEmployee.remove(previous.employeeId);
+            }
+        }
+        return previous;
+    }
+
+    private static boolean isHalfDay(String dayType) {
+        return "HALF_DAY_AM".equals(dayType) || "HALF_DAY_PM".equals(dayType);
+    }
+
+    static String employeeName(String firstName, String lastName) {
+        return ((firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "")).trim();
+    }
+
+    // Spans sorted by start date, read as an implicit balanced tree: the root of [lo, hi] is its midpoint and
+    // maxEnd[mid] is the latest end date anywhere in [lo, hi]
+    private static class Partition {
+        private final LeaveSpan[] spans;
+        private final long[] maxEnd;
+
+        Partition(List<LeaveSpan> unsorted) {
+            spans = unsorted.toArray(new LeaveSpan[0]);
+            Arrays.sort(spans, Comparator.comparingLong((LeaveSpan s) -> s.startDay).thenComparingLong(s -> s.requestId));
+            maxEnd = new long[spans.length];
+            build(0, spans.length - 1);
+        }
+
+        private long build(int lo, int hi) {
+            if (lo > hi) {
+                return Long.MIN_VALUE;
+            }
+            int mid = (lo + hi) >>> 1;
+            maxEnd[mid] = Math.max(spans[mid].endDay, Math.max(build(lo, mid - 1), build(mid + 1, hi)));
+            return maxEnd[mid];
+        }
+
+        void collect(long from, long to, List<LeaveSpan> out) {
+            collect(from, to, 0, spans.length - 1, out);
+        }
+
+        private void collect(long from, long to, int lo, int hi, List<LeaveSpan> out) {
+            if (lo > hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            if (maxEnd[mid] < from) {
+                return;
+            }
+            collect(from, to, lo, mid - 1, out);
+            if (spans[mid].startDay <= to) {
+                if (spans[mid].endDay >= from) {
+                    out.add(spans[mid]);
+                }
+                collect(from, to, mid + 1, hi, out);
+            }
+        }
+    }
+
+    public static class LeaveSpan {
+        private final Long requestId;
+        private final Long employeeId;
+        private final Long departmentId;
+        private final String employeeName;
+        private final String leaveTypeName;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final String status;
+        private final String dayType;
+        private final boolean hourly;
+        private final long startDay;
+        private final long endDay;
+
+        LeaveSpan(Long requestId, Long employeeId, Long departmentId, String employeeName, String leaveTypeName,
+                  LocalDate startDate, LocalDate endDate, String status, String dayType, boolean hourly) {
+            this.requestId = requestId;
+            this.employeeId = employeeId;
+            this.departmentId = departmentId;
+            this.employeeName = employeeName;
+            this.leaveTypeName = leaveTypeName;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.status = status;
+            this.dayType = dayType;
+            this.hourly = hourly;
+            this.startDay = startDate.toEpochDay();
+            this.endDay = endDate.toEpochDay();
+        }
+
+        static LeaveSpan of(CalendarRow row) {
+            return new LeaveSpan(row.getId(), row.getEmployeeId(), row.getDepartmentId(),
+                employeeName(row.getFirstName(), row.getLastName()), row.getLeaveTypeName(), row.getStartDate(),
+                row.getEndDate(), row.getStatus(), row.getDayType(), Boolean.TRUE.equals(row.getIsHourlyLeave()));
+        }
+
+        // The span a saved request should have in the index, or null when it is not pending or approved
+        static LeaveSpan of(LeaveRequest request) {
+            Employee employee = request.getEmployee();
+            if (!ACTIVE_STATUSES.contains(request.getStatus()) || employee == null
+                    || request.getStartDate() == null || request.getEndDate() == null) {
+                return null;
+            }
+            return new LeaveSpan(request.getId(), employee.getId(),
+                employee.getDepartment() != null ? employee.getDepartment().getId() : null,
+                employeeName(employee.getFirstName(), employee.getLastName()),
+                request.getLeaveType() != null ? request.getLeaveType().getName() : null, request.getStartDate(),
+                request.getEndDate(), request.getStatus(), request.getDayType(), Boolean.TRUE.equals(request.getIsHourlyLeave()));
+        }
+
+        LeaveSpan withEmployee(Long departmentId, String employeeName) {
+            return new LeaveSpan(requestId, employeeId, departmentId, employeeName, leaveTypeName, startDate, endDate,
+                status, dayType, hourly);
+        }
+
+        Long departmentKey() {
+            return departmentId != null ? departmentId : NO_DEPARTMENT;
+        }
+
+        public Long getRequestId() { return requestId; }
+        public Long getEmployeeId() { return employeeId; }
+        public Long getDepartmentId() { return departmentId; }
+        public String getEmployeeName() { return employeeName; }
+        public String getLeaveTypeName() { return leaveTypeName; }
+        public LocalDate getStartDate() { return startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public String getStatus() { return status; }
+        public String getDayType() { return dayType; }
+        public boolean isHourly() { return hourly; }
+    }
+}
@@ -0,0 +1,67 @@
+package com.erp.service;
+
+import com.erp.model.Employee;
+import com.erp.model.LeaveRequest;
+import com.erp.service.LeaveCalendarIndex.LeaveSpan;
+import com.erp.model.listener.EntityChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Keeps LeaveCalendarIndex current from leave request saves and deletes, and from employee saves that change
+// the department or name shown on their leave; inside a transaction the change is applied once it commits
+@Component
+public class LeaveCalendarIndexListener {
+
+    @Autowired
+    private LeaveCalendarIndex leaveCalendarIndex;
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.isRemoved()) {
+            onRemoved(event.getEntity());
+        } else {
+            onSaved(event.getEntity());
+        }
+    }
+
+    private void onSaved(Object entity) {
+        if (entity instanceof LeaveRequest) {
+            LeaveRequest request = (LeaveRequest) entity;
+            Long requestId = request.getId();
+            LeaveSpan span = LeaveSpan.of(request);
+            afterCommit(() -> leaveCalendarIndex.update(requestId, span));
+        } else if (entity instanceof Employee) {
+            Employee employee = (Employee) entity;
+            Long employeeId = employee.getId();
+            Long departmentId = employee.getDepartment() != null ? employee.getDepartment().getId() : null;
+            String name = LeaveCalendarIndex.employeeName(employee.getFirstName(), employee.getLastName());
+            afterCommit(() -> leaveCalendarIndex.employeeChanged(employeeId, departmentId, name));
+        }
+    }
+
+    private void onRemoved(Object entity) {
+        if (entity instanceof LeaveRequest) {
+            Long requestId = ((LeaveRequest) entity).getId();
+            afterCommit(() -> leaveCalendarIndex.remove(requestId));
+        } else if (entity instanceof Employee) {
+            Long employeeId = ((Employee) entity).getId();
+            afterCommit(() -> leaveCalendarIndex.removeEmployee(employeeId));
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.erp.service;
+
+import com.erp.model.Employee;
+import com.erp.model.LeaveBalance;
+import com.erp.model.LeaveRequest;
+import com.erp.model.LeaveTransaction;
+import com.erp.model.LeaveType;
+import com.erp.repository.EmployeeRepository;
+import com.erp.repository.LeaveBalanceRepository;
+import com.erp.repository.LeaveRequestRepository;
+import com.erp.repository.LeaveTransactionRepository;
+import com.erp.repository.LeaveTypeRepository;
+
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// All changes to leave balances go through here. Each change is appended to the leave_transactions ledger and
+// its deltas are added to the leave_balances row by a single UPDATE in the same transaction, so two approvals
+// for the same employee cannot overwrite each other. The leave_balances row stays the current-balance read
+// model; rebuild() resets it from the ledger if it is ever edited outside this service.
+@Service
+public class LeaveLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaveLedgerService.class);
+
+    public static final String OPENING = "OPENING";
+    public static final String CARRY_FORWARD = "CARRY_FORWARD";
+    public static final String RESERVE = "RESERVE";
+    public static final String RELEASE = "RELEASE";
+    public static final String APPROVE = "APPROVE";
+    public static final String ADJUST = "ADJUST";
+    public static final String ACCRUAL = "ACCRUAL";
+    public static final String LAPSE = "LAPSE";
+
+    private static final String LEDGER_START_REMARKS = "Balance before ledger";
+
+    @Autowired
+    private LeaveBalanceRepository leaveBalanceRepository;
+
+    @Autowired
+    private LeaveTransactionRepository leaveTransactionRepository;
+
+    @Autowired
+    private LeaveRequestRepository leaveRequestRepository;
+
+    @Autowired
+    private LeaveTypeRepository leaveTypeRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> ensureUniqueBalanceKey());
+        try {
+            Integer seeded = new TransactionTemplate(transactionManager).execute(status ->
+                leaveTransactionRepository.insertOpeningForUnledgeredBalances(LEDGER_START_REMARKS, LocalDateTime.now()));
+            if (seeded != null && seeded > 0) {
+                logger.info("Opened the leave ledger for {} existing balance(s)", seeded);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not open the leave ledger for existing balances: {}", e.getMessage());
+        }
+    }
+
+    // Opening a balance only once per employee, leave type and year depends on the unique key that ddl-auto may
+    // have failed to add. It is added here when the table allows it; duplicate rows have figures that cannot be
+    // merged automatically, so startup stops until they are cleaned up.
+    private void ensureUniqueBalanceKey() {
+        if (leaveBalanceRepository.countUniqueKeyConstraints() > 0) {
+            return;
+        }
+        long duplicates = leaveBalanceRepository.countDuplicateKeys();
+        if (duplicates > 0) {
+            throw new IllegalStateException("leave_balances has " + duplicates + " employee, leave type and year combination(s) "
+                + "with more than one row; merge them so uk_leave_balances_employee_type_year can be created");
+        }
+        leaveBalanceRepository.addUniqueKeyConstraint();
+        logger.info("Added unique key uk_leave_balances_employee_type_year to leave_balances");
+    }
+
+    // Saves a new request and reserves its days as pending on the balance of its start year, which approval and
+    // release later take them back from. The availability check is part of the UPDATE, so two requests
+    // submitted together cannot both spend the same days. Returns null when the balance is too small; without
+    // a balance for the year the request is saved unreserved.
+    @Transactional
+    public LeaveRequest submit(LeaveRequest request) {
+        Long employeeId = request.getEmployee().getId();
+        Long leaveTypeId = request.getLeaveType().getId();
+        Integer year = request.getStartDate().getYear();
+        BigDecimal days = request.getTotalDays();
+        if (leaveBalanceRepository.reservePending(employeeId, leaveTypeId, year, days, LocalDateTime.now()) == 0) {
+            if (leaveBalanceRepository.existsByEmployeeIdAndLeaveTypeIdAndYear(employeeId, leaveTypeId, year)) {
+                return null;
+            }
+            return leaveRequestRepository.save(request);
+        }
+        LeaveRequest saved = leaveRequestRepository.save(request);
+        LeaveTransaction reserve = transaction(employeeId, leaveTypeId, year, RESERVE, saved.getId(), null);
+        reserve.setPendingDelta(days);
+        leaveTransactionRepository.save(reserve);
+        return saved;
+    }
+
+    // Saves an approved request and moves its days from pending to used on the balance of its start year
+    @Transactional
+    public LeaveRequest approve(LeaveRequest request) {
+        Employee approver = request.getApprovedBy() != null ? request.getApprovedBy() : request.getHrApprovedBy();
+        approveAll(request.getEmployee().getId(), request.getLeaveType().getId(), request.getStartDate().getYear(),
+            Collections.singletonMap(request.getId(), request.getTotalDays()), approver != null ? approver.getId() : null);
+        return leaveRequestRepository.save(request);
+    }
+
+    // Posts one APPROVE transaction per request and a single balance UPDATE for their total. Each request moves
+    // only the pending days it actually reserved, so a request saved before its balance existed takes its days
+    // as used only. A balance that does not exist yet is opened with the type's entitlement.
+    @Transactional
+    public void approveAll(Long employeeId, Long leaveTypeId, Integer year, Map<Long, BigDecimal> daysByRequest, Long approverId) {
+        boolean opened = leaveBalanceRepository.insertIfAbsent(employeeId, leaveTypeId, year, LocalDateTime.now()) > 0;
+        if (opened) {
+            LeaveType leaveType = leaveTypeRepository.findById(leaveTypeId).orElseThrow();
+            postOpening(employeeId, leaveTypeId, year,
+                leaveType.getAnnualEntitlement() != null ? leaveType.getAnnualEntitlement() : BigDecimal.ZERO,
+                BigDecimal.ZERO, BigDecimal.ZERO, null);
+        }
+        Map<Long, BigDecimal> reserved = opened ? Collections.emptyMap()
+            : reservedDays(employeeId, leaveTypeId, year, daysByRequest.keySet());
+        List<LeaveTransaction> transactions = new ArrayList<>();
+        BigDecimal used = BigDecimal.ZERO;
+        BigDecimal pending = BigDecimal.ZERO;
+        for (Map.Entry<Long, BigDecimal> entry : daysByRequest.entrySet()) {
+            BigDecimal days = zeroIfNull(entry.getValue());
+            BigDecimal held = reserved.getOrDefault(entry.getKey(), BigDecimal.ZERO);
+            LeaveTransaction approve = transaction(employeeId, leaveTypeId, year, APPROVE, entry.getKey(), null);
+            approve.setUsedDelta(days);
+            approve.setPendingDelta(held.negate());
+            approve.setCreatedBy(approverId);
+            transactions.add(approve);
+            used = used.add(days);
+            pending = pending.add(held);
+        }
+        leaveBalanceRepository.applyDelta(employeeId, leaveTypeId, year, BigDecimal.ZERO, BigDecimal.ZERO, used,
+            pending.negate(), BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, LocalDateTime.now());
+        leaveTransactionRepository.saveAll(transactions);
+    }
+
+    // Saves a rejected or cancelled request and gives back the pending days it still holds, if any
+    @Transactional
+    public LeaveRequest release(LeaveRequest request, String remarks) {
+        Long employeeId = request.getEmployee().getId();
+        Long leaveTypeId = request.getLeaveType().getId();
+        Integer year = request.getStartDate().getYear();
+        BigDecimal held = reservedDays(employeeId, leaveTypeId, year, List.of(request.getId()))
+            .getOrDefault(request.getId(), BigDecimal.ZERO);
+        if (held.signum() != 0) {
+            LeaveTransaction release = transaction(employeeId, leaveTypeId, year, RELEASE, request.getId(), remarks);
+            release.setPendingDelta(held.negate());
+            if (apply(release) > 0) {
+                leaveTransactionRepository.save(release);
+            }
+        }
+        return leaveRequestRepository.save(request);
+    }
+
+    // Pending days each request still holds on the balance. Requests the ledger has never seen were submitted
+    // either without a balance, holding nothing, or before the ledger was opened for the balance, in which case
+    // the old code had reserved their full days.
+    private Map<Long, BigDecimal> reservedDays(Long employeeId, Long leaveTypeId, Integer year, Collection<Long> requestIds) {
+        Map<Long, BigDecimal> reserved = new HashMap<>();
+        for (LeaveTransactionRepository.RequestPending row : leaveTransactionRepository.sumPendingByLeaveRequestIds(requestIds, year)) {
+            reserved.put(row.getLeaveRequestId(), row.getPending().max(BigDecimal.ZERO));
+        }
+        List<Long> unseen = requestIds.stream().filter(id -> !reserved.containsKey(id)).toList();
+        if (unseen.isEmpty()) {
+            return reserved;
+        }
+        LocalDateTime ledgerOpenedAt = leaveTransactionRepository.findLedgerOpenedAt(employeeId, leaveTypeId, year, LEDGER_START_REMARKS);
+        if (ledgerOpenedAt == null) {
+            return reserved;
+        }
+        for (LeaveRequest request : leaveRequestRepository.findAllById(unseen)) {
+            if (request.getCreatedAt() != null && request.getCreatedAt().isBefore(ledgerOpenedAt)) {
+                reserved.put(request.getId(), zeroIfNull(request.getTotalDays()));
+            }
+        }
+        return reserved;
+    }
+
+    // Creates the balance with an OPENING transaction (and a CARRY_FORWARD one when there is carry-forward)
+    // unless it exists; returns true only for the caller that created it
+    @Transactional
+    public boolean open(Long employeeId, Long leaveTypeId, Integer year, BigDecimal opening, BigDecimal credited,
+                        BigDecimal carryForward, String remarks) {
+        if (leaveBalanceRepository.insertIfAbsent(employeeId, leaveTypeId, year, LocalDateTime.now()) == 0) {
+            return false;
+        }
+        postOpening(employeeId, leaveTypeId, year, opening, credited, carryForward, remarks);
+        return true;
+    }
+
+    // Opens the year's balance with carry-forward taken from the previous year's balance and marks that one as
+    // rolled over, so the year-end job does not carry it forward again
+    @Transactional
+    public boolean openCarriedForward(Long employeeId, Long leaveTypeId, Integer year, BigDecimal credited,
+                                      BigDecimal carryForward, String remarks) {
+        if (!open(employeeId, leaveTypeId, year, BigDecimal.ZERO, credited, carryForward, remarks)) {
+            return false;
+        }
+        leaveBalanceRepository.markRolledOver(employeeId, leaveTypeId, year - 1, LocalDateTime.now());
+        return true;
+    }
+
+    // Manual correction: the balance is locked, the difference to the requested figures is posted as one ADJUST
+    // transaction and the updated balance is returned. Fields left null are not changed.
+    @Transactional
+    public Optional<LeaveBalance> adjust(Long balanceId, LeaveBalance target, Long adjustedBy, String remarks) {
+        Optional<LeaveBalance> locked = leaveBalanceRepository.lockById(balanceId);
+        if (locked.isEmpty()) {
+            return locked;
+        }
+        LeaveBalance balance = locked.get();
+        LeaveTransaction adjust = transaction(balance.getEmployee().getId(), balance.getLeaveType().getId(), balance.getYear(),
+            ADJUST, null, remarks);
+        adjust.setOpeningDelta(difference(target.getOpeningBalance(), balance.getOpeningBalance()));
+        adjust.setCreditedDelta(difference(target.getCredited(), balance.getCredited()));
+        adjust.setUsedDelta(difference(target.getUsed(), balance.getUsed()));
+        adjust.setPendingDelta(difference(target.getPending(), balance.getPending()));
+        adjust.setLapsedDelta(difference(target.getLapsed(), balance.getLapsed()));
+        adjust.setCarryForwardDelta(difference(target.getCarryForward(), balance.getCarryForward()));
+        adjust.setEncashedDelta(difference(target.getEncashed(), balance.getEncashed()));
+        adjust.setCreatedBy(adjustedBy);
+        if (target.getLastAccrualDate() != null) {
+            balance.setLastAccrualDate(target.getLastAccrualDate());
+            leaveBalanceRepository.saveAndFlush(balance);
+        }
+        post(adjust);
+        entityManager.refresh(balance);
+        return Optional.of(balance);
+    }
+
+    @Transactional
+    public Optional<LeaveBalance> rebuild(Long balanceId) {
+        Optional<LeaveBalance> locked = leaveBalanceRepository.lockById(balanceId);
+        locked.ifPresent(balance -> {
+            leaveBalanceRepository.rebuildFromLedger(balance.getId(), balance.getEmployee().getId(),
+                balance.getLeaveType().getId(), balance.getYear(), LocalDateTime.now());
+            entityManager.refresh(balance);
+        });
+        return locked;
+    }
+
+    public List<LeaveTransaction> history(LeaveBalance balance) {
+        return leaveTransactionRepository.findByEmployeeIdAndLeaveTypeIdAndYearOrderByIdAsc(
+            balance.getEmployee().getId(), balance.getLeaveType().getId(), balance.getYear());
+    }
+
+    private void postOpening(Long employeeId, Long leaveTypeId, Integer year, BigDecimal opening, BigDecimal credited,
+                             BigDecimal carryForward, String remarks) {
+        LeaveTransaction open = transaction(employeeId, leaveTypeId, year, OPENING, null, remarks);
+        open.setOpeningDelta(opening);
+        open.setCreditedDelta(credited);
+        post(open);
+        if (carryForward != null && carryForward.signum() != 0) {
+            LeaveTransaction carry = transaction(employeeId, leaveTypeId, year, CARRY_FORWARD, null, remarks);
+            carry.setCarryForwardDelta(carryForward);
+            post(carry);
+        }
+    }
+
+    private void post(LeaveTransaction transaction) {
+        apply(transaction);
+        leaveTransactionRepository.save(transaction);
+    }
+
+    private int apply(LeaveTransaction t) {
+        return leaveBalanceRepository.applyDelta(t.getEmployee().getId(), t.getLeaveType().getId(), t.getYear(),
+            zeroIfNull(t.getOpeningDelta()), zeroIfNull(t.getCreditedDelta()), zeroIfNull(t.getUsedDelta()),
+            zeroIfNull(t.getPendingDelta()), zeroIfNull(t.getLapsedDelta()), zeroIfNull(t.getCarryForwardDelta()),
+            zeroIfNull(t.getEncashedDelta()), LocalDateTime.now());
+    }
+
+    private LeaveTransaction transaction(Long employeeId, Long leaveTypeId, Integer year, String type, Long leaveRequestId, String remarks) {
+        LeaveTransaction transaction = new LeaveTransaction();
+        transaction.setEmployee(employeeRepository.getReferenceById(employeeId));
+        transaction.setLeaveType(leaveTypeRepository.getReferenceById(leaveTypeId));
+        transaction.setYear(year);
+        transaction.setTransactionType(type);
+        transaction.setLeaveRequestId(leaveRequestId);
+        transaction.setRemarks(remarks);
+        return transaction;
+    }
+
+    private static BigDecimal difference(BigDecimal target, BigDecimal current) {
+        return target == null ? BigDecimal.ZERO : target.subtract(zeroIfNull(current));
+    }
+
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
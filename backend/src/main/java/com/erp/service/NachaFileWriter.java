@@ -0,0 +1,170 @@
+package com.erp.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Writes a NACHA (ACH) file of PPD credit entries record by record. Only the running control totals are kept,
+// so memory stays constant however many entries pass through; batch and file control records are built from
+// those totals when the batch and the file are closed.
+public class NachaFileWriter {
+
+    private static final int RECORD_LENGTH = 94;
+    private static final int BLOCKING_FACTOR = 10;
+    private static final DateTimeFormatter YYMMDD = DateTimeFormatter.ofPattern("yyMMdd");
+    private static final DateTimeFormatter HHMM = DateTimeFormatter.ofPattern("HHmm");
+
+    public static final String CHECKING_CREDIT = "22";
+    public static final String SAVINGS_CREDIT = "32";
+
+    private final Writer out;
+    private final String companyName;
+    private final String companyId;
+    private final String originatingDfi;
+
+    private long recordCount;
+    private int batchCount;
+    private int batchNumber;
+    private long batchEntryCount;
+    private long batchEntryHash;
+    private long batchCreditCents;
+    private long fileEntryCount;
+    private long fileEntryHash;
+    private long fileCreditCents;
+
+    public NachaFileWriter(Writer out, String companyName, String companyId, String originatingDfi) {
+        this.out = out;
+        this.companyName = companyName;
+        this.companyId = companyId;
+        this.originatingDfi = digits(originatingDfi, 8);
+    }
+
+    public void writeFileHeader(String immediateDestination, String immediateOrigin, String destinationName,
+                                String originName, String referenceCode, LocalDateTime createdAt) throws IOException {
+        write("1"
+            + "01"
+            + " " + digits(immediateDestination, 9)
+            + alpha(immediateOrigin, 10, true)
+            + createdAt.format(YYMMDD)
+            + createdAt.format(HHMM)
+            + "A"
+            + "094"
+            + "10"
+            + "1"
+            + alpha(destinationName, 23, false)
+            + alpha(originName, 23, false)
+            + alpha(referenceCode, 8, false));
+    }
+
+    public void beginBatch(String entryDescription, LocalDate descriptiveDate, LocalDate effectiveEntryDate) throws IOException {
+        batchNumber++;
+        batchCount++;
+        batchEntryCount = 0;
+        batchEntryHash = 0;
+        batchCreditCents = 0;
+        write("5"
+            + "220"
+            + alpha(companyName, 16, false)
+            + alpha("", 20, false)
+            + alpha(companyId, 10, false)
+            + "PPD"
+            + alpha(entryDescription, 10, false)
+            + descriptiveDate.format(YYMMDD)
+            + effectiveEntryDate.format(YYMMDD)
+            + "   "
+            + "1"
+            + originatingDfi
+            + number(batchNumber, 7));
+    }
+
+    public void addCreditEntry(String transactionCode, String routingNumber, String accountNumber, long amountCents,
+                               String individualId, String individualName) throws IOException {
+        String routing = digits(routingNumber, 9);
+        long receivingDfi = Long.parseLong(routing.substring(0, 8));
+        batchEntryCount++;
+        fileEntryCount++;
+        batchEntryHash += receivingDfi;
+        fileEntryHash += receivingDfi;
+        batchCreditCents += amountCents;
+        fileCreditCents += amountCents;
+        write("6"
+            + transactionCode
+            + routing
+            + alpha(accountNumber, 17, false)
+            + number(amountCents, 10)
+            + alpha(individualId, 15, false)
+            + alpha(individualName, 22, false)
+            + "  "
+            + "0"
+            + originatingDfi + number(fileEntryCount, 7));
+    }
+
+    public void endBatch() throws IOException {
+        write("8"
+            + "220"
+            + number(batchEntryCount, 6)
+            + number(batchEntryHash % 10_000_000_000L, 10)
+            + number(0, 12)
+            + number(batchCreditCents, 12)
+            + alpha(companyId, 10, false)
+            + alpha("", 19, false)
+            + alpha("", 6, false)
+            + originatingDfi
+            + number(batchNumber, 7));
+    }
+
+    public void endFile() throws IOException {
+        long blockCount = (recordCount + 1 + BLOCKING_FACTOR - 1) / BLOCKING_FACTOR;
+        write("9"
+            + number(batchCount, 6)
+            + number(blockCount, 6)
+            + number(fileEntryCount, 8)
+            + number(fileEntryHash % 10_000_000_000L, 10)
+            + number(0, 12)
+            + number(fileCreditCents, 12)
+            + alpha("", 39, false));
+        while (recordCount % BLOCKING_FACTOR != 0) {
+            write("9".repeat(RECORD_LENGTH));
+        }
+        out.flush();
+    }
+
+    public long getEntryCount() { return fileEntryCount; }
+    public long getTotalCreditCents() { return fileCreditCents; }
+
+    private void write(String record) throws IOException {
+        if (record.length() != RECORD_LENGTH) {
+            throw new IllegalStateException("NACHA record must be " + RECORD_LENGTH + " characters, got " + record.length());
+        }
+        out.write(record);
+        out.write("\n");
+        recordCount++;
+    }
+
+    private static String number(long value, int width) {
+        String text = Long.toString(value);
+        if (text.length() > width) {
+            throw new IllegalArgumentException("Value " + value + " does not fit in " + width + " digits");
+        }
+        return "0".repeat(width - text.length()) + text;
+    }
+
+    private static String digits(String value, int width) {
+        String cleaned = value == null ? "" : value.replaceAll("[^0-9]", "");
+        if (cleaned.length() > width) {
+            cleaned = cleaned.substring(0, width);
+        }
+        return "0".repeat(width - cleaned.length()) + cleaned;
+    }
+
+    private static String alpha(String value, int width, boolean rightAlign) {
+        String cleaned = value == null ? "" : value.toUpperCase().replaceAll("[^A-Z0-9 .,&'/-]", " ");
+        if (cleaned.length() > width) {
+            cleaned = cleaned.substring(0, width);
+        }
+        String padding = " ".repeat(width - cleaned.length());
+        return rightAlign ? padding + cleaned : cleaned + padding;
+    }
+}
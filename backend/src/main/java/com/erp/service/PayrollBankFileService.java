@@ -0,0 +1,133 @@
+package com.erp.service;
+
+import com.erp.model.PayrollRun;
+import com.erp.repository.PayrollRecordRepository;
+import com.erp.repository.PayrollRecordRepository.PaymentRow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class PayrollBankFileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayrollBankFileService.class);
+
+    @Autowired
+    private PayrollRecordRepository payrollRecordRepository;
+
+    @Value("${payroll.ach.immediate-destination:}")
+    private String immediateDestination;
+
+    @Value("${payroll.ach.immediate-origin:}")
+    private String immediateOrigin;
+
+    @Value("${payroll.ach.destination-name:}")
+    private String destinationName;
+
+    @Value("${payroll.ach.origin-name:}")
+    private String originName;
+
+    @Value("${payroll.ach.company-name:}")
+    private String companyName;
+
+    @Value("${payroll.ach.company-id:}")
+    private String companyId;
+
+    @Value("${payroll.ach.originating-dfi:}")
+    private String originatingDfi;
+
+    public boolean canExport(PayrollRun run) {
+        return "PROCESSED".equals(run.getStatus()) || "PARTIALLY_PROCESSED".equals(run.getStatus());
+    }
+
+    // The bank rejects a file without its own routing and company identifiers, so there are no defaults; lists the
+    // required settings that are still blank
+    public List<String> missingSettings() {
+        List<String> missing = new ArrayList<>();
+        addIfBlank(missing, "payroll.ach.immediate-destination", immediateDestination);
+        addIfBlank(missing, "payroll.ach.immediate-origin", immediateOrigin);
+        addIfBlank(missing, "payroll.ach.company-name", companyName);
+        addIfBlank(missing, "payroll.ach.company-id", companyId);
+        addIfBlank(missing, "payroll.ach.originating-dfi", originatingDfi);
+        return missing;
+    }
+
+    private void addIfBlank(List<String> missing, String property, String value) {
+        if (value == null || value.isBlank()) {
+            missing.add(property);
+        }
+    }
+
+    // Streams the run's direct-deposit credits as a NACHA file. Records are read through a database cursor and
+    // written as they arrive; only the control totals are held, so memory does not grow with the run size.
+    @Transactional(readOnly = true)
+    public void writeBankFile(PayrollRun run, OutputStream outputStream) throws IOException {
+        List<String> missing = missingSettings();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("ACH settings are not configured: " + String.join(", ", missing));
+        }
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.US_ASCII));
+        NachaFileWriter nacha = new NachaFileWriter(out, companyName, companyId, originatingDfi);
+        LocalDate payDate = run.getPayDate() != null ? run.getPayDate() : LocalDate.now();
+        int skipped = 0;
+
+        nacha.writeFileHeader(immediateDestination, immediateOrigin, destinationName, originName, run.getPayrollRunNumber(), LocalDateTime.now());
+        nacha.beginBatch("PAYROLL", payDate, payDate);
+
+        try (Stream<PaymentRow> rows = payrollRecordRepository.streamPaymentRowsByPayrollRunId(run.getId())) {
+            Iterator<PaymentRow> iterator = rows.iterator();
+            Long lastRecordId = null;
+            while (iterator.hasNext()) {
+                PaymentRow row = iterator.next();
+                // More than one primary account yields duplicate rows; the first (lowest id) account is paid
+                if (row.getRecordId().equals(lastRecordId)) {
+                    continue;
+                }
+                lastRecordId = row.getRecordId();
+
+                long amountCents = FixedPointMoney.toCents(row.getNetPay());
+                if (amountCents <= 0) {
+                    continue;
+                }
+                if (isBlank(row.getRoutingNumber()) || isBlank(row.getAccountNumber())) {
+                    logger.warn("Payroll run {}: employee {} has no primary bank account, left out of the bank file",
+                        run.getPayrollRunNumber(), row.getEmployeeCode());
+                    skipped++;
+                    continue;
+                }
+                String name = !isBlank(row.getAccountHolderName()) ? row.getAccountHolderName() : row.getFirstName() + " " + row.getLastName();
+                nacha.addCreditEntry(transactionCode(row.getAccountType()), row.getRoutingNumber(), row.getAccountNumber(),
+                    amountCents, row.getEmployeeCode(), name);
+            }
+        }
+
+        nacha.endBatch();
+        nacha.endFile();
+        logger.info("Wrote bank file for payroll run {}: {} entries, {} cents, {} skipped",
+            run.getPayrollRunNumber(), nacha.getEntryCount(), nacha.getTotalCreditCents(), skipped);
+    }
+
+    private static String transactionCode(String accountType) {
+        return accountType != null && accountType.trim().equalsIgnoreCase("SAVINGS") ? NachaFileWriter.SAVINGS_CREDIT : NachaFileWriter.CHECKING_CREDIT;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
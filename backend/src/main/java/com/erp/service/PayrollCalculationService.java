@@ -6,8 +6,14 @@ import com.erp.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -15,19 +21,20 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class PayrollCalculationService {
 
     private static final Logger logger = LoggerFactory.getLogger(PayrollCalculationService.class);
 
-    private static final BigDecimal HOURS_PER_YEAR = new BigDecimal("2080");
-    private static final BigDecimal SOCIAL_SECURITY_RATE = new BigDecimal("0.062");
-    private static final BigDecimal MEDICARE_RATE = new BigDecimal("0.0145");
-    private static final BigDecimal DISABILITY_RATE = new BigDecimal("0.009");
-    private static final BigDecimal SOCIAL_SECURITY_WAGE_BASE = new BigDecimal("168600"); // 2024
+    private static final long HOURS_PER_YEAR = 2080L;
     private static final BigDecimal FLSA_OVERTIME_MULTIPLIER = new BigDecimal("1.5");
 
+    private static final long FLSA_OVERTIME_MULTIPLIER_RATE = FixedPointMoney.toRate(FLSA_OVERTIME_MULTIPLIER);
+
     @Autowired
     private PayrollRunRepository payrollRunRepository;
 
@@ -40,9 +47,6 @@ public class PayrollCalculationService {
     @Autowired
     private EmployeeRepository employeeRepository;
 
-    @Autowired
-    private EmployeeBenefitRepository employeeBenefitRepository;
-
     @Autowired
     private AttendanceRecordRepository attendanceRecordRepository;
 
@@ -50,10 +54,7 @@ public class PayrollCalculationService {
     private OvertimeRuleRepository overtimeRuleRepository;
 
     @Autowired
-    private TaxRuleRepository taxRuleRepository;
-
-    @Autowired
-    private PayFrequencyRepository payFrequencyRepository;
+    private TaxRuleTableService taxRuleTableService;
 
     @Autowired
     private FLSAOvertimeService flsaOvertimeService;
@@ -62,12 +63,32 @@ public class PayrollCalculationService {
     private ExpenseRequestRepository expenseRequestRepository;
 
     @Autowired
-    private EmployeeSalaryRepository employeeSalaryRepository;
+    private PayrollRunChunkRepository payrollRunChunkRepository;
+
+    @Autowired
+    private PayrollInputSnapshotLoader payrollInputSnapshotLoader;
+
+    @Autowired
+    private WorkingDayCalendar workingDayCalendar;
+
+    @Autowired
+    private PayrollRetroAdjustmentRepository payrollRetroAdjustmentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("payrollExecutor")
+    private TaskExecutor payrollExecutor;
+
+    @Value("${payroll.calculation.chunk-size:200}")
+    private int chunkSize;
 
     @Transactional
     public List<Timesheet> generateTimesheets(LocalDate startDate, LocalDate endDate) {
         List<Employee> employees = employeeRepository.findByActiveTrue();
         List<Timesheet> timesheets = new ArrayList<>();
+        PayrollInputSnapshot attendance = payrollInputSnapshotLoader.loadAttendance(startDate, endDate);
         
         for (Employee employee : employees) {
             Optional<Timesheet> existing = timesheetRepository.findByEmployeeIdAndPeriodStartDateAndPeriodEndDate(
@@ -80,26 +101,26 @@ public class PayrollCalculationService {
                 timesheet.setPeriodStartDate(startDate);
                 timesheet.setPeriodEndDate(endDate);
                 
-                calculateTimesheetFromAttendance(timesheet);
-                
-                timesheets.add(timesheetRepository.save(timesheet));
+                calculateTimesheetFromAttendance(timesheet, attendance);
+                timesheets.add(timesheet);
             }
         }
+        applyPeriodOvertime(timesheets, attendance, startDate, endDate);
         
-        return timesheets;
+        return timesheetRepository.saveAll(timesheets);
     }
 
     private static final BigDecimal LUNCH_BREAK_HOURS = new BigDecimal("1.0");
     private static final BigDecimal MAX_REGULAR_HOURS_PER_DAY = new BigDecimal("8.0");
 
-    private void calculateTimesheetFromAttendance(Timesheet timesheet) {
-        List<AttendanceRecord> records = attendanceRecordRepository
-            .findByEmployeeIdAndAttendanceDateBetween(
-                timesheet.getEmployee().getId(),
-                timesheet.getPeriodStartDate(),
-                timesheet.getPeriodEndDate()
-            );
+    private void calculateTimesheetFromAttendance(Timesheet timesheet, PayrollInputSnapshot attendance) {
+        List<AttendanceRecord> records = attendance.getAttendance(timesheet.getEmployee().getId()).stream()
+            .filter(r -> !r.getAttendanceDate().isBefore(timesheet.getPeriodStartDate())
+                && !r.getAttendanceDate().isAfter(timesheet.getPeriodEndDate()))
+            .toList();
         
+        Employee employee = timesheet.getEmployee();
+        Long branchId = employee.getBranch() != null ? employee.getBranch().getId() : null;
         BigDecimal totalRegular = BigDecimal.ZERO;
         BigDecimal totalOT = BigDecimal.ZERO;
         int present = 0, absent = 0, leave = 0, holiday = 0;
@@ -151,8 +172,13 @@ public class PayrollCalculationService {
             if ("PRESENT".equals(record.getStatus())) present++;
             else if ("ABSENT".equals(record.getStatus())) absent++;
             else if ("ON_LEAVE".equals(record.getStatus())) leave++;
-            else if ("HOLIDAY".equals(record.getStatus())) holiday++;
+            else if ("HOLIDAY".equals(record.getStatus()) && workingDayCalendar.isWorkingDay(branchId, record.getAttendanceDate())) holiday++;
         }
+
+        // Calendar holidays count whether or not a HOLIDAY record was written for them; HOLIDAY records on
+        // other working days are ad-hoc closures and were counted above
+        holiday += workingDayCalendar.holidaysBetween(branchId, timesheet.getPeriodStartDate(), timesheet.getPeriodEndDate());
+        timesheet.setWorkingDays(workingDayCalendar.workingDaysBetween(branchId, timesheet.getPeriodStartDate(), timesheet.getPeriodEndDate()));
         
         timesheet.setTotalRegularHours(totalRegular);
         timesheet.setTotalOvertimeHours(totalOT);
@@ -167,123 +193,523 @@ public class PayrollCalculationService {
             timesheet.getTimesheetNumber(), totalRegular, totalOT, totalRegular.add(totalOT), present);
     }
 
-    @Transactional(noRollbackFor = PayrollCalculationException.class)
+    // Splits the timesheets' hours into regular and overtime by the workweek rules of each employee's state, in one
+    // pass over the attendance already loaded: the daily hours calculateTimesheetFromAttendance stored on the
+    // records are totalled per workweek by FLSAOvertimeService. Double-time hours have no column of their own
+    // and are paid with the overtime.
+    private void applyPeriodOvertime(List<Timesheet> timesheets, PayrollInputSnapshot attendance, LocalDate startDate, LocalDate endDate) {
+        if (timesheets.isEmpty()) {
+            return;
+        }
+        Set<Long> employeeIds = employeeIdsOf(timesheets);
+        List<AttendanceRecord> records = new ArrayList<>();
+        for (Long employeeId : employeeIds) {
+            records.addAll(attendance.getAttendance(employeeId));
+        }
+        Map<Long, FLSAOvertimeService.WeeklyOvertimeResult> overtime = flsaOvertimeService.aggregatePeriodOvertime(
+            employeeRepository.findWithOvertimeSitesByIdIn(employeeIds), records, startDate, endDate);
+        for (Timesheet timesheet : timesheets) {
+            FLSAOvertimeService.WeeklyOvertimeResult result = overtime.get(timesheet.getEmployee().getId());
+            if (result == null) {
+                continue;
+            }
+            BigDecimal overtimeHours = result.getOvertimeHours().add(result.getDoubleTimeHours());
+            timesheet.setTotalRegularHours(result.getRegularHours());
+            timesheet.setTotalOvertimeHours(overtimeHours);
+            timesheet.setTotalHours(result.getRegularHours().add(overtimeHours));
+        }
+    }
+
     public PayrollRun calculatePayroll(PayrollRun run) {
+        return calculatePayroll(run, false);
+    }
+
+    // A run that has already been calculated only recomputes the employees whose inputs changed since,
+    // unless a full recalculation is requested
+    public PayrollRun calculatePayroll(PayrollRun run, boolean fullRecalculation) {
+        if (run.getYtdAppliedAt() != null) {
+            throw new PayrollCalculationException("Payroll run " + run.getPayrollRunNumber() 
+                + " is already approved and included in year-to-date totals. Void it before recalculating.");
+        }
+        boolean incremental = !fullRecalculation && "CALCULATED".equals(run.getStatus()) && run.getId() != null
+            && !payrollRunChunkRepository.findByPayrollRunIdOrderByChunkIndexAsc(run.getId()).isEmpty();
         run.setStatus("CALCULATING");
-        payrollRunRepository.save(run);
-        payrollRunRepository.flush();
+        PayrollRun calculatingRun = payrollRunRepository.save(run);
+        Long runId = calculatingRun.getId();
         
         try {
-            logger.info("Looking for approved timesheets for period {} to {}", run.getPeriodStartDate(), run.getPeriodEndDate());
+            if (incremental) {
+                recalculateDirtyEmployees(runId);
+            } else {
+                List<Long> timesheetIds = newTransaction().execute(status -> prepareTimesheets(calculatingRun));
+                List<PayrollRunChunk> chunks = newTransaction().execute(status -> planChunks(runId, timesheetIds));
+                logger.info("Payroll run {} split into {} chunk(s) of up to {} employees", runId, chunks.size(), chunkSize);
+                
+                executeChunks(chunks);
+            }
             
-            List<Timesheet> timesheets = timesheetRepository.findApprovedTimesheetsByPeriod(
+            return newTransaction().execute(status -> completeRun(runId));
+        } catch (PayrollCalculationException e) {
+            markRunError(runId);
+            throw e;
+        } catch (Exception e) {
+            markRunError(runId);
+            throw new PayrollCalculationException("Unexpected error during payroll calculation: " + e.getMessage(), e);
+        }
+    }
+    
+    public PayrollRun retryFailedChunks(Long runId) {
+        PayrollRun run = payrollRunRepository.findById(runId)
+            .orElseThrow(() -> new PayrollCalculationException("Payroll run not found: " + runId));
+        if (!"CALCULATED".equals(run.getStatus()) && !"ERROR".equals(run.getStatus())) {
+            throw new PayrollCalculationException("Only calculated or failed payroll runs can be retried (current status: " + run.getStatus() + ")");
+        }
+        
+        List<PayrollRunChunk> failedChunks = payrollRunChunkRepository.findByPayrollRunIdAndStatusOrderByChunkIndexAsc(runId, "FAILED");
+        if (failedChunks.isEmpty()) {
+            throw new PayrollCalculationException("No failed chunks to retry for payroll run " + run.getPayrollRunNumber());
+        }
+        
+        logger.info("Retrying {} failed chunk(s) for payroll run {}", failedChunks.size(), runId);
+        executeChunks(failedChunks);
+        
+        try {
+            return newTransaction().execute(status -> completeRun(runId));
+        } catch (PayrollCalculationException e) {
+            markRunError(runId);
+            throw e;
+        }
+    }
+    
+    public List<PayrollRunChunk> getChunks(Long runId) {
+        return payrollRunChunkRepository.findByPayrollRunIdOrderByChunkIndexAsc(runId);
+    }
+    
+    private List<Long> prepareTimesheets(PayrollRun run) {
+        logger.info("Looking for approved timesheets for period {} to {}", run.getPeriodStartDate(), run.getPeriodEndDate());
+        
+        List<Timesheet> timesheets = timesheetRepository.findApprovedTimesheetsByPeriod(
+            run.getPeriodStartDate(), run.getPeriodEndDate());
+        logger.info("Found {} approved timesheets for period", timesheets.size());
+        
+        if (timesheets.isEmpty()) {
+            logger.info("No approved timesheets found. Checking for exact-period timesheets...");
+            List<Timesheet> exactTimesheets = timesheetRepository.findByPeriodStartDateAndPeriodEndDate(
                 run.getPeriodStartDate(), run.getPeriodEndDate());
-            logger.info("Found {} approved timesheets for period", timesheets.size());
+            logger.info("Found {} timesheets (any status) for exact period", exactTimesheets.size());
             
-            if (timesheets.isEmpty()) {
-                logger.info("No approved timesheets found. Checking for exact-period timesheets...");
-                List<Timesheet> exactTimesheets = timesheetRepository.findByPeriodStartDateAndPeriodEndDate(
-                    run.getPeriodStartDate(), run.getPeriodEndDate());
-                logger.info("Found {} timesheets (any status) for exact period", exactTimesheets.size());
-                
-                if (!exactTimesheets.isEmpty()) {
-                    for (Timesheet ts : exactTimesheets) {
-                        if (!"APPROVED".equals(ts.getStatus())) {
-                            ts.setStatus("APPROVED");
-                            ts.setApprovedAt(java.time.LocalDateTime.now());
-                            timesheetRepository.save(ts);
-                            logger.info("Auto-approved timesheet {} for employee {}", ts.getTimesheetNumber(), ts.getEmployee().getId());
-                        }
-                    }
-                    timesheets = exactTimesheets;
-                } else {
-                    logger.info("No timesheets at all. Auto-generating from attendance records...");
-                    List<Timesheet> generated = generateTimesheets(run.getPeriodStartDate(), run.getPeriodEndDate());
-                    logger.info("Auto-generated {} timesheets from attendance", generated.size());
-                    
-                    if (generated.isEmpty()) {
-                        List<AttendanceRecord> attendanceRecords = attendanceRecordRepository.findByAttendanceDateBetween(
-                            run.getPeriodStartDate(), run.getPeriodEndDate());
-                        logger.info("Found {} attendance records (any status) in period", attendanceRecords.size());
-                        
-                        if (attendanceRecords.isEmpty()) {
-                            run.setStatus("ERROR");
-                            payrollRunRepository.save(run);
-                            throw new PayrollCalculationException("No attendance records found for this period (" + 
-                                run.getPeriodStartDate() + " to " + run.getPeriodEndDate() + 
-                                "). Please ensure employees have clocked in/out for this period.");
-                        }
-                        
-                        generated = generateTimesheetsFromAllAttendance(run.getPeriodStartDate(), run.getPeriodEndDate());
-                        logger.info("Generated {} timesheets from all attendance (including non-approved)", generated.size());
-                    }
-                    
-                    for (Timesheet ts : generated) {
+            if (!exactTimesheets.isEmpty()) {
+                for (Timesheet ts : exactTimesheets) {
+                    if (!"APPROVED".equals(ts.getStatus())) {
                         ts.setStatus("APPROVED");
                         ts.setApprovedAt(java.time.LocalDateTime.now());
                         timesheetRepository.save(ts);
-                        logger.info("Auto-approved generated timesheet {} for employee {}", ts.getTimesheetNumber(), 
-                            ts.getEmployee() != null ? ts.getEmployee().getId() : "null");
+                        logger.info("Auto-approved timesheet {} for employee {}", ts.getTimesheetNumber(), ts.getEmployee().getId());
                     }
-                    timesheets = generated;
                 }
+                timesheets = exactTimesheets;
+            } else {
+                logger.info("No timesheets at all. Auto-generating from attendance records...");
+                List<Timesheet> generated = generateTimesheets(run.getPeriodStartDate(), run.getPeriodEndDate());
+                logger.info("Auto-generated {} timesheets from attendance", generated.size());
+                
+                if (generated.isEmpty()) {
+                    List<AttendanceRecord> attendanceRecords = attendanceRecordRepository.findByAttendanceDateBetween(
+                        run.getPeriodStartDate(), run.getPeriodEndDate());
+                    logger.info("Found {} attendance records (any status) in period", attendanceRecords.size());
+                    
+                    if (attendanceRecords.isEmpty()) {
+                        throw new PayrollCalculationException("No attendance records found for this period (" + 
+                            run.getPeriodStartDate() + " to " + run.getPeriodEndDate() + 
+                            "). Please ensure employees have clocked in/out for this period.");
+                    }
+                    
+                    generated = generateTimesheetsFromAllAttendance(run.getPeriodStartDate(), run.getPeriodEndDate());
+                    logger.info("Generated {} timesheets from all attendance (including non-approved)", generated.size());
+                }
+                
+                for (Timesheet ts : generated) {
+                    ts.setStatus("APPROVED");
+                    ts.setApprovedAt(java.time.LocalDateTime.now());
+                    timesheetRepository.save(ts);
+                    logger.info("Auto-approved generated timesheet {} for employee {}", ts.getTimesheetNumber(), 
+                        ts.getEmployee() != null ? ts.getEmployee().getId() : "null");
+                }
+                timesheets = generated;
             }
+        }
+        
+        if (timesheets.isEmpty()) {
+            throw new PayrollCalculationException("No attendance data could be found for this period. Please ensure employees have attendance records.");
+        }
+        
+        Set<Long> employeeIds = timesheets.stream()
+            .map(ts -> ts.getEmployee().getId())
+            .collect(Collectors.toSet());
+        PayrollInputSnapshot attendance = payrollInputSnapshotLoader.loadAttendance(
+            employeeIds, run.getPeriodStartDate(), run.getPeriodEndDate());
+        
+        for (Timesheet ts : timesheets) {
+            logger.info("Refreshing timesheet {} for employee {} from current attendance data",
+                ts.getTimesheetNumber(), ts.getEmployee().getId());
+            calculateTimesheetFromAttendance(ts, attendance);
+        }
+        applyPeriodOvertime(timesheets, attendance, run.getPeriodStartDate(), run.getPeriodEndDate());
+        
+        List<Long> timesheetIds = new ArrayList<>();
+        for (Timesheet ts : timesheetRepository.saveAll(timesheets)) {
+            timesheetIds.add(ts.getId());
+            logger.info("Refreshed timesheet {} - Regular: {}h, OT: {}h, Total: {}h",
+                ts.getTimesheetNumber(), ts.getTotalRegularHours(), ts.getTotalOvertimeHours(), ts.getTotalHours());
+        }
+        
+        return timesheetIds;
+    }
+    
+    private List<PayrollRunChunk> planChunks(Long runId, List<Long> timesheetIds) {
+        payrollRunChunkRepository.deleteByPayrollRunId(runId);
+        return createChunks(payrollRunRepository.getReferenceById(runId), timesheetIds, 0);
+    }
+    
+    private List<PayrollRunChunk> createChunks(PayrollRun run, List<Long> timesheetIds, int firstIndex) {
+        List<PayrollRunChunk> chunks = new ArrayList<>();
+        int size = Math.max(1, chunkSize);
+        for (int from = 0, index = firstIndex; from < timesheetIds.size(); from += size, index++) {
+            List<Long> slice = timesheetIds.subList(from, Math.min(from + size, timesheetIds.size()));
             
-            if (timesheets.isEmpty()) {
-                run.setStatus("ERROR");
-                payrollRunRepository.save(run);
-                throw new PayrollCalculationException("No attendance data could be found for this period. Please ensure employees have attendance records.");
+            PayrollRunChunk chunk = new PayrollRunChunk();
+            chunk.setPayrollRun(run);
+            chunk.setChunkIndex(index);
+            chunk.setTimesheetIds(slice.stream().map(String::valueOf).collect(Collectors.joining(",")));
+            chunk.setEmployeeCount(slice.size());
+            chunk.setStatus("PENDING");
+            chunks.add(chunk);
+        }
+        return payrollRunChunkRepository.saveAll(chunks);
+    }
+    
+    private void executeChunks(List<PayrollRunChunk> chunks) {
+        // Every chunk of one execution calculates against the same tax table version
+        CompiledTaxTables taxTables = taxRuleTableService.current();
+        Map<Long, Runnable> calculations = new LinkedHashMap<>();
+        for (PayrollRunChunk chunk : chunks) {
+            Long chunkId = chunk.getId();
+            calculations.put(chunkId, () -> calculateChunk(chunkId, taxTables));
+        }
+        runChunksInParallel(calculations);
+    }
+    
+    private void runChunksInParallel(Map<Long, Runnable> calculations) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        calculations.forEach((chunkId, calculation) ->
+            futures.add(CompletableFuture.runAsync(() -> executeChunk(chunkId, calculation), payrollExecutor)));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+    
+    private void executeChunk(Long chunkId, Runnable calculation) {
+        try {
+            newTransaction().executeWithoutResult(status -> calculation.run());
+        } catch (Exception e) {
+            logger.error("Payroll chunk {} failed: {}", chunkId, e.getMessage(), e);
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            newTransaction().executeWithoutResult(status ->
+                payrollRunChunkRepository.findById(chunkId).ifPresent(chunk -> {
+                    chunk.setStatus("FAILED");
+                    chunk.setAttempts(chunk.getAttempts() + 1);
+                    chunk.setErrorMessage(error.length() > 1000 ? error.substring(0, 1000) : error);
+                    chunk.setCompletedAt(LocalDateTime.now());
+                    payrollRunChunkRepository.save(chunk);
+                }));
+        }
+    }
+    
+    private void calculateChunk(Long chunkId, CompiledTaxTables taxTables) {
+        PayrollRunChunk chunk = payrollRunChunkRepository.findById(chunkId)
+            .orElseThrow(() -> new PayrollCalculationException("Payroll chunk not found: " + chunkId));
+        PayrollRun run = chunk.getPayrollRun();
+        chunk.setStartedAt(LocalDateTime.now());
+        
+        List<Timesheet> timesheets = timesheetRepository.findAllById(parseTimesheetIds(chunk.getTimesheetIds()));
+        Set<Long> employeeIds = employeeIdsOf(timesheets);
+        if (!employeeIds.isEmpty()) {
+            clearUnprocessedRecords(run.getId(), employeeIds);
+        }
+        
+        ChunkResult result = calculateRecords(run, timesheets, employeeIds, taxTables);
+        
+        chunk.setTotalGrossPay(BigDecimal.ZERO);
+        chunk.setTotalDeductions(BigDecimal.ZERO);
+        chunk.setTotalTaxes(BigDecimal.ZERO);
+        chunk.setTotalNetPay(BigDecimal.ZERO);
+        chunk.setTotalEmployerContributions(BigDecimal.ZERO);
+        adjustChunkTotals(chunk, List.of(), result.records);
+        
+        chunk.setStatus("COMPLETED");
+        chunk.setAttempts(chunk.getAttempts() + 1);
+        chunk.setRecordCount(result.records.size());
+        chunk.setFailedCount(result.failCount);
+        chunk.setErrorMessage(null);
+        chunk.setCompletedAt(LocalDateTime.now());
+        payrollRunChunkRepository.save(chunk);
+        
+        logger.info("Payroll chunk {} of run {} completed: {} succeeded, {} failed",
+            chunk.getChunkIndex(), run.getId(), result.records.size(), result.failCount);
+    }
+    
+    // Recomputes only the given employees of a completed chunk and moves the chunk totals by the difference
+    private void recalculateChunkEmployees(Long chunkId, List<Long> timesheetIds, CompiledTaxTables taxTables) {
+        PayrollRunChunk chunk = payrollRunChunkRepository.findById(chunkId)
+            .orElseThrow(() -> new PayrollCalculationException("Payroll chunk not found: " + chunkId));
+        PayrollRun run = chunk.getPayrollRun();
+        chunk.setStartedAt(LocalDateTime.now());
+        
+        List<Timesheet> timesheets = timesheetRepository.findAllById(timesheetIds);
+        Set<Long> employeeIds = employeeIdsOf(timesheets);
+        if (employeeIds.isEmpty()) {
+            return;
+        }
+        List<PayrollRecord> previous = payrollRecordRepository.findByPayrollRunIdAndEmployeeIdIn(run.getId(), employeeIds).stream()
+            .filter(r -> !"PROCESSED".equals(r.getStatus()))
+            .toList();
+        // Same clearing as a full chunk, so both paths see the same reimbursements and arrive at the same net pay
+        clearUnprocessedRecords(run.getId(), employeeIds);
+        
+        ChunkResult result = calculateRecords(run, timesheets, employeeIds, taxTables);
+        adjustChunkTotals(chunk, previous, result.records);
+        
+        // Employees without a previous record are the ones that failed last time
+        int previouslyFailed = employeeIds.size() - previous.size();
+        chunk.setRecordCount(chunk.getRecordCount() - previous.size() + result.records.size());
+        chunk.setFailedCount(Math.max(0, chunk.getFailedCount() - previouslyFailed) + result.failCount);
+        chunk.setCompletedAt(LocalDateTime.now());
+        payrollRunChunkRepository.save(chunk);
+        
+        logger.info("Payroll chunk {} of run {} recalculated {} employee(s): {} succeeded, {} failed",
+            chunk.getChunkIndex(), run.getId(), employeeIds.size(), result.records.size(), result.failCount);
+    }
+    
+    // Deletes the employees' unprocessed records of the run after returning the reimbursements and arrears they
+    // paid to the pending pool, so recalculated records include them again
+    private void clearUnprocessedRecords(Long runId, Collection<Long> employeeIds) {
+        expenseRequestRepository.releaseForRecalculation(runId, employeeIds);
+        payrollRetroAdjustmentRepository.releaseForRecalculation(runId, employeeIds);
+        payrollRecordRepository.deleteUnprocessedByPayrollRunIdAndEmployeeIds(runId, employeeIds);
+    }
+    
+    private ChunkResult calculateRecords(PayrollRun run, List<Timesheet> timesheets, Set<Long> employeeIds, CompiledTaxTables taxTables) {
+        PayrollInputSnapshot inputs = payrollInputSnapshotLoader.loadCompensationInputs(
+            employeeIds, run.getId(), run.getPeriodStartDate(), run.getPeriodEndDate(), PayrollYtdService.taxYearOf(run));
+        
+        ChunkResult result = new ChunkResult();
+        for (Timesheet timesheet : timesheets) {
+            try {
+                PayrollRecord record = calculateEmployeePayroll(run, timesheet.getEmployee(), timesheet, inputs, taxTables);
+                result.records.add(record);
+                logger.info("Calculated payroll for employee {} - Gross: {}", 
+                    timesheet.getEmployee().getId(), record.getGrossPay());
+            } catch (Exception e) {
+                result.failCount++;
+                logger.error("Error calculating payroll for employee {}: {}", 
+                    timesheet.getEmployee() != null ? timesheet.getEmployee().getId() : "null", e.getMessage(), e);
             }
-            
-            for (Timesheet ts : timesheets) {
-                logger.info("Refreshing timesheet {} for employee {} from current attendance data",
-                    ts.getTimesheetNumber(), ts.getEmployee().getId());
-                calculateTimesheetFromAttendance(ts);
-                timesheetRepository.save(ts);
-                logger.info("Refreshed timesheet {} - Regular: {}h, OT: {}h, Total: {}h",
-                    ts.getTimesheetNumber(), ts.getTotalRegularHours(), ts.getTotalOvertimeHours(), ts.getTotalHours());
+        }
+        
+        // Arrears are assigned only for the records that were calculated, and flushed before the records are saved
+        // so they do not look changed after the record they are paid in
+        claimRetroAdjustments(run, result.records, inputs);
+        payrollRecordRepository.saveAll(result.records);
+        for (PayrollRecord record : result.records) {
+            claimReimbursements(record, inputs);
+        }
+        return result;
+    }
+    
+    private void adjustChunkTotals(PayrollRunChunk chunk, List<PayrollRecord> removed, List<PayrollRecord> added) {
+        chunk.setTotalGrossPay(adjustTotal(chunk.getTotalGrossPay(), removed, added, PayrollRecord::getGrossPay));
+        chunk.setTotalDeductions(adjustTotal(chunk.getTotalDeductions(), removed, added, PayrollRecord::getTotalDeductions));
+        chunk.setTotalTaxes(adjustTotal(chunk.getTotalTaxes(), removed, added, PayrollRecord::getTotalTaxes));
+        chunk.setTotalNetPay(adjustTotal(chunk.getTotalNetPay(), removed, added, PayrollRecord::getNetPay));
+        chunk.setTotalEmployerContributions(adjustTotal(chunk.getTotalEmployerContributions(), removed, added,
+            PayrollRecord::getTotalEmployerContributions));
+    }
+    
+    private BigDecimal adjustTotal(BigDecimal total, List<PayrollRecord> removed, List<PayrollRecord> added,
+                                   Function<PayrollRecord, BigDecimal> amount) {
+        BigDecimal result = total != null ? total : BigDecimal.ZERO;
+        for (PayrollRecord record : removed) {
+            result = result.subtract(amount.apply(record) != null ? amount.apply(record) : BigDecimal.ZERO);
+        }
+        for (PayrollRecord record : added) {
+            result = result.add(amount.apply(record) != null ? amount.apply(record) : BigDecimal.ZERO);
+        }
+        return result;
+    }
+    
+    private static class ChunkResult {
+        private final List<PayrollRecord> records = new ArrayList<>();
+        private int failCount;
+    }
+    
+    private void recalculateDirtyEmployees(Long runId) {
+        IncrementalPlan plan = newTransaction().execute(status -> planIncrementalRecalculation(runId));
+        logger.info("Payroll run {} incremental recalculation: {} dirty employee(s) in {} chunk(s), {} chunk(s) recalculated in full",
+            runId, plan.dirtyEmployeeCount, plan.partialChunks.size(), plan.fullChunkIds.size());
+        
+        CompiledTaxTables taxTables = taxRuleTableService.current();
+        Map<Long, Runnable> calculations = new LinkedHashMap<>();
+        for (Long chunkId : plan.fullChunkIds) {
+            calculations.put(chunkId, () -> calculateChunk(chunkId, taxTables));
+        }
+        plan.partialChunks.forEach((chunkId, timesheetIds) ->
+            calculations.put(chunkId, () -> recalculateChunkEmployees(chunkId, timesheetIds, taxTables)));
+        runChunksInParallel(calculations);
+    }
+    
+    // Dirty employees are those whose attendance, salary or benefits changed after their record was calculated,
+    // who have newly approved reimbursements, or who have no record yet. Failed chunks and timesheets that
+    // joined the period after the last calculation are calculated in full.
+    private IncrementalPlan planIncrementalRecalculation(Long runId) {
+        PayrollRun run = payrollRunRepository.findById(runId)
+            .orElseThrow(() -> new PayrollCalculationException("Payroll run not found: " + runId));
+        LocalDate start = run.getPeriodStartDate();
+        LocalDate end = run.getPeriodEndDate();
+        List<PayrollRunChunk> chunks = payrollRunChunkRepository.findByPayrollRunIdOrderByChunkIndexAsc(runId);
+        
+        IncrementalPlan plan = new IncrementalPlan();
+        Map<Long, Long> chunkByTimesheet = new HashMap<>();
+        for (PayrollRunChunk chunk : chunks) {
+            if (!"COMPLETED".equals(chunk.getStatus())) {
+                plan.fullChunkIds.add(chunk.getId());
             }
-            
-            int successCount = 0;
-            int failCount = 0;
-            
-            for (Timesheet timesheet : timesheets) {
-                try {
-                    PayrollRecord record = calculateEmployeePayroll(run, timesheet.getEmployee(), timesheet);
-                    payrollRecordRepository.save(record);
-                    successCount++;
-                    logger.info("Calculated payroll for employee {} - Gross: {}", 
-                        timesheet.getEmployee().getId(), record.getGrossPay());
-                } catch (Exception e) {
-                    failCount++;
-                    logger.error("Error calculating payroll for employee {}: {}", 
-                        timesheet.getEmployee() != null ? timesheet.getEmployee().getId() : "null", e.getMessage(), e);
+            for (Long timesheetId : parseTimesheetIds(chunk.getTimesheetIds())) {
+                chunkByTimesheet.put(timesheetId, chunk.getId());
+            }
+        }
+        
+        List<Timesheet> runTimesheets = timesheetRepository.findAllById(chunkByTimesheet.keySet());
+        Set<Long> runEmployeeIds = employeeIdsOf(runTimesheets);
+        
+        Set<Long> dirtyEmployeeIds = new HashSet<>();
+        dirtyEmployeeIds.addAll(payrollRecordRepository.findEmployeeIdsWithAttendanceChangedSinceCalculation(runId, start, end));
+        dirtyEmployeeIds.addAll(payrollRecordRepository.findEmployeeIdsWithSalaryChangedSinceCalculation(runId));
+        dirtyEmployeeIds.addAll(payrollRecordRepository.findEmployeeIdsWithBenefitChangedSinceCalculation(runId));
+        dirtyEmployeeIds.addAll(payrollRecordRepository.findEmployeeIdsWithPendingReimbursements(runId, start, end));
+        dirtyEmployeeIds.addAll(payrollRecordRepository.findEmployeeIdsWithRetroAdjustmentChangedSinceCalculation(runId));
+        Set<Long> calculatedEmployeeIds = new HashSet<>(payrollRecordRepository.findEmployeeIdsByPayrollRunId(runId));
+        for (Long employeeId : runEmployeeIds) {
+            if (!calculatedEmployeeIds.contains(employeeId)) {
+                dirtyEmployeeIds.add(employeeId);
+            }
+        }
+        
+        Map<Long, Timesheet> joined = new LinkedHashMap<>();
+        for (Timesheet ts : timesheetRepository.findApprovedTimesheetsByPeriod(start, end)) {
+            joined.put(ts.getId(), ts);
+        }
+        for (Timesheet ts : timesheetRepository.findByPeriodStartDateAndPeriodEndDate(start, end)) {
+            joined.putIfAbsent(ts.getId(), ts);
+        }
+        List<Timesheet> newTimesheets = joined.values().stream()
+            .filter(ts -> ts.getEmployee() != null && !chunkByTimesheet.containsKey(ts.getId())
+                && !runEmployeeIds.contains(ts.getEmployee().getId()))
+            .toList();
+        
+        List<Timesheet> refreshed = new ArrayList<>(newTimesheets);
+        for (Timesheet ts : runTimesheets) {
+            if (dirtyEmployeeIds.contains(ts.getEmployee().getId())) {
+                refreshed.add(ts);
+                Long chunkId = chunkByTimesheet.get(ts.getId());
+                if (!plan.fullChunkIds.contains(chunkId)) {
+                    plan.partialChunks.computeIfAbsent(chunkId, id -> new ArrayList<>()).add(ts.getId());
                 }
             }
-            
-            if (successCount == 0) {
-                run.setStatus("ERROR");
-                payrollRunRepository.save(run);
-                throw new PayrollCalculationException("No payroll records could be calculated. Ensure employees have salary/hourly rate configured.");
+        }
+        if (!refreshed.isEmpty()) {
+            PayrollInputSnapshot attendance = payrollInputSnapshotLoader.loadAttendance(employeeIdsOf(refreshed), start, end);
+            for (Timesheet ts : refreshed) {
+                calculateTimesheetFromAttendance(ts, attendance);
             }
-            
-            aggregatePayrollTotals(run);
-            
-            run.setStatus("CALCULATED");
-            logger.info("Payroll calculation completed: {} succeeded, {} failed", successCount, failCount);
-            return payrollRunRepository.save(run);
-        } catch (PayrollCalculationException e) {
-            throw e;
-        } catch (Exception e) {
-            run.setStatus("ERROR");
-            payrollRunRepository.save(run);
-            throw new PayrollCalculationException("Unexpected error during payroll calculation: " + e.getMessage());
+            applyPeriodOvertime(refreshed, attendance, start, end);
+            timesheetRepository.saveAll(refreshed);
         }
+        
+        if (!newTimesheets.isEmpty()) {
+            int nextIndex = chunks.stream().mapToInt(PayrollRunChunk::getChunkIndex).max().orElse(-1) + 1;
+            List<Long> newTimesheetIds = newTimesheets.stream().map(Timesheet::getId).toList();
+            for (PayrollRunChunk chunk : createChunks(run, newTimesheetIds, nextIndex)) {
+                plan.fullChunkIds.add(chunk.getId());
+            }
+        }
+        
+        plan.dirtyEmployeeCount = dirtyEmployeeIds.size() + newTimesheets.size();
+        return plan;
+    }
+    
+    private static class IncrementalPlan {
+        private final List<Long> fullChunkIds = new ArrayList<>();
+        private final Map<Long, List<Long>> partialChunks = new LinkedHashMap<>();
+        private int dirtyEmployeeCount;
+    }
+    
+    private List<Long> parseTimesheetIds(String timesheetIds) {
+        if (timesheetIds == null) {
+            return List.of();
+        }
+        return Arrays.stream(timesheetIds.split(","))
+            .map(String::trim)
+            .filter(id -> !id.isEmpty())
+            .map(Long::valueOf)
+            .toList();
+    }
+    
+    private Set<Long> employeeIdsOf(List<Timesheet> timesheets) {
+        return timesheets.stream()
+            .map(ts -> ts.getEmployee().getId())
+            .collect(Collectors.toSet());
+    }
+    
+    private PayrollRun completeRun(Long runId) {
+        PayrollRun run = payrollRunRepository.findById(runId)
+            .orElseThrow(() -> new PayrollCalculationException("Payroll run not found: " + runId));
+        List<PayrollRunChunk> chunks = payrollRunChunkRepository.findByPayrollRunIdOrderByChunkIndexAsc(runId);
+        
+        aggregatePayrollTotals(run, chunks);
+        
+        long failedChunks = chunks.stream().filter(c -> "FAILED".equals(c.getStatus())).count();
+        int failedEmployees = chunks.stream().mapToInt(c -> c.getFailedCount() != null ? c.getFailedCount() : 0).sum();
+        
+        if (run.getTotalEmployees() == 0) {
+            if (failedChunks > 0) {
+                throw new PayrollCalculationException(failedChunks + " of " + chunks.size() + 
+                    " payroll chunk(s) failed and no records were calculated. Retry the failed chunks once the cause is resolved.");
+            }
+            throw new PayrollCalculationException("No payroll records could be calculated. Ensure employees have salary/hourly rate configured.");
+        }
+        
+        run.setStatus("CALCULATED");
+        logger.info("Payroll calculation completed: {} succeeded, {} failed, {} of {} chunk(s) failed",
+            run.getTotalEmployees(), failedEmployees, failedChunks, chunks.size());
+        return payrollRunRepository.save(run);
+    }
+    
+    private void markRunError(Long runId) {
+        newTransaction().executeWithoutResult(status ->
+            payrollRunRepository.findById(runId).ifPresent(run -> {
+                run.setStatus("ERROR");
+                payrollRunRepository.save(run);
+            }));
+    }
+    
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
     }
     
     @Transactional
     public List<Timesheet> generateTimesheetsFromAllAttendance(LocalDate startDate, LocalDate endDate) {
         List<AttendanceRecord> allRecords = attendanceRecordRepository.findByAttendanceDateBetween(startDate, endDate);
+        PayrollInputSnapshot attendance = payrollInputSnapshotLoader.groupAttendance(allRecords);
         
         Map<Long, List<AttendanceRecord>> byEmployee = new HashMap<>();
         for (AttendanceRecord record : allRecords) {
@@ -293,6 +719,7 @@ public class PayrollCalculationService {
         }
         
         List<Timesheet> timesheets = new ArrayList<>();
+        List<Timesheet> generated = new ArrayList<>();
         for (Map.Entry<Long, List<AttendanceRecord>> entry : byEmployee.entrySet()) {
             Long employeeId = entry.getKey();
             List<AttendanceRecord> records = entry.getValue();
@@ -313,17 +740,22 @@ public class PayrollCalculationService {
             timesheet.setPeriodStartDate(startDate);
             timesheet.setPeriodEndDate(endDate);
             
-            calculateTimesheetFromAttendance(timesheet);
-            
-            timesheets.add(timesheetRepository.save(timesheet));
+            calculateTimesheetFromAttendance(timesheet, attendance);
+            generated.add(timesheet);
+        }
+        applyPeriodOvertime(generated, attendance, startDate, endDate);
+        
+        for (Timesheet timesheet : timesheetRepository.saveAll(generated)) {
+            timesheets.add(timesheet);
             logger.info("Generated timesheet from all attendance for employee {} - Regular: {}h, OT: {}h", 
-                employeeId, timesheet.getTotalRegularHours(), timesheet.getTotalOvertimeHours());
+                timesheet.getEmployee().getId(), timesheet.getTotalRegularHours(), timesheet.getTotalOvertimeHours());
         }
         
         return timesheets;
     }
 
-    private PayrollRecord calculateEmployeePayroll(PayrollRun run, Employee employee, Timesheet timesheet) {
+    private PayrollRecord calculateEmployeePayroll(PayrollRun run, Employee employee, Timesheet timesheet,
+                                                   PayrollInputSnapshot inputs, CompiledTaxTables taxTables) {
         PayrollRecord record = new PayrollRecord();
         record.setPayrollRun(run);
         record.setEmployee(employee);
@@ -332,111 +764,197 @@ public class PayrollCalculationService {
         String employeeType = employee.getEmploymentType() != null ? employee.getEmploymentType() : "SALARIED";
         record.setEmployeeType(employeeType);
         
-        BigDecimal annualSalary = resolveAnnualSalary(employee);
+        BigDecimal annualSalary = resolveAnnualSalary(employee, inputs);
         record.setAnnualSalary(annualSalary);
         
-        BigDecimal hourlyRate = calculateHourlyRate(annualSalary);
-        if (hourlyRate.compareTo(BigDecimal.ZERO) == 0) {
+        long hourlyRate = calculateHourlyRate(annualSalary);
+        if (hourlyRate == 0) {
             logger.warn("Employee {} - No salary found (checked salary records and employee record), gross will be 0", employee.getId());
         }
-        record.setHourlyRate(hourlyRate);
+        record.setHourlyRate(FixedPointMoney.fromCents(hourlyRate));
         
         BigDecimal regularHours = BigDecimal.ZERO;
         BigDecimal overtimeHours = BigDecimal.ZERO;
         BigDecimal totalHours = BigDecimal.ZERO;
         
+        // Timesheet hours are split into regular and overtime by the workweek rules when the timesheet is refreshed
         if (timesheet != null) {
             regularHours = timesheet.getTotalRegularHours() != null ? timesheet.getTotalRegularHours() : BigDecimal.ZERO;
             overtimeHours = timesheet.getTotalOvertimeHours() != null ? timesheet.getTotalOvertimeHours() : BigDecimal.ZERO;
             totalHours = timesheet.getTotalHours() != null ? timesheet.getTotalHours() : regularHours.add(overtimeHours);
             logger.info("Employee {} - Using timesheet hours: total={}, regular={}, overtime={}", 
                 employee.getId(), totalHours, regularHours, overtimeHours);
-        } else {
-            FLSAOvertimeService.WeeklyOvertimeResult flsaResult = flsaOvertimeService.aggregatePeriodOvertime(
-                employee.getId(), run.getPeriodStartDate(), run.getPeriodEndDate());
-            regularHours = flsaResult.getRegularHours();
-            overtimeHours = flsaResult.getOvertimeHours();
-            totalHours = regularHours.add(overtimeHours).add(flsaResult.getDoubleTimeHours());
-            logger.info("Employee {} - Using attendance hours: total={}, regular={}, overtime={}", 
-                employee.getId(), totalHours, regularHours, overtimeHours);
         }
         
         record.setRegularHours(regularHours);
         record.setOvertimeHours(overtimeHours);
         
-        BigDecimal basePay = regularHours.multiply(hourlyRate).setScale(2, RoundingMode.HALF_UP);
-        record.setBasePay(basePay);
+        long basePay = FixedPointMoney.multiplyHours(FixedPointMoney.toHours(regularHours), hourlyRate, RoundingMode.HALF_UP);
+        record.setBasePay(FixedPointMoney.fromCents(basePay));
         
-        BigDecimal overtimePay = overtimeHours.multiply(hourlyRate).multiply(FLSA_OVERTIME_MULTIPLIER).setScale(2, RoundingMode.HALF_UP);
-        record.setOvertimePay(overtimePay);
+        long overtimePay = FixedPointMoney.multiplyHours(FixedPointMoney.toHours(overtimeHours), hourlyRate,
+            FLSA_OVERTIME_MULTIPLIER_RATE, RoundingMode.HALF_UP);
+        record.setOvertimePay(FixedPointMoney.fromCents(overtimePay));
         
-        record.setBonuses(BigDecimal.ZERO);
+        long bonuses = 0L;
+        record.setBonuses(FixedPointMoney.fromCents(bonuses));
+
+        long retroPay = calculateRetroPay(run, employee, inputs);
+        record.setRetroPay(FixedPointMoney.fromCents(retroPay));
 
-        BigDecimal reimbursementTotal = calculateReimbursements(employee, run);
-        record.setReimbursements(reimbursementTotal);
+        long reimbursementTotal = calculateReimbursements(employee.getId(), inputs);
+        record.setReimbursements(FixedPointMoney.fromCents(reimbursementTotal));
         
-        BigDecimal grossPay = basePay.add(overtimePay).add(record.getBonuses());
-        record.setGrossPay(grossPay);
+        long grossPay = basePay + overtimePay + bonuses + retroPay;
+        record.setGrossPay(FixedPointMoney.fromCents(grossPay));
         
         logger.info("Employee {} - Hourly rate: {}, Total hours: {}, Gross pay: {}, Reimbursements: {}", 
-            employee.getId(), hourlyRate, totalHours, grossPay, reimbursementTotal);
+            employee.getId(), record.getHourlyRate(), totalHours, record.getGrossPay(), record.getReimbursements());
         
-        calculatePreTaxDeductions(record, employee);
+        long preTaxDeductions = calculatePreTaxDeductions(record, employee, inputs);
         
-        BigDecimal taxableIncome = grossPay.subtract(record.getPreTaxDeductions());
-        record.setTaxableIncome(taxableIncome);
+        long taxableIncome = grossPay - preTaxDeductions;
+        record.setTaxableIncome(FixedPointMoney.fromCents(taxableIncome));
         
-        calculateTaxes(record, taxableIncome, annualSalary);
+        TaxContext taxContext = new TaxContext(taxTables, taxDate(run), employee.getCurrentState(),
+            taxTables.periodsPerYear(run.getPayFrequency()), FixedPointMoney.toCents(inputs.getYtdTaxableWages(employee.getId())));
+        long totalTaxes = calculateTaxes(record, taxableIncome, taxContext);
         
-        calculatePostTaxDeductions(record);
+        long postTaxDeductions = calculatePostTaxDeductions(record);
         
-        BigDecimal totalDeductions = record.getPreTaxDeductions()
-            .add(record.getTotalTaxes())
-            .add(record.getPostTaxDeductions());
-        record.setTotalDeductions(totalDeductions);
+        long totalDeductions = preTaxDeductions + totalTaxes + postTaxDeductions;
+        record.setTotalDeductions(FixedPointMoney.fromCents(totalDeductions));
         
-        BigDecimal netPay = grossPay.subtract(totalDeductions).add(reimbursementTotal);
-        record.setNetPay(netPay);
+        long netPay = grossPay - totalDeductions + reimbursementTotal;
+        record.setNetPay(FixedPointMoney.fromCents(netPay));
         
-        calculateEmployerContributions(record);
+        calculateEmployerContributions(record, taxableIncome, inputs, taxContext);
         
         return record;
     }
 
-    private BigDecimal calculateReimbursements(Employee employee, PayrollRun run) {
-        BigDecimal total = BigDecimal.ZERO;
-        try {
-            List<ExpenseRequest> approvedExpenses = expenseRequestRepository
-                .findApprovedReimbursementsByExpenseDate(
-                    employee.getId(), run.getPeriodStartDate(), run.getPeriodEndDate());
-
-            if (approvedExpenses.isEmpty()) {
-                approvedExpenses = expenseRequestRepository
-                    .findApprovedReimbursementsForPayroll(
-                        employee.getId(), run.getPeriodStartDate(), run.getPeriodEndDate());
+    // Gross-to-net of a closed record re-run in memory at another annual salary. Hours, deductions, benefits and
+    // reimbursements are taken as paid; only the pay rate, and so the taxes and net pay, change. Nothing is saved.
+    public PayrollRecord recomputeRecord(PayrollRecord paid, BigDecimal annualSalary, long wagesToDate, CompiledTaxTables taxTables) {
+        PayrollRun run = paid.getPayrollRun();
+        Employee employee = paid.getEmployee();
+        PayrollRecord record = new PayrollRecord();
+        record.setPayrollRun(run);
+        record.setEmployee(employee);
+        record.setEmployeeType(paid.getEmployeeType());
+        record.setAnnualSalary(annualSalary);
+        
+        long hourlyRate = calculateHourlyRate(annualSalary);
+        record.setHourlyRate(FixedPointMoney.fromCents(hourlyRate));
+        record.setRegularHours(paid.getRegularHours());
+        record.setOvertimeHours(paid.getOvertimeHours());
+        
+        long basePay = FixedPointMoney.multiplyHours(FixedPointMoney.toHours(paid.getRegularHours()), hourlyRate, RoundingMode.HALF_UP);
+        long overtimePay = FixedPointMoney.multiplyHours(FixedPointMoney.toHours(paid.getOvertimeHours()), hourlyRate,
+            FLSA_OVERTIME_MULTIPLIER_RATE, RoundingMode.HALF_UP);
+        long bonuses = FixedPointMoney.toCents(paid.getBonuses());
+        long retroPay = FixedPointMoney.toCents(paid.getRetroPay());
+        long reimbursementTotal = FixedPointMoney.toCents(paid.getReimbursements());
+        record.setBasePay(FixedPointMoney.fromCents(basePay));
+        record.setOvertimePay(FixedPointMoney.fromCents(overtimePay));
+        record.setBonuses(paid.getBonuses());
+        record.setRetroPay(paid.getRetroPay());
+        record.setReimbursements(paid.getReimbursements());
+        
+        long grossPay = basePay + overtimePay + bonuses + retroPay;
+        record.setGrossPay(FixedPointMoney.fromCents(grossPay));
+        
+        long preTaxDeductions = FixedPointMoney.toCents(paid.getPreTaxDeductions());
+        record.setPreTaxDeductions(paid.getPreTaxDeductions());
+        long taxableIncome = grossPay - preTaxDeductions;
+        record.setTaxableIncome(FixedPointMoney.fromCents(taxableIncome));
+        
+        TaxContext taxContext = new TaxContext(taxTables, taxDate(run), employee.getCurrentState(),
+            taxTables.periodsPerYear(run.getPayFrequency()), wagesToDate);
+        long totalTaxes = calculateTaxes(record, taxableIncome, taxContext);
+        
+        long postTaxDeductions = FixedPointMoney.toCents(paid.getPostTaxDeductions());
+        record.setPostTaxDeductions(paid.getPostTaxDeductions());
+        
+        long totalDeductions = preTaxDeductions + totalTaxes + postTaxDeductions;
+        record.setTotalDeductions(FixedPointMoney.fromCents(totalDeductions));
+        record.setNetPay(FixedPointMoney.fromCents(grossPay - totalDeductions + reimbursementTotal));
+        
+        long employerSS = taxContext.socialSecurity.employerAmount(taxableIncome, wagesToDate);
+        long employerMedicare = taxContext.medicare.employerAmount(taxableIncome, wagesToDate);
+        long employerBenefits = FixedPointMoney.toCents(paid.getEmployerHealthContribution()) + FixedPointMoney.toCents(paid.getEmployer401kMatch());
+        record.setEmployerSocialSecurity(FixedPointMoney.fromCents(employerSS));
+        record.setEmployerMedicare(FixedPointMoney.fromCents(employerMedicare));
+        record.setEmployerHealthContribution(paid.getEmployerHealthContribution());
+        record.setEmployer401kMatch(paid.getEmployer401kMatch());
+        record.setTotalEmployerContributions(FixedPointMoney.fromCents(employerSS + employerMedicare + employerBenefits));
+        return record;
+    }
+
+    // All outstanding arrears of the employee become one retro pay line; claimRetroAdjustments holds them for the run
+    // once the record is calculated
+    private long calculateRetroPay(PayrollRun run, Employee employee, PayrollInputSnapshot inputs) {
+        long total = 0L;
+        for (PayrollRetroAdjustment adjustment : inputs.getRetroAdjustments(employee.getId())) {
+            total += FixedPointMoney.toCents(adjustment.getArrearsGrossPay());
+        }
+        if (total != 0) {
+            logger.info("Employee {} - Including retro pay {} from {} salary revision(s)",
+                employee.getId(), FixedPointMoney.fromCents(total), inputs.getRetroAdjustments(employee.getId()).size());
+        }
+        return total;
+    }
+
+    private void claimRetroAdjustments(PayrollRun run, List<PayrollRecord> records, PayrollInputSnapshot inputs) {
+        List<PayrollRetroAdjustment> claimed = new ArrayList<>();
+        for (PayrollRecord record : records) {
+            for (PayrollRetroAdjustment adjustment : inputs.getRetroAdjustments(record.getEmployee().getId())) {
+                adjustment.setPayrollRun(run);
+                claimed.add(adjustment);
             }
+        }
+        if (!claimed.isEmpty()) {
+            payrollRetroAdjustmentRepository.saveAll(claimed);
+            payrollRetroAdjustmentRepository.flush();
+        }
+    }
 
-            for (ExpenseRequest expense : approvedExpenses) {
-                BigDecimal amount = expense.getApprovedAmount() != null && expense.getApprovedAmount().compareTo(BigDecimal.ZERO) > 0
-                    ? expense.getApprovedAmount()
-                    : expense.getTotalAmount();
-                total = total.add(amount);
+    // Reimbursements dated in the period, or failing that approved in it. Only summed here; they are marked as
+    // paid by claimReimbursements once the employee's record is saved.
+    private List<ExpenseRequest> reimbursementsFor(Long employeeId, PayrollInputSnapshot inputs) {
+        List<ExpenseRequest> approvedExpenses = inputs.getReimbursementsByExpenseDate(employeeId);
+        return approvedExpenses.isEmpty() ? inputs.getReimbursementsByApprovalDate(employeeId) : approvedExpenses;
+    }
 
-                expense.setReimbursementStatus("PROCESSED");
-                expense.setReimbursedAt(LocalDateTime.now());
-                expenseRequestRepository.save(expense);
+    private long calculateReimbursements(Long employeeId, PayrollInputSnapshot inputs) {
+        long total = 0L;
+        for (ExpenseRequest expense : reimbursementsFor(employeeId, inputs)) {
+            total += FixedPointMoney.toCents(reimbursementAmount(expense));
+            logger.info("Employee {} - Including reimbursement {} amount {} from expense request {}",
+                employeeId, expense.getRequestNumber(), reimbursementAmount(expense), expense.getId());
+        }
+        return total;
+    }
 
-                logger.info("Employee {} - Including reimbursement {} amount {} from expense request {}",
-                    employee.getId(), expense.getRequestNumber(), amount, expense.getId());
-            }
-        } catch (Exception e) {
-            logger.warn("Error fetching reimbursements for employee {}: {}", employee.getId(), e.getMessage());
+    // Ties the reimbursements included in a saved record to it; recalculating the record releases them again
+    private void claimReimbursements(PayrollRecord record, PayrollInputSnapshot inputs) {
+        List<ExpenseRequest> expenses = reimbursementsFor(record.getEmployee().getId(), inputs);
+        for (ExpenseRequest expense : expenses) {
+            expense.setReimbursementStatus("PROCESSED");
+            expense.setReimbursedAt(LocalDateTime.now());
+            expense.setPayrollRecord(record);
         }
-        return total.setScale(2, RoundingMode.HALF_UP);
+        expenseRequestRepository.saveAll(expenses);
     }
 
-    private BigDecimal resolveAnnualSalary(Employee employee) {
-        Optional<EmployeeSalary> currentSalary = employeeSalaryRepository.findByEmployeeIdAndIsCurrentTrue(employee.getId());
+    private static BigDecimal reimbursementAmount(ExpenseRequest expense) {
+        return expense.getApprovedAmount() != null && expense.getApprovedAmount().compareTo(BigDecimal.ZERO) > 0
+            ? expense.getApprovedAmount()
+            : expense.getTotalAmount();
+    }
+
+    private BigDecimal resolveAnnualSalary(Employee employee, PayrollInputSnapshot inputs) {
+        Optional<EmployeeSalary> currentSalary = Optional.ofNullable(inputs.getCurrentSalary(employee.getId()));
         if (currentSalary.isPresent() && currentSalary.get().getBasicSalary() != null 
                 && currentSalary.get().getBasicSalary().compareTo(BigDecimal.ZERO) > 0) {
             logger.info("Employee {} - Using salary from EmployeeSalary record: {}", 
@@ -453,18 +971,36 @@ public class PayrollCalculationService {
         return BigDecimal.ZERO;
     }
 
-    private BigDecimal calculateHourlyRate(BigDecimal annualSalary) {
+    private long calculateHourlyRate(BigDecimal annualSalary) {
         if (annualSalary == null || annualSalary.compareTo(BigDecimal.ZERO) == 0) {
-            return BigDecimal.ZERO;
+            return 0L;
         }
-        return annualSalary.divide(HOURS_PER_YEAR, 2, RoundingMode.HALF_UP);
+        return FixedPointMoney.divide(FixedPointMoney.toCents(annualSalary), HOURS_PER_YEAR, RoundingMode.HALF_UP);
+    }
+
+    private LocalDate taxDate(PayrollRun run) {
+        return run.getPayDate() != null ? run.getPayDate() : run.getPeriodEndDate();
     }
 
-    private int getPeriodsPerYear(PayFrequency frequency) {
-        if (frequency != null && frequency.getPeriodsPerYear() != null) {
-            return frequency.getPeriodsPerYear();
+    // Tax tables and contributions resolved once for one employee's calculation
+    private static class TaxContext {
+        private final CompiledTaxTables.BracketTable federal;
+        private final CompiledTaxTables.BracketTable state;
+        private final CompiledTaxTables.Contribution socialSecurity;
+        private final CompiledTaxTables.Contribution medicare;
+        private final CompiledTaxTables.Contribution disability;
+        private final int periodsPerYear;
+        private final long wagesToDate;
+
+        TaxContext(CompiledTaxTables tables, LocalDate date, String jurisdiction, int periodsPerYear, long wagesToDate) {
+            this.federal = tables.incomeTax("FEDERAL", jurisdiction, date);
+            this.state = tables.incomeTax("STATE", jurisdiction, date);
+            this.socialSecurity = tables.contribution("SOCIAL_SECURITY", jurisdiction, date);
+            this.medicare = tables.contribution("MEDICARE", jurisdiction, date);
+            this.disability = tables.contribution("DISABILITY", jurisdiction, date);
+            this.periodsPerYear = periodsPerYear;
+            this.wagesToDate = wagesToDate;
         }
-        return 12; // Default to monthly
     }
 
     private BigDecimal getOvertimeMultiplier() {
@@ -475,155 +1011,137 @@ public class PayrollCalculationService {
         return new BigDecimal("1.5");
     }
 
-    private void calculatePreTaxDeductions(PayrollRecord record, Employee employee) {
-        List<EmployeeBenefit> benefits = employeeBenefitRepository.findByEmployeeIdAndIsPreTaxTrueAndIsActiveTrue(employee.getId());
+    private long calculatePreTaxDeductions(PayrollRecord record, Employee employee, PayrollInputSnapshot inputs) {
+        List<EmployeeBenefit> benefits = inputs.getActiveBenefits(employee.getId()).stream()
+            .filter(b -> Boolean.TRUE.equals(b.getIsPreTax()))
+            .toList();
         
-        BigDecimal health = BigDecimal.ZERO;
-        BigDecimal dental = BigDecimal.ZERO;
-        BigDecimal vision = BigDecimal.ZERO;
-        BigDecimal retirement = BigDecimal.ZERO;
-        BigDecimal hsa = BigDecimal.ZERO;
-        BigDecimal other = BigDecimal.ZERO;
+        long health = 0L;
+        long dental = 0L;
+        long vision = 0L;
+        long retirement = 0L;
+        long hsa = 0L;
+        long other = 0L;
         
         for (EmployeeBenefit benefit : benefits) {
-            BigDecimal contribution = benefit.getEmployeeContribution() != null ? benefit.getEmployeeContribution() : BigDecimal.ZERO;
+            long contribution = FixedPointMoney.toCents(benefit.getEmployeeContribution());
             
             switch (benefit.getBenefitType()) {
                 case "HEALTH":
-                    health = health.add(contribution);
+                    health += contribution;
                     break;
                 case "DENTAL":
-                    dental = dental.add(contribution);
+                    dental += contribution;
                     break;
                 case "VISION":
-                    vision = vision.add(contribution);
+                    vision += contribution;
                     break;
                 case "401K":
-                    retirement = retirement.add(contribution);
+                    retirement += contribution;
                     break;
                 case "HSA":
-                    hsa = hsa.add(contribution);
+                    hsa += contribution;
                     break;
                 default:
-                    other = other.add(contribution);
+                    other += contribution;
             }
         }
         
-        record.setHealthInsurance(health);
-        record.setDentalInsurance(dental);
-        record.setVisionInsurance(vision);
-        record.setRetirement401k(retirement);
-        record.setHsaContribution(hsa);
-        record.setOtherPreTaxDeductions(other);
+        record.setHealthInsurance(FixedPointMoney.fromCents(health));
+        record.setDentalInsurance(FixedPointMoney.fromCents(dental));
+        record.setVisionInsurance(FixedPointMoney.fromCents(vision));
+        record.setRetirement401k(FixedPointMoney.fromCents(retirement));
+        record.setHsaContribution(FixedPointMoney.fromCents(hsa));
+        record.setOtherPreTaxDeductions(FixedPointMoney.fromCents(other));
         
-        BigDecimal totalPreTax = health.add(dental).add(vision).add(retirement).add(hsa).add(other);
-        record.setPreTaxDeductions(totalPreTax);
+        long totalPreTax = health + dental + vision + retirement + hsa + other;
+        record.setPreTaxDeductions(FixedPointMoney.fromCents(totalPreTax));
+        return totalPreTax;
     }
 
-    private void calculateTaxes(PayrollRecord record, BigDecimal taxableIncome, BigDecimal annualSalary) {
-        BigDecimal federalTax = calculateFederalTax(taxableIncome, annualSalary);
-        BigDecimal stateTax = calculateStateTax(taxableIncome);
-        BigDecimal localTax = BigDecimal.ZERO;
+    private long calculateTaxes(PayrollRecord record, long taxableIncome, TaxContext tax) {
+        long federalTax = tax.federal.periodTax(taxableIncome, tax.periodsPerYear);
+        long stateTax = tax.state.periodTax(taxableIncome, tax.periodsPerYear);
+        long localTax = 0L;
         
-        BigDecimal ssTax = taxableIncome.multiply(SOCIAL_SECURITY_RATE).setScale(2, RoundingMode.HALF_UP);
-        BigDecimal medicareTax = taxableIncome.multiply(MEDICARE_RATE).setScale(2, RoundingMode.HALF_UP);
-        BigDecimal disabilityTax = taxableIncome.multiply(DISABILITY_RATE).setScale(2, RoundingMode.HALF_UP);
+        long ssTax = tax.socialSecurity.employeeAmount(taxableIncome, tax.wagesToDate);
+        long medicareTax = tax.medicare.employeeAmount(taxableIncome, tax.wagesToDate);
+        long disabilityTax = tax.disability.employeeAmount(taxableIncome, tax.wagesToDate);
         
-        record.setFederalTax(federalTax);
-        record.setStateTax(stateTax);
-        record.setLocalTax(localTax);
-        record.setSocialSecurityTax(ssTax);
-        record.setMedicareTax(medicareTax);
-        record.setDisabilityTax(disabilityTax);
+        record.setFederalTax(FixedPointMoney.fromCents(federalTax));
+        record.setStateTax(FixedPointMoney.fromCents(stateTax));
+        record.setLocalTax(FixedPointMoney.fromCents(localTax));
+        record.setSocialSecurityTax(FixedPointMoney.fromCents(ssTax));
+        record.setMedicareTax(FixedPointMoney.fromCents(medicareTax));
+        record.setDisabilityTax(FixedPointMoney.fromCents(disabilityTax));
         
-        BigDecimal totalTaxes = federalTax.add(stateTax).add(localTax).add(ssTax).add(medicareTax).add(disabilityTax);
-        record.setTotalTaxes(totalTaxes);
+        long totalTaxes = federalTax + stateTax + localTax + ssTax + medicareTax + disabilityTax;
+        record.setTotalTaxes(FixedPointMoney.fromCents(totalTaxes));
+        return totalTaxes;
     }
 
-    private BigDecimal calculateFederalTax(BigDecimal taxableIncome, BigDecimal annualSalary) {
-        List<TaxRule> federalRules = taxRuleRepository.findByTaxTypeAndIsActiveTrue("FEDERAL");
+    private long calculatePostTaxDeductions(PayrollRecord record) {
+        long loanDeductions = 0L;
+        long garnishments = 0L;
+        long otherPostTax = 0L;
         
-        if (!federalRules.isEmpty()) {
-            TaxRule rule = federalRules.get(0);
-            if (rule.getRate() != null) {
-                return taxableIncome.multiply(rule.getRate().divide(BigDecimal.valueOf(100))).setScale(2, RoundingMode.HALF_UP);
-            }
-        }
+        record.setLoanDeductions(FixedPointMoney.fromCents(loanDeductions));
+        record.setGarnishments(FixedPointMoney.fromCents(garnishments));
+        record.setOtherPostTaxDeductions(FixedPointMoney.fromCents(otherPostTax));
         
-        return taxableIncome.multiply(new BigDecimal("0.22")).setScale(2, RoundingMode.HALF_UP);
+        long totalPostTax = loanDeductions + garnishments + otherPostTax;
+        record.setPostTaxDeductions(FixedPointMoney.fromCents(totalPostTax));
+        return totalPostTax;
     }
 
-    private BigDecimal calculateStateTax(BigDecimal taxableIncome) {
-        List<TaxRule> stateRules = taxRuleRepository.findByTaxTypeAndIsActiveTrue("STATE");
+    private void calculateEmployerContributions(PayrollRecord record, long taxableIncome, PayrollInputSnapshot inputs, TaxContext tax) {
+        long employerSS = tax.socialSecurity.employerAmount(taxableIncome, tax.wagesToDate);
+        long employerMedicare = tax.medicare.employerAmount(taxableIncome, tax.wagesToDate);
         
-        if (!stateRules.isEmpty()) {
-            TaxRule rule = stateRules.get(0);
-            if (rule.getRate() != null) {
-                return taxableIncome.multiply(rule.getRate().divide(BigDecimal.valueOf(100))).setScale(2, RoundingMode.HALF_UP);
-            }
-        }
-        
-        return taxableIncome.multiply(new BigDecimal("0.05")).setScale(2, RoundingMode.HALF_UP);
-    }
-
-    private void calculatePostTaxDeductions(PayrollRecord record) {
-        record.setLoanDeductions(BigDecimal.ZERO);
-        record.setGarnishments(BigDecimal.ZERO);
-        record.setOtherPostTaxDeductions(BigDecimal.ZERO);
-        
-        BigDecimal totalPostTax = record.getLoanDeductions()
-            .add(record.getGarnishments())
-            .add(record.getOtherPostTaxDeductions());
-        record.setPostTaxDeductions(totalPostTax);
-    }
-
-    private void calculateEmployerContributions(PayrollRecord record) {
-        BigDecimal taxableIncome = record.getTaxableIncome();
-        
-        BigDecimal employerSS = taxableIncome.multiply(SOCIAL_SECURITY_RATE).setScale(2, RoundingMode.HALF_UP);
-        BigDecimal employerMedicare = taxableIncome.multiply(MEDICARE_RATE).setScale(2, RoundingMode.HALF_UP);
-        
-        List<EmployeeBenefit> benefits = employeeBenefitRepository.findByEmployeeIdAndIsActiveTrue(record.getEmployee().getId());
-        BigDecimal employerHealth = BigDecimal.ZERO;
-        BigDecimal employer401kMatch = BigDecimal.ZERO;
+        List<EmployeeBenefit> benefits = inputs.getActiveBenefits(record.getEmployee().getId());
+        long employerHealth = 0L;
+        long employer401kMatch = 0L;
         
         for (EmployeeBenefit benefit : benefits) {
             if (benefit.getEmployerContribution() != null) {
                 if ("HEALTH".equals(benefit.getBenefitType())) {
-                    employerHealth = employerHealth.add(benefit.getEmployerContribution());
+                    employerHealth += FixedPointMoney.toCents(benefit.getEmployerContribution());
                 } else if ("401K".equals(benefit.getBenefitType())) {
-                    employer401kMatch = employer401kMatch.add(benefit.getEmployerContribution());
+                    employer401kMatch += FixedPointMoney.toCents(benefit.getEmployerContribution());
                 }
             }
         }
         
-        record.setEmployerSocialSecurity(employerSS);
-        record.setEmployerMedicare(employerMedicare);
-        record.setEmployerHealthContribution(employerHealth);
-        record.setEmployer401kMatch(employer401kMatch);
+        record.setEmployerSocialSecurity(FixedPointMoney.fromCents(employerSS));
+        record.setEmployerMedicare(FixedPointMoney.fromCents(employerMedicare));
+        record.setEmployerHealthContribution(FixedPointMoney.fromCents(employerHealth));
+        record.setEmployer401kMatch(FixedPointMoney.fromCents(employer401kMatch));
         
-        BigDecimal totalEmployerContrib = employerSS.add(employerMedicare).add(employerHealth).add(employer401kMatch);
-        record.setTotalEmployerContributions(totalEmployerContrib);
+        long totalEmployerContrib = employerSS + employerMedicare + employerHealth + employer401kMatch;
+        record.setTotalEmployerContributions(FixedPointMoney.fromCents(totalEmployerContrib));
     }
 
-    private void aggregatePayrollTotals(PayrollRun run) {
-        List<PayrollRecord> records = payrollRecordRepository.findByPayrollRunId(run.getId());
-        
+    private void aggregatePayrollTotals(PayrollRun run, List<PayrollRunChunk> chunks) {
+        int totalEmployees = 0;
         BigDecimal totalGross = BigDecimal.ZERO;
         BigDecimal totalDeductions = BigDecimal.ZERO;
         BigDecimal totalTaxes = BigDecimal.ZERO;
         BigDecimal totalNet = BigDecimal.ZERO;
         BigDecimal totalEmployerContrib = BigDecimal.ZERO;
         
-        for (PayrollRecord record : records) {
-            totalGross = totalGross.add(record.getGrossPay());
-            totalDeductions = totalDeductions.add(record.getTotalDeductions());
-            totalTaxes = totalTaxes.add(record.getTotalTaxes());
-            totalNet = totalNet.add(record.getNetPay());
-            totalEmployerContrib = totalEmployerContrib.add(record.getTotalEmployerContributions());
+        for (PayrollRunChunk chunk : chunks) {
+            if (!"COMPLETED".equals(chunk.getStatus())) {
+                continue;
+            }
+            totalEmployees += chunk.getRecordCount();
+            totalGross = totalGross.add(chunk.getTotalGrossPay());
+            totalDeductions = totalDeductions.add(chunk.getTotalDeductions());
+            totalTaxes = totalTaxes.add(chunk.getTotalTaxes());
+            totalNet = totalNet.add(chunk.getTotalNetPay());
+            totalEmployerContrib = totalEmployerContrib.add(chunk.getTotalEmployerContributions());
         }
         
-        run.setTotalEmployees(records.size());
+        run.setTotalEmployees(totalEmployees);
         run.setTotalGrossPay(totalGross);
         run.setTotalDeductions(totalDeductions);
         run.setTotalTaxes(totalTaxes);
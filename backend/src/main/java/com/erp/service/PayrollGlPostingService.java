@@ -0,0 +1,246 @@
+package com.erp.service;
+
+import com.erp.model.ChartOfAccount;
+import com.erp.model.JournalEntry;
+import com.erp.model.JournalLine;
+import com.erp.model.PayrollRun;
+import com.erp.repository.ChartOfAccountRepository;
+import com.erp.repository.JournalEntryRepository;
+import com.erp.repository.PayrollRecordRepository;
+import com.erp.repository.PayrollRecordRepository.GlSummaryRow;
+import com.erp.repository.PayrollRunRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Posts a payroll run to the general ledger as one balanced journal entry. The run's records are summed per
+// cost center and department in the database; expenses keep that split, liabilities are one line per account.
+@Service
+public class PayrollGlPostingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayrollGlPostingService.class);
+
+    public static final String REFERENCE_TYPE = "PayrollRun";
+
+    @Autowired
+    private PayrollRecordRepository payrollRecordRepository;
+
+    @Autowired
+    private PayrollRunRepository payrollRunRepository;
+
+    @Autowired
+    private JournalEntryService journalEntryService;
+
+    @Autowired
+    private JournalEntryRepository journalEntryRepository;
+
+    @Autowired
+    private ChartOfAccountRepository accountRepository;
+
+    @Value("${payroll.gl.wages-expense-account:6000}")
+    private String wagesExpenseAccount;
+
+    @Value("${payroll.gl.employer-tax-expense-account:6000}")
+    private String employerTaxExpenseAccount;
+
+    @Value("${payroll.gl.employer-benefits-expense-account:6000}")
+    private String employerBenefitsExpenseAccount;
+
+    @Value("${payroll.gl.reimbursements-account:2200}")
+    private String reimbursementsAccount;
+
+    @Value("${payroll.gl.tax-payable-account:2300}")
+    private String taxPayableAccount;
+
+    @Value("${payroll.gl.deductions-payable-account:2300}")
+    private String deductionsPayableAccount;
+
+    @Value("${payroll.gl.benefits-payable-account:2300}")
+    private String benefitsPayableAccount;
+
+    @Value("${payroll.gl.net-pay-account:2200}")
+    private String netPayAccount;
+
+    public Optional<JournalEntry> findPosting(Long runId) {
+        Set<Long> reversed = new HashSet<>();
+        List<JournalEntry> entries = journalEntryRepository.findByReferenceTypeAndReferenceId(REFERENCE_TYPE, runId);
+        for (JournalEntry entry : entries) {
+            if (Boolean.TRUE.equals(entry.getIsReversing()) && entry.getReversedEntryId() != null) {
+                reversed.add(entry.getReversedEntryId());
+            }
+        }
+        return entries.stream()
+            .filter(e -> "Posted".equals(e.getStatus()) && !Boolean.TRUE.equals(e.getIsReversing()) && !reversed.contains(e.getId()))
+            .findFirst();
+    }
+
+    // The entry the run would post, built but not saved
+    public JournalEntry previewRunPosting(PayrollRun run) {
+        return buildEntry(run, null);
+    }
+
+    @Transactional
+    public JournalEntry postRun(PayrollRun run, String postedBy) {
+        if (findPosting(run.getId()).isPresent()) {
+            throw new PayrollCalculationException("Payroll run " + run.getPayrollRunNumber() + " is already posted to the general ledger");
+        }
+        JournalEntry entry = buildEntry(run, postedBy);
+        if (entry.getLines().isEmpty()) {
+            throw new PayrollCalculationException("Payroll run " + run.getPayrollRunNumber() + " has no amounts to post");
+        }
+        JournalEntry saved = journalEntryService.createJournalEntry(entry);
+        JournalEntry posted = journalEntryService.postJournalEntry(saved.getId(), postedBy);
+
+        run.setIsPostedToAccounts(true);
+        run.setPostedAt(LocalDateTime.now());
+        payrollRunRepository.save(run);
+        logger.info("Posted payroll run {} to the general ledger as {} with {} line(s), total {}",
+            run.getPayrollRunNumber(), posted.getEntryNumber(), posted.getLines().size(), posted.getTotalDebit());
+        return posted;
+    }
+
+    @Transactional
+    public Optional<JournalEntry> reverseRunPosting(PayrollRun run, String reversedBy) {
+        Optional<JournalEntry> posting = findPosting(run.getId());
+        if (posting.isEmpty()) {
+            return Optional.empty();
+        }
+        JournalEntry reversal = journalEntryService.reverseJournalEntry(posting.get().getId(), reversedBy);
+        reversal.setReferenceType(REFERENCE_TYPE);
+        reversal.setReferenceId(run.getId());
+        reversal.setReferenceNumber(run.getPayrollRunNumber());
+        journalEntryService.save(reversal);
+
+        run.setIsPostedToAccounts(false);
+        run.setPostedAt(null);
+        payrollRunRepository.save(run);
+        return Optional.of(reversal);
+    }
+
+    private JournalEntry buildEntry(PayrollRun run, String createdBy) {
+        Map<LineKey, long[]> amounts = new LinkedHashMap<>();
+        int records = 0;
+
+        for (GlSummaryRow row : payrollRecordRepository.summarizeForGlByPayrollRunId(run.getId())) {
+            records += row.getRecordCount().intValue();
+            LineKey expense = new LineKey(null, row.getCostCenterId(), row.getCostCenterCode(), row.getDepartmentName());
+
+            debit(amounts, expense.withAccount(wagesExpenseAccount), row.getGrossPay());
+            debit(amounts, expense.withAccount(employerTaxExpenseAccount), row.getEmployerSocialSecurity(), row.getEmployerMedicare());
+            debit(amounts, expense.withAccount(employerBenefitsExpenseAccount), row.getEmployerHealthContribution(), row.getEmployer401kMatch());
+            debit(amounts, new LineKey(reimbursementsAccount, null, null, "Reimbursements"), row.getReimbursements());
+
+            credit(amounts, new LineKey(taxPayableAccount, null, null, "Withholding and payroll taxes"),
+                row.getFederalTax(), row.getStateTax(), row.getLocalTax(), row.getSocialSecurityTax(), row.getMedicareTax(),
+                row.getDisabilityTax(), row.getEmployerSocialSecurity(), row.getEmployerMedicare());
+            credit(amounts, new LineKey(deductionsPayableAccount, null, null, "Employee deductions"),
+                row.getPreTaxDeductions(), row.getPostTaxDeductions());
+            credit(amounts, new LineKey(benefitsPayableAccount, null, null, "Employer benefit contributions"),
+                row.getEmployerHealthContribution(), row.getEmployer401kMatch());
+            credit(amounts, new LineKey(netPayAccount, null, null, "Net pay"), row.getNetPay());
+        }
+
+        JournalEntry entry = new JournalEntry();
+        entry.setEntryDate(run.getPayDate() != null ? run.getPayDate() : LocalDate.now());
+        entry.setDescription("Payroll " + run.getPayrollRunNumber() + " (" + run.getPeriodStartDate() + " to " + run.getPeriodEndDate()
+            + ", " + records + " records)");
+        entry.setReferenceType(REFERENCE_TYPE);
+        entry.setReferenceId(run.getId());
+        entry.setReferenceNumber(run.getPayrollRunNumber());
+        entry.setCreatedBy(createdBy);
+
+        Map<String, ChartOfAccount> accounts = new HashMap<>();
+        long totalDebit = 0L;
+        long totalCredit = 0L;
+        for (Map.Entry<LineKey, long[]> amount : amounts.entrySet()) {
+            LineKey key = amount.getKey();
+            long net = amount.getValue()[0] - amount.getValue()[1];
+            if (net == 0) {
+                continue;
+            }
+            ChartOfAccount account = accounts.computeIfAbsent(key.accountCode, code -> accountRepository.findByAccountCode(code)
+                .orElseThrow(() -> new PayrollCalculationException("GL account " + code + " for payroll posting not found")));
+
+            JournalLine line = new JournalLine();
+            line.setAccount(account);
+            line.setCostCenterId(key.costCenterId);
+            line.setDescription("Payroll " + run.getPayrollRunNumber() + " - " + key.describe());
+            line.setDebitAmount(FixedPointMoney.fromCents(Math.max(net, 0L)));
+            line.setCreditAmount(FixedPointMoney.fromCents(Math.max(-net, 0L)));
+            entry.addLine(line);
+            totalDebit += Math.max(net, 0L);
+            totalCredit += Math.max(-net, 0L);
+        }
+
+        if (totalDebit != totalCredit) {
+            throw new PayrollCalculationException("Payroll run " + run.getPayrollRunNumber() + " does not balance for posting: debits "
+                + FixedPointMoney.fromCents(totalDebit) + ", credits " + FixedPointMoney.fromCents(totalCredit));
+        }
+        entry.setTotalDebit(FixedPointMoney.fromCents(totalDebit));
+        entry.setTotalCredit(FixedPointMoney.fromCents(totalCredit));
+        return entry;
+    }
+
+    private static void debit(Map<LineKey, long[]> amounts, LineKey key, BigDecimal... values) {
+        amounts.computeIfAbsent(key, k -> new long[2])[0] += sum(values);
+    }
+
+    private static void credit(Map<LineKey, long[]> amounts, LineKey key, BigDecimal... values) {
+        amounts.computeIfAbsent(key, k -> new long[2])[1] += sum(values);
+    }
+
+    private static long sum(BigDecimal... values) {
+        long total = 0L;
+        for (BigDecimal value : values) {
+            total += FixedPointMoney.toCents(value);
+        }
+        return total;
+    }
+
+    // One journal line: a GL account, split by cost center and department for expenses
+    private static class LineKey {
+        private final String accountCode;
+        private final Long costCenterId;
+        private final String costCenterCode;
+        private final String label;
+
+        LineKey(String accountCode, Long costCenterId, String costCenterCode, String label) {
+            this.accountCode = accountCode;
+            this.costCenterId = costCenterId;
+            this.costCenterCode = costCenterCode;
+            this.label = label;
+        }
+
+        LineKey withAccount(String accountCode) {
+            return new LineKey(accountCode, costCenterId, costCenterCode, label);
+        }
+
+        String describe() {
+            String department = label != null ? label : "No department";
+            return costCenterCode != null ? department + " / " + costCenterCode : department;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LineKey)) return false;
+            LineKey other = (LineKey) o;
+            return Objects.equals(accountCode, other.accountCode) && Objects.equals(costCenterId, other.costCenterId)
+                && Objects.equals(label, other.label);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountCode, costCenterId, label);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.erp.service;
+
+import com.erp.model.AttendanceRecord;
+import com.erp.model.EmployeeBenefit;
+import com.erp.model.EmployeeSalary;
+import com.erp.model.ExpenseRequest;
+import com.erp.model.PayrollRetroAdjustment;
+import com.erp.model.PayrollYtdAccumulator;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PayrollInputSnapshot {
+
+    private final Map<Long, EmployeeSalary> currentSalaries = new HashMap<>();
+    private final Map<Long, List<EmployeeBenefit>> activeBenefits = new HashMap<>();
+    private final Map<Long, List<ExpenseRequest>> reimbursementsByExpenseDate = new HashMap<>();
+    private final Map<Long, List<ExpenseRequest>> reimbursementsByApprovalDate = new HashMap<>();
+    private final Map<Long, List<AttendanceRecord>> attendance = new HashMap<>();
+    private final Map<Long, PayrollYtdAccumulator> yearToDate = new HashMap<>();
+    private final Map<Long, List<PayrollRetroAdjustment>> retroAdjustments = new HashMap<>();
+
+    public EmployeeSalary getCurrentSalary(Long employeeId) {
+        return currentSalaries.get(employeeId);
+    }
+
+    public List<EmployeeBenefit> getActiveBenefits(Long employeeId) {
+        return activeBenefits.getOrDefault(employeeId, Collections.emptyList());
+    }
+
+    public List<ExpenseRequest> getReimbursementsByExpenseDate(Long employeeId) {
+        return reimbursementsByExpenseDate.getOrDefault(employeeId, Collections.emptyList());
+    }
+
+    public List<ExpenseRequest> getReimbursementsByApprovalDate(Long employeeId) {
+        return reimbursementsByApprovalDate.getOrDefault(employeeId, Collections.emptyList());
+    }
+
+    public List<AttendanceRecord> getAttendance(Long employeeId) {
+        return attendance.getOrDefault(employeeId, Collections.emptyList());
+    }
+
+    public BigDecimal getYtdTaxableWages(Long employeeId) {
+        PayrollYtdAccumulator ytd = yearToDate.get(employeeId);
+        return ytd != null && ytd.getTaxableWages() != null ? ytd.getTaxableWages() : BigDecimal.ZERO;
+    }
+
+    public List<PayrollRetroAdjustment> getRetroAdjustments(Long employeeId) {
+        return retroAdjustments.getOrDefault(employeeId, Collections.emptyList());
+    }
+
+    Map<Long, EmployeeSalary> currentSalaries() { return currentSalaries; }
+    Map<Long, List<EmployeeBenefit>> activeBenefits() { return activeBenefits; }
+    Map<Long, List<ExpenseRequest>> reimbursementsByExpenseDate() { return reimbursementsByExpenseDate; }
+    Map<Long, List<ExpenseRequest>> reimbursementsByApprovalDate() { return reimbursementsByApprovalDate; }
+    Map<Long, List<AttendanceRecord>> attendance() { return attendance; }
+    Map<Long, PayrollYtdAccumulator> yearToDate() { return yearToDate; }
+    Map<Long, List<PayrollRetroAdjustment>> retroAdjustments() { return retroAdjustments; }
+}
@@ -0,0 +1,102 @@
+package com.erp.service;
+
+import com.erp.model.*;
+import com.erp.repository.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+
+@Service
+public class PayrollInputSnapshotLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayrollInputSnapshotLoader.class);
+
+    @Autowired
+    private EmployeeSalaryRepository employeeSalaryRepository;
+
+    @Autowired
+    private EmployeeBenefitRepository employeeBenefitRepository;
+
+    @Autowired
+    private ExpenseRequestRepository expenseRequestRepository;
+
+    @Autowired
+    private AttendanceRecordRepository attendanceRecordRepository;
+
+    @Autowired
+    private PayrollYtdAccumulatorRepository payrollYtdAccumulatorRepository;
+
+    @Autowired
+    private PayrollRetroAdjustmentRepository payrollRetroAdjustmentRepository;
+
+    // Call inside the transaction that saves the payroll records: reimbursements are marked processed and
+    // retro adjustments assigned to the run on these entities
+    public PayrollInputSnapshot loadCompensationInputs(Collection<Long> employeeIds, Long payrollRunId, LocalDate startDate, LocalDate endDate, int taxYear) {
+        PayrollInputSnapshot snapshot = new PayrollInputSnapshot();
+        if (employeeIds.isEmpty()) {
+            return snapshot;
+        }
+        
+        for (EmployeeSalary salary : employeeSalaryRepository.findByEmployeeIdInAndIsCurrentTrue(employeeIds)) {
+            snapshot.currentSalaries().merge(salary.getEmployee().getId(), salary, PayrollInputSnapshotLoader::latestSalary);
+        }
+        
+        for (EmployeeBenefit benefit : employeeBenefitRepository.findByEmployeeIdInAndIsActiveTrue(employeeIds)) {
+            snapshot.activeBenefits().computeIfAbsent(benefit.getEmployee().getId(), k -> new ArrayList<>()).add(benefit);
+        }
+        
+        for (ExpenseRequest expense : expenseRequestRepository.findApprovedReimbursementsByExpenseDateForEmployees(employeeIds, startDate, endDate)) {
+            snapshot.reimbursementsByExpenseDate().computeIfAbsent(expense.getEmployee().getId(), k -> new ArrayList<>()).add(expense);
+        }
+        
+        for (ExpenseRequest expense : expenseRequestRepository.findApprovedReimbursementsForPayrollByEmployees(employeeIds, startDate, endDate)) {
+            snapshot.reimbursementsByApprovalDate().computeIfAbsent(expense.getEmployee().getId(), k -> new ArrayList<>()).add(expense);
+        }
+        
+        for (PayrollYtdAccumulator ytd : payrollYtdAccumulatorRepository.findByEmployeeIdInAndTaxYear(employeeIds, taxYear)) {
+            snapshot.yearToDate().put(ytd.getEmployee().getId(), ytd);
+        }
+        
+        for (PayrollRetroAdjustment adjustment : payrollRetroAdjustmentRepository.findPayableForRun(payrollRunId, employeeIds)) {
+            snapshot.retroAdjustments().computeIfAbsent(adjustment.getEmployee().getId(), k -> new ArrayList<>()).add(adjustment);
+        }
+        
+        logger.info("Loaded payroll inputs for {} employees: {} salaries, {} with benefits, {} with reimbursements",
+            employeeIds.size(), snapshot.currentSalaries().size(), snapshot.activeBenefits().size(),
+            snapshot.reimbursementsByExpenseDate().size() + snapshot.reimbursementsByApprovalDate().size());
+        return snapshot;
+    }
+
+    public PayrollInputSnapshot loadAttendance(LocalDate startDate, LocalDate endDate) {
+        return groupAttendance(attendanceRecordRepository.findByAttendanceDateBetween(startDate, endDate));
+    }
+
+    public PayrollInputSnapshot loadAttendance(Collection<Long> employeeIds, LocalDate startDate, LocalDate endDate) {
+        if (employeeIds.isEmpty()) {
+            return new PayrollInputSnapshot();
+        }
+        return groupAttendance(attendanceRecordRepository.findByEmployeeIdInAndAttendanceDateBetween(employeeIds, startDate, endDate));
+    }
+
+    public PayrollInputSnapshot groupAttendance(List<AttendanceRecord> records) {
+        PayrollInputSnapshot snapshot = new PayrollInputSnapshot();
+        for (AttendanceRecord record : records) {
+            if (record.getEmployee() != null) {
+                snapshot.attendance().computeIfAbsent(record.getEmployee().getId(), k -> new ArrayList<>()).add(record);
+            }
+        }
+        return snapshot;
+    }
+
+    private static EmployeeSalary latestSalary(EmployeeSalary a, EmployeeSalary b) {
+        if (a.getEffectiveFrom() != null && b.getEffectiveFrom() != null && !a.getEffectiveFrom().equals(b.getEffectiveFrom())) {
+            return a.getEffectiveFrom().isAfter(b.getEffectiveFrom()) ? a : b;
+        }
+        return a.getId() > b.getId() ? a : b;
+    }
+}
@@ -0,0 +1,300 @@
+package com.erp.service;
+
+import com.erp.model.PayrollRun;
+import com.erp.repository.PayrollRecordRepository;
+import com.erp.repository.PayrollRecordRepository.VarianceRow;
+import com.erp.repository.PayrollRunRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+
+// Compares a payroll run with a baseline run (by default the previous approved or processed one): the baseline
+// is loaded into a hash table keyed by employee and the run's rows are probed against it in a single pass
+@Service
+public class PayrollVarianceService {
+
+    private static final long ONE_HUNDRED_PERCENT = 10_000L; // basis points
+
+    @Autowired
+    private PayrollRecordRepository payrollRecordRepository;
+
+    @Autowired
+    private PayrollRunRepository payrollRunRepository;
+
+    // Only runs whose records are complete: a failed or still-calculating run holds a partial set
+    public Optional<PayrollRun> findBaselineRun(PayrollRun run) {
+        LocalDate before = run.getPeriodStartDate() != null ? run.getPeriodStartDate() : run.getPeriodEndDate();
+        return payrollRunRepository.findFirstByPeriodEndDateBeforeAndStatusInOrderByPeriodEndDateDesc(
+            before, List.of("APPROVED", "PROCESSED"));
+    }
+
+    // Employees outside the given set are left out; changes at or below the threshold percent count as unchanged
+    public VarianceReport compare(PayrollRun run, PayrollRun baseline, BigDecimal thresholdPercent, Set<Long> employeeIds) {
+        long threshold = thresholdBasisPoints(thresholdPercent);
+
+        Map<Long, Totals> baselineTotals = loadTotals(baseline, employeeIds);
+        Map<Long, Totals> currentTotals = new LinkedHashMap<>();
+        for (VarianceRow row : payrollRecordRepository.findVarianceRowsByPayrollRunId(run.getId())) {
+            if (employeeIds.contains(row.getEmployeeId())) {
+                currentTotals.computeIfAbsent(row.getEmployeeId(), id -> new Totals(row)).add(row);
+            }
+        }
+
+        VarianceReport report = new VarianceReport(run, baseline, thresholdPercent);
+        for (Totals current : currentTotals.values()) {
+            Totals previous = baselineTotals.remove(current.employeeId);
+            if (previous == null) {
+                report.newEmployees++;
+                report.lines.add(new VarianceLine("NEW", Totals.EMPTY, current));
+                continue;
+            }
+            VarianceLine line = new VarianceLine("CHANGED", previous, current);
+            if (line.score > threshold) {
+                report.changedEmployees++;
+                report.lines.add(line);
+            } else {
+                report.unchangedEmployees++;
+            }
+        }
+        for (Totals previous : baselineTotals.values()) {
+            report.departedEmployees++;
+            report.lines.add(new VarianceLine("DEPARTED", previous, Totals.EMPTY));
+        }
+
+        report.lines.sort(Comparator.comparingLong((VarianceLine l) -> l.score).reversed()
+            .thenComparing(Comparator.comparingLong((VarianceLine l) -> Math.abs(l.grossChange)).reversed())
+            .thenComparing(l -> l.employeeId));
+        return report;
+    }
+
+    // The same comparison written as CSV while the run's rows are read: only the baseline is held in memory, and
+    // lines come out in employee order rather than ranked, followed by the departed employees
+    @Transactional(readOnly = true)
+    public void writeCsv(PayrollRun run, PayrollRun baseline, BigDecimal thresholdPercent, Set<Long> employeeIds,
+                         Writer out) throws IOException {
+        long threshold = thresholdBasisPoints(thresholdPercent);
+        Map<Long, Totals> baselineTotals = loadTotals(baseline, employeeIds);
+
+        out.write("Employee Code,Employee Name,Change,Previous Gross,Current Gross,Gross Change,Gross Change %,"
+            + "Previous Taxes,Current Taxes,Taxes Change,Taxes Change %,Previous Net,Current Net,Net Change,Net Change %,Variance %\n");
+        try (Stream<VarianceRow> rows = payrollRecordRepository.streamVarianceRowsByPayrollRunId(run.getId())) {
+            Iterator<VarianceRow> iterator = rows.iterator();
+            Totals current = null;
+            while (iterator.hasNext()) {
+                VarianceRow row = iterator.next();
+                if (!employeeIds.contains(row.getEmployeeId())) {
+                    continue;
+                }
+                if (current != null && !current.employeeId.equals(row.getEmployeeId())) {
+                    writeChange(out, current, baselineTotals.remove(current.employeeId), threshold);
+                    current = null;
+                }
+                if (current == null) {
+                    current = new Totals(row);
+                }
+                current.add(row);
+            }
+            if (current != null) {
+                writeChange(out, current, baselineTotals.remove(current.employeeId), threshold);
+            }
+        }
+        for (Totals previous : baselineTotals.values()) {
+            writeLine(out, new VarianceLine("DEPARTED", previous, Totals.EMPTY));
+        }
+        out.flush();
+    }
+
+    private static void writeChange(Writer out, Totals current, Totals previous, long threshold) throws IOException {
+        if (previous == null) {
+            writeLine(out, new VarianceLine("NEW", Totals.EMPTY, current));
+            return;
+        }
+        VarianceLine line = new VarianceLine("CHANGED", previous, current);
+        if (line.score > threshold) {
+            writeLine(out, line);
+        }
+    }
+
+    private static void writeLine(Writer out, VarianceLine line) throws IOException {
+        out.write(String.join(",",
+            csv(line.employeeCode), csv(line.employeeName), line.changeType,
+            line.getPreviousGrossPay().toPlainString(), line.getCurrentGrossPay().toPlainString(),
+            line.getGrossPayChange().toPlainString(), percentText(line.getGrossPayChangePercent()),
+            line.getPreviousTaxes().toPlainString(), line.getCurrentTaxes().toPlainString(),
+            line.getTaxesChange().toPlainString(), percentText(line.getTaxesChangePercent()),
+            line.getPreviousNetPay().toPlainString(), line.getCurrentNetPay().toPlainString(),
+            line.getNetPayChange().toPlainString(), percentText(line.getNetPayChangePercent()),
+            line.getVariancePercent().toPlainString()));
+        out.write("\n");
+    }
+
+    private Map<Long, Totals> loadTotals(PayrollRun run, Set<Long> employeeIds) {
+        Map<Long, Totals> totals = new HashMap<>();
+        for (VarianceRow row : payrollRecordRepository.findVarianceRowsByPayrollRunId(run.getId())) {
+            if (employeeIds.contains(row.getEmployeeId())) {
+                totals.computeIfAbsent(row.getEmployeeId(), id -> new Totals(row)).add(row);
+            }
+        }
+        return totals;
+    }
+
+    private static long thresholdBasisPoints(BigDecimal thresholdPercent) {
+        return thresholdPercent != null ? thresholdPercent.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact() : 0L;
+    }
+
+    private static String percentText(BigDecimal percent) {
+        return percent != null ? percent.toPlainString() : "";
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    // Change in basis points of the previous amount; anything from zero counts as a full 100%
+    private static long changeBasisPoints(long previous, long current) {
+        if (previous == current) {
+            return 0L;
+        }
+        if (previous == 0) {
+            return ONE_HUNDRED_PERCENT;
+        }
+        return FixedPointMoney.multiplyDivide(Math.abs(current - previous), ONE_HUNDRED_PERCENT, Math.abs(previous), RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal percent(long previous, long current) {
+        if (previous == 0) {
+            return null;
+        }
+        long basisPoints = FixedPointMoney.multiplyDivide(current - previous, ONE_HUNDRED_PERCENT, previous, RoundingMode.HALF_UP);
+        return BigDecimal.valueOf(previous > 0 ? basisPoints : -basisPoints, 2);
+    }
+
+    // One employee's amounts in a run, in cents; several records of one employee are summed
+    private static class Totals {
+        private static final Totals EMPTY = new Totals(null, null, null);
+
+        private final Long employeeId;
+        private final String employeeCode;
+        private final String employeeName;
+        private long grossPay;
+        private long taxes;
+        private long netPay;
+
+        Totals(VarianceRow row) {
+            this(row.getEmployeeId(), row.getEmployeeCode(),
+                ((row.getFirstName() != null ? row.getFirstName() : "") + " " + (row.getLastName() != null ? row.getLastName() : "")).trim());
+        }
+
+        private Totals(Long employeeId, String employeeCode, String employeeName) {
+            this.employeeId = employeeId;
+            this.employeeCode = employeeCode;
+            this.employeeName = employeeName;
+        }
+
+        Totals add(VarianceRow row) {
+            grossPay += FixedPointMoney.toCents(row.getGrossPay());
+            taxes += FixedPointMoney.toCents(row.getTotalTaxes());
+            netPay += FixedPointMoney.toCents(row.getNetPay());
+            return this;
+        }
+    }
+
+    public static class VarianceLine {
+        private final Long employeeId;
+        private final String employeeCode;
+        private final String employeeName;
+        private final String changeType; // NEW, DEPARTED, CHANGED
+        private final long previousGross;
+        private final long currentGross;
+        private final long grossChange;
+        private final long previousTaxes;
+        private final long currentTaxes;
+        private final long previousNet;
+        private final long currentNet;
+        private final long score; // largest change of gross, taxes or net, in basis points
+
+        VarianceLine(String changeType, Totals previous, Totals current) {
+            Totals employee = current.employeeId != null ? current : previous;
+            this.employeeId = employee.employeeId;
+            this.employeeCode = employee.employeeCode;
+            this.employeeName = employee.employeeName;
+            this.changeType = changeType;
+            this.previousGross = previous.grossPay;
+            this.currentGross = current.grossPay;
+            this.grossChange = current.grossPay - previous.grossPay;
+            this.previousTaxes = previous.taxes;
+            this.currentTaxes = current.taxes;
+            this.previousNet = previous.netPay;
+            this.currentNet = current.netPay;
+            this.score = "CHANGED".equals(changeType)
+                ? Math.max(changeBasisPoints(previousGross, currentGross),
+                    Math.max(changeBasisPoints(previousTaxes, currentTaxes), changeBasisPoints(previousNet, currentNet)))
+                : ONE_HUNDRED_PERCENT;
+        }
+
+        public Long getEmployeeId() { return employeeId; }
+        public String getEmployeeCode() { return employeeCode; }
+        public String getEmployeeName() { return employeeName; }
+        public String getChangeType() { return changeType; }
+        public BigDecimal getPreviousGrossPay() { return FixedPointMoney.fromCents(previousGross); }
+        public BigDecimal getCurrentGrossPay() { return FixedPointMoney.fromCents(currentGross); }
+        public BigDecimal getGrossPayChange() { return FixedPointMoney.fromCents(grossChange); }
+        public BigDecimal getGrossPayChangePercent() { return percent(previousGross, currentGross); }
+        public BigDecimal getPreviousTaxes() { return FixedPointMoney.fromCents(previousTaxes); }
+        public BigDecimal getCurrentTaxes() { return FixedPointMoney.fromCents(currentTaxes); }
+        public BigDecimal getTaxesChange() { return FixedPointMoney.fromCents(currentTaxes - previousTaxes); }
+        public BigDecimal getTaxesChangePercent() { return percent(previousTaxes, currentTaxes); }
+        public BigDecimal getPreviousNetPay() { return FixedPointMoney.fromCents(previousNet); }
+        public BigDecimal getCurrentNetPay() { return FixedPointMoney.fromCents(currentNet); }
+        public BigDecimal getNetPayChange() { return FixedPointMoney.fromCents(currentNet - previousNet); }
+        public BigDecimal getNetPayChangePercent() { return percent(previousNet, currentNet); }
+        public BigDecimal getVariancePercent() { return BigDecimal.valueOf(score, 2); }
+    }
+
+    public static class VarianceReport {
+        private final Long payrollRunId;
+        private final String payrollRunNumber;
+        private final Long baselineRunId;
+        private final String baselineRunNumber;
+        private final BigDecimal thresholdPercent;
+        private int newEmployees;
+        private int departedEmployees;
+        private int changedEmployees;
+        private int unchangedEmployees;
+        private final List<VarianceLine> lines = new ArrayList<>();
+
+        VarianceReport(PayrollRun run, PayrollRun baseline, BigDecimal thresholdPercent) {
+            this.payrollRunId = run.getId();
+            this.payrollRunNumber = run.getPayrollRunNumber();
+            this.baselineRunId = baseline.getId();
+            this.baselineRunNumber = baseline.getPayrollRunNumber();
+            this.thresholdPercent = thresholdPercent;
+        }
+
+        public Long getPayrollRunId() { return payrollRunId; }
+        public String getPayrollRunNumber() { return payrollRunNumber; }
+        public Long getBaselineRunId() { return baselineRunId; }
+        public String getBaselineRunNumber() { return baselineRunNumber; }
+        public BigDecimal getThresholdPercent() { return thresholdPercent; }
+        public int getNewEmployees() { return newEmployees; }
+        public int getDepartedEmployees() { return departedEmployees; }
+        public int getChangedEmployees() { return changedEmployees; }
+        public int getUnchangedEmployees() { return unchangedEmployees; }
+        public List<VarianceLine> getLines() { return lines; }
+    }
+}
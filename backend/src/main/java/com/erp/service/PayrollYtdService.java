@@ -0,0 +1,216 @@
+package com.erp.service;
+
+import com.erp.model.*;
+import com.erp.repository.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+public class PayrollYtdService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayrollYtdService.class);
+    private static final Set<String> VOIDABLE_STATUSES = Set.of("APPROVED", "PROCESSED", "PARTIALLY_PROCESSED");
+
+    @Autowired
+    private PayrollYtdAccumulatorRepository payrollYtdAccumulatorRepository;
+
+    @Autowired
+    private PayrollRecordRepository payrollRecordRepository;
+
+    @Autowired
+    private PayrollRunRepository payrollRunRepository;
+
+    @Autowired
+    private PayrollRetroAdjustmentRepository payrollRetroAdjustmentRepository;
+
+    @Autowired
+    private ExpenseRequestRepository expenseRequestRepository;
+
+    @Autowired
+    private PayrollGlPostingService payrollGlPostingService;
+
+    public static int taxYearOf(PayrollRun run) {
+        if (run.getPayDate() != null) {
+            return run.getPayDate().getYear();
+        }
+        return run.getPeriodEndDate() != null ? run.getPeriodEndDate().getYear() : LocalDate.now().getYear();
+    }
+
+    // Approves a calculated run and applies it to YTD. The run row is locked first, so a repeated or concurrent
+    // approval sees the APPROVED status and is refused instead of posting the run twice.
+    @Transactional
+    public PayrollRun approveRun(Long runId, Employee approver) {
+        PayrollRun run = payrollRunRepository.lockById(runId)
+            .orElseThrow(() -> new PayrollCalculationException("Payroll run not found: " + runId));
+        if (!"CALCULATED".equals(run.getStatus())) {
+            throw new PayrollCalculationException("Only calculated payroll runs can be approved (current status: " + run.getStatus() + ")");
+        }
+        run.setStatus("APPROVED");
+        run.setApprovedAt(LocalDateTime.now());
+        if (approver != null) {
+            run.setApprovedBy(approver);
+        }
+        return applyRun(run);
+    }
+
+    // Adds every record of the run to its employees' accumulators; a run is only ever applied once
+    @Transactional
+    public PayrollRun applyRun(PayrollRun run) {
+        if (run.getYtdAppliedAt() != null) {
+            throw new PayrollCalculationException("Payroll run " + run.getPayrollRunNumber() + " is already included in year-to-date totals");
+        }
+        int taxYear = taxYearOf(run);
+        int employees = post(run, taxYear, 1);
+        run.setYtdTaxYear(taxYear);
+        run.setYtdAppliedAt(LocalDateTime.now());
+        settleRetroAdjustments(run);
+        logger.info("Applied payroll run {} to {} YTD accumulator(s) for {}", run.getPayrollRunNumber(), employees, taxYear);
+        return payrollRunRepository.save(run);
+    }
+
+    // Takes the run back out of the accumulators of the tax year it was applied to
+    @Transactional
+    public PayrollRun reverseRun(PayrollRun run) {
+        if (run.getYtdAppliedAt() == null) {
+            return payrollRunRepository.save(run);
+        }
+        int taxYear = run.getYtdTaxYear() != null ? run.getYtdTaxYear() : taxYearOf(run);
+        int employees = post(run, taxYear, -1);
+        run.setYtdTaxYear(null);
+        run.setYtdAppliedAt(null);
+        releaseRetroAdjustments(run);
+        logger.info("Reversed payroll run {} from {} YTD accumulator(s) for {}", run.getPayrollRunNumber(), employees, taxYear);
+        return payrollRunRepository.save(run);
+    }
+
+    // Voids an approved or processed run in one transaction under the run's row lock: the GL posting is reversed,
+    // YTD is unwound and the records are cancelled together, or nothing is
+    @Transactional
+    public PayrollRun voidRun(Long runId, String remarks, String voidedBy) {
+        PayrollRun run = payrollRunRepository.lockById(runId)
+            .orElseThrow(() -> new PayrollCalculationException("Payroll run not found: " + runId));
+        if (!VOIDABLE_STATUSES.contains(run.getStatus())) {
+            throw new PayrollCalculationException("Only approved or processed payroll runs can be voided (current status: " + run.getStatus() + ")");
+        }
+        payrollGlPostingService.reverseRunPosting(run, voidedBy);
+        List<PayrollRecord> records = payrollRecordRepository.findByPayrollRunId(run.getId());
+        PayrollRun reversed = reverseRun(run);
+        for (PayrollRecord record : records) {
+            record.setStatus("CANCELLED");
+        }
+        payrollRecordRepository.saveAll(records);
+        expenseRequestRepository.releaseForRun(run.getId());
+        reversed.setStatus("VOIDED");
+        if (remarks != null && !remarks.isBlank()) {
+            reversed.setRemarks(remarks);
+        }
+        return payrollRunRepository.save(reversed);
+    }
+
+    public Optional<PayrollYtdAccumulator> findForEmployee(Long employeeId, int taxYear) {
+        return payrollYtdAccumulatorRepository.findByEmployeeIdAndTaxYear(employeeId, taxYear);
+    }
+
+    // Stamps each paystub with the YTD totals as of that paystub. Paystubs arrive newest first, so walking
+    // them backwards from the accumulator needs no sum over the employee's history.
+    public List<PayrollRecord> withYtd(Long employeeId, List<PayrollRecord> paystubs) {
+        Map<Integer, PayrollYtdAccumulator> byYear = payrollYtdAccumulatorRepository.findByEmployeeIdOrderByTaxYearDesc(employeeId).stream()
+            .collect(Collectors.toMap(PayrollYtdAccumulator::getTaxYear, ytd -> ytd, (a, b) -> a));
+        Map<Integer, PayrollYtdAccumulator> running = new HashMap<>();
+
+        for (PayrollRecord paystub : paystubs) {
+            PayrollRun run = paystub.getPayrollRun();
+            int taxYear = run.getYtdTaxYear() != null ? run.getYtdTaxYear() : taxYearOf(run);
+            PayrollYtdAccumulator current = running.computeIfAbsent(taxYear, year -> copyOf(byYear.get(year)));
+
+            paystub.setYtdGrossPay(current.getGrossPay());
+            paystub.setYtdTaxableIncome(current.getTaxableWages());
+            paystub.setYtdTotalTaxes(current.getTotalTaxes());
+            paystub.setYtdNetPay(current.getNetPay());
+
+            if (run.getYtdAppliedAt() != null) {
+                current.apply(paystub, -1);
+            }
+        }
+        return paystubs;
+    }
+
+    private int post(PayrollRun run, int taxYear, int sign) {
+        Map<Long, List<PayrollRecord>> recordsByEmployee = payrollRecordRepository.findByPayrollRunId(run.getId()).stream()
+            .filter(r -> r.getEmployee() != null && !"CANCELLED".equals(r.getStatus()))
+            .collect(Collectors.groupingBy(r -> r.getEmployee().getId()));
+        if (recordsByEmployee.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, PayrollYtdAccumulator> accumulators = payrollYtdAccumulatorRepository
+            .findByEmployeeIdInAndTaxYear(recordsByEmployee.keySet(), taxYear).stream()
+            .collect(Collectors.toMap(ytd -> ytd.getEmployee().getId(), ytd -> ytd));
+
+        List<PayrollYtdAccumulator> changed = new ArrayList<>();
+        recordsByEmployee.forEach((employeeId, records) -> {
+            PayrollYtdAccumulator ytd = accumulators.get(employeeId);
+            if (ytd == null) {
+                ytd = new PayrollYtdAccumulator();
+                ytd.setEmployee(records.get(0).getEmployee());
+                ytd.setTaxYear(taxYear);
+            }
+            for (PayrollRecord record : records) {
+                ytd.apply(record, sign);
+            }
+            ytd.setLastPayrollRunId(run.getId());
+            changed.add(ytd);
+        });
+        payrollYtdAccumulatorRepository.saveAll(changed);
+        return changed.size();
+    }
+
+    // Arrears paid in an approved run are done with; any still assigned to the run without a record for the
+    // employee were never paid and go back to the pool
+    private void settleRetroAdjustments(PayrollRun run) {
+        List<PayrollRetroAdjustment> paid = payrollRetroAdjustmentRepository.findPaidInRun(run.getId());
+        for (PayrollRetroAdjustment adjustment : paid) {
+            adjustment.setStatus("APPLIED");
+            adjustment.setAppliedAt(run.getYtdAppliedAt());
+        }
+        payrollRetroAdjustmentRepository.saveAll(paid);
+
+        List<PayrollRetroAdjustment> unpaid = payrollRetroAdjustmentRepository.findByPayrollRunId(run.getId()).stream()
+            .filter(a -> !"APPLIED".equals(a.getStatus()))
+            .toList();
+        for (PayrollRetroAdjustment adjustment : unpaid) {
+            adjustment.setPayrollRun(null);
+        }
+        payrollRetroAdjustmentRepository.saveAll(unpaid);
+    }
+
+    // Arrears of a reversed run are owed again and go to the next run that is calculated
+    private void releaseRetroAdjustments(PayrollRun run) {
+        List<PayrollRetroAdjustment> adjustments = payrollRetroAdjustmentRepository.findByPayrollRunId(run.getId());
+        for (PayrollRetroAdjustment adjustment : adjustments) {
+            adjustment.setStatus("CALCULATED");
+            adjustment.setPayrollRun(null);
+            adjustment.setAppliedAt(null);
+        }
+        payrollRetroAdjustmentRepository.saveAll(adjustments);
+    }
+
+    private static PayrollYtdAccumulator copyOf(PayrollYtdAccumulator ytd) {
+        PayrollYtdAccumulator copy = new PayrollYtdAccumulator();
+        copy.setGrossPay(ytd != null ? ytd.getGrossPay() : BigDecimal.ZERO);
+        copy.setTaxableWages(ytd != null ? ytd.getTaxableWages() : BigDecimal.ZERO);
+        copy.setTotalTaxes(ytd != null ? ytd.getTotalTaxes() : BigDecimal.ZERO);
+        copy.setNetPay(ytd != null ? ytd.getNetPay() : BigDecimal.ZERO);
+        return copy;
+    }
+}
@@ -0,0 +1,286 @@
+package com.erp.service;
+
+import com.erp.model.*;
+import com.erp.repository.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+// Prices back-dated salary revisions against payroll runs that are already closed. Each pending revision is
+// re-run in memory over the employee's closed records twice, with and without the revision in the salary
+// history, and the difference becomes arrears paid as one retro pay line in the employee's next run.
+@Service
+public class RetroPayService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetroPayService.class);
+
+    @Autowired
+    private PayrollRetroAdjustmentRepository payrollRetroAdjustmentRepository;
+
+    @Autowired
+    private PayrollRecordRepository payrollRecordRepository;
+
+    @Autowired
+    private EmployeeSalaryRepository employeeSalaryRepository;
+
+    @Autowired
+    private PayrollCalculationService payrollCalculationService;
+
+    @Autowired
+    private TaxRuleTableService taxRuleTableService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("payrollExecutor")
+    private TaskExecutor payrollExecutor;
+
+    @Value("${payroll.calculation.chunk-size:200}")
+    private int batchSize;
+
+    // Called in the transaction that saves the revision; revisions effective today or later need no arrears
+    public void registerRevision(EmployeeSalary revision) {
+        if (revision.getEffectiveFrom() == null || !revision.getEffectiveFrom().isBefore(LocalDate.now()) || revision.getEmployee() == null) {
+            return;
+        }
+        PayrollRetroAdjustment adjustment = new PayrollRetroAdjustment();
+        adjustment.setEmployee(revision.getEmployee());
+        adjustment.setSalaryRevision(revision);
+        adjustment.setEffectiveFrom(revision.getEffectiveFrom());
+        adjustment.setStatus("PENDING");
+        payrollRetroAdjustmentRepository.save(adjustment);
+        logger.info("Salary revision {} for employee {} is back-dated to {}, retro pay pending",
+            revision.getId(), revision.getEmployee().getId(), revision.getEffectiveFrom());
+    }
+
+    public List<PayrollRetroAdjustment> findAll() {
+        return payrollRetroAdjustmentRepository.findAllByOrderByCreatedAtDesc();
+    }
+
+    public List<PayrollRetroAdjustment> findByStatus(String status) {
+        return payrollRetroAdjustmentRepository.findByStatusOrderByEmployeeIdAscEffectiveFromAsc(status);
+    }
+
+    // Calculates every pending adjustment: inputs are read in one pass, the revisions are priced in parallel
+    // batches without touching the database, and the results are written back in one transaction
+    public List<PayrollRetroAdjustment> calculatePending() {
+        RetroInputs inputs = newTransaction().execute(status -> loadInputs());
+        if (inputs == null || inputs.adjustments.isEmpty()) {
+            return Collections.emptyList();
+        }
+        CompiledTaxTables taxTables = taxRuleTableService.current();
+
+        List<List<PayrollRetroAdjustment>> batches = new ArrayList<>();
+        for (int i = 0; i < inputs.adjustments.size(); i += Math.max(1, batchSize)) {
+            batches.add(inputs.adjustments.subList(i, Math.min(i + Math.max(1, batchSize), inputs.adjustments.size())));
+        }
+        List<CompletableFuture<List<Arrears>>> futures = new ArrayList<>();
+        for (List<PayrollRetroAdjustment> batch : batches) {
+            futures.add(CompletableFuture.supplyAsync(() -> priceBatch(batch, inputs, taxTables), payrollExecutor));
+        }
+        Map<Long, Arrears> arrearsById = new HashMap<>();
+        for (CompletableFuture<List<Arrears>> future : futures) {
+            for (Arrears arrears : future.join()) {
+                arrearsById.put(arrears.adjustmentId, arrears);
+            }
+        }
+
+        List<PayrollRetroAdjustment> saved = newTransaction().execute(status -> saveArrears(arrearsById));
+        logger.info("Calculated retro pay for {} salary revision(s) of {} employee(s) in {} batch(es)",
+            arrearsById.size(), inputs.salaryHistory.size(), batches.size());
+        return saved;
+    }
+
+    private RetroInputs loadInputs() {
+        RetroInputs inputs = new RetroInputs();
+        inputs.adjustments.addAll(payrollRetroAdjustmentRepository.findByStatusOrderByEmployeeIdAscEffectiveFromAsc("PENDING"));
+        if (inputs.adjustments.isEmpty()) {
+            return inputs;
+        }
+        Set<Long> employeeIds = inputs.adjustments.stream().map(a -> a.getEmployee().getId()).collect(Collectors.toSet());
+        LocalDate earliest = inputs.adjustments.stream().map(PayrollRetroAdjustment::getEffectiveFrom).min(LocalDate::compareTo).get();
+
+        for (EmployeeSalary salary : employeeSalaryRepository.findByEmployeeIdIn(employeeIds)) {
+            if (salary.getEffectiveFrom() != null && salary.getBasicSalary() != null) {
+                inputs.salaryHistory.computeIfAbsent(salary.getEmployee().getId(), k -> new ArrayList<>()).add(salary);
+            }
+        }
+        inputs.salaryHistory.values().forEach(history -> history.sort(
+            Comparator.comparing(EmployeeSalary::getEffectiveFrom).thenComparing(EmployeeSalary::getId)));
+
+        // From the start of the earliest tax year so the wage bases see the wages already paid that year
+        for (PayrollRecord record : payrollRecordRepository.findClosedByEmployeeIdsSince(employeeIds, earliest.withDayOfYear(1))) {
+            inputs.closedRecords.computeIfAbsent(record.getEmployee().getId(), k -> new ArrayList<>()).add(record);
+        }
+        return inputs;
+    }
+
+    private List<Arrears> priceBatch(List<PayrollRetroAdjustment> batch, RetroInputs inputs, CompiledTaxTables taxTables) {
+        List<Arrears> results = new ArrayList<>(batch.size());
+        for (PayrollRetroAdjustment adjustment : batch) {
+            Long employeeId = adjustment.getEmployee().getId();
+            results.add(price(adjustment,
+                inputs.closedRecords.getOrDefault(employeeId, Collections.emptyList()),
+                inputs.salaryHistory.getOrDefault(employeeId, Collections.emptyList()),
+                taxTables));
+        }
+        return results;
+    }
+
+    // Records closed before the revision was entered were paid without it; each is re-run with the salary
+    // history with and without the revision, carrying separate taxable wages to date. A revision is priced only
+    // up to the next salary in the history: revisions sharing its start date and ordered after it are left out of
+    // both sides, and later revisions are in both, so pending revisions for one employee never pay the same days twice
+    private Arrears price(PayrollRetroAdjustment adjustment, List<PayrollRecord> records, List<EmployeeSalary> history,
+                          CompiledTaxTables taxTables) {
+        EmployeeSalary revision = adjustment.getSalaryRevision();
+        int position = -1;
+        for (int i = 0; i < history.size(); i++) {
+            if (history.get(i).getId().equals(revision.getId())) {
+                position = i;
+                break;
+            }
+        }
+        List<EmployeeSalary> withRevision = new ArrayList<>();
+        LocalDate until = null;
+        for (int i = 0; i < history.size(); i++) {
+            EmployeeSalary salary = history.get(i);
+            if (position >= 0 && i > position && salary.getEffectiveFrom().equals(revision.getEffectiveFrom())) {
+                continue;
+            }
+            if (position >= 0 && i > position && until == null) {
+                until = salary.getEffectiveFrom();
+            }
+            withRevision.add(salary);
+        }
+        List<EmployeeSalary> withoutRevision = withRevision.stream().filter(s -> !s.getId().equals(revision.getId())).toList();
+        LocalDateTime enteredAt = revision.getCreatedAt() != null ? revision.getCreatedAt() : LocalDateTime.now();
+
+        Arrears arrears = new Arrears(adjustment.getId());
+        Integer taxYear = null;
+        long revisedWagesToDate = 0L;
+        long priorWagesToDate = 0L;
+
+        for (PayrollRecord paid : records) {
+            int recordYear = PayrollYtdService.taxYearOf(paid.getPayrollRun());
+            if (taxYear == null || taxYear != recordYear) {
+                taxYear = recordYear;
+                revisedWagesToDate = 0L;
+                priorWagesToDate = 0L;
+            }
+            PayrollRun run = paid.getPayrollRun();
+            LocalDate runStart = run.getPeriodStartDate() != null ? run.getPeriodStartDate() : run.getPeriodEndDate();
+            boolean affected = !run.getPeriodEndDate().isBefore(adjustment.getEffectiveFrom())
+                && (until == null || runStart.isBefore(until))
+                && paid.getCreatedAt() != null && paid.getCreatedAt().isBefore(enteredAt);
+            if (!affected) {
+                long taxable = FixedPointMoney.toCents(paid.getTaxableIncome());
+                revisedWagesToDate += taxable;
+                priorWagesToDate += taxable;
+                continue;
+            }
+
+            PayrollRecord revised = payrollCalculationService.recomputeRecord(paid,
+                annualSalaryFor(run, withRevision, paid.getAnnualSalary()), revisedWagesToDate, taxTables);
+            PayrollRecord prior = payrollCalculationService.recomputeRecord(paid,
+                annualSalaryFor(run, withoutRevision, paid.getAnnualSalary()), priorWagesToDate, taxTables);
+            revisedWagesToDate += FixedPointMoney.toCents(revised.getTaxableIncome());
+            priorWagesToDate += FixedPointMoney.toCents(prior.getTaxableIncome());
+
+            arrears.runCount++;
+            arrears.grossPay += difference(revised.getGrossPay(), prior.getGrossPay());
+            arrears.taxes += difference(revised.getTotalTaxes(), prior.getTotalTaxes());
+            arrears.netPay += difference(revised.getNetPay(), prior.getNetPay());
+            arrears.employerContributions += difference(revised.getTotalEmployerContributions(), prior.getTotalEmployerContributions());
+        }
+        return arrears;
+    }
+
+    // Annual salary over the run's period, weighted by the days each salary in the history was in effect;
+    // days before the first salary on record fall back to the salary the record was paid at
+    private static BigDecimal annualSalaryFor(PayrollRun run, List<EmployeeSalary> history, BigDecimal paidSalary) {
+        LocalDate start = run.getPeriodStartDate() != null ? run.getPeriodStartDate() : run.getPeriodEndDate();
+        LocalDate end = run.getPeriodEndDate();
+        long days = ChronoUnit.DAYS.between(start, end) + 1;
+        long paidCents = FixedPointMoney.toCents(paidSalary);
+
+        long weightedCents = 0L;
+        int next = 0;
+        long currentCents = paidCents;
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            while (next < history.size() && !history.get(next).getEffectiveFrom().isAfter(day)) {
+                currentCents = FixedPointMoney.toCents(history.get(next).getBasicSalary());
+                next++;
+            }
+            weightedCents += currentCents;
+        }
+        return FixedPointMoney.fromCents(FixedPointMoney.divide(weightedCents, days, RoundingMode.HALF_UP));
+    }
+
+    private static long difference(BigDecimal revised, BigDecimal prior) {
+        return FixedPointMoney.toCents(revised) - FixedPointMoney.toCents(prior);
+    }
+
+    private List<PayrollRetroAdjustment> saveArrears(Map<Long, Arrears> arrearsById) {
+        List<PayrollRetroAdjustment> adjustments = payrollRetroAdjustmentRepository.findAllById(arrearsById.keySet());
+        LocalDateTime now = LocalDateTime.now();
+        for (PayrollRetroAdjustment adjustment : adjustments) {
+            // A revision entered while this calculation ran is left pending for the next one
+            if (!"PENDING".equals(adjustment.getStatus())) {
+                continue;
+            }
+            Arrears arrears = arrearsById.get(adjustment.getId());
+            adjustment.setAffectedRunCount(arrears.runCount);
+            adjustment.setArrearsGrossPay(FixedPointMoney.fromCents(arrears.grossPay));
+            adjustment.setArrearsTaxes(FixedPointMoney.fromCents(arrears.taxes));
+            adjustment.setArrearsNetPay(FixedPointMoney.fromCents(arrears.netPay));
+            adjustment.setArrearsEmployerContributions(FixedPointMoney.fromCents(arrears.employerContributions));
+            adjustment.setStatus(arrears.grossPay != 0 ? "CALCULATED" : "NONE_DUE");
+            adjustment.setCalculatedAt(now);
+        }
+        return payrollRetroAdjustmentRepository.saveAll(adjustments);
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static class RetroInputs {
+        private final List<PayrollRetroAdjustment> adjustments = new ArrayList<>();
+        private final Map<Long, List<EmployeeSalary>> salaryHistory = new HashMap<>();
+        private final Map<Long, List<PayrollRecord>> closedRecords = new HashMap<>();
+    }
+
+    private static class Arrears {
+        private final Long adjustmentId;
+        private int runCount;
+        private long grossPay;
+        private long taxes;
+        private long netPay;
+        private long employerContributions;
+
+        Arrears(Long adjustmentId) {
+            this.adjustmentId = adjustmentId;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.erp.service;
+
+import com.erp.model.PayFrequency;
+import com.erp.model.StatutoryRule;
+import com.erp.model.TaxRule;
+import com.erp.repository.PayFrequencyRepository;
+import com.erp.repository.StatutoryRuleRepository;
+import com.erp.repository.TaxRuleRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+@Service
+public class TaxRuleTableService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaxRuleTableService.class);
+
+    // Statutory fallbacks, used only while no active rule covers the type and date
+    private static final BigDecimal SOCIAL_SECURITY_RATE = new BigDecimal("0.062");
+    private static final BigDecimal SOCIAL_SECURITY_WAGE_BASE = new BigDecimal("168600"); // 2024
+    private static final BigDecimal MEDICARE_RATE = new BigDecimal("0.0145");
+    private static final BigDecimal DISABILITY_RATE = new BigDecimal("0.009");
+    private static final BigDecimal DEFAULT_FEDERAL_RATE = new BigDecimal("0.22");
+    private static final BigDecimal DEFAULT_STATE_RATE = new BigDecimal("0.05");
+    private static final int DEFAULT_PERIODS_PER_YEAR = 12;
+
+    private static final Set<String> INCOME_TAX_TYPES = Set.of("FEDERAL", "STATE", "LOCAL");
+
+    @Autowired
+    private TaxRuleRepository taxRuleRepository;
+
+    @Autowired
+    private StatutoryRuleRepository statutoryRuleRepository;
+
+    @Autowired
+    private PayFrequencyRepository payFrequencyRepository;
+
+    private final AtomicReference<CompiledTaxTables> tables = new AtomicReference<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            publish();
+        } catch (Exception e) {
+            logger.warn("Could not compile tax tables at startup, will retry on first use: {}", e.getMessage());
+        }
+    }
+
+    // The tables a payroll run should use; callers hold on to the returned snapshot for the whole run
+    public CompiledTaxTables current() {
+        CompiledTaxTables current = tables.get();
+        return current != null ? current : publish();
+    }
+
+    // Recompiles from the active rules and swaps the new version in; runs already holding the previous
+    // snapshot finish on it
+    public synchronized CompiledTaxTables publish() {
+        List<TaxRule> taxRules = taxRuleRepository.findByIsActiveTrue();
+        List<StatutoryRule> statutoryRules = statutoryRuleRepository.findByIsActiveTrue();
+        List<PayFrequency> frequencies = payFrequencyRepository.findByIsActiveTrue();
+
+        CompiledTaxTables previous = tables.get();
+        long version = previous != null ? previous.getVersion() + 1 : 1L;
+        CompiledTaxTables compiled = compile(version, taxRules, statutoryRules, frequencies);
+        tables.set(compiled);
+
+        logger.info("Published tax tables v{} from {} tax rule(s), {} statutory rule(s) and {} pay frequency(ies)",
+            version, taxRules.size(), statutoryRules.size(), frequencies.size());
+        return compiled;
+    }
+
+    private CompiledTaxTables compile(long version, List<TaxRule> taxRules, List<StatutoryRule> statutoryRules,
+                                      List<PayFrequency> frequencies) {
+        // Lowest id first, so that among rules competing for the same slot the oldest one wins
+        List<TaxRule> sortedTaxRules = new ArrayList<>(taxRules);
+        sortedTaxRules.sort(Comparator.comparing(TaxRule::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        List<StatutoryRule> sortedStatutoryRules = new ArrayList<>(statutoryRules);
+        sortedStatutoryRules.sort(Comparator.comparing(StatutoryRule::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        Map<String, List<TaxRule>> incomeRules = new HashMap<>();
+        Map<String, List<TaxRule>> contributionTaxRules = new HashMap<>();
+        for (TaxRule rule : sortedTaxRules) {
+            if (rule.getTaxType() == null) {
+                continue;
+            }
+            String key = CompiledTaxTables.key(rule.getTaxType(), rule.getStateCode());
+            if (INCOME_TAX_TYPES.contains(rule.getTaxType())) {
+                incomeRules.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
+            } else {
+                contributionTaxRules.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
+            }
+        }
+
+        Map<String, List<StatutoryRule>> contributionStatutoryRules = new HashMap<>();
+        for (StatutoryRule rule : sortedStatutoryRules) {
+            if (rule.getRuleType() != null) {
+                contributionStatutoryRules.computeIfAbsent(CompiledTaxTables.key(rule.getRuleType(), rule.getStateCode()),
+                    k -> new ArrayList<>()).add(rule);
+            }
+        }
+
+        Map<String, CompiledTaxTables.Timeline<CompiledTaxTables.BracketTable>> incomeTaxes = new HashMap<>();
+        incomeRules.forEach((key, rules) -> incomeTaxes.put(key,
+            compileTimeline(rules, TaxRule::getEffectiveFrom, TaxRule::getEffectiveTo, this::compileBrackets)));
+
+        // Statutory rules are the primary source for contributions; tax rules of the same type fill in
+        // jurisdictions that have no statutory rule
+        Map<String, CompiledTaxTables.Timeline<CompiledTaxTables.Contribution>> contributions = new HashMap<>();
+        contributionTaxRules.forEach((key, rules) -> contributions.put(key,
+            compileTimeline(rules, TaxRule::getEffectiveFrom, TaxRule::getEffectiveTo, active -> contributionFromTaxRule(active.get(0)))));
+        contributionStatutoryRules.forEach((key, rules) -> contributions.put(key,
+            compileTimeline(rules, StatutoryRule::getEffectiveFrom, StatutoryRule::getEffectiveTo, active -> contributionFromStatutoryRule(active.get(0)))));
+
+        Map<String, CompiledTaxTables.BracketTable> defaultIncomeTaxes = Map.of(
+            "FEDERAL", flatTable(FixedPointMoney.toRate(DEFAULT_FEDERAL_RATE)),
+            "STATE", flatTable(FixedPointMoney.toRate(DEFAULT_STATE_RATE)));
+        long socialSecurityRate = FixedPointMoney.toRate(SOCIAL_SECURITY_RATE);
+        long medicareRate = FixedPointMoney.toRate(MEDICARE_RATE);
+        Map<String, CompiledTaxTables.Contribution> defaultContributions = Map.of(
+            "SOCIAL_SECURITY", new CompiledTaxTables.Contribution(socialSecurityRate, socialSecurityRate, FixedPointMoney.toCents(SOCIAL_SECURITY_WAGE_BASE)),
+            "MEDICARE", new CompiledTaxTables.Contribution(medicareRate, medicareRate, Long.MAX_VALUE),
+            "DISABILITY", new CompiledTaxTables.Contribution(FixedPointMoney.toRate(DISABILITY_RATE), 0L, Long.MAX_VALUE));
+
+        Map<Long, Integer> periodsById = new HashMap<>();
+        Map<String, Integer> periodsByCode = new HashMap<>();
+        int defaultPeriods = DEFAULT_PERIODS_PER_YEAR;
+        for (PayFrequency frequency : frequencies) {
+            if (frequency.getPeriodsPerYear() == null || frequency.getPeriodsPerYear() <= 0) {
+                continue;
+            }
+            if (frequency.getId() != null) {
+                periodsById.put(frequency.getId(), frequency.getPeriodsPerYear());
+            }
+            if (frequency.getCode() != null) {
+                periodsByCode.put(frequency.getCode(), frequency.getPeriodsPerYear());
+            }
+            if (Boolean.TRUE.equals(frequency.getIsDefault())) {
+                defaultPeriods = frequency.getPeriodsPerYear();
+            }
+        }
+
+        return new CompiledTaxTables(version, incomeTaxes, defaultIncomeTaxes, contributions, defaultContributions,
+            periodsById, periodsByCode, defaultPeriods, taxRules.size() + statutoryRules.size());
+    }
+
+    // Splits the rules' effective ranges into consecutive versions: every effectiveFrom and every day after an
+    // effectiveTo starts a new version, compiled from the rules in effect on that day
+    private static <R, T> CompiledTaxTables.Timeline<T> compileTimeline(List<R> rules, Function<R, LocalDate> from,
+                                                                       Function<R, LocalDate> to, Function<List<R>, T> compiler) {
+        TreeSet<Long> boundaries = new TreeSet<>();
+        for (R rule : rules) {
+            boundaries.add(startDay(from.apply(rule)));
+            if (to.apply(rule) != null) {
+                boundaries.add(to.apply(rule).toEpochDay() + 1);
+            }
+        }
+
+        long[] starts = new long[boundaries.size()];
+        Object[] versions = new Object[boundaries.size()];
+        int i = 0;
+        for (long day : boundaries) {
+            List<R> active = new ArrayList<>();
+            for (R rule : rules) {
+                LocalDate end = to.apply(rule);
+                if (startDay(from.apply(rule)) <= day && (end == null || end.toEpochDay() >= day)) {
+                    active.add(rule);
+                }
+            }
+            starts[i] = day;
+            versions[i] = active.isEmpty() ? null : compiler.apply(active);
+            i++;
+        }
+        return new CompiledTaxTables.Timeline<>(starts, versions);
+    }
+
+    private static long startDay(LocalDate effectiveFrom) {
+        return effectiveFrom != null ? effectiveFrom.toEpochDay() : Long.MIN_VALUE;
+    }
+
+    private CompiledTaxTables.BracketTable compileBrackets(List<TaxRule> rules) {
+        // One row per lower bound; rules arrive lowest id first, so the oldest rule keeps a contested bound
+        TreeMap<Long, TaxRule> rows = new TreeMap<>();
+        for (TaxRule rule : rules) {
+            boolean fixedOnly = "FIXED".equals(rule.getCalculationBasis());
+            if ((fixedOnly && rule.getFixedAmount() == null) || (!fixedOnly && rule.getRate() == null)) {
+                continue;
+            }
+            rows.putIfAbsent(rule.getMinIncome() != null ? FixedPointMoney.toCents(rule.getMinIncome()) : Long.MIN_VALUE, rule);
+        }
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        int size = rows.size();
+        long[] lowerBounds = new long[size];
+        long[] upperBounds = new long[size];
+        long[] rates = new long[size];
+        long[] fixedAmounts = new long[size];
+        boolean[] excessOnly = new boolean[size];
+        boolean[] fixedOnly = new boolean[size];
+        int i = 0;
+        for (Map.Entry<Long, TaxRule> row : rows.entrySet()) {
+            TaxRule rule = row.getValue();
+            lowerBounds[i] = row.getKey();
+            upperBounds[i] = rule.getMaxIncome() != null ? FixedPointMoney.toCents(rule.getMaxIncome()) : Long.MAX_VALUE;
+            rates[i] = FixedPointMoney.percentToRate(rule.getRate());
+            fixedAmounts[i] = FixedPointMoney.toCents(rule.getFixedAmount());
+            fixedOnly[i] = "FIXED".equals(rule.getCalculationBasis());
+            excessOnly[i] = !fixedOnly[i] && rule.getMinIncome() != null && fixedAmounts[i] != 0L;
+            i++;
+        }
+        return new CompiledTaxTables.BracketTable(lowerBounds, upperBounds, rates, fixedAmounts, excessOnly, fixedOnly);
+    }
+
+    private static CompiledTaxTables.BracketTable flatTable(long rate) {
+        return new CompiledTaxTables.BracketTable(new long[] { Long.MIN_VALUE }, new long[] { Long.MAX_VALUE },
+            new long[] { rate }, new long[] { 0L }, new boolean[] { false }, new boolean[] { false });
+    }
+
+    private static CompiledTaxTables.Contribution contributionFromStatutoryRule(StatutoryRule rule) {
+        return new CompiledTaxTables.Contribution(
+            FixedPointMoney.percentToRate(rule.getEmployeeRate()),
+            FixedPointMoney.percentToRate(rule.getEmployerRate()),
+            rule.getWageBase() != null ? FixedPointMoney.toCents(rule.getWageBase()) : Long.MAX_VALUE);
+    }
+
+    private static CompiledTaxTables.Contribution contributionFromTaxRule(TaxRule rule) {
+        long employeeRate = Boolean.FALSE.equals(rule.getEmployeeContribution()) ? 0L : FixedPointMoney.percentToRate(rule.getRate());
+        long employerRate = rule.getEmployerRate() != null
+            ? FixedPointMoney.percentToRate(rule.getEmployerRate())
+            : Boolean.TRUE.equals(rule.getEmployerContribution()) ? FixedPointMoney.percentToRate(rule.getRate()) : 0L;
+        return new CompiledTaxTables.Contribution(employeeRate, employerRate,
+            rule.getMaxIncome() != null ? FixedPointMoney.toCents(rule.getMaxIncome()) : Long.MAX_VALUE);
+    }
+}
@@ -10,8 +10,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service
@@ -49,6 +54,26 @@ public class UserNotificationService {
         return notificationRepository.save(notification);
     }
     
+    // One insert batch for a set of recipients of the same notification
+    @Transactional
+    public List<UserNotification> createNotifications(Collection<String> recipientUsernames, String title, String message,
+            String type, String referenceType, Long referenceId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<UserNotification> notifications = new ArrayList<>();
+        for (String recipientUsername : new LinkedHashSet<>(recipientUsernames)) {
+            UserNotification notification = new UserNotification();
+            notification.setRecipientUsername(recipientUsername);
+            notification.setTitle(title);
+            notification.setMessage(message);
+            notification.setType(type);
+            notification.setReferenceType(referenceType);
+            notification.setReferenceId(referenceId);
+            notification.setCreatedAt(now);
+            notifications.add(notification);
+        }
+        return notificationRepository.saveAll(notifications);
+    }
+    
     @Transactional
     public void notifyAdmins(String title, String message, String type, String referenceType, Long referenceId) {
         List<User> admins = userRepository.findByRoleName("SUPER_ADMIN");
@@ -92,6 +117,79 @@ public class UserNotificationService {
         }
     }
 
+    // notifyEmployee for many employees at once: recipients are resolved with one lookup by employee code and
+    // one by email for the whole set, and all notifications go out in one insert batch
+    @Transactional
+    public List<UserNotification> notifyEmployees(List<EmployeeNotice> notices) {
+        Set<String> codes = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (EmployeeNotice notice : notices) {
+            if (notice.employee.getEmployeeCode() != null && !notice.employee.getEmployeeCode().isEmpty()) {
+                codes.add(notice.employee.getEmployeeCode());
+            }
+            if (notice.employee.getEmail() != null && !notice.employee.getEmail().isEmpty()) {
+                emails.add(notice.employee.getEmail());
+            }
+        }
+        Set<String> usernames = new HashSet<>();
+        if (!codes.isEmpty()) {
+            userRepository.findByUsernameIn(codes).forEach(u -> usernames.add(u.getUsername()));
+        }
+        Map<String, String> usernamesByEmail = new HashMap<>();
+        if (!emails.isEmpty()) {
+            userRepository.findByEmailIn(emails).forEach(u -> usernamesByEmail.put(u.getEmail(), u.getUsername()));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<UserNotification> notifications = new ArrayList<>();
+        for (EmployeeNotice notice : notices) {
+            Set<String> recipients = new LinkedHashSet<>();
+            if (usernames.contains(notice.employee.getEmployeeCode())) {
+                recipients.add(notice.employee.getEmployeeCode());
+            }
+            if (usernamesByEmail.containsKey(notice.employee.getEmail())) {
+                recipients.add(usernamesByEmail.get(notice.employee.getEmail()));
+            }
+            for (String recipientUsername : recipients) {
+                UserNotification notification = new UserNotification();
+                notification.setRecipientUsername(recipientUsername);
+                notification.setTitle(notice.title);
+                notification.setMessage(notice.message);
+                notification.setType(notice.type);
+                notification.setReferenceType(notice.referenceType);
+                notification.setReferenceId(notice.referenceId);
+                notification.setCreatedAt(now);
+                notifications.add(notification);
+            }
+        }
+        return notificationRepository.saveAll(notifications);
+    }
+
+    public static class EmployeeNotice {
+        private final Employee employee;
+        private final String title;
+        private final String message;
+        private final String type;
+        private final String referenceType;
+        private final Long referenceId;
+
+        public EmployeeNotice(Employee employee, String title, String message, String type, String referenceType, Long referenceId) {
+            this.employee = employee;
+            this.title = title;
+            this.message = message;
+            this.type = type;
+            this.referenceType = referenceType;
+            this.referenceId = referenceId;
+        }
+
+        public Employee getEmployee() { return employee; }
+        public String getTitle() { return title; }
+        public String getMessage() { return message; }
+        public String getType() { return type; }
+        public String getReferenceType() { return referenceType; }
+        public Long getReferenceId() { return referenceId; }
+    }
+
     @Transactional
     public void notifyAdminsAndHR(String title, String message, String type, String referenceType, Long referenceId) {
         Set<String> notified = new HashSet<>();
@@ -0,0 +1,189 @@
+package com.erp.service;
+
+import com.erp.model.BranchSettings;
+import com.erp.repository.BranchSettingsRepository;
+import com.erp.repository.HolidayRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Working-day calendar shared by leave, timesheets and overtime. For each branch and year it keeps bitsets of
+// weekend days and observed holidays, plus a running count of working days, so "working days between" is two
+// array reads per year touched. Years are built on first use from Holiday and the branch's weekend settings;
+// holiday and branch settings saves drop the cache through WorkingDayCalendarListener.
+@Service
+public class WorkingDayCalendar {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkingDayCalendar.class);
+
+    private static final Set<DayOfWeek> DEFAULT_WEEKEND = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+    private static final DayOfWeek DEFAULT_WORKWEEK_START = DayOfWeek.SUNDAY;
+    private static final Long NO_BRANCH = 0L;
+
+    @Autowired
+    private HolidayRepository holidayRepository;
+
+    @Autowired
+    private BranchSettingsRepository branchSettingsRepository;
+
+    // Swapped whole on invalidation, so a year still being built from old data lands in the discarded map
+    private volatile Map<List<Long>, YearCalendar> years = new ConcurrentHashMap<>();
+    private volatile Map<Long, WeekRules> weekRules = new ConcurrentHashMap<>();
+
+    public boolean isWorkingDay(Long branchId, LocalDate date) {
+        return year(branchId, date.getYear()).working.get(date.getDayOfYear() - 1);
+    }
+
+    public boolean isHoliday(Long branchId, LocalDate date) {
+        return year(branchId, date.getYear()).holidays.get(date.getDayOfYear() - 1);
+    }
+
+    public boolean isWeekend(Long branchId, LocalDate date) {
+        return rules(branchId).weekend.contains(date.getDayOfWeek());
+    }
+
+    // Working days from start to end, both inclusive
+    public int workingDaysBetween(Long branchId, LocalDate start, LocalDate end) {
+        int count = 0;
+        for (int year = start.getYear(); year <= end.getYear(); year++) {
+            YearCalendar calendar = year(branchId, year);
+            int from = year == start.getYear() ? start.getDayOfYear() - 1 : 0;
+            int to = year == end.getYear() ? end.getDayOfYear() - 1 : calendar.length - 1;
+            if (from <= to) {
+                count += calendar.workingBefore[to + 1] - calendar.workingBefore[from];
+            }
+        }
+        return count;
+    }
+
+    // Observed holidays from start to end that fall on a day that would otherwise be worked
+    public int holidaysBetween(Long branchId, LocalDate start, LocalDate end) {
+        int count = 0;
+        for (int year = start.getYear(); year <= end.getYear(); year++) {
+            YearCalendar calendar = year(branchId, year);
+            int from = year == start.getYear() ? start.getDayOfYear() - 1 : 0;
+            int to = year == end.getYear() ? end.getDayOfYear() - 1 : calendar.length - 1;
+            if (from <= to) {
+                count += calendar.weekdayHolidaysBefore[to + 1] - calendar.weekdayHolidaysBefore[from];
+            }
+        }
+        return count;
+    }
+
+    public DayOfWeek workweekStartDay(Long branchId) {
+        return rules(branchId).workweekStart;
+    }
+
+    // First and last day of the overtime workweek containing the date
+    public LocalDate workweekStart(Long branchId, LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(workweekStartDay(branchId)));
+    }
+
+    public LocalDate workweekEnd(Long branchId, LocalDate date) {
+        return workweekStart(branchId, date).plusDays(6);
+    }
+
+    public void invalidate() {
+        years = new ConcurrentHashMap<>();
+        weekRules = new ConcurrentHashMap<>();
+    }
+
+    private YearCalendar year(Long branchId, int year) {
+        Long key = branchId != null ? branchId : NO_BRANCH;
+        return years.computeIfAbsent(List.of(key, (long) year), k -> build(branchId, year));
+    }
+
+    private WeekRules rules(Long branchId) {
+        Long key = branchId != null ? branchId : NO_BRANCH;
+        return weekRules.computeIfAbsent(key, k -> loadRules(branchId));
+    }
+
+    private YearCalendar build(Long branchId, int year) {
+        WeekRules rules = rules(branchId);
+        LocalDate first = LocalDate.of(year, 1, 1);
+        int length = first.lengthOfYear();
+        BitSet holidays = new BitSet(length);
+        for (LocalDate date : holidayRepository.findObservedHolidayDates(branchId, first, first.withDayOfYear(length))) {
+            holidays.set(date.getDayOfYear() - 1);
+        }
+        BitSet working = new BitSet(length);
+        int[] workingBefore = new int[length + 1];
+        int[] weekdayHolidaysBefore = new int[length + 1];
+        DayOfWeek dayOfWeek = first.getDayOfWeek();
+        for (int day = 0; day < length; day++) {
+            boolean weekend = rules.weekend.contains(dayOfWeek);
+            if (!weekend && !holidays.get(day)) {
+                working.set(day);
+            }
+            workingBefore[day + 1] = workingBefore[day] + (working.get(day) ? 1 : 0);
+            weekdayHolidaysBefore[day + 1] = weekdayHolidaysBefore[day] + (!weekend && holidays.get(day) ? 1 : 0);
+            dayOfWeek = dayOfWeek.plus(1);
+        }
+        logger.debug("Built working-day calendar for branch {} year {}: {} working day(s), {} holiday(s)",
+            branchId, year, workingBefore[length], holidays.cardinality());
+        return new YearCalendar(length, working, holidays, workingBefore, weekdayHolidaysBefore);
+    }
+
+    private WeekRules loadRules(Long branchId) {
+        Optional<BranchSettings> settings = branchId != null ? branchSettingsRepository.findByBranchId(branchId) : Optional.empty();
+        Set<DayOfWeek> weekend = settings.map(BranchSettings::getWeekendDays).map(WorkingDayCalendar::parseWeekend).orElse(DEFAULT_WEEKEND);
+        DayOfWeek workweekStart = settings.map(BranchSettings::getWorkweekStartDay).map(WorkingDayCalendar::parseDay)
+            .orElse(DEFAULT_WORKWEEK_START);
+        return new WeekRules(weekend, workweekStart);
+    }
+
+    private static Set<DayOfWeek> parseWeekend(String days) {
+        Set<DayOfWeek> weekend = EnumSet.noneOf(DayOfWeek.class);
+        for (String day : days.split(",")) {
+            DayOfWeek parsed = parseDay(day);
+            if (parsed != null) {
+                weekend.add(parsed);
+            }
+        }
+        return weekend;
+    }
+
+    private static DayOfWeek parseDay(String day) {
+        try {
+            return day.isBlank() ? null : DayOfWeek.valueOf(day.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring unknown day of week in branch settings: {}", day);
+            return null;
+        }
+    }
+
+    // Day-of-year indexed, zero based; the *Before arrays hold running counts of the days before each index
+    private static class YearCalendar {
+        private final int length;
+        private final BitSet working;
+        private final BitSet holidays;
+        private final int[] workingBefore;
+        private final int[] weekdayHolidaysBefore;
+
+        YearCalendar(int length, BitSet working, BitSet holidays, int[] workingBefore, int[] weekdayHolidaysBefore) {
+            this.length = length;
+            this.working = working;
+            this.holidays = holidays;
+            this.workingBefore = workingBefore;
+            this.weekdayHolidaysBefore = weekdayHolidaysBefore;
+        }
+    }
+
+    private static class WeekRules {
+        private final Set<DayOfWeek> weekend;
+        private final DayOfWeek workweekStart;
+
+        WeekRules(Set<DayOfWeek> weekend, DayOfWeek workweekStart) {
+            this.weekend = weekend;
+            this.workweekStart = workweekStart;
+        }
+    }
+}
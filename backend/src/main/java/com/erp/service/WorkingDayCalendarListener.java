@@ -0,0 +1,36 @@
+package com.erp.service;
+
+import com.erp.model.BranchSettings;
+import com.erp.model.Holiday;
+import com.erp.model.listener.EntityChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Drops the cached WorkingDayCalendar years when a holiday or branch settings row is saved or deleted; inside a
+// transaction the cache is dropped once it commits. Years are rebuilt lazily on the next query.
+@Component
+public class WorkingDayCalendarListener {
+
+    @Autowired
+    private WorkingDayCalendar workingDayCalendar;
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!(event.getEntity() instanceof Holiday) && !(event.getEntity() instanceof BranchSettings)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    workingDayCalendar.invalidate();
+                }
+            });
+        } else {
+            workingDayCalendar.invalidate();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.erp.service;
+
+import com.erp.model.PayFrequency;
+import com.erp.model.StatutoryRule;
+import com.erp.model.TaxRule;
+import com.erp.repository.PayFrequencyRepository;
+import com.erp.repository.StatutoryRuleRepository;
+import com.erp.repository.TaxRuleRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+// Parity of the compiled bracket tables with the same rules evaluated directly in BigDecimal
+@ExtendWith(MockitoExtension.class)
+class CompiledTaxTablesTest {
+
+    private static final LocalDate PAY_DATE = LocalDate.of(2024, 6, 28);
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    @Mock
+    private TaxRuleRepository taxRuleRepository;
+
+    @Mock
+    private StatutoryRuleRepository statutoryRuleRepository;
+
+    @Mock
+    private PayFrequencyRepository payFrequencyRepository;
+
+    @InjectMocks
+    private TaxRuleTableService taxRuleTableService;
+
+    private List<TaxRule> federalBrackets;
+    private TaxRule stateFlat;
+    private TaxRule capped;
+    private StatutoryRule socialSecurity;
+
+    @BeforeEach
+    void setUp() {
+        federalBrackets = List.of(
+            taxRule(1L, "FEDERAL", null, "10", "0", "11600", null, null),
+            taxRule(2L, "FEDERAL", null, "12", "11600", "47150", "1160", null),
+            taxRule(3L, "FEDERAL", null, "22", "47150", "100525", "5426", null),
+            taxRule(4L, "FEDERAL", null, "24", "100525", null, "17168.50", null));
+        stateFlat = taxRule(5L, "STATE", null, "4.95", null, null, null, null);
+        capped = taxRule(6L, "LOCAL", null, "1.5", null, "50000", null, null);
+        socialSecurity = new StatutoryRule();
+        socialSecurity.setId(1L);
+        socialSecurity.setRuleType("SOCIAL_SECURITY");
+        socialSecurity.setEmployeeRate(new BigDecimal("6.2"));
+        socialSecurity.setEmployerRate(new BigDecimal("6.2"));
+        socialSecurity.setWageBase(new BigDecimal("168600"));
+    }
+
+    @Test
+    void bracketEdgesMatchBigDecimal() {
+        CompiledTaxTables.BracketTable federal = compile().incomeTax("FEDERAL", null, PAY_DATE);
+        String[] incomes = { "0", "0.01", "11599.99", "11600", "11600.01", "47149.99", "47150", "47150.01",
+            "100524.99", "100525", "100525.01", "250000", "1000000.37" };
+        for (String income : incomes) {
+            BigDecimal annual = new BigDecimal(income);
+            assertEquals(referenceAnnualTax(federalBrackets, annual),
+                FixedPointMoney.fromCents(federal.annualTax(FixedPointMoney.toCents(annual))), "annual income " + income);
+        }
+    }
+
+    @Test
+    void periodTaxMatchesAnnualisedBigDecimal() {
+        CompiledTaxTables tables = compile();
+        CompiledTaxTables.BracketTable federal = tables.incomeTax("FEDERAL", null, PAY_DATE);
+        CompiledTaxTables.BracketTable local = tables.incomeTax("LOCAL", null, PAY_DATE);
+        Random random = new Random(20240628L);
+        int[] frequencies = { 52, 26, 24, 12 };
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal wages = BigDecimal.valueOf(random.nextInt(2_500_000), 2);
+            int periods = frequencies[i % frequencies.length];
+            BigDecimal annual = wages.multiply(BigDecimal.valueOf(periods));
+
+            BigDecimal federalTax = referenceAnnualTax(federalBrackets, annual).divide(BigDecimal.valueOf(periods), 2, RoundingMode.HALF_UP);
+            assertEquals(federalTax, FixedPointMoney.fromCents(federal.periodTax(FixedPointMoney.toCents(wages), periods)),
+                wages + " x " + periods);
+
+            BigDecimal localTax = referenceAnnualTax(List.of(capped), annual).divide(BigDecimal.valueOf(periods), 2, RoundingMode.HALF_UP);
+            assertEquals(localTax, FixedPointMoney.fromCents(local.periodTax(FixedPointMoney.toCents(wages), periods)),
+                wages + " x " + periods + " capped");
+        }
+    }
+
+    @Test
+    void flatRatesMatchThePreviousBigDecimalPath() {
+        CompiledTaxTables tables = compile();
+        CompiledTaxTables.BracketTable state = tables.incomeTax("STATE", null, PAY_DATE);
+        Random random = new Random(20240628L);
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal taxable = BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, 2);
+            BigDecimal expected = taxable.multiply(stateFlat.getRate().divide(HUNDRED)).setScale(2, RoundingMode.HALF_UP);
+            assertEquals(expected, FixedPointMoney.fromCents(state.periodTax(FixedPointMoney.toCents(taxable), 12)), taxable.toPlainString());
+        }
+    }
+
+    @Test
+    void defaultsApplyWhenNoRuleCoversTheType() {
+        when(taxRuleRepository.findByIsActiveTrue()).thenReturn(List.of());
+        when(statutoryRuleRepository.findByIsActiveTrue()).thenReturn(List.of());
+        when(payFrequencyRepository.findByIsActiveTrue()).thenReturn(List.of());
+        CompiledTaxTables tables = taxRuleTableService.publish();
+
+        BigDecimal taxable = new BigDecimal("4321.99");
+        assertEquals(taxable.multiply(new BigDecimal("0.22")).setScale(2, RoundingMode.HALF_UP),
+            FixedPointMoney.fromCents(tables.incomeTax("FEDERAL", null, PAY_DATE).periodTax(FixedPointMoney.toCents(taxable), 12)));
+        assertEquals(taxable.multiply(new BigDecimal("0.05")).setScale(2, RoundingMode.HALF_UP),
+            FixedPointMoney.fromCents(tables.incomeTax("STATE", "TX", PAY_DATE).periodTax(FixedPointMoney.toCents(taxable), 12)));
+        assertEquals(0L, tables.incomeTax("LOCAL", null, PAY_DATE).periodTax(FixedPointMoney.toCents(taxable), 12));
+        assertEquals(12, tables.periodsPerYear((PayFrequency) null));
+    }
+
+    @Test
+    void zeroAndNegativeWagesMatchBigDecimal() {
+        CompiledTaxTables tables = compile();
+        CompiledTaxTables.BracketTable federal = tables.incomeTax("FEDERAL", null, PAY_DATE);
+        assertEquals(0L, federal.periodTax(0L, 26));
+        // Below the lowest bracket no row applies, as in the reference
+        assertEquals(referenceAnnualTax(federalBrackets, new BigDecimal("-2600")), FixedPointMoney.fromCents(federal.annualTax(-260_000L)));
+        assertEquals(0L, federal.periodTax(-10_000L, 26));
+
+        CompiledTaxTables.Contribution contribution = tables.contribution("SOCIAL_SECURITY", null, PAY_DATE);
+        assertEquals(0L, contribution.employeeAmount(0L, 0L));
+        assertEquals(0L, contribution.employeeAmount(-50_000L, 0L));
+    }
+
+    @Test
+    void contributionWageBaseEdgesMatchBigDecimal() {
+        CompiledTaxTables.Contribution contribution = compile().contribution("SOCIAL_SECURITY", null, PAY_DATE);
+        BigDecimal wageBase = socialSecurity.getWageBase();
+        BigDecimal rate = socialSecurity.getEmployeeRate().divide(HUNDRED);
+        String[][] cases = { { "5000", "0" }, { "5000", "163600" }, { "5000", "163600.01" }, { "5000", "168599.99" },
+            { "5000", "168600" }, { "5000", "200000" }, { "0.01", "168599.99" } };
+        for (String[] c : cases) {
+            BigDecimal wages = new BigDecimal(c[0]);
+            BigDecimal toDate = new BigDecimal(c[1]);
+            BigDecimal cappedWages = wages.min(wageBase.subtract(toDate).max(BigDecimal.ZERO));
+            assertEquals(cappedWages.multiply(rate).setScale(2, RoundingMode.HALF_UP),
+                FixedPointMoney.fromCents(contribution.employeeAmount(FixedPointMoney.toCents(wages), FixedPointMoney.toCents(toDate))),
+                c[0] + " after " + c[1]);
+        }
+    }
+
+    @Test
+    void largeIncomesFallBackToExactArithmetic() {
+        CompiledTaxTables.BracketTable federal = compile().incomeTax("FEDERAL", null, PAY_DATE);
+        // 24% of a trillion in cents overflows a long product and takes the BigInteger path
+        BigDecimal annual = new BigDecimal("1000000000000.00");
+        assertEquals(referenceAnnualTax(federalBrackets, annual), FixedPointMoney.fromCents(federal.annualTax(FixedPointMoney.toCents(annual))));
+        // Annualising wages that no long can hold fails loudly rather than wrapping around
+        assertThrows(ArithmeticException.class, () -> federal.periodTax(Long.MAX_VALUE / 2, 26));
+    }
+
+    private CompiledTaxTables compile() {
+        List<TaxRule> rules = new ArrayList<>(federalBrackets);
+        rules.add(stateFlat);
+        rules.add(capped);
+        when(taxRuleRepository.findByIsActiveTrue()).thenReturn(rules);
+        when(statutoryRuleRepository.findByIsActiveTrue()).thenReturn(List.of(socialSecurity));
+        when(payFrequencyRepository.findByIsActiveTrue()).thenReturn(List.of());
+        return taxRuleTableService.publish();
+    }
+
+    // The percentage method in BigDecimal: the row with the highest lower bound not above the income applies;
+    // a fixed amount makes the rate apply to the excess over that bound, and an upper bound caps the taxed base
+    private static BigDecimal referenceAnnualTax(List<TaxRule> rows, BigDecimal income) {
+        TaxRule row = null;
+        for (TaxRule rule : rows) {
+            if (rule.getMinIncome() != null && rule.getMinIncome().compareTo(income) > 0) {
+                continue;
+            }
+            if (row == null || row.getMinIncome() == null
+                    || (rule.getMinIncome() != null && rule.getMinIncome().compareTo(row.getMinIncome()) > 0)) {
+                row = rule;
+            }
+        }
+        if (row == null) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        BigDecimal fixed = row.getFixedAmount() != null ? row.getFixedAmount() : BigDecimal.ZERO;
+        BigDecimal base = row.getMaxIncome() != null ? income.min(row.getMaxIncome()) : income;
+        BigDecimal rate = row.getRate().divide(HUNDRED);
+        if (row.getMinIncome() != null && fixed.signum() != 0) {
+            base = base.subtract(row.getMinIncome());
+        }
+        return fixed.add(base.multiply(rate).setScale(2, RoundingMode.HALF_UP)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static TaxRule taxRule(Long id, String type, String stateCode, String rate, String minIncome, String maxIncome,
+                                   String fixedAmount, String calculationBasis) {
+        TaxRule rule = new TaxRule();
+        rule.setId(id);
+        rule.setTaxType(type);
+        rule.setStateCode(stateCode);
+        rule.setRate(new BigDecimal(rate));
+        rule.setMinIncome(minIncome != null ? new BigDecimal(minIncome) : null);
+        rule.setMaxIncome(maxIncome != null ? new BigDecimal(maxIncome) : null);
+        rule.setFixedAmount(fixedAmount != null ? new BigDecimal(fixedAmount) : null);
+        rule.setCalculationBasis(calculationBasis);
+        rule.setIsActive(true);
+        return rule;
+    }
+}
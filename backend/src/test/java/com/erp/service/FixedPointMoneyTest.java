@@ -0,0 +1,144 @@
+package com.erp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Parity of the long-cents arithmetic with the BigDecimal expressions gross-to-net used before it
+class FixedPointMoneyTest {
+
+    private static final long SEED = 20240101L;
+    private static final int SAMPLES = 20_000;
+    private static final BigDecimal HOURS_PER_YEAR = BigDecimal.valueOf(2080);
+    private static final BigDecimal OVERTIME_MULTIPLIER = new BigDecimal("1.5");
+
+    @Test
+    void hourlyRateMatchesBigDecimalDivide() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal annualSalary = BigDecimal.valueOf(random.nextInt(50_000_000), 2);
+            BigDecimal expected = annualSalary.divide(HOURS_PER_YEAR, 2, RoundingMode.HALF_UP);
+            long actual = FixedPointMoney.divide(FixedPointMoney.toCents(annualSalary), 2080L, RoundingMode.HALF_UP);
+            assertEquals(expected, FixedPointMoney.fromCents(actual), "annual salary " + annualSalary);
+        }
+    }
+
+    @Test
+    void baseAndOvertimePayMatchBigDecimal() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal hours = BigDecimal.valueOf(random.nextInt(300_00), 2);
+            BigDecimal hourlyRate = BigDecimal.valueOf(random.nextInt(50_000), 2);
+
+            BigDecimal basePay = hours.multiply(hourlyRate).setScale(2, RoundingMode.HALF_UP);
+            assertEquals(basePay, FixedPointMoney.fromCents(FixedPointMoney.multiplyHours(
+                FixedPointMoney.toHours(hours), FixedPointMoney.toCents(hourlyRate), RoundingMode.HALF_UP)), hours + " x " + hourlyRate);
+
+            BigDecimal overtimePay = hours.multiply(hourlyRate).multiply(OVERTIME_MULTIPLIER).setScale(2, RoundingMode.HALF_UP);
+            assertEquals(overtimePay, FixedPointMoney.fromCents(FixedPointMoney.multiplyHours(
+                FixedPointMoney.toHours(hours), FixedPointMoney.toCents(hourlyRate), FixedPointMoney.toRate(OVERTIME_MULTIPLIER),
+                RoundingMode.HALF_UP)), hours + " x " + hourlyRate + " x 1.5");
+        }
+    }
+
+    @Test
+    void rateMatchesBigDecimalIncludingNegativeAmounts() {
+        Random random = new Random(SEED);
+        BigDecimal[] rates = { new BigDecimal("0.062"), new BigDecimal("0.0145"), new BigDecimal("0.009"),
+            new BigDecimal("0.22"), new BigDecimal("0.05"), new BigDecimal("0.123456") };
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, 2);
+            BigDecimal rate = rates[i % rates.length];
+            BigDecimal expected = amount.multiply(rate).setScale(2, RoundingMode.HALF_UP);
+            long actual = FixedPointMoney.applyRate(FixedPointMoney.toCents(amount), FixedPointMoney.toRate(rate), RoundingMode.HALF_UP);
+            assertEquals(expected, FixedPointMoney.fromCents(actual), amount + " x " + rate);
+        }
+    }
+
+    @Test
+    void percentRateMatchesDividingByHundred() {
+        BigDecimal percent = new BigDecimal("7.65");
+        BigDecimal amount = new BigDecimal("1234.57");
+        BigDecimal expected = amount.multiply(percent.divide(BigDecimal.valueOf(100))).setScale(2, RoundingMode.HALF_UP);
+        assertEquals(expected, FixedPointMoney.fromCents(FixedPointMoney.applyRate(
+            FixedPointMoney.toCents(amount), FixedPointMoney.percentToRate(percent), RoundingMode.HALF_UP)));
+        assertEquals(0L, FixedPointMoney.percentToRate(null));
+    }
+
+    @Test
+    void divideMatchesBigDecimalForEveryRoundingMode() {
+        long[] dividends = { 0, 1, 5, 15, 25, 35, -1, -5, -15, -25, -35, 99, -99, 1_000_001, -1_000_001, 7, -7 };
+        long[] divisors = { 1, 2, 3, 10, -10, 7, 2080, -3 };
+        for (RoundingMode mode : RoundingMode.values()) {
+            if (mode == RoundingMode.UNNECESSARY) {
+                continue;
+            }
+            for (long dividend : dividends) {
+                for (long divisor : divisors) {
+                    long expected = BigDecimal.valueOf(dividend).divide(BigDecimal.valueOf(divisor), 0, mode).longValueExact();
+                    assertEquals(expected, FixedPointMoney.divide(dividend, divisor, mode), dividend + " / " + divisor + " " + mode);
+                }
+            }
+        }
+    }
+
+    @Test
+    void halfwayCentsRoundLikeBigDecimal() {
+        // Half a cent either side of zero sits exactly on the rounding boundary
+        assertEquals(new BigDecimal("0.01"), FixedPointMoney.fromCents(FixedPointMoney.applyRate(1L, 500_000L, RoundingMode.HALF_UP)));
+        assertEquals(new BigDecimal("-0.01"), FixedPointMoney.fromCents(FixedPointMoney.applyRate(-1L, 500_000L, RoundingMode.HALF_UP)));
+        assertEquals(new BigDecimal("0.00"), FixedPointMoney.fromCents(FixedPointMoney.applyRate(1L, 500_000L, RoundingMode.HALF_EVEN)));
+        assertEquals(new BigDecimal("0.00"), FixedPointMoney.fromCents(FixedPointMoney.applyRate(1L, 500_000L, RoundingMode.HALF_DOWN)));
+    }
+
+    @Test
+    void zeroAndNullConvertToZero() {
+        assertEquals(0L, FixedPointMoney.toCents(null));
+        assertEquals(0L, FixedPointMoney.toCents(BigDecimal.ZERO));
+        assertEquals(0L, FixedPointMoney.applyRate(0L, 62_000L, RoundingMode.HALF_UP));
+        assertEquals(0L, FixedPointMoney.multiplyHours(0L, 12_345L, RoundingMode.HALF_UP));
+        assertEquals(new BigDecimal("0.00"), FixedPointMoney.fromCents(0L));
+    }
+
+    @Test
+    void conversionsRoundHalfUpAtTheirScale() {
+        assertEquals(1001L, FixedPointMoney.toCents(new BigDecimal("10.005")));
+        assertEquals(-1001L, FixedPointMoney.toCents(new BigDecimal("-10.005")));
+        assertEquals(62_000L, FixedPointMoney.toRate(new BigDecimal("0.062")));
+        assertEquals(new BigDecimal("0.062"), FixedPointMoney.fromRate(62_000L));
+        assertEquals(new BigDecimal("8.00"), FixedPointMoney.fromHours(80_000L));
+        assertEquals(new BigDecimal("7.5025"), FixedPointMoney.fromHours(75_025L));
+    }
+
+    @Test
+    void overflowFallsBackToExactArithmetic() {
+        long cents = Long.MAX_VALUE / 1_000L;
+        long rate = 3_700_000L;
+        long expected = new BigDecimal(BigInteger.valueOf(cents).multiply(BigInteger.valueOf(rate)))
+            .divide(BigDecimal.valueOf(FixedPointMoney.ONE_RATE), 0, RoundingMode.HALF_UP).longValueExact();
+        assertEquals(expected, FixedPointMoney.applyRate(cents, rate, RoundingMode.HALF_UP));
+        assertEquals(-expected, FixedPointMoney.applyRate(-cents, rate, RoundingMode.HALF_UP));
+
+        long hours = 90_000_000_000L;
+        long centsPerHour = 1_000_000L;
+        long multiplier = 1_500_000L;
+        long expectedOvertime = new BigDecimal(BigInteger.valueOf(hours).multiply(BigInteger.valueOf(centsPerHour)).multiply(BigInteger.valueOf(multiplier)))
+            .divide(BigDecimal.valueOf(FixedPointMoney.ONE_HOUR * FixedPointMoney.ONE_RATE), 0, RoundingMode.HALF_UP).longValueExact();
+        assertEquals(expectedOvertime, FixedPointMoney.multiplyHours(hours, centsPerHour, multiplier, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void resultsOutsideLongRangeAndInvalidDivisionsThrow() {
+        assertThrows(ArithmeticException.class, () -> FixedPointMoney.applyRate(Long.MAX_VALUE, 2 * FixedPointMoney.ONE_RATE, RoundingMode.HALF_UP));
+        assertThrows(ArithmeticException.class, () -> FixedPointMoney.toCents(new BigDecimal("1e30")));
+        assertThrows(ArithmeticException.class, () -> FixedPointMoney.divide(10L, 0L, RoundingMode.HALF_UP));
+        assertThrows(ArithmeticException.class, () -> FixedPointMoney.divide(10L, 3L, RoundingMode.UNNECESSARY));
+        assertEquals(5L, FixedPointMoney.divide(10L, 2L, RoundingMode.UNNECESSARY));
+    }
+}